@@ -62,6 +62,11 @@ public class UncertainSplitFilter extends AbstractConversionFilter<NumberVector,
     this.dims = dims;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected UnweightedDiscreteUncertainObject filterSingleObject(NumberVector vec) {
     final int dim = vec.getDimensionality();
@@ -83,6 +83,11 @@ public class WeightedUncertainSplitFilter extends AbstractConversionFilter<Numbe
     this.mod = dims + 1;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected WeightedDiscreteUncertainObject filterSingleObject(NumberVector vec) {
     final int dim = vec.getDimensionality();
@@ -0,0 +1,650 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.clustering.dbscan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import elki.clustering.ClusteringAlgorithm;
+import elki.data.Cluster;
+import elki.data.Clustering;
+import elki.data.NumberVector;
+import elki.data.model.ClusterModel;
+import elki.data.model.Model;
+import elki.data.type.TypeInformation;
+import elki.data.type.TypeUtil;
+import elki.database.ids.*;
+import elki.database.relation.Relation;
+import elki.database.relation.RelationUtil;
+import elki.logging.Logging;
+import elki.logging.progress.FiniteProgress;
+import elki.logging.statistics.LongStatistic;
+import elki.result.Metadata;
+import elki.utilities.datastructures.unionfind.WeightedQuickUnionInteger;
+import elki.utilities.documentation.Reference;
+import elki.utilities.documentation.Title;
+import elki.utilities.exceptions.IncompatibleDataException;
+import elki.utilities.optionhandling.Parameterizer;
+import elki.utilities.optionhandling.constraints.CommonConstraints;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.DoubleParameter;
+import elki.utilities.optionhandling.parameters.IntParameter;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.jafama.FastMath;
+
+/**
+ * Exact DBSCAN for low-dimensional Euclidean data, accelerated with a hash
+ * grid of cell width \(\varepsilon/\sqrt{d}\).
+ * <p>
+ * Because the diameter of each grid cell is at most \(\varepsilon\), all
+ * points of a cell containing at least minPts points are core points without
+ * any distance computation. For the remaining cells, core points are detected
+ * by counting neighbors in the (constant number of) neighboring cells only.
+ * Core cells are then connected by a bichromatic closest pair test (with early
+ * termination), and border points are assigned to the first core cell found
+ * within \(\varepsilon\). For small dimensionality (say \(d\leq 5\)), this runs
+ * in near-linear time, but the number of neighbor cells grows exponentially
+ * with the dimensionality.
+ * <p>
+ * This implementation only supports Euclidean distance. Core points and the
+ * cluster structure are identical to DBSCAN; border points that are reachable
+ * from more than one cluster may be assigned differently.
+ * <p>
+ * Reference:
+ * <p>
+ * J. Gunawan<br>
+ * A faster algorithm for DBSCAN<br>
+ * Master's thesis, Technische Universiteit Eindhoven
+ * <p>
+ * M. de Berg, A. Gunawan, M. Roeloffzen<br>
+ * Faster DBSCAN and HDBSCAN in Low-Dimensional Euclidean Spaces<br>
+ * Proc. 28th Int. Symp. Algorithms and Computation (ISAAC 2017)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - Instance
+ *
+ * @param <V> the type of vector the algorithm is applied to
+ */
+@Title("Grid-accelerated exact Euclidean DBSCAN")
+@Reference(authors = "J. Gunawan", //
+    title = "A faster algorithm for DBSCAN", //
+    booktitle = "Master's thesis, Technische Universiteit Eindhoven", //
+    url = "https://pure.tue.nl/ws/portalfiles/portal/46931805/747860-1.pdf", //
+    bibkey = "mastersthesis/tue/Gunawan13")
+@Reference(authors = "M. de Berg, A. Gunawan, M. Roeloffzen", //
+    title = "Faster DBSCAN and HDBSCAN in Low-Dimensional Euclidean Spaces", //
+    booktitle = "Proc. 28th Int. Symp. Algorithms and Computation (ISAAC 2017)", //
+    url = "https://doi.org/10.4230/LIPIcs.ISAAC.2017.25", //
+    bibkey = "DBLP:conf/isaac/BergGR17")
+public class EuclideanGridDBSCAN<V extends NumberVector> implements ClusteringAlgorithm<Clustering<Model>> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(EuclideanGridDBSCAN.class);
+
+  /**
+   * Holds the epsilon radius threshold.
+   */
+  protected double epsilon;
+
+  /**
+   * Holds the minimum cluster size.
+   */
+  protected int minpts;
+
+  /**
+   * Constructor with parameters.
+   *
+   * @param epsilon Epsilon value
+   * @param minpts Minpts parameter
+   */
+  public EuclideanGridDBSCAN(double epsilon, int minpts) {
+    super();
+    this.epsilon = epsilon;
+    this.minpts = minpts;
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+
+  /**
+   * Performs the DBSCAN algorithm on the given database.
+   *
+   * @param relation Relation to process
+   * @return Clustering result
+   */
+  public Clustering<Model> run(Relation<V> relation) {
+    final DBIDs ids = relation.getDBIDs();
+    // Degenerate result:
+    if(ids.size() < minpts) {
+      Clustering<Model> result = new Clustering<>();
+      Metadata.of(result).setLongName("DBSCAN Clustering");
+      result.addToplevelCluster(new Cluster<Model>(ids, true, ClusterModel.CLUSTER));
+      return result;
+    }
+    return new Instance(epsilon, minpts).run(relation);
+  }
+
+  /**
+   * A single occupied grid cell.
+   *
+   * @author Erich Schubert
+   */
+  private static class Cell {
+    /**
+     * Integer grid coordinates.
+     */
+    int[] coord;
+
+    /**
+     * Members of the cell.
+     */
+    ArrayModifiableDBIDs ids = DBIDUtil.newArray();
+
+    /**
+     * Flattened coordinates of the members, for fast distance computations.
+     */
+    double[] data;
+
+    /**
+     * Core point flags.
+     */
+    boolean[] core;
+
+    /**
+     * Number of core points in this cell.
+     */
+    int ncore;
+
+    /**
+     * Occupied neighbor cells that may contain points within epsilon.
+     */
+    Cell[] neighbors;
+
+    /**
+     * Index in the union-find data structure, -1 if not a core cell.
+     */
+    int component = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param coord Grid coordinates
+     */
+    Cell(int[] coord) {
+      this.coord = coord;
+    }
+  }
+
+  /**
+   * Instance, for a single run.
+   *
+   * @author Erich Schubert
+   */
+  protected static class Instance {
+    /**
+     * Holds the epsilon radius threshold.
+     */
+    protected double epsilon;
+
+    /**
+     * Squared epsilon.
+     */
+    protected double sqeps;
+
+    /**
+     * Holds the minimum cluster size.
+     */
+    protected int minpts;
+
+    /**
+     * Dimensionality.
+     */
+    protected int dim;
+
+    /**
+     * Width of a grid cell, epsilon / sqrt(dim).
+     */
+    protected double width;
+
+    /**
+     * Grid origin.
+     */
+    protected double[] min;
+
+    /**
+     * Number of cells in each dimension.
+     */
+    protected int[] cells;
+
+    /**
+     * Multipliers to linearize cell coordinates.
+     */
+    protected long[] stride;
+
+    /**
+     * Occupied cells, in order of creation.
+     */
+    protected List<Cell> cellList = new ArrayList<>();
+
+    /**
+     * Grid lookup map.
+     */
+    protected Long2ObjectOpenHashMap<Cell> grid = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Number of distance computations.
+     */
+    protected long distcount;
+
+    /**
+     * Constructor.
+     *
+     * @param epsilon Epsilon
+     * @param minpts MinPts
+     */
+    public Instance(double epsilon, int minpts) {
+      this.epsilon = epsilon;
+      this.sqeps = epsilon * epsilon;
+      this.minpts = minpts;
+    }
+
+    /**
+     * Performs the DBSCAN algorithm on the given database.
+     *
+     * @param relation Relation to process
+     * @return Clustering
+     */
+    public Clustering<Model> run(Relation<? extends NumberVector> relation) {
+      this.dim = RelationUtil.dimensionality(relation);
+      if(dim > 5) {
+        LOG.warning("The grid approach is only efficient for low dimensionality, consider using DBSCAN with an index instead.");
+      }
+      this.width = epsilon / FastMath.sqrt(dim);
+      buildGrid(relation);
+      int[][] offsets = neighborOffsets();
+      for(Cell cell : cellList) {
+        cell.neighbors = findNeighbors(cell, offsets);
+      }
+      int dense = findCorePoints(relation.size());
+      WeightedQuickUnionInteger uf = connectCoreCells();
+      Clustering<Model> result = buildResult(uf);
+      LOG.statistics(new LongStatistic(EuclideanGridDBSCAN.class.getName() + ".occupied-cells", cellList.size()));
+      LOG.statistics(new LongStatistic(EuclideanGridDBSCAN.class.getName() + ".dense-cells", dense));
+      LOG.statistics(new LongStatistic(EuclideanGridDBSCAN.class.getName() + ".distance-computations", distcount));
+      return result;
+    }
+
+    /**
+     * Build the data grid.
+     *
+     * @param relation Data relation
+     */
+    protected void buildGrid(Relation<? extends NumberVector> relation) {
+      double[][] mm = RelationUtil.computeMinMax(relation);
+      min = mm[0];
+      cells = new int[dim];
+      stride = new long[dim];
+      long total = 1;
+      for(int d = dim - 1; d >= 0; d--) {
+        final double mi = min[d], ma = mm[1][d];
+        if(mi == Double.NEGATIVE_INFINITY || ma == Double.POSITIVE_INFINITY || mi != mi || ma != ma) {
+          throw new IncompatibleDataException("Dimension " + d + " contains non-finite values.");
+        }
+        double c = FastMath.floor((ma - mi) / width) + 1;
+        if(c >= Integer.MAX_VALUE || c * total >= Long.MAX_VALUE) {
+          throw new IncompatibleDataException("Too many grid cells for the given value range. Epsilon is too small for this implementation.");
+        }
+        cells[d] = (int) c;
+        stride[d] = total;
+        total *= cells[d];
+      }
+      // Assign points to cells:
+      int[] coord = new int[dim];
+      for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+        NumberVector vec = relation.get(it);
+        for(int d = 0; d < dim; d++) {
+          coord[d] = Math.min(cells[d] - 1, (int) ((vec.doubleValue(d) - min[d]) / width));
+        }
+        long key = linearize(coord);
+        Cell cell = grid.get(key);
+        if(cell == null) {
+          grid.put(key, cell = new Cell(coord.clone()));
+          cellList.add(cell);
+        }
+        cell.ids.add(it);
+      }
+      // Copy coordinates into contiguous arrays:
+      for(Cell cell : cellList) {
+        final double[] data = cell.data = new double[cell.ids.size() * dim];
+        int off = 0;
+        for(DBIDIter it = cell.ids.iter(); it.valid(); it.advance()) {
+          NumberVector vec = relation.get(it);
+          for(int d = 0; d < dim; d++) {
+            data[off++] = vec.doubleValue(d);
+          }
+        }
+        cell.core = new boolean[cell.ids.size()];
+      }
+    }
+
+    /**
+     * Linearize grid coordinates.
+     *
+     * @param coord Coordinates
+     * @return Cell key
+     */
+    private long linearize(int[] coord) {
+      long key = 0;
+      for(int d = 0; d < dim; d++) {
+        key += coord[d] * stride[d];
+      }
+      return key;
+    }
+
+    /**
+     * Enumerate the relative offsets of all cells that have a minimum
+     * distance of at most epsilon to a cell (excluding the cell itself).
+     *
+     * @return Cell offsets
+     */
+    protected int[][] neighborOffsets() {
+      // Minimum distance in cells: sum_d max(|o_d|-1,0)^2 * width^2 <= eps^2
+      final int r = 1 + (int) FastMath.sqrt(dim);
+      List<int[]> offsets = new ArrayList<>();
+      int[] cur = new int[dim];
+      Arrays.fill(cur, -r);
+      while(true) {
+        int sum = 0;
+        boolean zero = true;
+        for(int d = 0; d < dim; d++) {
+          final int a = Math.abs(cur[d]) - 1;
+          sum += a > 0 ? a * a : 0;
+          zero &= cur[d] == 0;
+        }
+        if(!zero && sum <= dim) {
+          offsets.add(cur.clone());
+        }
+        // Advance odometer:
+        int d = 0;
+        while(d < dim && cur[d] == r) {
+          cur[d++] = -r;
+        }
+        if(d == dim) {
+          break;
+        }
+        cur[d]++;
+      }
+      return offsets.toArray(new int[offsets.size()][]);
+    }
+
+    /**
+     * Find the occupied neighbor cells of a cell.
+     *
+     * @param cell Cell
+     * @param offsets Relative offsets
+     * @return Neighbor cells
+     */
+    private Cell[] findNeighbors(Cell cell, int[][] offsets) {
+      List<Cell> neighbors = new ArrayList<>();
+      final int[] c = cell.coord;
+      offsets: for(int[] off : offsets) {
+        long key = 0;
+        for(int d = 0; d < dim; d++) {
+          final int v = c[d] + off[d];
+          if(v < 0 || v >= cells[d]) {
+            continue offsets;
+          }
+          key += v * stride[d];
+        }
+        Cell other = grid.get(key);
+        if(other != null) {
+          neighbors.add(other);
+        }
+      }
+      return neighbors.toArray(new Cell[neighbors.size()]);
+    }
+
+    /**
+     * Detect core points. Cells with at least minPts points only contain core
+     * points; for the others we count neighbors in adjacent cells.
+     *
+     * @param size Data set size
+     * @return Number of dense cells
+     */
+    protected int findCorePoints(int size) {
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Detecting core points", size, LOG) : null;
+      int dense = 0;
+      for(Cell cell : cellList) {
+        final int n = cell.ids.size();
+        if(n >= minpts) {
+          Arrays.fill(cell.core, true);
+          cell.ncore = n;
+          dense++;
+          if(prog != null) {
+            prog.setProcessed(prog.getProcessed() + n, LOG);
+          }
+          continue;
+        }
+        for(int i = 0, off = 0; i < n; i++, off += dim) {
+          int count = n; // All points in the same cell are neighbors.
+          neighbors: for(Cell other : cell.neighbors) {
+            final double[] odata = other.data;
+            for(int ooff = 0; ooff < odata.length; ooff += dim) {
+              if(sqdist(cell.data, off, odata, ooff) <= sqeps && ++count >= minpts) {
+                break neighbors;
+              }
+            }
+          }
+          if(count >= minpts) {
+            cell.core[i] = true;
+            cell.ncore++;
+          }
+          LOG.incrementProcessed(prog);
+        }
+      }
+      LOG.ensureCompleted(prog);
+      return dense;
+    }
+
+    /**
+     * Connect neighboring core cells if they contain a pair of core points
+     * within epsilon.
+     *
+     * @return Union-find structure of core cells
+     */
+    protected WeightedQuickUnionInteger connectCoreCells() {
+      WeightedQuickUnionInteger uf = new WeightedQuickUnionInteger();
+      for(Cell cell : cellList) {
+        if(cell.ncore > 0) {
+          cell.component = uf.nextIndex(cell.ncore);
+        }
+      }
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Connecting core cells", uf.size(), LOG) : null;
+      for(Cell cell : cellList) {
+        if(cell.ncore == 0) {
+          continue;
+        }
+        for(Cell other : cell.neighbors) {
+          // Process each pair only once.
+          if(other.component <= cell.component || uf.isConnected(cell.component, other.component)) {
+            continue;
+          }
+          if(hasCorePairWithinEpsilon(cell, other)) {
+            uf.union(cell.component, other.component);
+          }
+        }
+        LOG.incrementProcessed(prog);
+      }
+      LOG.ensureCompleted(prog);
+      return uf;
+    }
+
+    /**
+     * Bichromatic closest pair test with early termination: is there a pair
+     * of core points within epsilon?
+     *
+     * @param a First cell
+     * @param b Second cell
+     * @return {@code true} if the cells are connected
+     */
+    private boolean hasCorePairWithinEpsilon(Cell a, Cell b) {
+      final double[] adata = a.data, bdata = b.data;
+      for(int i = 0, aoff = 0; i < a.core.length; i++, aoff += dim) {
+        if(!a.core[i]) {
+          continue;
+        }
+        for(int j = 0, boff = 0; j < b.core.length; j++, boff += dim) {
+          if(b.core[j] && sqdist(adata, aoff, bdata, boff) <= sqeps) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Find a core cell for a border point.
+     *
+     * @param cell Cell of the point
+     * @param off Offset of the point in the cells data array
+     * @return Cell containing a core point within epsilon, or {@code null}
+     */
+    private Cell findCoreNeighbor(Cell cell, int off) {
+      if(cell.ncore > 0) {
+        return cell;
+      }
+      for(Cell other : cell.neighbors) {
+        if(other.ncore == 0) {
+          continue;
+        }
+        final double[] odata = other.data;
+        for(int j = 0, ooff = 0; j < other.core.length; j++, ooff += dim) {
+          if(other.core[j] && sqdist(cell.data, off, odata, ooff) <= sqeps) {
+            return other;
+          }
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Assemble the clustering result.
+     *
+     * @param uf Union-find of core cells
+     * @return Clustering
+     */
+    protected Clustering<Model> buildResult(WeightedQuickUnionInteger uf) {
+      ModifiableDBIDs[] clusters = new ModifiableDBIDs[uf.size()];
+      ModifiableDBIDs noise = DBIDUtil.newArray();
+      for(Cell cell : cellList) {
+        DBIDArrayIter it = cell.ids.iter();
+        for(int i = 0, off = 0; it.valid(); it.advance(), i++, off += dim) {
+          Cell c = cell.core[i] ? cell : findCoreNeighbor(cell, off);
+          if(c == null) {
+            noise.add(it);
+            continue;
+          }
+          final int root = uf.find(c.component);
+          ModifiableDBIDs clu = clusters[root];
+          if(clu == null) {
+            clu = clusters[root] = DBIDUtil.newArray();
+          }
+          clu.add(it);
+        }
+      }
+      Clustering<Model> result = new Clustering<>();
+      Metadata.of(result).setLongName("DBSCAN Clustering");
+      for(ModifiableDBIDs clu : clusters) {
+        if(clu != null) {
+          result.addToplevelCluster(new Cluster<Model>(clu, ClusterModel.CLUSTER));
+        }
+      }
+      if(noise.size() > 0) {
+        result.addToplevelCluster(new Cluster<Model>(noise, true, ClusterModel.CLUSTER));
+      }
+      return result;
+    }
+
+    /**
+     * Squared Euclidean distance on flattened arrays.
+     *
+     * @param a First array
+     * @param aoff Offset in first array
+     * @param b Second array
+     * @param boff Offset in second array
+     * @return Squared distance
+     */
+    private double sqdist(double[] a, int aoff, double[] b, int boff) {
+      ++distcount;
+      double agg = 0.;
+      for(int d = 0; d < dim; d++) {
+        final double v = a[aoff + d] - b[boff + d];
+        agg += v * v;
+      }
+      return agg;
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <V> Vector type to use
+   */
+  public static class Par<V extends NumberVector> implements Parameterizer {
+    /**
+     * Holds the epsilon radius threshold.
+     */
+    protected double epsilon;
+
+    /**
+     * Holds the minimum cluster size.
+     */
+    protected int minpts;
+
+    @Override
+    public void configure(Parameterization config) {
+      new DoubleParameter(DBSCAN.Par.EPSILON_ID) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE) //
+          .grab(config, x -> epsilon = x);
+      if(new IntParameter(DBSCAN.Par.MINPTS_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT) //
+          .grab(config, x -> minpts = x) && minpts <= 2) {
+        LOG.warning("DBSCAN with minPts <= 2 is equivalent to single-link clustering at a single height. Consider using larger values of minPts.");
+      }
+    }
+
+    @Override
+    public EuclideanGridDBSCAN<V> make() {
+      return new EuclideanGridDBSCAN<>(epsilon, minpts);
+    }
+  }
+}
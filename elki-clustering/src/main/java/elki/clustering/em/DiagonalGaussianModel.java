@@ -109,6 +109,17 @@ public class DiagonalGaussianModel implements EMClusterModel<NumberVector, EMMod
     this.wsum = 0.;
   }
 
+  /**
+   * Constructor for an empty accumulator.
+   *
+   * @param dim Dimensionality
+   */
+  private DiagonalGaussianModel(int dim) {
+    this.mean = new double[dim];
+    this.nmea = new double[dim];
+    this.variances = new double[dim];
+  }
+
   @Override
   public void beginEStep() {
     wsum = 0.;
@@ -142,6 +153,28 @@ public class DiagonalGaussianModel implements EMClusterModel<NumberVector, EMMod
     System.arraycopy(nmea, 0, mean, 0, nmea.length);
   }
 
+  @Override
+  public DiagonalGaussianModel newAccumulator() {
+    return new DiagonalGaussianModel(mean.length);
+  }
+
+  @Override
+  public void mergeE(EMClusterModel<NumberVector, EMModel> other) {
+    DiagonalGaussianModel o = (DiagonalGaussianModel) other;
+    if(o.wsum < Double.MIN_NORMAL) {
+      return;
+    }
+    final double nwsum = wsum + o.wsum;
+    final double f = o.wsum / nwsum, s = wsum * f;
+    // Combine the variances (Chan et al.)
+    for(int i = 0; i < mean.length; i++) {
+      final double delta = o.mean[i] - mean[i];
+      variances[i] += o.variances[i] + delta * delta * s;
+      mean[i] += delta * f;
+    }
+    wsum = nwsum;
+  }
+
   @Override
   public void finalizeEStep(double weight, double prior) {
     final int dim = variances.length;
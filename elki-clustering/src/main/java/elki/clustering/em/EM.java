@@ -24,18 +24,21 @@ import static elki.math.linearalgebra.VMath.argmax;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import elki.clustering.ClusteringAlgorithm;
 import elki.clustering.kmeans.KMeans;
 import elki.data.Cluster;
 import elki.data.Clustering;
 import elki.data.model.MeanModel;
+import elki.data.model.Model;
 import elki.data.type.SimpleTypeInformation;
 import elki.data.type.TypeInformation;
 import elki.data.type.TypeUtil;
-import elki.database.datastore.DataStoreFactory;
-import elki.database.datastore.DataStoreUtil;
 import elki.database.datastore.WritableDataStore;
+import elki.database.ids.ArrayDBIDs;
+import elki.database.ids.DBIDArrayIter;
 import elki.database.ids.DBIDIter;
 import elki.database.ids.DBIDUtil;
 import elki.database.ids.ModifiableDBIDs;
@@ -44,6 +47,7 @@ import elki.database.relation.Relation;
 import elki.logging.Logging;
 import elki.logging.statistics.DoubleStatistic;
 import elki.logging.statistics.LongStatistic;
+import elki.parallel.ParallelCore;
 import elki.result.Metadata;
 import elki.utilities.Priority;
 import elki.utilities.documentation.Description;
@@ -54,6 +58,7 @@ import elki.utilities.optionhandling.Parameterizer;
 import elki.utilities.optionhandling.constraints.CommonConstraints;
 import elki.utilities.optionhandling.parameterization.Parameterization;
 import elki.utilities.optionhandling.parameters.DoubleParameter;
+import elki.utilities.optionhandling.parameters.Flag;
 import elki.utilities.optionhandling.parameters.IntParameter;
 import elki.utilities.optionhandling.parameters.ObjectParameter;
 
@@ -63,6 +68,12 @@ import net.jafama.FastMath;
  * Clustering by expectation maximization (EM-Algorithm), also known as Gaussian
  * Mixture Modeling (GMM), with optional MAP regularization.
  * <p>
+ * Both the computation of the cluster responsibilities and the estimation of
+ * the models are run in parallel, the latter by aggregating per-thread
+ * accumulators (see {@link EMClusterModel#newAccumulator()}). To reduce
+ * memory, the responsibilities can be stored with single precision, or only
+ * the largest m responsibilities of each object can be kept.
+ * <p>
  * Reference:
  * <p>
  * A. P. Dempster, N. M. Laird, D. B. Rubin:<br>
@@ -144,11 +155,31 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
    */
   private boolean soft;
 
+  /**
+   * Store responsibilities with single precision.
+   */
+  private boolean single;
+
+  /**
+   * Number of responsibilities to keep per object, 0 to keep all.
+   */
+  private int topm;
+
   /**
    * Minimum loglikelihood to avoid -infinity.
    */
   private static final double MIN_LOGLIKELIHOOD = -100000;
 
+  /**
+   * Block size for parallel processing.
+   */
+  private static final int BLOCKSIZE = 1024;
+
+  /**
+   * Maximum number of blocks, to bound the number of accumulators.
+   */
+  private static final int MAXBLOCKS = 64;
+
   /**
    * Soft assignment result type.
    */
@@ -204,6 +235,23 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
    * @param soft Include soft assignments
    */
   public EM(int k, double delta, EMClusterModelFactory<O, M> mfactory, int miniter, int maxiter, double prior, boolean soft) {
+    this(k, delta, mfactory, miniter, maxiter, prior, soft, false, 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param k k parameter
+   * @param delta delta parameter
+   * @param mfactory EM cluster model factory
+   * @param miniter Minimum number of iterations
+   * @param maxiter Maximum number of iterations
+   * @param prior MAP prior
+   * @param soft Include soft assignments
+   * @param single Store responsibilities with single precision
+   * @param topm Number of responsibilities to keep per object, 0 for all
+   */
+  public EM(int k, double delta, EMClusterModelFactory<O, M> mfactory, int miniter, int maxiter, double prior, boolean soft, boolean single, int topm) {
     super();
     this.k = k;
     this.delta = delta;
@@ -212,6 +260,8 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
     this.maxiter = maxiter;
     this.prior = prior;
     this.soft = soft;
+    this.single = single;
+    this.topm = topm;
   }
 
   @Override
@@ -236,7 +286,7 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
     }
     // initial models
     List<? extends EMClusterModel<O, M>> models = mfactory.buildInitialModels(relation, k);
-    WritableDataStore<double[]> probClusterIGivenX = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, double[].class);
+    ResponsibilityStore probClusterIGivenX = ResponsibilityStore.make(relation.getDBIDs(), k, single, topm);
     double loglikelihood = assignProbabilitiesToInstances(relation, models, probClusterIGivenX);
     DoubleStatistic likestat = new DoubleStatistic(this.getClass().getName() + ".loglikelihood");
     LOG.statistics(likestat.setDouble(loglikelihood));
@@ -268,8 +318,10 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
     }
 
     // provide a hard clustering
+    double[] buf = new double[k];
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      hardClusters.get(argmax(probClusterIGivenX.get(iditer))).add(iditer);
+      probClusterIGivenX.get(iditer, buf);
+      hardClusters.get(argmax(buf)).add(iditer);
     }
     Clustering<M> result = new Clustering<>();
     Metadata.of(result).setLongName("EM Clustering");
@@ -278,7 +330,7 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
       result.addToplevelCluster(new Cluster<>(hardClusters.get(i), models.get(i).finalizeCluster()));
     }
     if(soft) {
-      Metadata.hierarchyOf(result).addChild(new MaterializedRelation<>("EM Cluster Probabilities", SOFT_TYPE, relation.getDBIDs(), probClusterIGivenX));
+      Metadata.hierarchyOf(result).addChild(new MaterializedRelation<>("EM Cluster Probabilities", SOFT_TYPE, relation.getDBIDs(), probClusterIGivenX.toDataStore(relation.getDBIDs())));
     }
     else {
       probClusterIGivenX.destroy();
@@ -296,44 +348,158 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
    * @param <O> Object type
    */
   public static <O> void recomputeCovarianceMatrices(Relation<? extends O> relation, WritableDataStore<double[]> probClusterIGivenX, List<? extends EMClusterModel<O, ?>> models, double prior) {
+    recomputeCovarianceMatrices(relation, new ResponsibilityStore.Dense(probClusterIGivenX, relation.getDBIDs(), models.size()), models, prior);
+  }
+
+  /**
+   * Recompute the covariance matrixes.
+   * <p>
+   * If all models support accumulators, the data is processed in parallel, with
+   * one set of accumulators per thread, merged in a fixed order.
+   * 
+   * @param relation Vector data
+   * @param probClusterIGivenX Object probabilities
+   * @param models Cluster models to update
+   * @param prior MAP prior (use 0 for MLE)
+   * @param <O> Object type
+   */
+  public static <O> void recomputeCovarianceMatrices(Relation<? extends O> relation, ResponsibilityStore probClusterIGivenX, List<? extends EMClusterModel<O, ?>> models, double prior) {
     final int k = models.size();
     boolean needsTwoPass = false;
     for(EMClusterModel<?, ?> m : models) {
       m.beginEStep();
       needsTwoPass |= m.needsTwoPass();
     }
-    // First pass, only for two-pass models.
-    if(needsTwoPass) {
-      for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-        double[] clusterProbabilities = probClusterIGivenX.get(iditer);
-        O instance = relation.get(iditer);
-        for(int i = 0; i < clusterProbabilities.length; i++) {
-          final double prob = clusterProbabilities[i];
-          if(prob > 1e-10) {
-            models.get(i).firstPassE(instance, prob);
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    ParallelCore core = ParallelCore.getCore();
+    core.connect();
+    try {
+      final int numparts = numBlocks(ids.size());
+      // First pass, only for two-pass models.
+      if(needsTwoPass) {
+        List<List<EMClusterModel<O, ?>>> accs = newAccumulators(models, numparts);
+        runBlocks(core, ids.size(), accs != null ? numparts : 1, (s, e, p) -> {
+          updateModels(relation, ids, s, e, probClusterIGivenX, accs != null ? accs.get(p) : models, null, true);
+        });
+        if(accs != null) {
+          for(List<EMClusterModel<O, ?>> acc : accs) {
+            for(int i = 0; i < k; i++) {
+              mergeAccumulator(models.get(i), acc.get(i), true);
+            }
           }
         }
+        for(EMClusterModel<?, ?> m : models) {
+          m.finalizeFirstPassE();
+        }
       }
-      for(EMClusterModel<?, ?> m : models) {
-        m.finalizeFirstPassE();
+      List<List<EMClusterModel<O, ?>>> accs = newAccumulators(models, numparts);
+      double[][] wsums = new double[accs != null ? numparts : 1][k];
+      runBlocks(core, ids.size(), accs != null ? numparts : 1, (s, e, p) -> {
+        updateModels(relation, ids, s, e, probClusterIGivenX, accs != null ? accs.get(p) : models, wsums[p], false);
+      });
+      if(accs != null) {
+        for(List<EMClusterModel<O, ?>> acc : accs) {
+          for(int i = 0; i < k; i++) {
+            mergeAccumulator(models.get(i), acc.get(i), false);
+          }
+        }
+      }
+      double[] wsum = wsums[0];
+      for(int p = 1; p < wsums.length; p++) {
+        for(int i = 0; i < k; i++) {
+          wsum[i] += wsums[p][i];
+        }
+      }
+      for(int i = 0; i < models.size(); i++) {
+        // MLE / MAP
+        final double weight = prior <= 0. ? wsum[i] / relation.size() : (wsum[i] + prior - 1) / (relation.size() + prior * k - k);
+        models.get(i).finalizeEStep(weight, prior);
       }
     }
-    double[] wsum = new double[k];
-    for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      double[] clusterProbabilities = probClusterIGivenX.get(iditer);
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Update the models (or accumulators) with a block of the data.
+   *
+   * @param relation Vector data
+   * @param ids Object ids
+   * @param start Start offset
+   * @param end End offset (exclusive)
+   * @param probClusterIGivenX Object probabilities
+   * @param models Models or accumulators to update
+   * @param wsum Output for the sum of weights
+   * @param firstPass First pass of two-pass models
+   * @param <O> Object type
+   */
+  private static <O> void updateModels(Relation<? extends O> relation, ArrayDBIDs ids, int start, int end, ResponsibilityStore probClusterIGivenX, List<? extends EMClusterModel<O, ?>> models, double[] wsum, boolean firstPass) {
+    final int k = models.size();
+    double[] clusterProbabilities = new double[k];
+    for(DBIDArrayIter iditer = ids.iter().seek(start); iditer.valid() && iditer.getOffset() < end; iditer.advance()) {
+      probClusterIGivenX.get(iditer, clusterProbabilities);
       O instance = relation.get(iditer);
-      for(int i = 0; i < clusterProbabilities.length; i++) {
+      for(int i = 0; i < k; i++) {
         final double prob = clusterProbabilities[i];
         if(prob > 1e-10) {
-          models.get(i).updateE(instance, prob);
+          if(firstPass) {
+            models.get(i).firstPassE(instance, prob);
+          }
+          else {
+            models.get(i).updateE(instance, prob);
+          }
+        }
+        if(wsum != null) {
+          wsum[i] += prob;
+        }
+      }
+    }
+  }
+
+  /**
+   * Create one set of accumulators per block.
+   *
+   * @param models Models
+   * @param numparts Number of blocks
+   * @param <O> Object type
+   * @return Accumulators, or {@code null} for serial processing.
+   */
+  private static <O> List<List<EMClusterModel<O, ?>>> newAccumulators(List<? extends EMClusterModel<O, ?>> models, int numparts) {
+    if(numparts <= 1) {
+      return null;
+    }
+    List<List<EMClusterModel<O, ?>>> accs = new ArrayList<>(numparts);
+    for(int p = 0; p < numparts; p++) {
+      List<EMClusterModel<O, ?>> acc = new ArrayList<>(models.size());
+      for(EMClusterModel<O, ?> m : models) {
+        EMClusterModel<O, ?> a = m.newAccumulator();
+        if(a == null) {
+          return null; // Not supported, process serially.
         }
-        wsum[i] += prob;
+        acc.add(a);
       }
+      accs.add(acc);
+    }
+    return accs;
+  }
+
+  /**
+   * Merge an accumulator into a model.
+   *
+   * @param model Model
+   * @param acc Accumulator
+   * @param firstPass First pass of two-pass models
+   * @param <O> Object type
+   * @param <M> Model type
+   */
+  @SuppressWarnings("unchecked")
+  private static <O, M extends Model> void mergeAccumulator(EMClusterModel<O, M> model, EMClusterModel<O, ?> acc, boolean firstPass) {
+    if(firstPass) {
+      model.mergeFirstPassE((EMClusterModel<O, M>) acc);
     }
-    for(int i = 0; i < models.size(); i++) {
-      // MLE / MAP
-      final double weight = prior <= 0. ? wsum[i] / relation.size() : (wsum[i] + prior - 1) / (relation.size() + prior * k - k);
-      models.get(i).finalizeEStep(weight, prior);
+    else {
+      model.mergeE((EMClusterModel<O, M>) acc);
     }
   }
 
@@ -351,24 +517,121 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
    * @return the expectation value of the current mixture of distributions
    */
   public static <O> double assignProbabilitiesToInstances(Relation<? extends O> relation, List<? extends EMClusterModel<O, ?>> models, WritableDataStore<double[]> probClusterIGivenX) {
-    final int k = models.size();
-    double emSum = 0.;
+    return assignProbabilitiesToInstances(relation, models, new ResponsibilityStore.Dense(probClusterIGivenX, relation.getDBIDs(), models.size()));
+  }
 
-    for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      O vec = relation.get(iditer);
-      double[] probs = new double[k];
-      for(int i = 0; i < k; i++) {
-        double v = models.get(i).estimateLogDensity(vec);
-        probs[i] = v > MIN_LOGLIKELIHOOD ? v : MIN_LOGLIKELIHOOD;
+  /**
+   * Assigns the current probability values to the instances in the database and
+   * compute the expectation value of the current mixture of distributions.
+   * <p>
+   * Computed as the sum of the logarithms of the prior probability of each
+   * instance, in parallel.
+   * 
+   * @param relation the database used for assignment to instances
+   * @param models Cluster models
+   * @param probClusterIGivenX Output storage for cluster probabilities
+   * @param <O> Object type
+   * @return the expectation value of the current mixture of distributions
+   */
+  public static <O> double assignProbabilitiesToInstances(Relation<? extends O> relation, List<? extends EMClusterModel<O, ?>> models, ResponsibilityStore probClusterIGivenX) {
+    final int k = models.size();
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    ParallelCore core = ParallelCore.getCore();
+    core.connect();
+    try {
+      final int numparts = numBlocks(ids.size());
+      final double[] emSums = new double[numparts];
+      runBlocks(core, ids.size(), numparts, (s, e, p) -> {
+        double[] probs = new double[k];
+        double emSum = 0.;
+        for(DBIDArrayIter iditer = ids.iter().seek(s); iditer.valid() && iditer.getOffset() < e; iditer.advance()) {
+          O vec = relation.get(iditer);
+          for(int i = 0; i < k; i++) {
+            double v = models.get(i).estimateLogDensity(vec);
+            probs[i] = v > MIN_LOGLIKELIHOOD ? v : MIN_LOGLIKELIHOOD;
+          }
+          final double logP = logSumExp(probs);
+          for(int i = 0; i < k; i++) {
+            probs[i] = FastMath.exp(probs[i] - logP);
+          }
+          probClusterIGivenX.put(iditer, probs);
+          emSum += logP;
+        }
+        emSums[p] = emSum;
+      });
+      double emSum = 0.;
+      for(double v : emSums) {
+        emSum += v;
       }
-      final double logP = logSumExp(probs);
-      for(int i = 0; i < k; i++) {
-        probs[i] = FastMath.exp(probs[i] - logP);
+      return emSum / relation.size();
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Block of work for parallel processing.
+   *
+   * @author Erich Schubert
+   */
+  @FunctionalInterface
+  private interface Block {
+    /**
+     * Process a block.
+     *
+     * @param start Start offset
+     * @param end End offset (exclusive)
+     * @param part Block number
+     */
+    void run(int start, int end, int part);
+  }
+
+  /**
+   * Number of blocks to process, which depends on the data size only, so that
+   * the results do not depend on the number of threads.
+   *
+   * @param size Data set size
+   * @return Number of blocks
+   */
+  private static int numBlocks(int size) {
+    return Math.max(1, Math.min((size + BLOCKSIZE - 1) / BLOCKSIZE, MAXBLOCKS));
+  }
+
+  /**
+   * Process blocks of the data in parallel; a single block is processed in
+   * the current thread.
+   *
+   * @param core Parallel core (connected)
+   * @param size Data set size
+   * @param numparts Number of blocks
+   * @param block Work to do
+   */
+  private static void runBlocks(ParallelCore core, int size, int numparts, Block block) {
+    if(numparts <= 1) {
+      block.run(0, size, 0);
+      return;
+    }
+    final int blocksize = (size + (numparts - 1)) / numparts;
+    List<Future<?>> parts = new ArrayList<>(numparts);
+    for(int p = 0; p < numparts; p++) {
+      final int s = Math.min(p * blocksize, size), e = Math.min(s + blocksize, size), part = p;
+      parts.add(core.submit(() -> {
+        block.run(s, e, part);
+        return null;
+      }));
+    }
+    try {
+      for(Future<?> fut : parts) {
+        fut.get();
       }
-      probClusterIGivenX.put(iditer, probs);
-      emSum += logP;
     }
-    return emSum / relation.size();
+    catch(ExecutionException e) {
+      throw new RuntimeException("Processor execution failed.", e);
+    }
+    catch(InterruptedException e) {
+      throw new RuntimeException("Parallel execution interrupted.");
+    }
   }
 
   /**
@@ -438,6 +701,16 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
      */
     public static final OptionID PRIOR_ID = new OptionID("em.map.prior", "Regularization factor for MAP estimation.");
 
+    /**
+     * Parameter to store the responsibilities with single precision.
+     */
+    public static final OptionID SINGLE_ID = new OptionID("em.single-precision", "Store the cluster responsibilities with single precision, to reduce memory.");
+
+    /**
+     * Parameter to keep only the largest responsibilities of each object.
+     */
+    public static final OptionID TOPM_ID = new OptionID("em.top-m", "Keep only the largest m cluster responsibilities of each object (in single precision), to reduce memory.");
+
     /**
      * Number of clusters.
      */
@@ -468,6 +741,16 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
      */
     double prior = 0.;
 
+    /**
+     * Store responsibilities with single precision.
+     */
+    boolean single = false;
+
+    /**
+     * Number of responsibilities to keep per object.
+     */
+    int topm = 0;
+
     @Override
     public void configure(Parameterization config) {
       new IntParameter(K_ID) //
@@ -490,11 +773,16 @@ public class EM<O, M extends MeanModel> implements ClusteringAlgorithm<Clusterin
           .setOptional(true) //
           .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE) //
           .grab(config, x -> prior = x);
+      new Flag(SINGLE_ID).grab(config, x -> single = x);
+      new IntParameter(TOPM_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT) //
+          .setOptional(true) //
+          .grab(config, x -> topm = x);
     }
 
     @Override
     public EM<O, M> make() {
-      return new EM<>(k, delta, initializer, miniter, maxiter, prior, false);
+      return new EM<>(k, delta, initializer, miniter, maxiter, prior, false, single, topm);
     }
   }
 }
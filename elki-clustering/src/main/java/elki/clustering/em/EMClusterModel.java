@@ -75,6 +75,46 @@ public interface EMClusterModel<O, M extends Model> {
    */
   void updateE(O vec, double weight);
 
+  /**
+   * Create a new accumulator, for processing the E step in parallel.
+   * <p>
+   * The accumulator has its own, empty, aggregates, but may share the current
+   * state of this model (e.g., the mean of the first pass for two-pass models).
+   * Each block of the data is processed with {@link #firstPassE} and
+   * {@link #updateE} on its own accumulator, which are then merged into this
+   * model with {@link #mergeFirstPassE} and {@link #mergeE}.
+   * <p>
+   * Models that cannot be merged return {@code null} (the default), and are
+   * then always processed serially.
+   *
+   * @return New accumulator, or {@code null} for serial processing only.
+   */
+  default EMClusterModel<O, M> newAccumulator() {
+    return null;
+  }
+
+  /**
+   * Merge the aggregates of the first pass of an accumulator into this model.
+   * <p>
+   * By default, this is not used (c.f. {@link #needsTwoPass()}.
+   *
+   * @param other Accumulator, as obtained from {@link #newAccumulator()}
+   */
+  default void mergeFirstPassE(EMClusterModel<O, M> other) {
+    // empty.
+  }
+
+  /**
+   * Merge the aggregates of an accumulator into this model.
+   * <p>
+   * Only called if {@link #newAccumulator()} did not return {@code null}.
+   *
+   * @param other Accumulator, as obtained from {@link #newAccumulator()}
+   */
+  default void mergeE(EMClusterModel<O, M> other) {
+    throw new UnsupportedOperationException("Models without accumulators cannot be merged.");
+  }
+
   /**
    * Finalize the E step.
    * 
@@ -111,6 +111,17 @@ public class MultivariateGaussianModel implements EMClusterModel<NumberVector, E
     this.logNormDet = FastMath.log(weight) - .5 * logNorm - getHalfLogDeterminant(this.chol);
   }
 
+  /**
+   * Constructor for an empty accumulator.
+   *
+   * @param dim Dimensionality
+   */
+  private MultivariateGaussianModel(int dim) {
+    this.mean = new double[dim];
+    this.nmea = new double[dim];
+    this.covariance = new double[dim][dim];
+  }
+
   @Override
   public void beginEStep() {
     wsum = 0.;
@@ -151,6 +162,37 @@ public class MultivariateGaussianModel implements EMClusterModel<NumberVector, E
     System.arraycopy(nmea, 0, mean, 0, nmea.length);
   }
 
+  @Override
+  public MultivariateGaussianModel newAccumulator() {
+    return new MultivariateGaussianModel(mean.length);
+  }
+
+  @Override
+  public void mergeE(EMClusterModel<NumberVector, EMModel> other) {
+    MultivariateGaussianModel o = (MultivariateGaussianModel) other;
+    if(o.wsum < Double.MIN_NORMAL) {
+      return;
+    }
+    final int dim = mean.length;
+    final double nwsum = wsum + o.wsum;
+    final double f = o.wsum / nwsum, s = wsum * f;
+    // Combine the scatter matrixes (Chan et al.)
+    for(int i = 0; i < dim; i++) {
+      nmea[i] = o.mean[i] - mean[i];
+    }
+    for(int i = 0; i < dim; i++) {
+      final double delta_i = nmea[i] * s;
+      double[] cov_i = covariance[i], ocov_i = o.covariance[i];
+      for(int j = 0; j <= i; j++) {
+        cov_i[j] += ocov_i[j] + delta_i * nmea[j];
+      }
+    }
+    for(int i = 0; i < dim; i++) {
+      mean[i] += nmea[i] * f;
+    }
+    wsum = nwsum;
+  }
+
   @Override
   public void finalizeEStep(double weight, double prior) {
     final int dim = covariance.length;
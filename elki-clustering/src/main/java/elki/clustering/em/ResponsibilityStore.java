@@ -0,0 +1,315 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.clustering.em;
+
+import java.util.Arrays;
+
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.WritableDataStore;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDs;
+
+/**
+ * Storage for the cluster responsibilities ("soft assignments") of EM.
+ * <p>
+ * Storing k double values for every object dominates the memory use of EM for
+ * large data sets and many clusters. The compact variants store single
+ * precision values, or only the m largest responsibilities of each object.
+ * <p>
+ * The storage of all objects is allocated on construction, so different
+ * objects may be written concurrently even if the underlying data store is not
+ * thread-safe.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public interface ResponsibilityStore {
+  /**
+   * Store the responsibilities of an object.
+   *
+   * @param id Object
+   * @param probs Responsibilities of all clusters (not retained)
+   */
+  void put(DBIDRef id, double[] probs);
+
+  /**
+   * Get the responsibilities of an object.
+   *
+   * @param id Object
+   * @param buf Output buffer for the responsibilities of all clusters
+   */
+  void get(DBIDRef id, double[] buf);
+
+  /**
+   * Get the responsibilities as a data store of double arrays, e.g., for use
+   * in a result. Compact stores are expanded and then destroyed.
+   *
+   * @param ids Objects
+   * @return Data store
+   */
+  WritableDataStore<double[]> toDataStore(DBIDs ids);
+
+  /**
+   * Release the storage.
+   */
+  void destroy();
+
+  /**
+   * Choose a storage.
+   *
+   * @param ids Objects
+   * @param k Number of clusters
+   * @param single Use single precision
+   * @param topm Keep only the m largest responsibilities, 0 to keep all
+   * @return Responsibility storage
+   */
+  static ResponsibilityStore make(DBIDs ids, int k, boolean single, int topm) {
+    return topm > 0 && topm < k ? new TopM(ids, k, topm) //
+        : single ? new SinglePrecision(ids, k) //
+            : new Dense(DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, double[].class), ids, k);
+  }
+
+  /**
+   * Full storage with double precision.
+   *
+   * @author Erich Schubert
+   */
+  class Dense implements ResponsibilityStore {
+    /**
+     * Data store.
+     */
+    private WritableDataStore<double[]> store;
+
+    /**
+     * Constructor.
+     *
+     * @param store Data store, missing entries will be allocated
+     * @param ids Objects
+     * @param k Number of clusters
+     */
+    public Dense(WritableDataStore<double[]> store, DBIDs ids, int k) {
+      this.store = store;
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        double[] p = store.get(iter);
+        if(p == null || p.length != k) {
+          store.put(iter, new double[k]);
+        }
+      }
+    }
+
+    @Override
+    public void put(DBIDRef id, double[] probs) {
+      System.arraycopy(probs, 0, store.get(id), 0, probs.length);
+    }
+
+    @Override
+    public void get(DBIDRef id, double[] buf) {
+      System.arraycopy(store.get(id), 0, buf, 0, buf.length);
+    }
+
+    @Override
+    public WritableDataStore<double[]> toDataStore(DBIDs ids) {
+      return store;
+    }
+
+    @Override
+    public void destroy() {
+      store.destroy();
+    }
+  }
+
+  /**
+   * Full storage with single precision.
+   *
+   * @author Erich Schubert
+   */
+  class SinglePrecision implements ResponsibilityStore {
+    /**
+     * Data store.
+     */
+    private WritableDataStore<float[]> store;
+
+    /**
+     * Number of clusters.
+     */
+    private int k;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Objects
+     * @param k Number of clusters
+     */
+    public SinglePrecision(DBIDs ids, int k) {
+      this.k = k;
+      this.store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, float[].class);
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        store.put(iter, new float[k]);
+      }
+    }
+
+    @Override
+    public void put(DBIDRef id, double[] probs) {
+      float[] p = store.get(id);
+      for(int i = 0; i < probs.length; i++) {
+        p[i] = (float) probs[i];
+      }
+    }
+
+    @Override
+    public void get(DBIDRef id, double[] buf) {
+      float[] p = store.get(id);
+      for(int i = 0; i < buf.length; i++) {
+        buf[i] = p[i];
+      }
+    }
+
+    @Override
+    public WritableDataStore<double[]> toDataStore(DBIDs ids) {
+      return expand(this, ids, k);
+    }
+
+    @Override
+    public void destroy() {
+      store.destroy();
+    }
+  }
+
+  /**
+   * Sparse storage of the m largest responsibilities, in single precision.
+   * <p>
+   * The retained responsibilities are renormalized to sum to 1. Each entry is
+   * packed into a long, with the cluster number in the upper and the value in
+   * the lower 32 bits.
+   *
+   * @author Erich Schubert
+   */
+  class TopM implements ResponsibilityStore {
+    /**
+     * Data store.
+     */
+    private WritableDataStore<long[]> store;
+
+    /**
+     * Number of clusters.
+     */
+    private int k;
+
+    /**
+     * Number of responsibilities to keep.
+     */
+    private int m;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Objects
+     * @param k Number of clusters
+     * @param m Number of responsibilities to keep
+     */
+    public TopM(DBIDs ids, int k, int m) {
+      this.k = k;
+      this.store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, long[].class);
+      this.m = m;
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        store.put(iter, new long[m]);
+      }
+    }
+
+    @Override
+    public void put(DBIDRef id, double[] probs) {
+      long[] p = store.get(id);
+      // Select the m largest, by insertion into p (sorted descending).
+      int size = 0;
+      double sum = 0.;
+      for(int i = 0; i < probs.length; i++) {
+        final double v = probs[i];
+        if(size == m && !(v > Float.intBitsToFloat((int) p[m - 1]))) {
+          continue;
+        }
+        int j = size < m ? size++ : m - 1;
+        for(; j > 0 && Float.intBitsToFloat((int) p[j - 1]) < v; j--) {
+          p[j] = p[j - 1];
+        }
+        p[j] = pack(i, (float) v);
+      }
+      for(int j = 0; j < size; j++) {
+        sum += Float.intBitsToFloat((int) p[j]);
+      }
+      // Renormalize
+      final double f = sum > 0 ? 1. / sum : 1.;
+      for(int j = 0; j < size; j++) {
+        p[j] = pack((int) (p[j] >>> 32), (float) (Float.intBitsToFloat((int) p[j]) * f));
+      }
+    }
+
+    /**
+     * Pack a cluster number and a responsibility into a long.
+     *
+     * @param c Cluster number
+     * @param v Value
+     * @return Packed value
+     */
+    private static long pack(int c, float v) {
+      return (((long) c) << 32) | (Float.floatToIntBits(v) & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void get(DBIDRef id, double[] buf) {
+      Arrays.fill(buf, 0.);
+      for(long e : store.get(id)) {
+        buf[(int) (e >>> 32)] += Float.intBitsToFloat((int) e);
+      }
+    }
+
+    @Override
+    public WritableDataStore<double[]> toDataStore(DBIDs ids) {
+      return expand(this, ids, k);
+    }
+
+    @Override
+    public void destroy() {
+      store.destroy();
+    }
+  }
+
+  /**
+   * Expand a compact storage into a data store of double arrays, and destroy
+   * the compact storage.
+   *
+   * @param store Compact storage
+   * @param ids Objects
+   * @param k Number of clusters
+   * @return Data store
+   */
+  static WritableDataStore<double[]> expand(ResponsibilityStore store, DBIDs ids, int k) {
+    WritableDataStore<double[]> out = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, double[].class);
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      double[] buf = new double[k];
+      store.get(iter, buf);
+      out.put(iter, buf);
+    }
+    store.destroy();
+    return out;
+  }
+}
@@ -99,6 +99,16 @@ public class SphericalGaussianModel implements EMClusterModel<NumberVector, EMMo
     this.wsum = 0.;
   }
 
+  /**
+   * Constructor for an empty accumulator.
+   *
+   * @param dim Dimensionality
+   */
+  private SphericalGaussianModel(int dim) {
+    this.mean = new double[dim];
+    this.nmea = new double[dim];
+  }
+
   @Override
   public void beginEStep() {
     wsum = 0.;
@@ -131,6 +141,30 @@ public class SphericalGaussianModel implements EMClusterModel<NumberVector, EMMo
     System.arraycopy(nmea, 0, mean, 0, nmea.length);
   }
 
+  @Override
+  public SphericalGaussianModel newAccumulator() {
+    return new SphericalGaussianModel(mean.length);
+  }
+
+  @Override
+  public void mergeE(EMClusterModel<NumberVector, EMModel> other) {
+    SphericalGaussianModel o = (SphericalGaussianModel) other;
+    if(o.wsum < Double.MIN_NORMAL) {
+      return;
+    }
+    final double nwsum = wsum + o.wsum;
+    final double f = o.wsum / nwsum, s = wsum * f;
+    // Combine the variances (Chan et al.)
+    double v = variance + o.variance;
+    for(int i = 0; i < mean.length; i++) {
+      final double delta = o.mean[i] - mean[i];
+      v += delta * delta * s;
+      mean[i] += delta * f;
+    }
+    variance = v;
+    wsum = nwsum;
+  }
+
   @Override
   public void finalizeEStep(double weight, double prior) {
     final int dim = mean.length;
@@ -107,6 +107,17 @@ public class TextbookMultivariateGaussianModel implements EMClusterModel<NumberV
     this.logNormDet = FastMath.log(weight) - .5 * logNorm - MultivariateGaussianModel.getHalfLogDeterminant(this.chol);
   }
 
+  /**
+   * Constructor for an empty accumulator.
+   *
+   * @param dim Dimensionality
+   */
+  private TextbookMultivariateGaussianModel(int dim) {
+    this.mean = new double[dim];
+    this.tmp = new double[dim];
+    this.covariance = new double[dim][dim];
+  }
+
   @Override
   public void beginEStep() {
     wsum = 0.;
@@ -137,6 +148,25 @@ public class TextbookMultivariateGaussianModel implements EMClusterModel<NumberV
     wsum += wei;
   }
 
+  @Override
+  public TextbookMultivariateGaussianModel newAccumulator() {
+    return new TextbookMultivariateGaussianModel(mean.length);
+  }
+
+  @Override
+  public void mergeE(EMClusterModel<NumberVector, EMModel> other) {
+    TextbookMultivariateGaussianModel o = (TextbookMultivariateGaussianModel) other;
+    final int dim = mean.length;
+    for(int i = 0; i < dim; i++) {
+      mean[i] += o.mean[i];
+      double[] cov_i = covariance[i], ocov_i = o.covariance[i];
+      for(int j = 0; j <= i; j++) {
+        cov_i[j] += ocov_i[j];
+      }
+    }
+    wsum += o.wsum;
+  }
+
   @Override
   public void finalizeEStep(double weight, double prior) {
     final int dim = covariance.length;
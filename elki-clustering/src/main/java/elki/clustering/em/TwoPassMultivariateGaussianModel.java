@@ -104,6 +104,17 @@ public class TwoPassMultivariateGaussianModel implements EMClusterModel<NumberVe
     this.logNormDet = FastMath.log(weight) - .5 * logNorm - MultivariateGaussianModel.getHalfLogDeterminant(this.chol);
   }
 
+  /**
+   * Constructor for an empty accumulator.
+   *
+   * @param mean Mean of the first pass
+   */
+  private TwoPassMultivariateGaussianModel(double[] mean) {
+    this.mean = mean;
+    this.tmp = new double[mean.length];
+    this.covariance = new double[mean.length][mean.length];
+  }
+
   @Override
   public void beginEStep() {
     wsum = 0.;
@@ -169,6 +180,36 @@ public class TwoPassMultivariateGaussianModel implements EMClusterModel<NumberVe
     }
   }
 
+  /**
+   * Create an accumulator. The mean is copied, such that the accumulator can
+   * be used both for the first and the second pass.
+   */
+  @Override
+  public TwoPassMultivariateGaussianModel newAccumulator() {
+    return new TwoPassMultivariateGaussianModel(mean.clone());
+  }
+
+  @Override
+  public void mergeFirstPassE(EMClusterModel<NumberVector, EMModel> other) {
+    TwoPassMultivariateGaussianModel o = (TwoPassMultivariateGaussianModel) other;
+    for(int i = 0; i < mean.length; i++) {
+      mean[i] += o.mean[i];
+    }
+    wsum += o.wsum;
+  }
+
+  @Override
+  public void mergeE(EMClusterModel<NumberVector, EMModel> other) {
+    TwoPassMultivariateGaussianModel o = (TwoPassMultivariateGaussianModel) other;
+    final int dim = mean.length;
+    for(int i = 0; i < dim; i++) {
+      double[] cov_i = covariance[i], ocov_i = o.covariance[i];
+      for(int j = 0; j <= i; j++) {
+        cov_i[j] += ocov_i[j];
+      }
+    }
+  }
+
   @Override
   public void finalizeEStep(double weight, double prior) {
     final int dim = covariance.length;
@@ -20,6 +20,8 @@
  */
 package elki.clustering.hierarchical;
 
+import java.util.function.Supplier;
+
 import elki.Algorithm;
 import elki.data.type.TypeInformation;
 import elki.data.type.TypeUtil;
@@ -37,6 +39,12 @@ import elki.logging.Logging;
 import elki.logging.progress.FiniteProgress;
 import elki.math.MathUtil;
 import elki.math.geometry.PrimsMinimumSpanningTree;
+import elki.parallel.ParallelExecutor;
+import elki.parallel.processor.KDistanceProcessor;
+import elki.parallel.processor.KNNProcessor;
+import elki.parallel.processor.WriteDoubleDataStoreProcessor;
+import elki.parallel.variables.SharedDouble;
+import elki.parallel.variables.SharedObject;
 import elki.utilities.datastructures.heap.DoubleLongHeap;
 import elki.utilities.documentation.Reference;
 import elki.utilities.optionhandling.OptionID;
@@ -92,22 +100,28 @@ public abstract class AbstractHDBSCAN<O> implements Algorithm {
   }
 
   /**
-   * Compute the core distances for all objects.
+   * Compute the core distances for all objects, using a parallel kNN search.
    *
    * @param ids Objects
-   * @param knnQ kNN query
+   * @param knnQ kNN query factory, called once per thread
    * @param minPts Minimum neighborhood size
    * @return Data store with core distances
    */
-  protected WritableDoubleDataStore computeCoreDists(DBIDs ids, KNNSearcher<DBIDRef> knnQ, int minPts) {
-    final Logging LOG = getLogger();
+  protected WritableDoubleDataStore computeCoreDists(DBIDs ids, Supplier<KNNSearcher<DBIDRef>> knnQ, int minPts) {
     final WritableDoubleDataStore coredists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_DB);
-    FiniteProgress cprog = LOG.isVerbose() ? new FiniteProgress("Computing core sizes", ids.size(), LOG) : null;
-    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      coredists.put(iter, knnQ.getKNN(iter, minPts).getKNNDistance());
-      LOG.incrementProcessed(cprog);
-    }
-    LOG.ensureCompleted(cprog);
+    // Compute the kNN
+    KNNProcessor knnm = new KNNProcessor(minPts, knnQ);
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    knnm.connectKNNOutput(knnv);
+    // Extract the k-distance
+    KDistanceProcessor kdistm = new KDistanceProcessor(minPts);
+    SharedDouble kdistv = new SharedDouble();
+    kdistm.connectKNNInput(knnv);
+    kdistm.connectOutput(kdistv);
+    // Store core distances
+    WriteDoubleDataStoreProcessor storem = new WriteDoubleDataStoreProcessor(coredists);
+    storem.connectInput(kdistv);
+    ParallelExecutor.run(ids, knnm, kdistm, storem);
     return coredists;
   }
 
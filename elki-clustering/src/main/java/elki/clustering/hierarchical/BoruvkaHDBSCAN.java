@@ -0,0 +1,609 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.clustering.hierarchical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import elki.database.datastore.DataStore;
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.DoubleDataStore;
+import elki.database.datastore.WritableDBIDDataStore;
+import elki.database.datastore.WritableDataStore;
+import elki.database.datastore.WritableDoubleDataStore;
+import elki.database.datastore.WritableIntegerDataStore;
+import elki.database.ids.ArrayDBIDs;
+import elki.database.ids.DBIDArrayIter;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DoubleDBIDListIter;
+import elki.database.ids.KNNList;
+import elki.database.query.QueryBuilder;
+import elki.database.query.distance.DistanceQuery;
+import elki.database.relation.Relation;
+import elki.distance.Distance;
+import elki.logging.Logging;
+import elki.logging.progress.FiniteProgress;
+import elki.logging.statistics.LongStatistic;
+import elki.parallel.ParallelCore;
+import elki.parallel.ParallelExecutor;
+import elki.parallel.processor.KDistanceProcessor;
+import elki.parallel.processor.KNNProcessor;
+import elki.parallel.processor.WriteDataStoreProcessor;
+import elki.parallel.processor.WriteDoubleDataStoreProcessor;
+import elki.parallel.variables.SharedDouble;
+import elki.parallel.variables.SharedObject;
+import elki.utilities.datastructures.arrays.DoubleIntegerArrayQuickSort;
+import elki.utilities.datastructures.heap.DoubleLongHeap;
+import elki.utilities.datastructures.heap.DoubleLongMinHeap;
+import elki.utilities.datastructures.unionfind.WeightedQuickUnionInteger;
+import elki.utilities.documentation.Reference;
+import elki.utilities.documentation.Title;
+
+/**
+ * Linear memory implementation of HDBSCAN clustering, building the minimum
+ * spanning tree of the mutual reachability graph with a parallel version of
+ * Borůvka's algorithm.
+ * <p>
+ * The core distances are computed with a parallel kNN search. Then, in each
+ * of the \(O(\log n)\) Borůvka rounds, the cheapest edge leaving each
+ * component is found, and added to the spanning tree.
+ * <p>
+ * Because the mutual reachability distance of two points is at least the
+ * larger of their core distances, an edge to one of the minPts nearest
+ * neighbors in a different component is optimal if the neighbor's core
+ * distance is not larger. The best such edge of each component is used as the
+ * initial bound for the search of the component's best edge, which visits the
+ * members by increasing core distance and stops once the core distance exceeds
+ * the bound. For metric distances, the candidates of a member are scanned
+ * outwards in the order of the distance to a pivot object, and the scan stops
+ * once the difference of the pivot distances (a lower bound by the triangle
+ * inequality) exceeds the bound. The largest component is not searched, as
+ * the edges of the other components suffice to roughly halve the number of
+ * components.
+ * <p>
+ * In the worst case, this still needs \(O(n^2 \log n)\) distance
+ * computations, more than the \(O(n^2)\) of {@link HDBSCANLinearMemory}, but
+ * the pruning usually avoids most of them. Components are searched in
+ * parallel.
+ * <p>
+ * As {@link HDBSCANLinearMemory}, this does not include the cluster extraction,
+ * which is provided in a separate step.
+ * <p>
+ * Reference:
+ * <p>
+ * R. J. G. B. Campello, D. Moulavi, J. Sander<br>
+ * Density-Based Clustering Based on Hierarchical Density Estimates<br>
+ * Pacific-Asia Conf. Advances in Knowledge Discovery and Data Mining (PAKDD)
+ * <p>
+ * O. Borůvka<br>
+ * O jistém problému minimálním (About a certain minimal problem)<br>
+ * Práce moravské přírodovědecké společnosti 3
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - PointerDensityHierarchyRepresentationResult
+ *
+ * @param <O> Object type
+ */
+@Title("HDBSCAN with parallel Borůvka minimum spanning tree")
+@Reference(authors = "R. J. G. B. Campello, D. Moulavi, J. Sander", //
+    title = "Density-Based Clustering Based on Hierarchical Density Estimates", //
+    booktitle = "Pacific-Asia Conf. Advances in Knowledge Discovery and Data Mining (PAKDD)", //
+    url = "https://doi.org/10.1007/978-3-642-37456-2_14", //
+    bibkey = "DBLP:conf/pakdd/CampelloMS13")
+@Reference(authors = "O. Borůvka", //
+    title = "O jistém problému minimálním (About a certain minimal problem)", //
+    booktitle = "Práce moravské přírodovědecké společnosti 3", //
+    url = "http://dml.cz/dmlcz/500114", //
+    bibkey = "journals/pmps/Boruvka26")
+public class BoruvkaHDBSCAN<O> extends AbstractHDBSCAN<O> implements HierarchicalClusteringAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(BoruvkaHDBSCAN.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param minPts Minimum number of points for density
+   */
+  public BoruvkaHDBSCAN(Distance<? super O> distance, int minPts) {
+    super(distance, minPts);
+  }
+
+  /**
+   * Run the algorithm
+   *
+   * @param relation Relation
+   * @return Clustering hierarchy
+   */
+  public PointerDensityHierarchyRepresentationResult run(Relation<O> relation) {
+    final QueryBuilder<O> qb = new QueryBuilder<>(relation, distance);
+    final DistanceQuery<O> distQ = qb.distanceQuery();
+    // We need array addressing later.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+
+    // 1. Compute the core distances, and keep the nearest neighbors
+    final WritableDoubleDataStore coredists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    final WritableDataStore<KNNList> knns = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, KNNList.class);
+    KNNProcessor knnm = new KNNProcessor(minPts, () -> qb.kNNByDBID(minPts));
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    knnm.connectKNNOutput(knnv);
+    KDistanceProcessor kdistm = new KDistanceProcessor(minPts);
+    SharedDouble kdistv = new SharedDouble();
+    kdistm.connectKNNInput(knnv);
+    kdistm.connectOutput(kdistv);
+    WriteDoubleDataStoreProcessor storem = new WriteDoubleDataStoreProcessor(coredists);
+    storem.connectInput(kdistv);
+    WriteDataStoreProcessor<KNNList> knnstorem = new WriteDataStoreProcessor<>(knns);
+    knnstorem.connectInput(knnv);
+    ParallelExecutor.run(ids, knnm, kdistm, storem, knnstorem);
+
+    // 2. Build spanning tree.
+    DoubleLongHeap heap = new DoubleLongMinHeap(Math.max(ids.size() - 1, 1));
+    new Instance(ids, coredists, knns, distQ).run(heap);
+    knns.destroy();
+
+    // Storage for pointer representation:
+    WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
+    convertToPointerRepresentation(ids, heap, pi, lambda);
+
+    return new PointerDensityHierarchyRepresentationResult(ids, pi, lambda, distQ.getDistance().isSquared(), coredists);
+  }
+
+  /**
+   * Instance for computing the minimum spanning tree.
+   *
+   * @author Erich Schubert
+   */
+  private static class Instance {
+    /**
+     * Object ids.
+     */
+    ArrayDBIDs ids;
+
+    /**
+     * Distance query.
+     */
+    DistanceQuery<?> distQ;
+
+    /**
+     * Core distances, by offset.
+     */
+    double[] coredist;
+
+    /**
+     * Object offsets, sorted by core distance.
+     */
+    int[] order;
+
+    /**
+     * Core distances, in the order of {@link #order}.
+     */
+    double[] sortedCore;
+
+    /**
+     * Distance of each object to the pivot (metric distances only).
+     */
+    double[] pivotDist;
+
+    /**
+     * Object offsets, sorted by the distance to the pivot.
+     */
+    int[] pivotOrder;
+
+    /**
+     * Distances to the pivot, in the order of {@link #pivotOrder}.
+     */
+    double[] sortedPivot;
+
+    /**
+     * Position of each object in {@link #pivotOrder}.
+     */
+    int[] pivotPos;
+
+    /**
+     * Offsets of the nearest neighbors of each object.
+     */
+    int[][] nn;
+
+    /**
+     * Current component of each object.
+     */
+    int[] comp;
+
+    /**
+     * Members of each component, by increasing core distance.
+     */
+    int[] members;
+
+    /**
+     * Range of each component in {@link #members}.
+     */
+    int[] compStart, compEnd;
+
+    /**
+     * Best outgoing edge of each object: weight.
+     */
+    double[] bestDist;
+
+    /**
+     * Best outgoing edge of each object: target.
+     */
+    int[] bestTo;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Object ids
+     * @param coredists Core distances
+     * @param knns Nearest neighbors
+     * @param distQ Distance query
+     */
+    Instance(ArrayDBIDs ids, DoubleDataStore coredists, DataStore<KNNList> knns, DistanceQuery<?> distQ) {
+      final int n = ids.size();
+      this.ids = ids;
+      this.distQ = distQ;
+      this.coredist = new double[n];
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        coredist[it.getOffset()] = coredists.doubleValue(it);
+      }
+      // Sort offsets by core distance:
+      this.sortedCore = coredist.clone();
+      this.order = new int[n];
+      for(int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      DoubleIntegerArrayQuickSort.sort(sortedCore, order, n);
+      // Neighbors, as offsets:
+      WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        offsets.putInt(it, it.getOffset());
+      }
+      this.nn = new int[n][];
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        KNNList knn = knns.get(it);
+        int[] buf = new int[knn.size()];
+        int m = 0;
+        for(DoubleDBIDListIter nit = knn.iter(); nit.valid(); nit.advance()) {
+          if(!DBIDUtil.equal(nit, it)) {
+            buf[m++] = offsets.intValue(nit);
+          }
+        }
+        nn[it.getOffset()] = m < buf.length ? Arrays.copyOf(buf, m) : buf;
+      }
+      offsets.destroy();
+      // For metric distances, order by the distance to a pivot far out:
+      if(distQ.getDistance().isMetric() && n > 1) {
+        DBIDArrayIter p = ids.iter(), q = ids.iter();
+        int pivot = 0;
+        double far = -1;
+        for(q.seek(0); q.valid(); q.advance()) {
+          final double d = distQ.distance(p, q);
+          if(d > far) {
+            far = d;
+            pivot = q.getOffset();
+          }
+        }
+        this.pivotDist = new double[n];
+        p.seek(pivot);
+        for(q.seek(0); q.valid(); q.advance()) {
+          pivotDist[q.getOffset()] = distQ.distance(p, q);
+        }
+        this.sortedPivot = pivotDist.clone();
+        this.pivotOrder = new int[n];
+        for(int i = 0; i < n; i++) {
+          pivotOrder[i] = i;
+        }
+        DoubleIntegerArrayQuickSort.sort(sortedPivot, pivotOrder, n);
+        this.pivotPos = new int[n];
+        for(int i = 0; i < n; i++) {
+          pivotPos[pivotOrder[i]] = i;
+        }
+      }
+      this.comp = new int[n];
+
+      this.bestDist = new double[n];
+      this.bestTo = new int[n];
+    }
+
+    /**
+     * Build the minimum spanning tree.
+     *
+     * @param heap Output heap of edges
+     */
+    void run(DoubleLongHeap heap) {
+      final int n = ids.size();
+      WeightedQuickUnionInteger uf = new WeightedQuickUnionInteger();
+      for(int i = 0; i < n; i++) {
+        uf.nextIndex(1);
+      }
+      double[] compDist = new double[n];
+      int[] compFrom = new int[n], compTo = new int[n];
+      compStart = new int[n];
+      compEnd = new int[n];
+      members = new int[n];
+      FiniteProgress mprog = LOG.isVerbose() ? new FiniteProgress("Computing minimum spanning tree (n-1 edges)", n - 1, LOG) : null;
+      ParallelCore core = ParallelCore.getCore();
+      core.connect();
+      try {
+        int edges = 0, rounds = 0;
+        while(edges < n - 1) {
+          ++rounds;
+          for(int i = 0; i < n; i++) {
+            comp[i] = uf.find(i);
+          }
+          // Initial best edge of each component from the nearest neighbors:
+          findNeighborsParallel(core);
+          Arrays.fill(compTo, -1);
+          for(int i = 0; i < n; i++) {
+            final int c = comp[i];
+            if(bestTo[i] >= 0 && (compTo[c] < 0 || bestDist[i] < compDist[c])) {
+              compDist[c] = bestDist[i];
+              compFrom[c] = i;
+              compTo[c] = bestTo[i];
+            }
+          }
+          // Group the members of each component, by increasing core distance:
+          int ncomp = 0;
+          Arrays.fill(compEnd, 0);
+          for(int i = 0; i < n; i++) {
+            if(compEnd[comp[i]]++ == 0) {
+              ++ncomp;
+            }
+          }
+          // The largest component is not searched: every other component adds
+          // its best edge, so the number of components still at least halves.
+          int[] roots = new int[ncomp - 1];
+          int largest = -1;
+          for(int c = 0, pos = 0; c < n; c++) {
+            if(compEnd[c] > 0) {
+              largest = largest < 0 || compEnd[c] > compEnd[largest] ? c : largest;
+              compStart[c] = pos;
+              pos += compEnd[c];
+              compEnd[c] = compStart[c]; // Used as insertion position
+            }
+          }
+          for(int c = 0, r = 0; c < n; c++) {
+            if(comp[c] == c && c != largest) {
+              roots[r++] = c;
+            }
+          }
+          compTo[largest] = -1;
+          for(int k = 0; k < n; k++) {
+            members[compEnd[comp[order[k]]]++] = order[k];
+          }
+          findNearestParallel(core, roots, compDist, compFrom, compTo);
+          // Add the edges:
+          int added = 0;
+          for(int c = 0; c < n; c++) {
+            if(compTo[c] >= 0 && !uf.isConnected(compFrom[c], compTo[c])) {
+              uf.union(compFrom[c], compTo[c]);
+              heap.add(compDist[c], (((long) compFrom[c]) << 31) | compTo[c]);
+              ++added;
+              LOG.incrementProcessed(mprog);
+            }
+          }
+          assert added > 0 : "Minimum spanning tree construction did not make progress.";
+          edges += added;
+        }
+        LOG.statistics(new LongStatistic(BoruvkaHDBSCAN.class.getName() + ".rounds", rounds));
+      }
+      finally {
+        core.disconnect();
+      }
+      LOG.ensureCompleted(mprog);
+    }
+
+    /**
+     * Find the best edge to one of the nearest neighbors in a different
+     * component, for all objects.
+     *
+     * @param core Parallel core
+     */
+    private void findNeighborsParallel(ParallelCore core) {
+      runParallel(core, ids.size(), (i, p, q) -> findNeighbor(i));
+    }
+
+    /**
+     * Find the best edge leaving each component, in parallel blocks.
+     *
+     * @param core Parallel core
+     * @param roots Component roots
+     * @param compDist Best edge of each component: weight (in-out)
+     * @param compFrom Best edge of each component: source (in-out)
+     * @param compTo Best edge of each component: target (in-out)
+     */
+    private void findNearestParallel(ParallelCore core, int[] roots, double[] compDist, int[] compFrom, int[] compTo) {
+      runParallel(core, roots.length, (r, p, q) -> {
+        final int c = roots[r];
+        double best = compTo[c] >= 0 ? compDist[c] : Double.POSITIVE_INFINITY;
+        int bestFrom = compFrom[c], bestTo = compTo[c];
+        for(int m = compStart[c], end = compEnd[c]; m < end; m++) {
+          final int i = members[m];
+          final double corei = coredist[i];
+          // Members are sorted by core distance, no further improvement:
+          if(bestTo >= 0 && corei >= best) {
+            break;
+          }
+          p.seek(i);
+          if(pivotOrder != null) {
+            // Scan outwards in the order of the distance to the pivot:
+            final double di = pivotDist[i];
+            for(int left = pivotPos[i] - 1, right = pivotPos[i] + 1; left >= 0 || right < pivotOrder.length;) {
+              final double gl = left >= 0 ? di - sortedPivot[left] : Double.POSITIVE_INFINITY;
+              final double gr = right < pivotOrder.length ? sortedPivot[right] - di : Double.POSITIVE_INFINITY;
+              final boolean goleft = right >= pivotOrder.length || gl <= gr;
+              // Triangle inequality: the distance is at least the gap.
+              final double gap = goleft ? gl : gr;
+              if(bestTo >= 0 && gap >= best) {
+                break;
+              }
+              final int j = pivotOrder[goleft ? left-- : right++];
+              if(comp[j] == c) {
+                continue;
+              }
+              final double corej = coredist[j];
+              if(bestTo >= 0 && (corej >= best || corei >= best)) {
+                continue;
+              }
+              double d = distQ.distance(p, q.seek(j));
+              d = d > corei ? d : corei;
+              d = d > corej ? d : corej;
+              if(d < best || bestTo < 0) {
+                best = d;
+                bestFrom = i;
+                bestTo = j;
+              }
+            }
+            continue;
+          }
+          for(int k = 0; k < order.length; k++) {
+            // Mutual reachability is at least the larger core distance:
+            final double lb = corei > sortedCore[k] ? corei : sortedCore[k];
+            if(bestTo >= 0 && lb >= best) {
+              break;
+            }
+            final int j = order[k];
+            if(comp[j] == c) {
+              continue;
+            }
+            double d = distQ.distance(p, q.seek(j));
+            d = d > corei ? d : corei;
+            d = d > sortedCore[k] ? d : sortedCore[k];
+            if(d < best || bestTo < 0) {
+              best = d;
+              bestFrom = i;
+              bestTo = j;
+            }
+          }
+        }
+        compDist[c] = best;
+        compFrom[c] = bestFrom;
+        compTo[c] = bestTo;
+      });
+    }
+
+    /**
+     * Process tasks in parallel blocks.
+     *
+     * @param core Parallel core
+     * @param size Number of tasks
+     * @param task Task
+     */
+    private void runParallel(ParallelCore core, int size, Task task) {
+      final int numparts = Math.max(1, Math.min(size, core.getParallelism() << 2));
+      final int blocksize = (size + (numparts - 1)) / numparts;
+      List<Future<?>> parts = new ArrayList<>(numparts);
+      for(int start = 0; start < size; start += blocksize) {
+        final int s = start, e = Math.min(start + blocksize, size);
+        parts.add(core.submit(() -> {
+          DBIDArrayIter p = ids.iter(), q = ids.iter();
+          for(int i = s; i < e; i++) {
+            task.process(i, p, q);
+          }
+          return null;
+        }));
+      }
+      try {
+        for(Future<?> fut : parts) {
+          fut.get();
+        }
+      }
+      catch(ExecutionException e) {
+        throw new RuntimeException("Processor execution failed.", e);
+      }
+      catch(InterruptedException e) {
+        throw new RuntimeException("Parallel execution interrupted.");
+      }
+    }
+
+    /**
+     * Find the best edge of an object to one of its nearest neighbors in a
+     * different component. As the neighbors are within the core distance, the
+     * mutual reachability distance is the larger of the two core distances.
+     *
+     * @param i Object offset
+     */
+    private void findNeighbor(int i) {
+      final int c = comp[i];
+      final double corei = coredist[i];
+      double best = Double.POSITIVE_INFINITY;
+      int bestj = -1;
+      for(int j : nn[i]) {
+        if(comp[j] != c) {
+          final double d = corei > coredist[j] ? corei : coredist[j];
+          if(d < best || (d == best && j < bestj)) {
+            best = d;
+            bestj = j;
+          }
+        }
+      }
+      bestDist[i] = best;
+      bestTo[i] = bestj;
+    }
+  }
+
+  /**
+   * Task processing a single object or component.
+   *
+   * @author Erich Schubert
+   */
+  @FunctionalInterface
+  private interface Task {
+    /**
+     * Process an object or component.
+     *
+     * @param i Object or component index
+     * @param p Iterator (thread-local)
+     * @param q Iterator (thread-local)
+     */
+    void process(int i, DBIDArrayIter p, DBIDArrayIter q);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Par<O> extends AbstractHDBSCAN.Par<O> {
+    @Override
+    public BoruvkaHDBSCAN<O> make() {
+      return new BoruvkaHDBSCAN<>(distance, minPts);
+    }
+  }
+}
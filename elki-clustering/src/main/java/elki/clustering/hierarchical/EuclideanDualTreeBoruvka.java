@@ -0,0 +1,706 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.clustering.hierarchical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import elki.data.NumberVector;
+import elki.data.type.TypeInformation;
+import elki.data.type.TypeUtil;
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.WritableDBIDDataStore;
+import elki.database.datastore.WritableDoubleDataStore;
+import elki.database.ids.ArrayModifiableDBIDs;
+import elki.database.ids.DBIDArrayIter;
+import elki.database.ids.DBIDUtil;
+import elki.database.relation.Relation;
+import elki.database.relation.RelationUtil;
+import elki.distance.minkowski.EuclideanDistance;
+import elki.logging.Logging;
+import elki.logging.progress.FiniteProgress;
+import elki.logging.statistics.LongStatistic;
+import elki.parallel.ParallelCore;
+import elki.utilities.datastructures.heap.DoubleLongHeap;
+import elki.utilities.datastructures.heap.DoubleLongMinHeap;
+import elki.utilities.datastructures.unionfind.WeightedQuickUnionInteger;
+import elki.utilities.documentation.Reference;
+import elki.utilities.documentation.Title;
+import elki.utilities.optionhandling.Parameterizer;
+import elki.utilities.optionhandling.constraints.CommonConstraints;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.IntParameter;
+
+/**
+ * Euclidean minimum spanning tree using the dual-tree Borůvka algorithm, for
+ * single-linkage clustering and HDBSCAN.
+ * <p>
+ * The data is copied into an internal k-d-tree (using midpoint splits of the
+ * widest dimension). In each Borůvka round, a dual-tree traversal finds the
+ * cheapest edge leaving each component. Pairs of nodes are pruned if all their
+ * points belong to the same component, or if the minimum distance of their
+ * bounding boxes exceeds the bound of the query node, i.e., the largest
+ * candidate edge length of the components of its points.
+ * <p>
+ * With {@code minPts = 1}, the resulting hierarchy is the single-linkage
+ * hierarchy (as computed by {@link SLINK}). For larger values, the spanning tree
+ * of the mutual reachability graph is computed, as used by HDBSCAN; the core
+ * distances are computed in parallel using the same tree. Because the mutual
+ * reachability distance is at least the core distance of both points, the
+ * smallest core distance within each node is used to tighten the lower
+ * bounds.
+ * <p>
+ * As {@link HDBSCANLinearMemory}, this does not include the cluster extraction,
+ * which is provided in a separate step.
+ * <p>
+ * Reference:
+ * <p>
+ * W. B. March, P. Ram, A. G. Gray<br>
+ * Fast Euclidean minimum spanning tree: algorithm, analysis, and
+ * applications<br>
+ * Proc. 16th ACM SIGKDD Int. Conf. Knowledge Discovery and Data Mining
+ * <p>
+ * R. J. G. B. Campello, D. Moulavi, J. Sander<br>
+ * Density-Based Clustering Based on Hierarchical Density Estimates<br>
+ * Pacific-Asia Conf. Advances in Knowledge Discovery and Data Mining (PAKDD)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - PointerHierarchyRepresentationResult
+ *
+ * @param <V> Vector type
+ */
+@Title("Dual-tree Borůvka Euclidean minimum spanning tree")
+@Reference(authors = "W. B. March, P. Ram, A. G. Gray", //
+    title = "Fast Euclidean minimum spanning tree: algorithm, analysis, and applications", //
+    booktitle = "Proc. 16th ACM SIGKDD Int. Conf. Knowledge Discovery and Data Mining", //
+    url = "https://doi.org/10.1145/1835804.1835882", //
+    bibkey = "DBLP:conf/kdd/MarchRG10")
+@Reference(authors = "R. J. G. B. Campello, D. Moulavi, J. Sander", //
+    title = "Density-Based Clustering Based on Hierarchical Density Estimates", //
+    booktitle = "Pacific-Asia Conf. Advances in Knowledge Discovery and Data Mining (PAKDD)", //
+    url = "https://doi.org/10.1007/978-3-642-37456-2_14", //
+    bibkey = "DBLP:conf/pakdd/CampelloMS13")
+public class EuclideanDualTreeBoruvka<V extends NumberVector> extends AbstractHDBSCAN<V> implements HierarchicalClusteringAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(EuclideanDualTreeBoruvka.class);
+
+  /**
+   * Maximum leaf size of the k-d-tree.
+   */
+  private static final int LEAFSIZE = 16;
+
+  /**
+   * Constructor.
+   *
+   * @param minPts Minimum number of points for density, 1 for single-linkage
+   */
+  public EuclideanDualTreeBoruvka(int minPts) {
+    super(EuclideanDistance.STATIC, minPts);
+  }
+
+  /**
+   * Run the algorithm
+   *
+   * @param relation Relation
+   * @return Clustering hierarchy
+   */
+  public PointerHierarchyRepresentationResult run(Relation<? extends NumberVector> relation) {
+    final int dim = RelationUtil.dimensionality(relation);
+    // The tree reorders the ids, which we use for array addressing later.
+    final ArrayModifiableDBIDs ids = DBIDUtil.newArray(relation.getDBIDs());
+    Instance inst = new Instance(relation, ids, dim);
+
+    // 1. Compute the core distances, if needed
+    WritableDoubleDataStore coredists = null;
+    if(minPts > 1) {
+      inst.computeCoreDistances(minPts);
+      coredists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_DB);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        coredists.putDouble(it, Math.sqrt(inst.core[it.getOffset()]));
+      }
+    }
+
+    // 2. Build spanning tree.
+    DoubleLongHeap heap = new DoubleLongMinHeap(Math.max(ids.size() - 1, 1));
+    inst.run(heap);
+
+    // Storage for pointer representation:
+    WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
+    convertToPointerRepresentation(ids, heap, pi, lambda);
+
+    return coredists != null ? new PointerDensityHierarchyRepresentationResult(ids, pi, lambda, false, coredists) //
+        : new PointerHierarchyRepresentationResult(ids, pi, lambda, false);
+  }
+
+  /**
+   * Node of the k-d-tree.
+   *
+   * @author Erich Schubert
+   */
+  private static class Node {
+    /**
+     * Range of points covered by this node.
+     */
+    int start, end;
+
+    /**
+     * Bounding box.
+     */
+    double[] min, max;
+
+    /**
+     * Child nodes, {@code null} for leaves.
+     */
+    Node left, right;
+
+    /**
+     * Smallest (squared) core distance in this node.
+     */
+    double minCore;
+
+    /**
+     * Component of all points in this node, or -1 if mixed.
+     */
+    int comp;
+
+    /**
+     * Upper bound of the candidate edge lengths of the points in this node.
+     */
+    double bound;
+
+    /**
+     * Constructor.
+     *
+     * @param start Start offset
+     * @param end End offset (exclusive)
+     * @param min Bounding box minimum
+     * @param max Bounding box maximum
+     */
+    Node(int start, int end, double[] min, double[] max) {
+      this.start = start;
+      this.end = end;
+      this.min = min;
+      this.max = max;
+    }
+
+    /**
+     * Test for leaf nodes.
+     *
+     * @return {@code true} when a leaf
+     */
+    boolean isLeaf() {
+      return left == null;
+    }
+  }
+
+  /**
+   * Instance for computing the minimum spanning tree.
+   *
+   * @author Erich Schubert
+   */
+  private static class Instance {
+    /**
+     * Object ids, in tree order.
+     */
+    ArrayModifiableDBIDs ids;
+
+    /**
+     * Dimensionality.
+     */
+    int dim;
+
+    /**
+     * Flattened coordinates, in tree order.
+     */
+    double[] data;
+
+    /**
+     * Squared core distances, in tree order.
+     */
+    double[] core;
+
+    /**
+     * Root of the k-d-tree.
+     */
+    Node root;
+
+    /**
+     * Current component of each object.
+     */
+    int[] comp;
+
+    /**
+     * Best outgoing edge of each component: squared weight.
+     */
+    double[] compDist;
+
+    /**
+     * Best outgoing edge of each component: source and target.
+     */
+    int[] compFrom, compTo;
+
+    /**
+     * Number of distance computations.
+     */
+    long distcount;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param ids Object ids, will be reordered
+     * @param dim Dimensionality
+     */
+    Instance(Relation<? extends NumberVector> relation, ArrayModifiableDBIDs ids, int dim) {
+      final int n = ids.size();
+      this.ids = ids;
+      this.dim = dim;
+      this.data = new double[n * dim];
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        NumberVector v = relation.get(it);
+        for(int d = 0, o = it.getOffset() * dim; d < dim; d++) {
+          data[o + d] = v.doubleValue(d);
+        }
+      }
+      this.core = new double[n]; // Single-link: all zero.
+      this.root = n > 0 ? buildTree(0, n) : null;
+      this.comp = new int[n];
+      this.compDist = new double[n];
+      this.compFrom = new int[n];
+      this.compTo = new int[n];
+    }
+
+    /**
+     * Build the k-d-tree recursively.
+     *
+     * @param start Start offset
+     * @param end End offset (exclusive)
+     * @return Node
+     */
+    private Node buildTree(int start, int end) {
+      double[] min = Arrays.copyOfRange(data, start * dim, start * dim + dim);
+      double[] max = min.clone();
+      for(int i = start + 1, o = i * dim; i < end; i++) {
+        for(int d = 0; d < dim; d++, o++) {
+          final double v = data[o];
+          min[d] = v < min[d] ? v : min[d];
+          max[d] = v > max[d] ? v : max[d];
+        }
+      }
+      Node node = new Node(start, end, min, max);
+      if(end - start <= LEAFSIZE) {
+        return node;
+      }
+      // Split the widest dimension at the midpoint.
+      int sdim = 0;
+      double width = max[0] - min[0];
+      for(int d = 1; d < dim; d++) {
+        if(max[d] - min[d] > width) {
+          width = max[d] - min[d];
+          sdim = d;
+        }
+      }
+      if(!(width > 0)) {
+        return node; // All duplicates.
+      }
+      final double mid = (min[sdim] + max[sdim]) * .5;
+      // Both sides are non-empty, because the width is positive.
+      int l = start, r = end - 1;
+      while(l <= r) {
+        if(data[l * dim + sdim] <= mid) {
+          ++l;
+        }
+        else {
+          swap(l, r--);
+        }
+      }
+      node.left = buildTree(start, l);
+      node.right = buildTree(l, end);
+      return node;
+    }
+
+    /**
+     * Swap two objects.
+     *
+     * @param i First offset
+     * @param j Second offset
+     */
+    private void swap(int i, int j) {
+      for(int d = 0, oi = i * dim, oj = j * dim; d < dim; d++, oi++, oj++) {
+        final double tmp = data[oi];
+        data[oi] = data[oj];
+        data[oj] = tmp;
+      }
+      ids.swap(i, j);
+    }
+
+    /**
+     * Squared Euclidean distance of two objects.
+     *
+     * @param i First offset
+     * @param j Second offset
+     * @return Squared distance
+     */
+    private double sqdist(int i, int j) {
+      double agg = 0.;
+      for(int d = 0, oi = i * dim, oj = j * dim; d < dim; d++, oi++, oj++) {
+        final double v = data[oi] - data[oj];
+        agg += v * v;
+      }
+      return agg;
+    }
+
+    /**
+     * Minimum squared distance of an object to a bounding box.
+     *
+     * @param i Object offset
+     * @param n Node
+     * @return Squared distance
+     */
+    private double sqdist(int i, Node n) {
+      double agg = 0.;
+      for(int d = 0, o = i * dim; d < dim; d++, o++) {
+        final double v = data[o], delta = v < n.min[d] ? n.min[d] - v : v > n.max[d] ? v - n.max[d] : 0.;
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    /**
+     * Minimum squared distance of two bounding boxes.
+     *
+     * @param a First node
+     * @param b Second node
+     * @return Squared distance
+     */
+    private double sqdist(Node a, Node b) {
+      double agg = 0.;
+      for(int d = 0; d < dim; d++) {
+        final double delta = a.max[d] < b.min[d] ? b.min[d] - a.max[d] : b.max[d] < a.min[d] ? a.min[d] - b.max[d] : 0.;
+        agg += delta * delta;
+      }
+      return agg;
+    }
+
+    /**
+     * Compute the (squared) core distances of all objects, in parallel.
+     *
+     * @param k Number of neighbors, including the query point
+     */
+    void computeCoreDistances(int k) {
+      final int size = ids.size();
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Computing core distances", size, LOG) : null;
+      ParallelCore pc = ParallelCore.getCore();
+      pc.connect();
+      try {
+        final int numparts = Math.max(1, Math.min(size, pc.getParallelism() << 2));
+        final int blocksize = (size + (numparts - 1)) / numparts;
+        List<Future<?>> parts = new ArrayList<>(numparts);
+        for(int start = 0; start < size; start += blocksize) {
+          final int s = start, e = Math.min(start + blocksize, size);
+          parts.add(pc.submit(() -> {
+            double[] knn = new double[k];
+            for(int i = s; i < e; i++) {
+              Arrays.fill(knn, Double.POSITIVE_INFINITY);
+              knnSearch(root, i, knn);
+              core[i] = knn[k - 1];
+            }
+            return null;
+          }));
+        }
+        for(Future<?> fut : parts) {
+          fut.get();
+          if(prog != null) {
+            prog.setProcessed(Math.min(prog.getProcessed() + blocksize, size), LOG);
+          }
+        }
+      }
+      catch(ExecutionException e) {
+        throw new RuntimeException("Processor execution failed.", e);
+      }
+      catch(InterruptedException e) {
+        throw new RuntimeException("Parallel execution interrupted.");
+      }
+      finally {
+        pc.disconnect();
+      }
+      LOG.ensureCompleted(prog);
+      // Aggregate the smallest core distance of each node:
+      aggregateMinCore(root);
+    }
+
+    /**
+     * Single-tree k-nearest-neighbor search.
+     *
+     * @param node Current node
+     * @param i Query object offset
+     * @param knn Sorted array of the k smallest squared distances
+     */
+    private void knnSearch(Node node, int i, double[] knn) {
+      final int k1 = knn.length - 1;
+      if(node.isLeaf()) {
+        for(int j = node.start; j < node.end; j++) {
+          final double d = sqdist(i, j);
+          if(d < knn[k1]) {
+            int p = k1;
+            for(; p > 0 && knn[p - 1] > d; p--) {
+              knn[p] = knn[p - 1];
+            }
+            knn[p] = d;
+          }
+        }
+        return;
+      }
+      final double dl = sqdist(i, node.left), dr = sqdist(i, node.right);
+      final Node first = dl <= dr ? node.left : node.right;
+      final Node second = dl <= dr ? node.right : node.left;
+      if((dl <= dr ? dl : dr) < knn[k1]) {
+        knnSearch(first, i, knn);
+      }
+      if((dl <= dr ? dr : dl) < knn[k1]) {
+        knnSearch(second, i, knn);
+      }
+    }
+
+    /**
+     * Aggregate the minimum core distance of each node.
+     *
+     * @param node Current node
+     * @return Minimum core distance
+     */
+    private double aggregateMinCore(Node node) {
+      if(node.isLeaf()) {
+        double m = Double.POSITIVE_INFINITY;
+        for(int i = node.start; i < node.end; i++) {
+          m = core[i] < m ? core[i] : m;
+        }
+        return node.minCore = m;
+      }
+      final double l = aggregateMinCore(node.left), r = aggregateMinCore(node.right);
+      return node.minCore = l < r ? l : r;
+    }
+
+    /**
+     * Build the minimum spanning tree.
+     *
+     * @param heap Output heap of edges
+     */
+    void run(DoubleLongHeap heap) {
+      final int n = ids.size();
+      WeightedQuickUnionInteger uf = new WeightedQuickUnionInteger();
+      for(int i = 0; i < n; i++) {
+        uf.nextIndex(1);
+      }
+      FiniteProgress mprog = LOG.isVerbose() ? new FiniteProgress("Computing minimum spanning tree (n-1 edges)", n - 1, LOG) : null;
+      int edges = 0, rounds = 0;
+      while(edges < n - 1) {
+        ++rounds;
+        for(int i = 0; i < n; i++) {
+          comp[i] = uf.find(i);
+        }
+        prepareNodes(root);
+        Arrays.fill(compDist, Double.POSITIVE_INFINITY);
+        Arrays.fill(compTo, -1);
+        dualTree(root, root);
+        // Add the best edge of each component:
+        int added = 0;
+        for(int c = 0; c < n; c++) {
+          if(compTo[c] >= 0 && !uf.isConnected(compFrom[c], compTo[c])) {
+            uf.union(compFrom[c], compTo[c]);
+            heap.add(Math.sqrt(compDist[c]), (((long) compFrom[c]) << 31) | compTo[c]);
+            ++added;
+            LOG.incrementProcessed(mprog);
+          }
+        }
+        assert added > 0 : "Minimum spanning tree construction did not make progress.";
+        edges += added;
+      }
+      LOG.ensureCompleted(mprog);
+      LOG.statistics(new LongStatistic(EuclideanDualTreeBoruvka.class.getName() + ".rounds", rounds));
+      LOG.statistics(new LongStatistic(EuclideanDualTreeBoruvka.class.getName() + ".distance-computations", distcount));
+    }
+
+    /**
+     * Update the component labels of the nodes, and reset the bounds.
+     *
+     * @param node Current node
+     * @return Component label of the node
+     */
+    private int prepareNodes(Node node) {
+      node.bound = Double.POSITIVE_INFINITY;
+      if(node.isLeaf()) {
+        int c = comp[node.start];
+        for(int i = node.start + 1; i < node.end && c >= 0; i++) {
+          c = comp[i] == c ? c : -1;
+        }
+        return node.comp = c;
+      }
+      final int l = prepareNodes(node.left), r = prepareNodes(node.right);
+      return node.comp = l == r ? l : -1;
+    }
+
+    /**
+     * Dual-tree traversal, finding the cheapest edge leaving each component.
+     *
+     * @param q Query node
+     * @param r Reference node
+     */
+    private void dualTree(Node q, Node r) {
+      if(q.comp >= 0 && q.comp == r.comp) {
+        return; // All in the same component.
+      }
+      if(lowerBound(q, r) > q.bound) {
+        return; // Cannot improve any candidate.
+      }
+      if(q.isLeaf()) {
+        if(r.isLeaf()) {
+          baseCase(q, r);
+          return;
+        }
+        visitOrdered(q, r.left, r.right);
+        return;
+      }
+      if(r.isLeaf() || q.end - q.start >= r.end - r.start) {
+        if(r.isLeaf()) {
+          dualTree(q.left, r);
+          dualTree(q.right, r);
+        }
+        else {
+          visitOrdered(q.left, r.left, r.right);
+          visitOrdered(q.right, r.left, r.right);
+        }
+        final double b = q.left.bound > q.right.bound ? q.left.bound : q.right.bound;
+        q.bound = b < q.bound ? b : q.bound;
+        return;
+      }
+      visitOrdered(q, r.left, r.right);
+    }
+
+    /**
+     * Visit two reference nodes, the closer one first.
+     *
+     * @param q Query node
+     * @param r1 First reference node
+     * @param r2 Second reference node
+     */
+    private void visitOrdered(Node q, Node r1, Node r2) {
+      if(lowerBound(q, r1) <= lowerBound(q, r2)) {
+        dualTree(q, r1);
+        dualTree(q, r2);
+      }
+      else {
+        dualTree(q, r2);
+        dualTree(q, r1);
+      }
+    }
+
+    /**
+     * Lower bound of the (squared) mutual reachability distance of two nodes.
+     *
+     * @param q First node
+     * @param r Second node
+     * @return Lower bound
+     */
+    private double lowerBound(Node q, Node r) {
+      double lb = sqdist(q, r);
+      lb = lb > q.minCore ? lb : q.minCore;
+      return lb > r.minCore ? lb : r.minCore;
+    }
+
+    /**
+     * Compare all pairs of objects in two leaves.
+     *
+     * @param q Query leaf
+     * @param r Reference leaf
+     */
+    private void baseCase(Node q, Node r) {
+      double bound = 0.;
+      for(int i = q.start; i < q.end; i++) {
+        final int c = comp[i];
+        final double corei = core[i];
+        double best = compDist[c];
+        for(int j = r.start; j < r.end; j++) {
+          if(comp[j] == c || (corei > core[j] ? corei : core[j]) > best) {
+            continue;
+          }
+          double d = sqdist(i, j);
+          ++distcount;
+          d = d > corei ? d : corei;
+          d = d > core[j] ? d : core[j];
+          if(d < best || compTo[c] < 0) {
+            compDist[c] = best = d;
+            compFrom[c] = i;
+            compTo[c] = j;
+          }
+        }
+        bound = best > bound ? best : bound;
+      }
+      q.bound = bound < q.bound ? bound : q.bound;
+    }
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <V> Vector type
+   */
+  public static class Par<V extends NumberVector> implements Parameterizer {
+    /**
+     * Minimum size of core, 1 for single-linkage.
+     */
+    protected int minPts;
+
+    @Override
+    public void configure(Parameterization config) {
+      new IntParameter(AbstractHDBSCAN.Par.MIN_PTS_ID, 1) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT) //
+          .grab(config, x -> minPts = x);
+    }
+
+    @Override
+    public EuclideanDualTreeBoruvka<V> make() {
+      return new EuclideanDualTreeBoruvka<>(minPts);
+    }
+  }
+}
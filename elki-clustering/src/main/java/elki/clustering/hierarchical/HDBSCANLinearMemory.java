@@ -27,11 +27,9 @@ import elki.database.datastore.DataStoreUtil;
 import elki.database.datastore.WritableDBIDDataStore;
 import elki.database.datastore.WritableDoubleDataStore;
 import elki.database.ids.ArrayDBIDs;
-import elki.database.ids.DBIDRef;
 import elki.database.ids.DBIDUtil;
 import elki.database.query.QueryBuilder;
 import elki.database.query.distance.DistanceQuery;
-import elki.database.query.knn.KNNSearcher;
 import elki.database.relation.Relation;
 import elki.distance.Distance;
 import elki.logging.Logging;
@@ -111,14 +109,13 @@ public class HDBSCANLinearMemory<O> extends AbstractHDBSCAN<O> implements Hierar
    */
   public PointerDensityHierarchyRepresentationResult run(Relation<O> relation) {
     final QueryBuilder<O> qb = new QueryBuilder<>(relation, distance);
-    final KNNSearcher<DBIDRef> knnQ = qb.kNNByDBID(minPts);
     final DistanceQuery<O> distQ = qb.distanceQuery();
     // We need array addressing later.
     final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
 
     // 1. Compute the core distances
     // minPts + 1: ignore query point.
-    final WritableDoubleDataStore coredists = computeCoreDists(ids, knnQ, minPts);
+    final WritableDoubleDataStore coredists = computeCoreDists(ids, () -> qb.kNNByDBID(minPts), minPts);
 
     final int numedges = ids.size() - 1;
     DoubleLongHeap heap = new DoubleLongMinHeap(numedges);
@@ -20,11 +20,16 @@
  */
 package elki.clustering.hierarchical;
 
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
 import elki.database.ids.ArrayDBIDs;
 import elki.database.ids.DBIDArrayIter;
 import elki.database.ids.DBIDUtil;
 import elki.database.ids.DBIDs;
+import elki.database.query.BulkDistanceScan;
 import elki.database.query.distance.DistanceQuery;
+import elki.database.relation.Relation;
+import elki.distance.BulkDistance;
 import elki.utilities.exceptions.AbortException;
 
 /**
@@ -108,6 +113,22 @@ public class MatrixParadigm {
   public MatrixParadigm initializeWithDistances(DistanceQuery<?> dq) {
     final DBIDArrayIter ix = this.ix, iy = this.iy;
     final double[] matrix = this.matrix;
+    if(BulkDistanceScan.applicable(dq.getDistance(), dq.getRelation())) {
+      @SuppressWarnings("unchecked")
+      final Relation<? extends NumberVector> relation = (Relation<? extends NumberVector>) dq.getRelation();
+      final double[][] rows = new double[size][];
+      for(ix.seek(0); ix.valid(); ix.advance()) {
+        rows[ix.getOffset()] = DoubleVector.unwrap(relation.get(ix));
+      }
+      // Each row of the triangle is one bulk computation.
+      final BulkDistance bulk = (BulkDistance) dq.getDistance();
+      final double[] buf = new double[size];
+      for(int x = 1, pos = 0; x < size; pos += x++) {
+        bulk.distances(rows[x], rows, x, buf);
+        System.arraycopy(buf, 0, matrix, pos, x);
+      }
+      return this;
+    }
     int pos = 0;
     for(ix.seek(0); ix.valid(); ix.advance()) {
       final int x = ix.getOffset();
@@ -26,7 +26,6 @@ import elki.database.datastore.*;
 import elki.database.ids.*;
 import elki.database.query.QueryBuilder;
 import elki.database.query.distance.DistanceQuery;
-import elki.database.query.knn.KNNSearcher;
 import elki.database.relation.Relation;
 import elki.distance.Distance;
 import elki.logging.Logging;
@@ -98,13 +97,12 @@ public class SLINKHDBSCANLinearMemory<O> extends AbstractHDBSCAN<O> implements H
   public PointerDensityHierarchyRepresentationResult run(Relation<O> relation) {
     final QueryBuilder<O> qb = new QueryBuilder<>(relation, distance);
     final DistanceQuery<O> distQ = qb.distanceQuery();
-    final KNNSearcher<DBIDRef> knnQ = qb.kNNByDBID(minPts);
     // We need array addressing later.
     final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
 
     // Compute the core distances
     // minPts + 1: ignore query point.
-    final WritableDoubleDataStore coredists = computeCoreDists(ids, knnQ, minPts);
+    final WritableDoubleDataStore coredists = computeCoreDists(ids, () -> qb.kNNByDBID(minPts), minPts);
 
     WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
     WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
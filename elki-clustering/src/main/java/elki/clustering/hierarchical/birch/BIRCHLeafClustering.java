@@ -97,8 +97,19 @@ public class BIRCHLeafClustering implements ClusteringAlgorithm<Clustering<MeanM
    * @return Clustering
    */
   public Clustering<MeanModel> run(Relation<NumberVector> relation) {
+    return run(relation, cffactory.newTree(relation.getDBIDs(), relation));
+  }
+
+  /**
+   * Run the clustering algorithm on an existing tree, e.g., a tree built
+   * incrementally or loaded from a file.
+   *
+   * @param relation Input data to assign to the leaves
+   * @param tree CF-tree
+   * @return Clustering
+   */
+  public Clustering<MeanModel> run(Relation<NumberVector> relation, CFTree tree) {
     final int dim = RelationUtil.dimensionality(relation);
-    CFTree tree = cffactory.newTree(relation.getDBIDs(), relation);
     // The CFTree does not store points. We have to reassign them (and the
     // quality is better than if we used the initial assignment, because centers
     // move in particular in the beginning, so we always had many outliers.
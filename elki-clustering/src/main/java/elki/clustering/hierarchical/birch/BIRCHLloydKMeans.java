@@ -131,22 +131,20 @@ public class BIRCHLloydKMeans implements ClusteringAlgorithm<Clustering<MeanMode
    * @return Clustering
    */
   public Clustering<KMeansModel> run(Relation<NumberVector> relation) {
-    CFTree tree = cffactory.newTree(relation.getDBIDs(), relation);
-
-    // For efficiency, we also need the mean of each CF:
-    ClusteringFeature[] cfs = new ClusteringFeature[tree.leaves];
-    double[][] cfmeans = new double[tree.leaves][];
-
-    int z = 0;
-    for(LeafIterator iter = tree.leafIterator(); iter.valid(); iter.advance()) {
-      ClusteringFeature f = cfs[z] = iter.get();
-      cfmeans[z] = times(f.ls, 1. / f.n);
-      z++;
-    }
+    return run(relation, cffactory.newTree(relation.getDBIDs(), relation));
+  }
 
-    int[] assignment = new int[tree.leaves], weights = new int[k];
-    Arrays.fill(assignment, -1);
-    double[][] means = kmeans(cfmeans, cfs, assignment, weights);
+  /**
+   * Run the clustering algorithm on an existing tree, e.g., a tree built
+   * incrementally or loaded from a file.
+   *
+   * @param relation Input data to assign to the clusters
+   * @param tree CF-tree
+   * @return Clustering
+   */
+  public Clustering<KMeansModel> run(Relation<NumberVector> relation, CFTree tree) {
+    int[] weights = new int[k];
+    double[][] means = computeMeans(tree, weights);
 
     // The CFTree does not store points. We have to reassign them; but rather
     // than assigning them to n > k cluster features, we just assign them to the
@@ -181,6 +179,32 @@ public class BIRCHLloydKMeans implements ClusteringAlgorithm<Clustering<MeanMode
     return result;
   }
 
+  /**
+   * Cluster the leaves of a tree with k-means, without access to the data
+   * points (e.g., for the summary of a data stream).
+   *
+   * @param tree CF-tree
+   * @param weights Output array for the number of points in each cluster,
+   *        of size k
+   * @return Cluster means
+   */
+  public double[][] computeMeans(CFTree tree, int[] weights) {
+    // For efficiency, we also need the mean of each CF:
+    ClusteringFeature[] cfs = new ClusteringFeature[tree.leaves];
+    double[][] cfmeans = new double[tree.leaves][];
+
+    int z = 0;
+    for(LeafIterator iter = tree.leafIterator(); iter.valid(); iter.advance()) {
+      ClusteringFeature f = cfs[z] = iter.get();
+      cfmeans[z] = times(f.ls, 1. / f.n);
+      z++;
+    }
+
+    int[] assignment = new int[tree.leaves];
+    Arrays.fill(assignment, -1);
+    return kmeans(cfmeans, cfs, assignment, weights);
+  }
+
   /**
    * Perform k-means clustering.
    *
@@ -20,6 +20,9 @@
  */
 package elki.clustering.hierarchical.birch;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -57,6 +60,11 @@ import elki.utilities.optionhandling.parameters.ObjectParameter;
  * Condensing and merging refinement are possible, and improvements to this code
  * are welcome - please send a pull request!
  * <p>
+ * The tree can also be used as a persistent summary of a data stream: points
+ * can be inserted incrementally (with a leaf limit to bound the memory), trees
+ * built independently (e.g., by different threads) can be merged, and the
+ * leaves can be written to and read from a file.
+ * <p>
  * References:
  * <p>
  * T. Zhang, R. Ramakrishnan, M. Livny<br>
@@ -119,6 +127,16 @@ public class CFTree {
    */
   int leaves;
 
+  /**
+   * Maximum number of leaves before the tree is rebuilt.
+   */
+  int maxleaves;
+
+  /**
+   * Magic number of the file format.
+   */
+  private static final int MAGIC = 0xCF7EE001;
+
   /**
    * Constructor.
    *
@@ -128,11 +146,26 @@ public class CFTree {
    * @param capacity Capacity
    */
   public CFTree(BIRCHDistance distance, BIRCHAbsorptionCriterion absorption, double threshold, int capacity) {
+    this(distance, absorption, threshold, capacity, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function to use
+   * @param absorption Absorption criterion
+   * @param threshold Threshold
+   * @param capacity Capacity
+   * @param maxleaves Maximum number of leaves, the tree is rebuilt with a
+   *        larger threshold when this is exceeded.
+   */
+  public CFTree(BIRCHDistance distance, BIRCHAbsorptionCriterion absorption, double threshold, int capacity, int maxleaves) {
     super();
     this.distance = distance;
     this.absorption = absorption;
     this.thresholdsq = threshold * threshold;
     this.capacity = capacity;
+    this.maxleaves = maxleaves;
   }
 
   /**
@@ -160,6 +193,116 @@ public class CFTree {
       newnode.addToStatistics(newnode.children[1] = other);
       root = newnode;
     }
+    condenseIfNeeded();
+  }
+
+  /**
+   * Insert a clustering feature (e.g., a leaf of a different tree) into the
+   * tree. The clustering feature is copied.
+   *
+   * @param cf Clustering feature
+   */
+  public void insert(ClusteringFeature cf) {
+    final int dim = cf.getDimensionality();
+    ClusteringFeature leaf = new ClusteringFeature(dim);
+    leaf.addToStatistics(cf);
+    // No root created yet:
+    if(root == null) {
+      root = new TreeNode(dim, capacity);
+      root.children[0] = leaf;
+      root.addToStatistics(leaf);
+      ++leaves;
+      return;
+    }
+    if(dim != root.getDimensionality()) {
+      throw new IllegalArgumentException("Dimensionality does not match: " + dim + " != " + root.getDimensionality());
+    }
+    TreeNode other = insert(root, leaf);
+    // Handle root overflow:
+    if(other != null) {
+      TreeNode newnode = new TreeNode(dim, capacity);
+      newnode.addToStatistics(newnode.children[0] = root);
+      newnode.addToStatistics(newnode.children[1] = other);
+      root = newnode;
+    }
+    condenseIfNeeded();
+  }
+
+  /**
+   * Merge another tree into this tree, by inserting its leaves.
+   * <p>
+   * The larger threshold of both trees is used.
+   *
+   * @param other Other tree (not modified)
+   */
+  public void merge(CFTree other) {
+    if(other.root == null) {
+      return;
+    }
+    thresholdsq = other.thresholdsq > thresholdsq ? other.thresholdsq : thresholdsq;
+    for(LeafIterator iter = other.leafIterator(); iter.valid(); iter.advance()) {
+      insert(iter.get());
+    }
+  }
+
+  /**
+   * Rebuild the tree if the maximum number of leaves is exceeded.
+   */
+  private void condenseIfNeeded() {
+    if(leaves > maxleaves) {
+      if(LOG.isVerbose()) {
+        LOG.verbose("Compacting CF-tree.");
+      }
+      rebuildTree();
+    }
+  }
+
+  /**
+   * Get the number of leaves.
+   *
+   * @return Number of leaves
+   */
+  public int numLeaves() {
+    return leaves;
+  }
+
+  /**
+   * Get the total number of points summarized in the tree.
+   *
+   * @return Number of points
+   */
+  public int size() {
+    return root != null ? root.n : 0;
+  }
+
+  /**
+   * Write the leaves of the tree, and its parameters (except for the distance
+   * and absorption criterion), e.g., to a file.
+   * <p>
+   * The tree is rebuilt from the leaves when reading, using
+   * {@link Factory#read(DataInput)}.
+   *
+   * @param out Output
+   * @throws IOException on write errors
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(root != null ? root.getDimensionality() : 0);
+    out.writeDouble(thresholdsq);
+    out.writeInt(capacity);
+    out.writeInt(maxleaves);
+    out.writeInt(root != null ? leaves : 0);
+    if(root == null) {
+      return;
+    }
+    for(LeafIterator iter = leafIterator(); iter.valid(); iter.advance()) {
+      ClusteringFeature cf = iter.get();
+      out.writeInt(cf.n);
+      for(double v : cf.ls) {
+        out.writeDouble(v);
+      }
+      out.writeDouble(cf.ss);
+    }
   }
 
   /**
@@ -648,23 +791,73 @@ public class CFTree {
      * @return New tree
      */
     public CFTree newTree(DBIDs ids, Relation<? extends NumberVector> relation) {
-      CFTree tree = new CFTree(distance, absorption, threshold, branchingFactor);
-      final double max = maxleaves <= 1 ? maxleaves * ids.size() : maxleaves;
+      CFTree tree = new CFTree(distance, absorption, threshold, branchingFactor, maxLeaves(ids.size()));
       FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Building tree", relation.size(), LOG) : null;
       for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
         tree.insert(relation.get(it));
-        if(tree.leaves > max) {
-          if(LOG.isVerbose()) {
-            LOG.verbose("Compacting CF-tree.");
-          }
-          tree.rebuildTree();
-        }
         LOG.incrementProcessed(prog);
       }
       LOG.ensureCompleted(prog);
       return tree;
     }
 
+    /**
+     * Make a new, empty tree, e.g., for incremental insertion of a data stream.
+     * <p>
+     * A relative leaf limit cannot be resolved without knowing the data size,
+     * so the number of leaves is only bounded when an absolute limit is used.
+     *
+     * @return New tree
+     */
+    public CFTree newTree() {
+      return new CFTree(distance, absorption, threshold, branchingFactor, maxLeaves(-1));
+    }
+
+    /**
+     * Read a tree written with {@link CFTree#write(DataOutput)}.
+     * <p>
+     * The distance and absorption criterion of this factory are used, the
+     * other parameters are restored from the input.
+     *
+     * @param in Input
+     * @return Tree
+     * @throws IOException on read errors or invalid input
+     */
+    public CFTree read(DataInput in) throws IOException {
+      if(in.readInt() != MAGIC) {
+        throw new IOException("Not a serialized CF-tree.");
+      }
+      final int dim = in.readInt();
+      // Threshold -1 prevents leaves from being absorbed while rebuilding.
+      CFTree tree = new CFTree(distance, absorption, 0., branchingFactor);
+      tree.thresholdsq = -1;
+      final double thresholdsq = in.readDouble();
+      tree.capacity = in.readInt();
+      final int max = in.readInt(), leaves = in.readInt();
+      ClusteringFeature cf = new ClusteringFeature(dim);
+      for(int i = 0; i < leaves; i++) {
+        cf.n = in.readInt();
+        for(int d = 0; d < dim; d++) {
+          cf.ls[d] = in.readDouble();
+        }
+        cf.ss = in.readDouble();
+        tree.insert(cf);
+      }
+      tree.thresholdsq = thresholdsq;
+      tree.maxleaves = max;
+      return tree;
+    }
+
+    /**
+     * Get the maximum number of leaves.
+     *
+     * @param size Data set size, or -1 if unknown
+     * @return Maximum number of leaves
+     */
+    private int maxLeaves(int size) {
+      return maxleaves > 1 ? (int) maxleaves : size >= 0 ? (int) (maxleaves * size) : Integer.MAX_VALUE;
+    }
+
     /**
      * Parameterization class for CFTrees.
      *
@@ -43,7 +43,9 @@ import elki.database.ids.DBIDIter;
 import elki.database.ids.DBIDUtil;
 import elki.database.ids.DBIDs;
 import elki.database.ids.ModifiableDBIDs;
+import elki.database.query.BulkDistanceScan;
 import elki.database.relation.Relation;
+import elki.distance.BulkDistance;
 import elki.distance.NumberVectorDistance;
 import elki.distance.PrimitiveDistance;
 import elki.distance.minkowski.EuclideanDistance;
@@ -136,9 +138,12 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> im
    * @return Means
    */
   protected double[][] initialMeans(Relation<V> relation) {
-    Duration inittime = getLogger().newDuration(initializer.getClass() + ".time").begin();
+    final Logging log = getLogger();
+    Duration inittime = log.isStatistics() ? log.newPhase(initializer.getClass() + ".time").begin() : null;
     double[][] means = initializer.chooseInitialMeans(relation, k, distance);
-    getLogger().statistics(inittime.end());
+    if(inittime != null) {
+      log.statistics(inittime.end());
+    }
     return means;
   }
 
@@ -480,15 +485,17 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> im
       IndefiniteProgress prog = log.isVerbose() ? new IndefiniteProgress("Iteration") : null;
       int iteration = 0;
       while(iteration < maxiter) {
-        Duration duration = log.newDuration(key + "." + iteration + ".time").begin();
+        Duration duration = log.isStatistics() ? log.newPhase(key + "." + iteration + ".time").begin() : null;
         long prevdiststat = diststat;
         log.incrementProcessed(prog);
         int changed = iterate(++iteration);
+        if(duration != null) {
+          log.statistics(duration.end());
+        }
         if(changed == 0) {
           break;
         }
         if(log.isStatistics()) {
-          log.statistics(duration.end());
           log.statistics(new LongStatistic(key + "." + iteration + ".reassignments", Math.abs(changed)));
           if(diststat > prevdiststat) {
             log.statistics(new LongStatistic(key + "." + iteration + ".distance-computations", diststat - prevdiststat));
@@ -548,15 +555,26 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> im
       for(ModifiableDBIDs cluster : clusters) {
         cluster.clear();
       }
+      // Compute the distances to all means at once, where possible.
+      final BulkDistance bulk = BulkDistanceScan.applicable(df, relation) ? (BulkDistance) df : null;
+      final double[] dists = new double[k];
       for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
         NumberVector fv = relation.get(iditer);
-        double mindist = distance(fv, means[0]);
+        if(bulk != null) {
+          bulk.distances(DoubleVector.unwrap(fv), means, k, dists);
+          diststat += k;
+        }
+        else {
+          for(int i = 0; i < k; i++) {
+            dists[i] = distance(fv, means[i]);
+          }
+        }
+        double mindist = dists[0];
         int minIndex = 0;
         for(int i = 1; i < k; i++) {
-          double dist = distance(fv, means[i]);
-          if(dist < mindist) {
+          if(dists[i] < mindist) {
             minIndex = i;
-            mindist = dist;
+            mindist = dists[i];
           }
         }
         varsum[minIndex] += isSquared ? mindist : (mindist * mindist);
@@ -23,6 +23,7 @@ package elki.clustering.meta;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 import elki.clustering.ClusteringAlgorithm;
@@ -37,6 +38,7 @@ import elki.database.ids.*;
 import elki.database.relation.Relation;
 import elki.datasource.parser.CSVReaderFormat;
 import elki.logging.Logging;
+import elki.result.BinaryResultFormat;
 import elki.result.Metadata;
 import elki.utilities.documentation.Description;
 import elki.utilities.exceptions.AbortException;
@@ -65,6 +67,10 @@ import it.unimi.dsi.fastutil.objects.ObjectIterator;
  *
  * Where non-negative numbers are cluster assignments, negative numbers are
  * considered noise clusters.
+ * <p>
+ * Alternatively, the binary format of
+ * {@link elki.result.ClusteringBinaryDumper} is read, which is detected
+ * automatically.
  *
  * @author Erich Schubert
  * @since 0.7.0
@@ -115,6 +121,16 @@ public class ExternalClustering implements ClusteringAlgorithm<Clustering<? exte
   @Override
   public Clustering<? extends Model> autorun(Database database) {
     Clustering<? extends Model> m = null;
+    try {
+      Path binary = BinaryResultFormat.binaryFile(file);
+      if(binary != null) {
+        loadBinary(database, binary);
+        return m;
+      }
+    }
+    catch(IOException e) {
+      throw new AbortException("Could not load clustering: " + e.getMessage() + " when loading " + file, e);
+    }
     try (InputStream in = FileUtil.open(file); //
         TokenizedReader reader = CSVReaderFormat.DEFAULT_FORMAT.makeReader()) {
       Tokenizer tokenizer = reader.getTokenizer();
@@ -150,6 +166,56 @@ public class ExternalClustering implements ClusteringAlgorithm<Clustering<? exte
     return m;
   }
 
+  /**
+   * Load clusterings from a binary file.
+   *
+   * @param database Database
+   * @param binary Binary file
+   * @throws IOException on IO errors
+   */
+  private void loadBinary(Database database, Path binary) throws IOException {
+    Relation<?> r = database.getRelation(TypeUtil.DBID);
+    final DBIDs valid = BinaryResultFormat.validIDs(r.getDBIDs());
+    try (BinaryResultFormat.Input in = new BinaryResultFormat.Input(binary)) {
+      while(in.hasMore()) {
+        if(in.getInt() != BinaryResultFormat.CLUSTERING_MAGIC) {
+          throw new AbortException("Not a binary clustering record in " + file);
+        }
+        String name = in.getString();
+        final int k = in.getInt();
+        boolean[] noise = new boolean[k];
+        String[] names = new String[k];
+        for(int i = 0; i < k; i++) {
+          noise[i] = in.getInt() != 0;
+          names[i] = in.getString();
+        }
+        final int n = in.getInt();
+        ArrayModifiableDBIDs ids = DBIDUtil.newArray(n);
+        for(int i = 0; i < n; i++) {
+          ids.add(in.getDBID(valid));
+        }
+        int[] assignment = new int[n], sizes = new int[k];
+        for(int i = 0; i < n; i++) {
+          ++sizes[assignment[i] = in.getInt()];
+        }
+        ArrayModifiableDBIDs[] cids = new ArrayModifiableDBIDs[k];
+        for(int i = 0; i < k; i++) {
+          cids[i] = DBIDUtil.newArray(sizes[i]);
+        }
+        DBIDArrayIter it = ids.iter();
+        for(int i = 0; i < n; i++, it.advance()) {
+          cids[assignment[i]].add(it);
+        }
+        Clustering<ClusterModel> result = new Clustering<>();
+        Metadata.of(result).setLongName(name);
+        for(int i = 0; i < k; i++) {
+          result.addToplevelCluster(new Cluster<>(names[i], cids[i], noise[i], ClusterModel.CLUSTER));
+        }
+        Metadata.hierarchyOf(r).addChild(result);
+      }
+    }
+  }
+
   /**
    * Build a clustering from the file result.
    *
@@ -23,9 +23,20 @@ package elki.clustering.optics;
 import elki.Algorithm;
 import elki.data.type.TypeInformation;
 import elki.data.type.TypeUtil;
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.WritableDoubleDataStore;
+import elki.database.ids.KNNList;
+import elki.database.query.QueryBuilder;
 import elki.database.relation.Relation;
 import elki.distance.Distance;
 import elki.distance.minkowski.EuclideanDistance;
+import elki.parallel.ParallelExecutor;
+import elki.parallel.processor.KDistanceProcessor;
+import elki.parallel.processor.KNNProcessor;
+import elki.parallel.processor.WriteDoubleDataStoreProcessor;
+import elki.parallel.variables.SharedDouble;
+import elki.parallel.variables.SharedObject;
 import elki.utilities.Alias;
 import elki.utilities.documentation.Reference;
 import elki.utilities.optionhandling.OptionID;
@@ -33,6 +44,7 @@ import elki.utilities.optionhandling.Parameterizer;
 import elki.utilities.optionhandling.constraints.CommonConstraints;
 import elki.utilities.optionhandling.parameterization.Parameterization;
 import elki.utilities.optionhandling.parameters.DoubleParameter;
+import elki.utilities.optionhandling.parameters.Flag;
 import elki.utilities.optionhandling.parameters.IntParameter;
 import elki.utilities.optionhandling.parameters.ObjectParameter;
 
@@ -77,6 +89,11 @@ public abstract class AbstractOPTICS<O> implements OPTICSTypeAlgorithm {
    */
   protected int minpts;
 
+  /**
+   * Precompute the core distances in parallel.
+   */
+  protected boolean parallelCore;
+
   /**
    * Constructor.
    * 
@@ -85,10 +102,23 @@ public abstract class AbstractOPTICS<O> implements OPTICSTypeAlgorithm {
    * @param minpts Minpts value
    */
   public AbstractOPTICS(Distance<? super O> distance, double epsilon, int minpts) {
+    this(distance, epsilon, minpts, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param distance Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts value
+   * @param parallelCore Precompute core distances in parallel
+   */
+  public AbstractOPTICS(Distance<? super O> distance, double epsilon, int minpts, boolean parallelCore) {
     super();
     this.distance = distance;
     this.epsilon = epsilon;
     this.minpts = minpts;
+    this.parallelCore = parallelCore;
   }
 
   @Override
@@ -104,6 +134,34 @@ public abstract class AbstractOPTICS<O> implements OPTICSTypeAlgorithm {
    */
   public abstract ClusterOrder run(Relation<O> relation);
 
+  /**
+   * Precompute the core distances of all objects with a parallel kNN search.
+   * <p>
+   * Objects whose core distance exceeds epsilon are not core objects, and the
+   * sequential expansion does not need to perform a range query for them.
+   *
+   * @param relation Data relation
+   * @return Core distances (k-distance, may be larger than epsilon)
+   */
+  protected WritableDoubleDataStore computeCoreDists(Relation<O> relation) {
+    WritableDoubleDataStore coredists = DataStoreUtil.makeDoubleStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    final QueryBuilder<O> qb = new QueryBuilder<>(relation, distance);
+    // Compute the kNN
+    KNNProcessor knnm = new KNNProcessor(minpts, () -> qb.kNNByDBID(minpts));
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    knnm.connectKNNOutput(knnv);
+    // Extract the k-distance
+    KDistanceProcessor kdistm = new KDistanceProcessor(minpts);
+    SharedDouble kdistv = new SharedDouble();
+    kdistm.connectKNNInput(knnv);
+    kdistm.connectOutput(kdistv);
+    // Store core distances
+    WriteDoubleDataStoreProcessor storem = new WriteDoubleDataStoreProcessor(coredists);
+    storem.connectInput(kdistv);
+    ParallelExecutor.run(relation.getDBIDs(), knnm, kdistm, storem);
+    return coredists;
+  }
+
   @Override
   public int getMinPts() {
     return minpts;
@@ -131,6 +189,11 @@ public abstract class AbstractOPTICS<O> implements OPTICSTypeAlgorithm {
      */
     public static final OptionID MINPTS_ID = new OptionID("optics.minpts", "Threshold for minimum number of points in the epsilon-neighborhood of a point.");
 
+    /**
+     * Flag to precompute the core distances in parallel.
+     */
+    public static final OptionID PARALLEL_CORE_ID = new OptionID("optics.parallel-core", "Precompute the core distances with a parallel kNN search, to avoid range queries for non-core points.");
+
     /**
      * Epsilon radius.
      */
@@ -141,6 +204,11 @@ public abstract class AbstractOPTICS<O> implements OPTICSTypeAlgorithm {
      */
     protected int minpts = 0;
 
+    /**
+     * Precompute the core distances in parallel.
+     */
+    protected boolean parallelCore = false;
+
     /**
      * The distance function to use.
      */
@@ -156,6 +224,7 @@ public abstract class AbstractOPTICS<O> implements OPTICSTypeAlgorithm {
       new IntParameter(MINPTS_ID) //
           .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT) //
           .grab(config, x -> minpts = x);
+      new Flag(PARALLEL_CORE_ID).grab(config, x -> parallelCore = x);
     }
   }
 }
@@ -20,6 +20,7 @@
  */
 package elki.clustering.optics;
 
+import elki.database.datastore.DoubleDataStore;
 import elki.database.ids.DBIDIter;
 import elki.database.ids.DBIDRef;
 import elki.database.ids.DBIDUtil;
@@ -86,6 +87,18 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
     super(distance, epsilon, minpts);
   }
 
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts value
+   * @param parallelCore Precompute core distances in parallel
+   */
+  public OPTICSHeap(Distance<? super O> distance, double epsilon, int minpts, boolean parallelCore) {
+    super(distance, epsilon, minpts, parallelCore);
+  }
+
   @Override
   public ClusterOrder run(Relation<O> relation) {
     return new Instance(relation).run();
@@ -127,6 +140,11 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
      */
     RangeSearcher<DBIDRef> rangeQuery;
 
+    /**
+     * Precomputed core distances, may be {@code null}.
+     */
+    DoubleDataStore coredists;
+
     /**
      * Constructor for a single data set.
      *
@@ -139,6 +157,7 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
       Metadata.of(clusterOrder).setLongName("OPTICS Clusterorder");
       progress = LOG.isVerbose() ? new FiniteProgress("OPTICS", ids.size(), LOG) : null;
       rangeQuery = new QueryBuilder<>(relation, distance).rangeByDBID(epsilon);
+      coredists = parallelCore ? computeCoreDists(relation) : null;
       heap = new UpdatableHeap<>();
     }
 
@@ -173,11 +192,8 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
         clusterOrder.add(current.objectID, current.reachability, current.predecessorID);
         processedIDs.add(current.objectID);
 
-        rangeQuery.getRange(current.objectID, epsilon, neighbors.clear());
-        if(neighbors.size() >= minpts) {
-          neighbors.sort();
-          final double coreDistance = neighbor.seek(minpts - 1).doubleValue();
-
+        final double coreDistance = getCoreNeighbors(current.objectID, neighbors);
+        if(coreDistance < Double.POSITIVE_INFINITY) {
           for(neighbor.seek(0); neighbor.valid(); neighbor.advance()) {
             if(processedIDs.contains(neighbor)) {
               continue;
@@ -189,6 +205,31 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
         LOG.incrementProcessed(progress);
       }
     }
+
+    /**
+     * Get the neighbors and core distance of a point.
+     *
+     * @param id Object
+     * @param neighbors Output neighbors, only filled for core points
+     * @return Core distance, or infinity if not a core point
+     */
+    private double getCoreNeighbors(DBIDRef id, ModifiableDoubleDBIDList neighbors) {
+      if(coredists != null) {
+        final double coreDistance = coredists.doubleValue(id);
+        if(!(coreDistance <= epsilon)) {
+          return Double.POSITIVE_INFINITY; // Not a core point, no range query needed.
+        }
+        rangeQuery.getRange(id, epsilon, neighbors.clear());
+        neighbors.sort();
+        return coreDistance;
+      }
+      rangeQuery.getRange(id, epsilon, neighbors.clear());
+      if(neighbors.size() < minpts) {
+        return Double.POSITIVE_INFINITY;
+      }
+      neighbors.sort();
+      return neighbors.iter().seek(minpts - 1).doubleValue();
+    }
   }
 
   /**
@@ -199,7 +240,7 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
   public static class Par<O> extends AbstractOPTICS.Par<O> {
     @Override
     public OPTICSHeap<O> make() {
-      return new OPTICSHeap<>(distance, epsilon, minpts);
+      return new OPTICSHeap<>(distance, epsilon, minpts, parallelCore);
     }
   }
 }
@@ -22,6 +22,7 @@ package elki.clustering.optics;
 
 import elki.database.datastore.DataStoreFactory;
 import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.DoubleDataStore;
 import elki.database.datastore.WritableDBIDDataStore;
 import elki.database.datastore.WritableDoubleDataStore;
 import elki.database.ids.ArrayModifiableDBIDs;
@@ -93,6 +94,18 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
     super(distance, epsilon, minpts);
   }
 
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts value
+   * @param parallelCore Precompute core distances in parallel
+   */
+  public OPTICSList(Distance<? super O> distance, double epsilon, int minpts, boolean parallelCore) {
+    super(distance, epsilon, minpts, parallelCore);
+  }
+
   @Override
   public ClusterOrder run(Relation<O> relation) {
     return new Instance(relation).run();
@@ -144,6 +157,11 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
      */
     RangeSearcher<DBIDRef> rangeQuery;
 
+    /**
+     * Precomputed core distances, may be {@code null}.
+     */
+    DoubleDataStore coredists;
+
     /**
      * Constructor for a single data set.
      *
@@ -159,6 +177,7 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
       Metadata.of(clusterOrder).setLongName("OPTICS Clusterorder");
       progress = LOG.isVerbose() ? new FiniteProgress("OPTICS", ids.size(), LOG) : null;
       rangeQuery = new QueryBuilder<>(relation, distance).rangeByDBID(epsilon);
+      coredists = parallelCore ? computeCoreDists(relation) : null;
     }
 
     /**
@@ -184,7 +203,6 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
      */
     protected void expandClusterOrder(DBIDRef objectID) {
       ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
-      DoubleDBIDListIter neighbor = neighbors.iter();
       candidates.add(objectID);
       predecessor.putDBID(objectID, objectID);
       reachability.put(objectID, Double.POSITIVE_INFINITY);
@@ -198,12 +216,9 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
         clusterOrder.add(cur, reachability.doubleValue(cur), predecessor.assignVar(cur, prev));
         LOG.incrementProcessed(progress);
 
-        rangeQuery.getRange(cur, epsilon, neighbors.clear());
-        if(neighbors.size() >= minpts) {
-          neighbors.sort(); // A quick select would be enough, but its cheap.
-          final double coreDistance = neighbor.seek(minpts - 1).doubleValue();
-
-          for(neighbor.seek(0); neighbor.valid(); neighbor.advance()) {
+        final double coreDistance = getCoreNeighbors(cur, neighbors);
+        if(coreDistance < Double.POSITIVE_INFINITY) {
+          for(DoubleDBIDListIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance()) {
             if(processedIDs.contains(neighbor)) {
               continue;
             }
@@ -221,6 +236,30 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
       }
     }
 
+    /**
+     * Get the neighbors and core distance of a point.
+     *
+     * @param id Object
+     * @param neighbors Output neighbors, only filled for core points
+     * @return Core distance, or infinity if not a core point
+     */
+    private double getCoreNeighbors(DBIDRef id, ModifiableDoubleDBIDList neighbors) {
+      if(coredists != null) {
+        final double coreDistance = coredists.doubleValue(id);
+        if(!(coreDistance <= epsilon)) {
+          return Double.POSITIVE_INFINITY; // Not a core point, no range query needed.
+        }
+        rangeQuery.getRange(id, epsilon, neighbors.clear());
+        return coreDistance;
+      }
+      rangeQuery.getRange(id, epsilon, neighbors.clear());
+      if(neighbors.size() < minpts) {
+        return Double.POSITIVE_INFINITY;
+      }
+      neighbors.sort(); // A quick select would be enough, but its cheap.
+      return neighbors.iter().seek(minpts - 1).doubleValue();
+    }
+
     /**
      * Find the minimum in the candidates array.
      *
@@ -252,7 +291,7 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
   public static class Par<O> extends AbstractOPTICS.Par<O> {
     @Override
     public OPTICSList<O> make() {
-      return new OPTICSList<>(distance, epsilon, minpts);
+      return new OPTICSList<>(distance, epsilon, minpts, parallelCore);
     }
   }
 }
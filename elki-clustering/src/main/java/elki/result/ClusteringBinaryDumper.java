@@ -0,0 +1,173 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.result;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import elki.data.Cluster;
+import elki.data.Clustering;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDUtil;
+import elki.logging.Logging;
+import elki.utilities.optionhandling.OptionID;
+import elki.utilities.optionhandling.Parameterizer;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.FileParameter;
+import elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Output clustering results in a compact binary format, as DBID and cluster
+ * number columns (see {@link BinaryResultFormat}).
+ * <p>
+ * Each clustering is stored as one record:
+ * 
+ * <pre>
+ * int magic, string name, int clusters,
+ * clusters * (int noise flag, string name),
+ * int n, n * int DBID, n * int cluster number
+ * </pre>
+ * 
+ * Objects contained in multiple clusters are stored multiple times. The
+ * cluster hierarchy and models are not stored.
+ * <p>
+ * This format can be read using {@link elki.clustering.meta.ExternalClustering}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ClusteringBinaryDumper implements ResultHandler {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ClusteringBinaryDumper.class);
+
+  /**
+   * Output file.
+   */
+  private Path outputFile;
+
+  /**
+   * Always append to the output file.
+   */
+  private boolean append;
+
+  /**
+   * Constructor.
+   * 
+   * @param outputFile Output file
+   * @param append Append to output file (overwrite otherwise).
+   */
+  public ClusteringBinaryDumper(Path outputFile, boolean append) {
+    super();
+    this.outputFile = outputFile;
+    this.append = append;
+  }
+
+  @Override
+  public void processNewResult(Object newResult) {
+    List<Clustering<?>> cs = Clustering.getClusteringResults(newResult);
+    if(cs.isEmpty()) {
+      return;
+    }
+    try (BinaryResultFormat.Output out = new BinaryResultFormat.Output(outputFile, append)) {
+      for(Clustering<?> c : cs) {
+        dumpClustering(out, c);
+      }
+      append = true; // Append future results.
+    }
+    catch(IOException e) {
+      LOG.exception("Error writing to output file.", e);
+    }
+  }
+
+  /**
+   * Write a single clustering result.
+   * 
+   * @param out Output
+   * @param c Clustering result
+   * @throws IOException on IO errors
+   */
+  protected void dumpClustering(BinaryResultFormat.Output out, Clustering<?> c) throws IOException {
+    List<? extends Cluster<?>> clusters = c.getAllClusters();
+    out.putInt(BinaryResultFormat.CLUSTERING_MAGIC).putString(Metadata.of(c).getLongName());
+    out.putInt(clusters.size());
+    int n = 0;
+    for(Cluster<?> clu : clusters) {
+      out.putInt(clu.isNoise() ? 1 : 0).putString(clu.getName());
+      n += clu.size();
+    }
+    out.putInt(n);
+    for(Cluster<?> clu : clusters) {
+      for(DBIDIter iter = clu.getIDs().iter(); iter.valid(); iter.advance()) {
+        out.putInt(DBIDUtil.asInteger(iter));
+      }
+    }
+    int cnum = 0;
+    for(Cluster<?> clu : clusters) {
+      for(int i = 0; i < clu.size(); i++) {
+        out.putInt(cnum);
+      }
+      ++cnum;
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   */
+  public static class Par implements Parameterizer {
+    /**
+     * Output file name parameter.
+     */
+    public static final OptionID OUT_ID = new OptionID("clustering.binary.output", "Output file name for binary clustering results.");
+
+    /**
+     * Append flag.
+     */
+    public static final OptionID APPEND_ID = new OptionID("clustering.binary.append", "Always append to the output file.");
+
+    /**
+     * Output file.
+     */
+    private Path outputFile;
+
+    /**
+     * Always append to the output file.
+     */
+    private boolean append;
+
+    @Override
+    public void configure(Parameterization config) {
+      new FileParameter(OUT_ID, FileParameter.FileType.OUTPUT_FILE) //
+          .grab(config, x -> outputFile = Paths.get(x));
+      new Flag(APPEND_ID).grab(config, x -> append = x);
+    }
+
+    @Override
+    public ClusteringBinaryDumper make() {
+      return new ClusteringBinaryDumper(outputFile, append);
+    }
+  }
+}
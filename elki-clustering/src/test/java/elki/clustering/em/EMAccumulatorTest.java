@@ -0,0 +1,198 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.clustering.em;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import elki.clustering.kmeans.initialization.FirstK;
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.data.model.EMModel;
+import elki.data.model.MeanModel;
+import elki.data.model.Model;
+import elki.data.type.TypeUtil;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.database.Database;
+import elki.database.StaticArrayDatabase;
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.WritableDataStore;
+import elki.database.ids.DBIDIter;
+import elki.database.relation.Relation;
+import elki.datasource.bundle.MultipleObjectsBundle;
+
+/**
+ * Test that processing the E step in blocks, and merging the accumulators,
+ * yields the same models as processing the data serially.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class EMAccumulatorTest {
+  /**
+   * Number of clusters.
+   */
+  private static final int K = 3;
+
+  @Test
+  public void testMultivariate() {
+    assertMerged(new MultivariateGaussianModelFactory(new FirstK<>()));
+  }
+
+  @Test
+  public void testTextbookMultivariate() {
+    assertMerged(new TextbookMultivariateGaussianModelFactory(new FirstK<>()));
+  }
+
+  @Test
+  public void testTwoPassMultivariate() {
+    assertMerged(new TwoPassMultivariateGaussianModelFactory(new FirstK<>()));
+  }
+
+  @Test
+  public void testDiagonal() {
+    assertMerged(new DiagonalGaussianModelFactory(new FirstK<>()));
+  }
+
+  @Test
+  public void testSpherical() {
+    assertMerged(new SphericalGaussianModelFactory(new FirstK<>()));
+  }
+
+  /**
+   * Compare the block-wise E step to a serial E step.
+   *
+   * @param factory Model factory
+   */
+  private static <M extends Model> void assertMerged(EMClusterModelFactory<NumberVector, M> factory) {
+    Random rnd = new Random(0L);
+    // Several blocks of data, with an offset from the origin
+    List<DoubleVector> data = new ArrayList<>();
+    for(int i = 0; i < 5000; i++) {
+      final int c = i % K;
+      data.add(DoubleVector.wrap(new double[] { 100 + c * 5 + rnd.nextGaussian(), //
+          -100 + c * 3 + rnd.nextGaussian() * (c + 1), rnd.nextGaussian() + rnd.nextDouble() * c }));
+    }
+    MultipleObjectsBundle bundle = MultipleObjectsBundle.makeSimple(new VectorFieldTypeInformation<>(DoubleVector.FACTORY, 3), data);
+    Database db = new StaticArrayDatabase(() -> bundle, null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+
+    WritableDataStore<double[]> probs = DataStoreUtil.makeStorage(rel.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, double[].class);
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+      double[] p = new double[K];
+      double sum = 0;
+      for(int i = 0; i < K; i++) {
+        sum += p[i] = rnd.nextDouble();
+      }
+      for(int i = 0; i < K; i++) {
+        p[i] /= sum;
+      }
+      probs.put(it, p);
+    }
+
+    for(double prior : new double[] { 0., 10. }) {
+      List<? extends EMClusterModel<NumberVector, M>> blocks = factory.buildInitialModels(rel, K);
+      List<? extends EMClusterModel<NumberVector, M>> serial = factory.buildInitialModels(rel, K);
+      EM.recomputeCovarianceMatrices(rel, probs, blocks, prior);
+      serialEStep(rel, probs, serial, prior);
+      for(int i = 0; i < K; i++) {
+        EMClusterModel<NumberVector, M> b = blocks.get(i), s = serial.get(i);
+        assertEquals("Weight differs", s.getWeight(), b.getWeight(), 1e-12);
+        for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+          final double expected = s.estimateLogDensity(rel.get(it));
+          assertEquals("Density differs", expected, b.estimateLogDensity(rel.get(it)), 1e-8 * Math.max(1., Math.abs(expected)));
+        }
+        M bm = b.finalizeCluster(), sm = s.finalizeCluster();
+        assertArrayEquals(((MeanModel) sm).getMean(), ((MeanModel) bm).getMean(), 1e-8);
+        if(sm instanceof EMModel) {
+          double[][] sc = ((EMModel) sm).getCovarianceMatrix(), bc = ((EMModel) bm).getCovarianceMatrix();
+          for(int d = 0; d < sc.length; d++) {
+            assertArrayEquals(sc[d], bc[d], 1e-8);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compare two arrays, with a relative tolerance.
+   *
+   * @param expected Expected values
+   * @param actual Actual values
+   * @param eps Relative tolerance
+   */
+  private static void assertArrayEquals(double[] expected, double[] actual, double eps) {
+    assertEquals("Length differs", expected.length, actual.length);
+    for(int i = 0; i < expected.length; i++) {
+      assertEquals("Value differs", expected[i], actual[i], eps * Math.max(1., Math.abs(expected[i])));
+    }
+  }
+
+  /**
+   * Reference implementation of the E step, processing all data serially.
+   *
+   * @param relation Data relation
+   * @param probs Cluster responsibilities
+   * @param models Models
+   * @param prior MAP prior
+   */
+  private static <M extends Model> void serialEStep(Relation<NumberVector> relation, WritableDataStore<double[]> probs, List<? extends EMClusterModel<NumberVector, M>> models, double prior) {
+    boolean needsTwoPass = false;
+    for(EMClusterModel<NumberVector, M> m : models) {
+      m.beginEStep();
+      needsTwoPass |= m.needsTwoPass();
+    }
+    if(needsTwoPass) {
+      for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+        double[] p = probs.get(it);
+        for(int i = 0; i < K; i++) {
+          if(p[i] > 1e-10) {
+            models.get(i).firstPassE(relation.get(it), p[i]);
+          }
+        }
+      }
+      for(EMClusterModel<NumberVector, M> m : models) {
+        m.finalizeFirstPassE();
+      }
+    }
+    double[] wsum = new double[K];
+    for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+      double[] p = probs.get(it);
+      for(int i = 0; i < K; i++) {
+        if(p[i] > 1e-10) {
+          models.get(i).updateE(relation.get(it), p[i]);
+        }
+        wsum[i] += p[i];
+      }
+    }
+    for(int i = 0; i < K; i++) {
+      final double weight = prior <= 0. ? wsum[i] / relation.size() : (wsum[i] + prior - 1) / (relation.size() + prior * K - K);
+      models.get(i).finalizeEStep(weight, prior);
+    }
+  }
+}
@@ -62,6 +62,32 @@ public class MultivariateGaussianModelTest extends AbstractClusterAlgorithmTest
     assertClusterSizes(result, new int[] { 3, 95, 97, 202, 313 });
   }
 
+  @Test
+  public void testHierarchicalSinglePrecision() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+    Clustering<?> result = new ELKIBuilder<EM<DoubleVector, ?>>(EM.class) //
+        .with(KMeans.SEED_ID, 0) //
+        .with(EM.Par.K_ID, 6) //
+        .with(EM.Par.INIT_ID, MultivariateGaussianModelFactory.class) //
+        .with(EM.Par.SINGLE_ID) //
+        .build().autorun(db);
+    assertFMeasure(db, result, 0.967410486);
+    assertClusterSizes(result, new int[] { 3, 5, 91, 98, 200, 313 });
+  }
+
+  @Test
+  public void testHierarchicalTopM() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+    Clustering<?> result = new ELKIBuilder<EM<DoubleVector, ?>>(EM.class) //
+        .with(KMeans.SEED_ID, 0) //
+        .with(EM.Par.K_ID, 6) //
+        .with(EM.Par.INIT_ID, MultivariateGaussianModelFactory.class) //
+        .with(EM.Par.TOPM_ID, 2) //
+        .build().autorun(db);
+    assertFMeasure(db, result, 0.94412999);
+    assertClusterSizes(result, new int[] { 6, 13, 91, 100, 200, 300 });
+  }
+
   @Test
   public void testConstantMLE() {
     Database db = makeSimpleDatabase(UNITTEST + "constant-attribute.csv.gz", 200);
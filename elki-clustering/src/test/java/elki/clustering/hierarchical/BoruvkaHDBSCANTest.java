@@ -0,0 +1,139 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.clustering.hierarchical;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import elki.Algorithm;
+import elki.clustering.AbstractClusterAlgorithmTest;
+import elki.clustering.hierarchical.extraction.CutDendrogramByNumberOfClusters;
+import elki.data.Clustering;
+import elki.data.NumberVector;
+import elki.data.type.TypeUtil;
+import elki.database.Database;
+import elki.database.StaticArrayDatabase;
+import elki.database.ids.DBIDIter;
+import elki.database.relation.Relation;
+import elki.datasource.ArrayAdapterDatabaseConnection;
+import elki.distance.minkowski.EuclideanDistance;
+import elki.distance.minkowski.ManhattanDistance;
+import elki.utilities.ELKIBuilder;
+
+/**
+ * Perform HDBSCAN unit test, with Borůvka MST
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class BoruvkaHDBSCANTest extends AbstractClusterAlgorithmTest {
+  /**
+   * Run HDBSCAN with fixed parameters and compare the result to a golden
+   * standard.
+   */
+  @Test
+  public void testHDBSCAN() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    Clustering<?> clustering = new ELKIBuilder<>(CutDendrogramByNumberOfClusters.class) //
+        .with(CutDendrogramByNumberOfClusters.Par.MINCLUSTERS_ID, 3) //
+        .with(Algorithm.Utils.ALGORITHM_ID, BoruvkaHDBSCAN.class) //
+        .with(BoruvkaHDBSCAN.Par.MIN_PTS_ID, 20) //
+        .build().autorun(db);
+    assertFMeasure(db, clustering, 0.686953412);
+    assertClusterSizes(clustering, new int[] { 1, 200, 437 });
+  }
+
+  /**
+   * Compare the spanning tree to Prim's algorithm.
+   */
+  @Test
+  public void testPrim() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    for(int minPts : new int[] { 1, 5, 20 }) {
+      assertSameTree(rel, new HDBSCANLinearMemory<>(EuclideanDistance.STATIC, minPts).run(rel), //
+          new BoruvkaHDBSCAN<>(EuclideanDistance.STATIC, minPts).run(rel));
+    }
+  }
+
+  /**
+   * Compare to Prim's algorithm on data with many ties and duplicate points.
+   */
+  @Test
+  public void testTiesAndDuplicates() {
+    Random rnd = new Random(0L);
+    double[][] data = new double[300][];
+    for(int i = 0; i < data.length; i++) {
+      // Small integer grid, many duplicates and equal distances:
+      data[i] = new double[] { rnd.nextInt(6), rnd.nextInt(6) };
+    }
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    for(int minPts : new int[] { 1, 3, 10, 50 }) {
+      assertSameTree(rel, new HDBSCANLinearMemory<>(ManhattanDistance.STATIC, minPts).run(rel), //
+          new BoruvkaHDBSCAN<>(ManhattanDistance.STATIC, minPts).run(rel));
+    }
+  }
+
+  /**
+   * Fewer points than minPts, all core distances are infinite.
+   */
+  @Test
+  public void testTooFewPoints() {
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(new double[][] { { 1, 0 }, { 0, 1 }, { 1, 0 } }), null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    assertSameTree(rel, new HDBSCANLinearMemory<>(EuclideanDistance.STATIC, 20).run(rel), //
+        new BoruvkaHDBSCAN<>(EuclideanDistance.STATIC, 20).run(rel));
+    db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(new double[][] { { 0 } }), null);
+    db.initialize();
+    rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    assertSameTree(rel, new HDBSCANLinearMemory<>(EuclideanDistance.STATIC, 20).run(rel), //
+        new BoruvkaHDBSCAN<>(EuclideanDistance.STATIC, 20).run(rel));
+  }
+
+  /**
+   * Compare two spanning trees. The minimum spanning tree is not unique when
+   * there are ties, but its edge weights and the core distances are.
+   *
+   * @param rel Relation
+   * @param expected Expected result
+   * @param actual Actual result
+   */
+  private static void assertSameTree(Relation<?> rel, PointerDensityHierarchyRepresentationResult expected, PointerDensityHierarchyRepresentationResult actual) {
+    double[] e = new double[rel.size()], a = new double[rel.size()];
+    int i = 0;
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance(), i++) {
+      assertEquals("Core distance differs.", expected.getCoreDistanceStore().doubleValue(it), actual.getCoreDistanceStore().doubleValue(it), 1e-12);
+      e[i] = expected.getParentDistanceStore().doubleValue(it);
+      a[i] = actual.getParentDistanceStore().doubleValue(it);
+    }
+    Arrays.sort(e);
+    Arrays.sort(a);
+    assertArrayEquals("Spanning tree weights differ.", e, a, 1e-12);
+  }
+}
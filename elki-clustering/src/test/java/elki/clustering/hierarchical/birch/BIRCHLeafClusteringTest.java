@@ -20,11 +20,24 @@
  */
 package elki.clustering.hierarchical.birch;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import org.junit.Test;
 
 import elki.clustering.AbstractClusterAlgorithmTest;
 import elki.data.Clustering;
+import elki.data.NumberVector;
+import elki.data.type.TypeUtil;
 import elki.database.Database;
+import elki.database.ids.DBIDIter;
+import elki.database.relation.Relation;
 import elki.utilities.ELKIBuilder;
 
 /**
@@ -126,4 +139,32 @@ public class BIRCHLeafClusteringTest extends AbstractClusterAlgorithmTest {
     assertFMeasure(db, clustering, 0.89558);
     assertClusterSizes(clustering, new int[] { 65, 156, 198, 219 });
   }
+
+  @Test
+  public void testMergeAndSerialize() throws IOException {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    Relation<NumberVector> relation = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    CFTree.Factory factory = new ELKIBuilder<>(CFTree.Factory.class) //
+        .with(CFTree.Factory.Par.ABSORPTION_ID, DiameterCriterion.class) //
+        .with(CFTree.Factory.Par.MAXLEAVES_ID, 10) //
+        .build();
+    // Build two trees incrementally, on alternating points:
+    CFTree tree1 = factory.newTree(), tree2 = factory.newTree();
+    int i = 0;
+    for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance(), i++) {
+      ((i & 1) == 0 ? tree1 : tree2).insert(relation.get(it));
+    }
+    tree1.merge(tree2);
+    assertEquals("Points lost in merge", 638, tree1.size());
+    assertTrue("Too many leaves", tree1.numLeaves() <= 10);
+    // Roundtrip through the file format:
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    tree1.write(new DataOutputStream(buf));
+    CFTree tree = factory.read(new DataInputStream(new ByteArrayInputStream(buf.toByteArray())));
+    assertEquals("Points lost in serialization", 638, tree.size());
+    assertEquals("Leaves lost in serialization", tree1.numLeaves(), tree.numLeaves());
+    Clustering<?> clustering = new ELKIBuilder<>(BIRCHLeafClustering.class).build().run(relation, tree);
+    assertFMeasure(db, clustering, 0.46442);
+    assertClusterSizes(clustering, new int[] { 49, 49, 52, 59, 62, 68, 69, 72, 79, 79 });
+  }
 }
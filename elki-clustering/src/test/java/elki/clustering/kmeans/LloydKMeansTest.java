@@ -25,8 +25,11 @@ import org.junit.Test;
 import elki.clustering.AbstractClusterAlgorithmTest;
 import elki.data.Clustering;
 import elki.data.DoubleVector;
+import elki.data.FloatVector;
 import elki.database.Database;
+import elki.datasource.parser.NumberVectorLabelParser;
 import elki.utilities.ELKIBuilder;
+import elki.utilities.optionhandling.parameterization.ListParameterization;
 
 /**
  * Performs a full KMeans run, and compares the result with a clustering derived
@@ -53,4 +56,20 @@ public class LloydKMeansTest extends AbstractClusterAlgorithmTest {
     assertFMeasure(db, result, 0.998005);
     assertClusterSizes(result, new int[] { 199, 200, 200, 200, 201 });
   }
+
+  /**
+   * Run KMeans on float vectors, which do not use the bulk distance kernels.
+   */
+  @Test
+  public void testKMeansLloydFloat() {
+    ListParameterization params = new ListParameterization() //
+        .addParameter(NumberVectorLabelParser.Par.VECTOR_TYPE_ID, FloatVector.FACTORY);
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d-no-noise.ascii", 1000, params);
+    Clustering<?> result = new ELKIBuilder<LloydKMeans<FloatVector>>(LloydKMeans.class) //
+        .with(KMeans.K_ID, 5) //
+        .with(KMeans.SEED_ID, 7) //
+        .build().autorun(db);
+    assertFMeasure(db, result, 0.998005);
+    assertClusterSizes(result, new int[] { 199, 200, 200, 200, 201 });
+  }
 }
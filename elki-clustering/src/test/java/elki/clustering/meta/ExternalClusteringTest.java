@@ -0,0 +1,75 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.clustering.meta;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import elki.clustering.AbstractClusterAlgorithmTest;
+import elki.clustering.kmeans.LloydKMeans;
+import elki.data.Clustering;
+import elki.data.model.Model;
+import elki.database.Database;
+import elki.evaluation.clustering.ClusterContingencyTable;
+import elki.result.ClusteringBinaryDumper;
+import elki.utilities.ELKIBuilder;
+
+/**
+ * Test loading external clusterings.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ExternalClusteringTest extends AbstractClusterAlgorithmTest {
+  @Test
+  public void testBinary() throws IOException {
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d-no-noise.ascii", 1000);
+    Clustering<?> orig = new ELKIBuilder<LloydKMeans<?>>(LloydKMeans.class) //
+        .with(LloydKMeans.K_ID, 5) //
+        .with(LloydKMeans.SEED_ID, 7) //
+        .build().autorun(db);
+    Path file = Files.createTempFile("elki-test", ".bin");
+    try {
+      new ClusteringBinaryDumper(file, false).processNewResult(orig);
+      new ELKIBuilder<>(ExternalClustering.class) //
+          .with(ExternalClustering.Par.FILE_ID, file) //
+          .build().autorun(db);
+    }
+    finally {
+      Files.delete(file);
+    }
+    List<Clustering<? extends Model>> cs = Clustering.getClusteringResults(db);
+    assertEquals("Clustering not loaded", 1, cs.size());
+    Clustering<?> loaded = cs.get(0);
+    int[] sizes = new int[orig.getAllClusters().size()];
+    for(int i = 0; i < sizes.length; i++) {
+      sizes[i] = orig.getAllClusters().get(i).size();
+    }
+    assertClusterSizes(loaded, sizes);
+    assertEquals("Score does not match.", 1., new ClusterContingencyTable(true, false, orig, loaded).getPaircount().f1Measure(), 1e-15);
+  }
+}
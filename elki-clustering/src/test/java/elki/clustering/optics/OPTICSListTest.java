@@ -50,4 +50,18 @@ public class OPTICSListTest extends AbstractClusterAlgorithmTest {
     assertFMeasure(db, clustering, 0.893865);
     assertClusterSizes(clustering, new int[] { 8, 35, 72, 115, 209, 271 });
   }
+
+  @Test
+  public void testOPTICSParallelCore() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+    Clustering<?> clustering = new ELKIBuilder<>(OPTICSXi.class) //
+        .with(OPTICSList.Par.MINPTS_ID, 20) //
+        .with(OPTICSList.Par.EPSILON_ID, 0.15) //
+        .with(OPTICSList.Par.PARALLEL_CORE_ID) //
+        .with(OPTICSXi.Par.XI_ID, 0.05) //
+        .with(OPTICSXi.Par.XIALG_ID, OPTICSList.class) //
+        .build().autorun(db);
+    assertFMeasure(db, clustering, 0.893865);
+    assertClusterSizes(clustering, new int[] { 8, 35, 72, 115, 209, 271 });
+  }
 }
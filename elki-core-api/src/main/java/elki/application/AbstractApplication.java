@@ -30,6 +30,7 @@ import java.util.Properties;
 import elki.logging.Logging;
 import elki.logging.Logging.Level;
 import elki.logging.LoggingConfiguration;
+import elki.logging.statistics.MetricsExportHandler;
 import elki.utilities.ClassGenericsUtil;
 import elki.utilities.documentation.Reference;
 import elki.utilities.exceptions.AbortException;
@@ -39,9 +40,12 @@ import elki.utilities.optionhandling.parameterization.Parameterization;
 import elki.utilities.optionhandling.parameterization.SerializedParameterization;
 import elki.utilities.optionhandling.parameterization.TrackParameters;
 import elki.utilities.optionhandling.parameterization.TrackedParameter;
+import elki.utilities.optionhandling.constraints.CommonConstraints;
 import elki.utilities.optionhandling.parameters.ClassParameter;
+import elki.utilities.optionhandling.parameters.EnumParameter;
 import elki.utilities.optionhandling.parameters.FileParameter;
 import elki.utilities.optionhandling.parameters.Flag;
+import elki.utilities.optionhandling.parameters.IntParameter;
 import elki.utilities.optionhandling.parameters.StringParameter;
 
 /**
@@ -123,6 +127,7 @@ public abstract class AbstractApplication {
    * @param args the arguments to run this application with
    */
   public static void runCLIApplication(Class<?> cls, String[] args) {
+    MetricsExportHandler metrics = null;
     SerializedParameterization params = new SerializedParameterization(args);
     Flag helpF = new Flag(Par.HELP_ID);
     helpF.grab(params, x -> {
@@ -140,6 +145,7 @@ public abstract class AbstractApplication {
       }
       // Parse debug parameter
       Par.applyLoggingLevels(Par.parseDebugParameter(params));
+      metrics = Par.parseMetricsParameters(params);
       if(!params.getErrors().isEmpty()) {
         params.logAndClearReportedErrors();
         System.exit(1);
@@ -149,6 +155,7 @@ public abstract class AbstractApplication {
       printErrorMessage(e);
       System.exit(1);
     }
+    boolean failed = false;
     try {
       TrackParameters config = new TrackParameters(params);
       LoggingConfiguration.setVerbose(Par.parseVerbose(config));
@@ -174,6 +181,15 @@ public abstract class AbstractApplication {
     }
     catch(Exception e) {
       printErrorMessage(e);
+      failed = true;
+    }
+    finally {
+      // Write the final statistics also if the task failed.
+      if(metrics != null) {
+        metrics.close();
+      }
+    }
+    if(failed) {
       System.exit(1);
     }
   }
@@ -286,6 +302,21 @@ public abstract class AbstractApplication {
      */
     public static final OptionID VERBOSE_ID = new OptionID("verbose", "Enable verbose messages.");
 
+    /**
+     * Optional parameter to export statistics to a file.
+     */
+    public static final OptionID METRICS_OUT_ID = new OptionID("metrics.out", "Export all statistics to this file in a machine-readable format. Enables logging of statistics.");
+
+    /**
+     * Format of the statistics export.
+     */
+    public static final OptionID METRICS_FORMAT_ID = new OptionID("metrics.format", "Format of the statistics export: JSON lines, or the Prometheus text format.");
+
+    /**
+     * Interval for periodic export of statistics.
+     */
+    public static final OptionID METRICS_INTERVAL_ID = new OptionID("metrics.interval", "Interval in seconds to export statistics periodically, 0 to export at the end only.");
+
     /**
      * Parse the standard <tt>-verbose</tt> options.
      *
@@ -349,6 +380,30 @@ public abstract class AbstractApplication {
       return levels.length == i ? levels : Arrays.copyOf(levels, i);
     }
 
+    /**
+     * Parse the <tt>-metrics.out</tt> parameters, and install the exporter.
+     *
+     * @param config Parameterization
+     * @return Metrics exporter, or {@code null}
+     */
+    public static MetricsExportHandler parseMetricsParameters(Parameterization config) {
+      FileParameter outP = new FileParameter(METRICS_OUT_ID, FileParameter.FileType.OUTPUT_FILE) //
+          .setOptional(true);
+      if(!outP.grab(config, null)) {
+        return null;
+      }
+      EnumParameter<MetricsExportHandler.Format> formatP = new EnumParameter<>(METRICS_FORMAT_ID, MetricsExportHandler.Format.class, MetricsExportHandler.Format.JSON);
+      IntParameter intervalP = new IntParameter(METRICS_INTERVAL_ID, 0) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(!formatP.grab(config, null) | !intervalP.grab(config, null)) {
+        return null;
+      }
+      MetricsExportHandler metrics = new MetricsExportHandler(Paths.get(outP.getValue()), formatP.getValue(), intervalP.getValue());
+      LoggingConfiguration.addHandler(metrics);
+      LoggingConfiguration.setStatistics();
+      return metrics;
+    }
+
     /**
      * Apply the logging levels.
      *
@@ -20,6 +20,8 @@
  */
 package elki.database.query.knn;
 
+import elki.database.ids.DoubleDBIDListIter;
+import elki.database.ids.KNNHeap;
 import elki.database.ids.KNNList;
 
 /**
@@ -42,4 +44,24 @@ public interface KNNSearcher<O> {
    * @return neighbors
    */
   KNNList getKNN(O query, int k);
+
+  /**
+   * Get the k nearest neighbors for a particular object, by inserting them
+   * into a heap provided by the caller.
+   * <p>
+   * A heap can be reused for many queries (after {@link KNNHeap#clear()}) to
+   * avoid allocating a new heap and result list for every query, e.g., if only
+   * the k-distance is needed. Heaps are not thread-safe, so use one heap per
+   * thread.
+   *
+   * @param query query object
+   * @param heap Heap to fill, with the number of neighbors k of the heap
+   * @return heap
+   */
+  default KNNHeap getKNN(O query, KNNHeap heap) {
+    for(DoubleDBIDListIter it = getKNN(query, heap.getK()).iter(); it.valid(); it.advance()) {
+      heap.insert(it.doubleValue(), it);
+    }
+    return heap;
+  }
 }
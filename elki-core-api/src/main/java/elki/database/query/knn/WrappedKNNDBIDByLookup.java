@@ -21,6 +21,7 @@
 package elki.database.query.knn;
 
 import elki.database.ids.DBIDRef;
+import elki.database.ids.KNNHeap;
 import elki.database.ids.KNNList;
 import elki.database.query.LinearScanQuery;
 import elki.database.relation.Relation;
@@ -60,6 +61,11 @@ public class WrappedKNNDBIDByLookup<O> implements KNNSearcher<DBIDRef> {
     return inner.getKNN(relation.get(id), k);
   }
 
+  @Override
+  public KNNHeap getKNN(DBIDRef id, KNNHeap heap) {
+    return inner.getKNN(relation.get(id), heap);
+  }
+
   /**
    * Linear scan searcher.
    * 
@@ -20,7 +20,11 @@
  */
 package elki.database.relation;
 
+import java.util.List;
+
+import elki.database.ids.DBIDIter;
 import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDs;
 
 /**
  * Relations that allow modification.
@@ -48,4 +52,36 @@ public interface ModifiableRelation<O> extends Relation<O> {
    * @param id ID to delete
    */
   void delete(DBIDRef id);
+
+  /**
+   * Insert the representations of multiple objects.
+   * <p>
+   * Implementations should maintain their indexes once for the entire batch,
+   * e.g., using {@link elki.index.DynamicIndex#insertAll}.
+   *
+   * @param ids Object IDs
+   * @param vals Values, in the same order as the IDs
+   */
+  default void insertAll(DBIDs ids, List<? extends O> vals) {
+    assert ids.size() == vals.size();
+    DBIDIter it = ids.iter();
+    for(O val : vals) {
+      insert(it, val);
+      it.advance();
+    }
+  }
+
+  /**
+   * Delete the representations of multiple objects.
+   * <p>
+   * Implementations should maintain their indexes once for the entire batch,
+   * e.g., using {@link elki.index.DynamicIndex#deleteAll}.
+   *
+   * @param ids IDs to delete
+   */
+  default void deleteAll(DBIDs ids) {
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+      delete(it);
+    }
+  }
 }
@@ -21,6 +21,7 @@
 package elki.datasource.bundle;
 
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -35,7 +36,9 @@ import elki.utilities.io.ByteBufferSerializer;
 /**
  * Read an ELKI bundle file into a data stream.
  * <p>
- * TODO: resize buffer when necessary?
+ * When reading from a file channel, the file is mapped in windows of limited
+ * size, so that files larger than 2 GB can be read. The objects must each fit
+ * into a window.
  * 
  * @author Erich Schubert
  * @since 0.5.5
@@ -49,6 +52,11 @@ public class BundleReader implements BundleStreamSource {
    */
   public static final int MAGIC = BundleWriter.MAGIC;
 
+  /**
+   * Default size of the mapped windows.
+   */
+  public static final int DEFAULT_WINDOW = 1 << 30;
+
   /**
    * The stream buffer.
    */
@@ -64,6 +72,21 @@ public class BundleReader implements BundleStreamSource {
    */
   FileChannel input = null;
 
+  /**
+   * Size of the mapped windows.
+   */
+  int window = DEFAULT_WINDOW;
+
+  /**
+   * File offset of the current window.
+   */
+  long base = 0;
+
+  /**
+   * Input size.
+   */
+  long size;
+
   /**
    * Serializers to use.
    */
@@ -88,6 +111,7 @@ public class BundleReader implements BundleStreamSource {
     super();
     this.buffer = buffer;
     this.input = null;
+    this.size = buffer.limit();
   }
 
   /**
@@ -96,8 +120,19 @@ public class BundleReader implements BundleStreamSource {
    * @param input Input channel
    */
   public BundleReader(FileChannel input) {
+    this(input, DEFAULT_WINDOW);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param input Input channel
+   * @param window Size of the mapped windows, must exceed the largest object
+   */
+  public BundleReader(FileChannel input, int window) {
     super();
     this.input = input;
+    this.window = window;
   }
 
   @Override
@@ -115,14 +150,52 @@ public class BundleReader implements BundleStreamSource {
   void openBuffer() {
     if(buffer == null) {
       try {
-        buffer = input.map(MapMode.READ_ONLY, 0, input.size());
+        size = input.size();
       }
       catch(IOException e) {
         throw new AbortException("Cannot map input bundle.", e);
       }
+      map(0);
     }
   }
 
+  /**
+   * Map a window of the input file.
+   * 
+   * @param start Start offset
+   */
+  void map(long start) {
+    try {
+      buffer = input.map(MapMode.READ_ONLY, start, Math.min(window, size - start));
+      base = start;
+    }
+    catch(IOException e) {
+      throw new AbortException("Cannot map input bundle.", e);
+    }
+  }
+
+  /**
+   * Type to use for a column. Subclasses may substitute a different
+   * representation, which must then be consistent with
+   * {@link #getSerializer}.
+   * 
+   * @param type Type stored in the bundle
+   * @return Type to use
+   */
+  protected SimpleTypeInformation<?> convertType(SimpleTypeInformation<?> type) {
+    return type;
+  }
+
+  /**
+   * Serializer to use for reading a column.
+   * 
+   * @param type Type stored in the bundle
+   * @return Serializer to use
+   */
+  protected ByteBufferSerializer<?> getSerializer(SimpleTypeInformation<?> type) {
+    return type.getSerializer();
+  }
+
   /**
    * Read the metadata.
    */
@@ -140,12 +213,12 @@ public class BundleReader implements BundleStreamSource {
       try {
         @SuppressWarnings("unchecked")
         SimpleTypeInformation<? extends Object> type = (SimpleTypeInformation<? extends Object>) TypeInformationSerializer.STATIC.fromByteBuffer(buffer);
-        sers[i] = type.getSerializer();
+        sers[i] = getSerializer(type);
         if(i == 0 && DBID.class.isAssignableFrom(type.getRestrictionClass())) {
           hasids = true;
         }
         else {
-          meta.add(type);
+          meta.add(convertType(type));
         }
       }
       catch(UnsupportedOperationException e) {
@@ -158,9 +231,35 @@ public class BundleReader implements BundleStreamSource {
   }
 
   /**
-   * Read an object.
+   * Read an object, moving the mapped window if necessary.
    */
   void readObject() {
+    // Move the window early, as not all serializers detect underflows.
+    if(input != null && buffer.remaining() < (window >>> 4) && base + buffer.limit() < size) {
+      map(base + buffer.position());
+    }
+    final int start = buffer.position();
+    try {
+      readColumns();
+    }
+    catch(BufferUnderflowException e) {
+      if(input == null || start == 0 || base + buffer.limit() >= size) {
+        throw new AbortException("Truncated bundle, or object larger than the mapped window.", e);
+      }
+      map(base + start);
+      try {
+        readColumns();
+      }
+      catch(BufferUnderflowException e2) {
+        throw new AbortException("Truncated bundle, or object larger than the mapped window.", e2);
+      }
+    }
+  }
+
+  /**
+   * Read the columns of an object.
+   */
+  private void readColumns() {
     for(int i = 0; i < sers.length; ++i) {
       try {
         data[i] = sers[i].fromByteBuffer(buffer);
@@ -180,7 +279,7 @@ public class BundleReader implements BundleStreamSource {
     if(meta == null) {
       return Event.META_CHANGED;
     }
-    if(buffer != null && buffer.remaining() == 0) {
+    if(buffer != null && base + buffer.position() >= size) {
       buffer = null;
       return Event.END_OF_STREAM;
     }
@@ -0,0 +1,323 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource.bundle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import elki.data.NumberVector;
+import elki.data.type.SimpleTypeInformation;
+import elki.data.type.TypeInformationSerializer;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.database.ids.ArrayModifiableDBIDs;
+import elki.database.ids.DBIDUtil;
+import elki.utilities.exceptions.AbortException;
+import elki.utilities.io.ByteBufferSerializer;
+
+/**
+ * Reader for the column-oriented bundle format written by
+ * {@link ColumnBundleWriter}.
+ * <p>
+ * Only the requested columns are read. Uncompressed dense columns are
+ * memory-mapped and read in windows, so they may exceed 2 GB.
+ * <p>
+ * Note that the mapped data is copied into the vectors, as the relations of
+ * ELKI hold individual vector objects rather than views of a shared array.
+ * The file is therefore not required to remain open after reading, but the
+ * data needs to fit into the heap.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ColumnBundleReader {
+  /**
+   * Maximum size of a mapped window.
+   */
+  private static final int WINDOW_SIZE = 1 << 30;
+
+  /**
+   * Input channel.
+   */
+  private FileChannel input;
+
+  /**
+   * Start of the bundle in the file.
+   */
+  private long start;
+
+  /**
+   * Metadata.
+   */
+  private BundleMeta meta;
+
+  /**
+   * Number of rows.
+   */
+  private int size;
+
+  /**
+   * Offset of the DBIDs, or 0.
+   */
+  private long idoffset;
+
+  /**
+   * Column layouts and codecs.
+   */
+  private byte[] layouts, codecs;
+
+  /**
+   * Column dimensionality.
+   */
+  private int[] dims;
+
+  /**
+   * Column offsets and lengths.
+   */
+  private long[] offsets, lengths;
+
+  /**
+   * Constructor.
+   *
+   * @param input Input file channel, positioned at the start of the bundle
+   */
+  public ColumnBundleReader(FileChannel input) {
+    super();
+    this.input = input;
+  }
+
+  /**
+   * Get the metadata of all columns.
+   *
+   * @return Metadata
+   */
+  public BundleMeta getMeta() {
+    if(meta == null) {
+      readHeader();
+    }
+    return meta;
+  }
+
+  /**
+   * Get the number of rows.
+   *
+   * @return Number of rows
+   */
+  public int size() {
+    getMeta();
+    return size;
+  }
+
+  /**
+   * Read the header.
+   */
+  private void readHeader() {
+    try {
+      start = input.position();
+      final long avail = input.size() - start;
+      ByteBuffer header = input.map(MapMode.READ_ONLY, start, Math.min(avail, WINDOW_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+      if(avail < 20 || header.getInt() != ColumnBundleWriter.MAGIC) {
+        throw new AbortException("File does not start with expected magic.");
+      }
+      size = header.getInt();
+      final int ncol = header.getInt();
+      idoffset = header.getLong();
+      meta = new BundleMeta(ncol);
+      layouts = new byte[ncol];
+      codecs = new byte[ncol];
+      dims = new int[ncol];
+      offsets = new long[ncol];
+      lengths = new long[ncol];
+      for(int i = 0; i < ncol; i++) {
+        meta.add((SimpleTypeInformation<?>) TypeInformationSerializer.STATIC.fromByteBuffer(header));
+        layouts[i] = header.get();
+        codecs[i] = header.get();
+        dims[i] = header.getInt();
+        offsets[i] = header.getLong();
+        lengths[i] = header.getLong();
+      }
+    }
+    catch(UnsupportedOperationException e) {
+      throw new AbortException("Deserialization failed: " + e.getMessage(), e);
+    }
+    catch(IOException e) {
+      throw new AbortException("IO error", e);
+    }
+  }
+
+  /**
+   * Read the selected columns.
+   *
+   * @param columns Columns to read, all columns if empty or {@code null}
+   * @return Bundle
+   */
+  public MultipleObjectsBundle read(int... columns) {
+    getMeta();
+    if(columns == null || columns.length == 0) {
+      columns = new int[meta.size()];
+      for(int i = 0; i < columns.length; i++) {
+        columns[i] = i;
+      }
+    }
+    MultipleObjectsBundle bundle = new MultipleObjectsBundle();
+    try {
+      if(idoffset > 0) {
+        bundle.setDBIDs(readDBIDs());
+      }
+      for(int c : columns) {
+        if(c < 0 || c >= meta.size()) {
+          throw new AbortException("Column " + c + " does not exist, the bundle has " + meta.size() + " columns.");
+        }
+        final SimpleTypeInformation<?> type = meta.get(c);
+        bundle.appendColumn(type, layouts[c] == ColumnBundleWriter.LAYOUT_DENSE ? //
+            codecs[c] == ColumnBundleWriter.CODEC_XOR ? readXOR(c) : readDense(c) //
+            : readObjects(c));
+      }
+    }
+    catch(UnsupportedOperationException e) {
+      throw new AbortException("Deserialization failed: " + e.getMessage(), e);
+    }
+    catch(IOException e) {
+      throw new AbortException("IO error", e);
+    }
+    return bundle;
+  }
+
+  /**
+   * Read the DBIDs.
+   *
+   * @return DBIDs
+   * @throws IOException on IO errors
+   */
+  private ArrayModifiableDBIDs readDBIDs() throws IOException {
+    ArrayModifiableDBIDs ids = DBIDUtil.newArray(size);
+    final int perwindow = WINDOW_SIZE >>> 2;
+    for(int i = 0; i < size; i += perwindow) {
+      final int n = Math.min(perwindow, size - i);
+      IntBuffer buf = input.map(MapMode.READ_ONLY, start + idoffset + (i * 4L), n * 4L).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+      for(int j = 0; j < n; j++) {
+        ids.add(DBIDUtil.importInteger(buf.get()));
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Get the vector factory of a dense column.
+   *
+   * @param c Column
+   * @return Factory
+   */
+  @SuppressWarnings("unchecked")
+  private NumberVector.Factory<NumberVector> getFactory(int c) {
+    return (NumberVector.Factory<NumberVector>) ((VectorFieldTypeInformation<?>) meta.get(c)).getFactory();
+  }
+
+  /**
+   * Read an uncompressed dense column.
+   *
+   * @param c Column
+   * @return Vectors
+   * @throws IOException on IO errors
+   */
+  private List<NumberVector> readDense(int c) throws IOException {
+    final NumberVector.Factory<NumberVector> factory = getFactory(c);
+    final int dim = dims[c];
+    final int perwindow = Math.max(1, WINDOW_SIZE / Math.max(1, dim << 3));
+    List<NumberVector> vecs = new ArrayList<>(size);
+    for(int i = 0; i < size; i += perwindow) {
+      final int n = Math.min(perwindow, size - i);
+      DoubleBuffer buf = input.map(MapMode.READ_ONLY, start + offsets[c] + i * (dim * 8L), n * (dim * 8L)).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+      for(int j = 0; j < n; j++) {
+        double[] v = new double[dim];
+        buf.get(v);
+        vecs.add(factory.newNumberVector(v));
+      }
+    }
+    return vecs;
+  }
+
+  /**
+   * Read a dense column with XOR delta encoding.
+   *
+   * @param c Column
+   * @return Vectors
+   * @throws IOException on IO errors
+   */
+  private List<NumberVector> readXOR(int c) throws IOException {
+    final NumberVector.Factory<NumberVector> factory = getFactory(c);
+    final int dim = dims[c];
+    final long end = start + offsets[c] + lengths[c];
+    long pos = start + offsets[c];
+    ByteBuffer buf = ByteBuffer.allocate(0);
+    long[] prev = new long[dim];
+    List<NumberVector> vecs = new ArrayList<>(size);
+    for(int i = 0; i < size; i++) {
+      double[] v = new double[dim];
+      for(int d = 0; d < dim; d++) {
+        if(buf.remaining() < 9 && pos < end) {
+          // Map the next window, overlapping the unread bytes.
+          pos -= buf.remaining();
+          buf = input.map(MapMode.READ_ONLY, pos, Math.min(WINDOW_SIZE, end - pos));
+          pos += buf.remaining();
+        }
+        final int h = buf.get() & 0xFF;
+        long x = 0;
+        if(h != 0x80) {
+          final int lz = h >>> 4, tz = h & 0xF;
+          for(int j = 0, len = 8 - lz - tz; j < len; j++) {
+            x |= (buf.get() & 0xFFL) << (j << 3);
+          }
+          x <<= tz << 3;
+        }
+        v[d] = Double.longBitsToDouble(prev[d] ^= x);
+      }
+      vecs.add(factory.newNumberVector(v));
+    }
+    return vecs;
+  }
+
+  /**
+   * Read an object column.
+   *
+   * @param c Column
+   * @return Objects
+   * @throws IOException on IO errors
+   */
+  private List<Object> readObjects(int c) throws IOException {
+    if(lengths[c] > Integer.MAX_VALUE) {
+      throw new AbortException("Object columns larger than 2 GB are not supported.");
+    }
+    final ByteBufferSerializer<?> ser = meta.get(c).getSerializer();
+    ByteBuffer buf = input.map(MapMode.READ_ONLY, start + offsets[c], lengths[c]).order(ByteOrder.LITTLE_ENDIAN);
+    List<Object> objs = new ArrayList<>(size);
+    for(int i = 0; i < size; i++) {
+      objs.add(ser.fromByteBuffer(buf));
+    }
+    return objs;
+  }
+}
@@ -0,0 +1,407 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource.bundle;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import elki.data.NumberVector;
+import elki.data.SparseNumberVector;
+import elki.data.type.SimpleTypeInformation;
+import elki.data.type.TypeInformationSerializer;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.database.ids.ArrayDBIDs;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDUtil;
+import elki.utilities.exceptions.AbortException;
+import elki.utilities.io.ByteBufferSerializer;
+
+/**
+ * Writer for the column-oriented bundle format.
+ * <p>
+ * In contrast to the {@link BundleWriter}, which serializes the data object by
+ * object, this format stores each column contiguously, with a directory of
+ * the columns at the beginning of the file. Dense numeric vector columns are
+ * stored as row-major arrays of little-endian doubles, so they can be mapped
+ * into memory directly; other columns use the serializer of their type.
+ * Individual columns can be read without reading the others.
+ * <p>
+ * Dense columns can optionally be compressed with an XOR delta encoding: each
+ * value is combined with the previous value of the same dimension, and only
+ * the non-zero bytes of the result are stored. This works well for sorted,
+ * repetitive, or low-precision data. A column is only stored compressed if
+ * this reduces its size.
+ * <p>
+ * File layout (all little-endian):
+ * <ul>
+ * <li>int: magic, int: number of rows, int: number of columns</li>
+ * <li>long: offset of the DBIDs (stored as int array), or 0</li>
+ * <li>for each column: type information, byte: layout, byte: codec, int:
+ * dimensionality, long: offset, long: length</li>
+ * <li>column data, aligned to 8 bytes</li>
+ * </ul>
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - ColumnBundleReader
+ */
+public class ColumnBundleWriter {
+  /**
+   * Magic number, for file format identification.
+   */
+  public static final int MAGIC = 0xa8123c01;
+
+  /**
+   * Column layout: dense numeric vectors.
+   */
+  static final byte LAYOUT_DENSE = 1;
+
+  /**
+   * Column layout: serialized objects.
+   */
+  static final byte LAYOUT_OBJECT = 2;
+
+  /**
+   * Codec: uncompressed.
+   */
+  static final byte CODEC_NONE = 0;
+
+  /**
+   * Codec: XOR delta encoding.
+   */
+  static final byte CODEC_XOR = 1;
+
+  /**
+   * Size of the output buffer.
+   */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /**
+   * Size of the per-column entries in the header, excluding the type.
+   */
+  private static final int COLUMN_HEADER = 1 + 1 + 4 + 8 + 8;
+
+  /**
+   * Compress dense columns.
+   */
+  private boolean compress;
+
+  /**
+   * Output buffer.
+   */
+  private ByteBuffer buffer;
+
+  /**
+   * Output channel.
+   */
+  private FileChannel output;
+
+  /**
+   * Start of the bundle in the output.
+   */
+  private long start;
+
+  /**
+   * Constructor.
+   *
+   * @param compress Compress dense columns
+   */
+  public ColumnBundleWriter(boolean compress) {
+    super();
+    this.compress = compress;
+  }
+
+  /**
+   * Write a bundle to a file.
+   *
+   * @param bundle Bundle to write
+   * @param output Output file channel
+   * @throws IOException on IO errors
+   */
+  public void write(MultipleObjectsBundle bundle, FileChannel output) throws IOException {
+    this.output = output;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    final int ncol = bundle.metaLength(), size = bundle.dataLength();
+    this.start = output.position();
+    // Header with preliminary offsets, to determine its size.
+    byte[][] types = new byte[ncol][];
+    int hsize = 4 + 4 + 4 + 8;
+    for(int i = 0; i < ncol; i++) {
+      types[i] = serializeType(bundle.meta(i));
+      hsize += types[i].length + COLUMN_HEADER;
+    }
+    byte[] layouts = new byte[ncol], codecs = new byte[ncol];
+    long[] offsets = new long[ncol], lengths = new long[ncol];
+    long idoffset = 0;
+    output.position(start + align(hsize));
+    // DBIDs
+    ArrayDBIDs ids = bundle.getDBIDs();
+    if(ids != null) {
+      idoffset = output.position() - start;
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        ensure(4);
+        buffer.putInt(DBIDUtil.asInteger(it));
+      }
+      flush();
+    }
+    // Columns
+    for(int i = 0; i < ncol; i++) {
+      flushAligned();
+      offsets[i] = output.position() - start;
+      final SimpleTypeInformation<?> type = bundle.meta(i);
+      final List<?> column = bundle.getColumn(i);
+      if(isDense(type)) {
+        layouts[i] = LAYOUT_DENSE;
+        final int dim = ((VectorFieldTypeInformation<?>) type).getDimensionality();
+        codecs[i] = compress && compressedSize(column, dim) < size * (long) dim * 8 ? CODEC_XOR : CODEC_NONE;
+        if(codecs[i] == CODEC_XOR) {
+          writeXOR(column, dim);
+        }
+        else {
+          writeDense(column, dim);
+        }
+      }
+      else {
+        layouts[i] = LAYOUT_OBJECT;
+        codecs[i] = CODEC_NONE;
+        writeObjects(type, column);
+      }
+      flush();
+      lengths[i] = output.position() - start - offsets[i];
+    }
+    final long end = output.position();
+    // Write the final header.
+    ByteBuffer header = ByteBuffer.allocate(hsize).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).putInt(size).putInt(ncol).putLong(idoffset);
+    for(int i = 0; i < ncol; i++) {
+      final SimpleTypeInformation<?> type = bundle.meta(i);
+      header.put(types[i]).put(layouts[i]).put(codecs[i]) //
+          .putInt(layouts[i] == LAYOUT_DENSE ? ((VectorFieldTypeInformation<?>) type).getDimensionality() : 0) //
+          .putLong(offsets[i]).putLong(lengths[i]);
+    }
+    header.flip();
+    output.position(start);
+    while(header.hasRemaining()) {
+      output.write(header);
+    }
+    output.position(end);
+    this.buffer = null;
+    this.output = null;
+  }
+
+  /**
+   * Serialize the type information of a column.
+   *
+   * @param type Type information
+   * @return Serialized type information
+   * @throws IOException on IO errors
+   */
+  private static byte[] serializeType(SimpleTypeInformation<?> type) throws IOException {
+    for(int cap = 256;; cap <<= 1) {
+      ByteBuffer buf = ByteBuffer.allocate(cap).order(ByteOrder.LITTLE_ENDIAN);
+      try {
+        TypeInformationSerializer.STATIC.toByteBuffer(buf, type);
+        return Arrays.copyOf(buf.array(), buf.position());
+      }
+      catch(BufferOverflowException e) {
+        continue; // Retry with a larger buffer.
+      }
+      catch(UnsupportedOperationException e) {
+        throw new AbortException("Cannot serialize type " + type + ": " + e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Test whether a column is stored as dense array.
+   *
+   * @param type Column type
+   * @return {@code true} for dense numerical vectors of fixed dimensionality.
+   */
+  static boolean isDense(SimpleTypeInformation<?> type) {
+    return type instanceof VectorFieldTypeInformation //
+        && NumberVector.class.isAssignableFrom(type.getRestrictionClass()) //
+        && !SparseNumberVector.class.isAssignableFrom(type.getRestrictionClass());
+  }
+
+  /**
+   * Write a dense column without compression.
+   *
+   * @param column Column data
+   * @param dim Dimensionality
+   * @throws IOException on IO errors
+   */
+  private void writeDense(List<?> column, int dim) throws IOException {
+    for(Object o : column) {
+      final NumberVector vec = (NumberVector) o;
+      for(int d = 0; d < dim; d++) {
+        ensure(8);
+        buffer.putDouble(vec.doubleValue(d));
+      }
+    }
+  }
+
+  /**
+   * Compute the size of the XOR delta encoding.
+   *
+   * @param column Column data
+   * @param dim Dimensionality
+   * @return Size in bytes
+   */
+  private static long compressedSize(List<?> column, int dim) {
+    long[] prev = new long[dim];
+    long total = 0;
+    for(Object o : column) {
+      final NumberVector vec = (NumberVector) o;
+      for(int d = 0; d < dim; d++) {
+        final long bits = Double.doubleToRawLongBits(vec.doubleValue(d));
+        final long x = bits ^ prev[d];
+        prev[d] = bits;
+        total += 1 + significantBytes(x);
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Write a dense column with XOR delta encoding.
+   * <p>
+   * Each value is stored as a header byte (leading zero bytes in the upper,
+   * trailing zero bytes in the lower four bits) followed by the remaining bytes
+   * of the XOR with the previous value of the same dimension.
+   *
+   * @param column Column data
+   * @param dim Dimensionality
+   * @throws IOException on IO errors
+   */
+  private void writeXOR(List<?> column, int dim) throws IOException {
+    long[] prev = new long[dim];
+    for(Object o : column) {
+      final NumberVector vec = (NumberVector) o;
+      for(int d = 0; d < dim; d++) {
+        final long bits = Double.doubleToRawLongBits(vec.doubleValue(d));
+        long x = bits ^ prev[d];
+        prev[d] = bits;
+        ensure(9);
+        if(x == 0) {
+          buffer.put((byte) 0x80);
+          continue;
+        }
+        final int lz = Long.numberOfLeadingZeros(x) >>> 3;
+        final int tz = Long.numberOfTrailingZeros(x) >>> 3;
+        buffer.put((byte) ((lz << 4) | tz));
+        x >>>= tz << 3;
+        for(int j = 8 - lz - tz; j > 0; j--, x >>>= 8) {
+          buffer.put((byte) x);
+        }
+      }
+    }
+  }
+
+  /**
+   * Number of bytes stored by the XOR encoding, excluding the header byte.
+   *
+   * @param x XOR value
+   * @return Number of bytes
+   */
+  private static int significantBytes(long x) {
+    return x == 0 ? 0 : 8 - (Long.numberOfLeadingZeros(x) >>> 3) - (Long.numberOfTrailingZeros(x) >>> 3);
+  }
+
+  /**
+   * Write an object column using the type serializer.
+   *
+   * @param type Type information
+   * @param column Column data
+   * @throws IOException on IO errors
+   */
+  private void writeObjects(SimpleTypeInformation<?> type, List<?> column) throws IOException {
+    @SuppressWarnings("unchecked")
+    final ByteBufferSerializer<Object> ser = (ByteBufferSerializer<Object>) type.getSerializer();
+    if(ser == null) {
+      throw new AbortException("Cannot serialize - no serializer found for type: " + type.toString());
+    }
+    for(Object o : column) {
+      ensure(ser.getByteSize(o));
+      ser.toByteBuffer(buffer, o);
+    }
+  }
+
+  /**
+   * Ensure the buffer has enough space, flushing or enlarging it.
+   *
+   * @param size Required space
+   * @throws IOException on IO errors
+   */
+  private void ensure(int size) throws IOException {
+    if(buffer.remaining() >= size) {
+      return;
+    }
+    flush();
+    if(buffer.remaining() < size) {
+      buffer = ByteBuffer.allocateDirect(Math.max(buffer.capacity() << 1, size)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  /**
+   * Write the buffer contents.
+   *
+   * @throws IOException on IO errors
+   */
+  private void flush() throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Pad the output to a multiple of 8 bytes, relative to the start of the
+   * bundle.
+   *
+   * @throws IOException on IO errors
+   */
+  private void flushAligned() throws IOException {
+    flush();
+    final long pos = output.position() - start;
+    if(align(pos) > pos) {
+      buffer.put(new byte[(int) (align(pos) - pos)]);
+      flush();
+    }
+  }
+
+  /**
+   * Round up to a multiple of 8.
+   *
+   * @param pos Position
+   * @return Aligned position
+   */
+  static long align(long pos) {
+    return (pos + 7) & ~7L;
+  }
+}
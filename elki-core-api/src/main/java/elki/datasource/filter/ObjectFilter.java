@@ -40,4 +40,17 @@ public interface ObjectFilter {
    * @return Filtered objects
    */
   MultipleObjectsBundle filter(MultipleObjectsBundle objects);
+
+  /**
+   * True, if the filter produces the same output when the same input is read
+   * again, as required for processing the data in multiple passes
+   * (c.f. {@link TwoPassFilter}).
+   * <p>
+   * Filters must opt in explicitly; randomized filters are not repeatable.
+   *
+   * @return {@code true} if the output is the same in every pass
+   */
+  default boolean isRepeatable() {
+    return false;
+  }
 }
@@ -0,0 +1,55 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource.filter;
+
+import elki.datasource.bundle.BundleStreamSource;
+
+/**
+ * Filters that need statistics of the data, but can then convert each object
+ * independently, such as many normalizations.
+ * <p>
+ * If the input can be read twice, such filters do not require materializing
+ * the data: the statistics are collected in a first pass, and the data is
+ * converted while it is read in a second pass.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - filters - BundleStreamSource
+ */
+public interface TwoPassFilter extends ObjectFilter {
+  /**
+   * Collect the statistics in a first pass over the data.
+   *
+   * @param source Stream source, which may not be consumed completely
+   * @return {@code false} if the data cannot be processed in streaming mode,
+   *         then {@link #filter} is used instead.
+   */
+  boolean prepare(BundleStreamSource source);
+
+  /**
+   * Convert the data in the second pass, after {@link #prepare}.
+   *
+   * @param source Stream source
+   * @return Converted stream
+   */
+  BundleStreamSource transform(BundleStreamSource source);
+}
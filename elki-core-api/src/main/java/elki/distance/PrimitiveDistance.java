@@ -47,6 +47,25 @@ public interface PrimitiveDistance<O> extends Distance<O> {
    */
   double distance(O o1, O o2);
 
+  /**
+   * Computes the distance between two objects, but may stop early once the
+   * distance is known to exceed a threshold ("early abandoning").
+   * <p>
+   * If the distance is at most the threshold, the exact distance is returned;
+   * otherwise the result is some value larger than the threshold. The default
+   * implementation computes the full distance. Subclasses that override
+   * {@link #distance(Object, Object)} must also override this method if their
+   * parent class does.
+   *
+   * @param o1 first object
+   * @param o2 second object
+   * @param threshold Threshold, use {@link Double#POSITIVE_INFINITY} for none
+   * @return the distance, or a value larger than the threshold
+   */
+  default double distance(O o1, O o2, double threshold) {
+    return distance(o1, o2);
+  }
+
   @Override
   SimpleTypeInformation<? super O> getInputTypeRestriction();
 
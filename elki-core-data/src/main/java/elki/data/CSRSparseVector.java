@@ -0,0 +1,358 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import elki.utilities.datastructures.arraylike.ArrayAdapter;
+import elki.utilities.datastructures.arraylike.NumberArrayAdapter;
+import elki.utilities.io.ByteArrayUtil;
+import elki.utilities.io.ByteBufferSerializer;
+import elki.utilities.optionhandling.Parameterizer;
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+/**
+ * Sparse vector view into a compressed sparse row (CSR) matrix.
+ * <p>
+ * This is a flyweight: many vectors share the same index and value arrays,
+ * and each vector only stores the range [start; end) of its non-zero entries.
+ * This avoids allocating two small arrays for every object, which dominates
+ * the memory use of large text collections. The shared arrays must not be
+ * modified while the vector is in use.
+ * <p>
+ * The iterator of this class is the position within the shared arrays, so
+ * that algorithms can also work on {@link #getIndexes()} and
+ * {@link #getValues()} directly.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class CSRSparseVector implements SparseNumberVector {
+  /**
+   * Static factory instance.
+   */
+  public static final CSRSparseVector.Factory FACTORY = new CSRSparseVector.Factory();
+
+  /**
+   * Serializer using varint encoding, compatible with
+   * {@link SparseDoubleVector#VARIABLE_SERIALIZER}.
+   */
+  public static final ByteBufferSerializer<CSRSparseVector> VARIABLE_SERIALIZER = new VariableSerializer();
+
+  /**
+   * Shared dimension indexes, sorted within each vector.
+   */
+  private final int[] indexes;
+
+  /**
+   * Shared values.
+   */
+  private final double[] values;
+
+  /**
+   * First position of this vector.
+   */
+  private final int start;
+
+  /**
+   * End position (exclusive) of this vector.
+   */
+  private final int end;
+
+  /**
+   * Dimensionality of the vector.
+   */
+  private int dimensionality;
+
+  /**
+   * Constructor.
+   *
+   * @param indexes Shared dimension indexes (not copied)
+   * @param values Shared values (not copied)
+   * @param start First position of this vector
+   * @param end End position (exclusive) of this vector
+   * @param dimensionality Dimensionality
+   */
+  public CSRSparseVector(int[] indexes, double[] values, int start, int end, int dimensionality) {
+    super();
+    assert start <= end && end <= indexes.length && indexes.length <= values.length;
+    this.indexes = indexes;
+    this.values = values;
+    this.start = start;
+    this.end = end;
+    this.dimensionality = dimensionality;
+  }
+
+  /**
+   * Get the shared dimension index array. Only the positions from
+   * {@link #getStart()} to {@link #getEnd()} belong to this vector.
+   *
+   * @return Index array, not a copy
+   */
+  public int[] getIndexes() {
+    return indexes;
+  }
+
+  /**
+   * Get the shared value array. Only the positions from {@link #getStart()}
+   * to {@link #getEnd()} belong to this vector.
+   *
+   * @return Value array, not a copy
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  /**
+   * Get the first position of this vector.
+   *
+   * @return Start position
+   */
+  public int getStart() {
+    return start;
+  }
+
+  /**
+   * Get the end position (exclusive) of this vector.
+   *
+   * @return End position
+   */
+  public int getEnd() {
+    return end;
+  }
+
+  @Override
+  public int getDimensionality() {
+    return dimensionality;
+  }
+
+  @Override
+  public void setDimensionality(int dimensionality) throws IllegalArgumentException {
+    final int maxdim = end > start ? indexes[end - 1] : 0;
+    if(maxdim > dimensionality) {
+      throw new IllegalArgumentException("Given dimensionality " + dimensionality + " is too small w.r.t. the given values (occurring maximum: " + maxdim + ").");
+    }
+    this.dimensionality = dimensionality;
+  }
+
+  /**
+   * Find the position of a dimension.
+   *
+   * @param dimension Dimension
+   * @return Position, negative if not present
+   */
+  private int find(int dimension) {
+    return Arrays.binarySearch(indexes, start, end, dimension);
+  }
+
+  @Override
+  @Deprecated
+  public Double getValue(int dimension) {
+    final int pos = find(dimension);
+    return (pos >= 0) ? values[pos] : 0.;
+  }
+
+  @Override
+  @Deprecated
+  public double doubleValue(int dimension) {
+    final int pos = find(dimension);
+    return (pos >= 0) ? values[pos] : 0.;
+  }
+
+  @Override
+  @Deprecated
+  public long longValue(int dimension) {
+    final int pos = find(dimension);
+    return (pos >= 0) ? (long) values[pos] : 0L;
+  }
+
+  @Override
+  public double[] toArray() {
+    double[] vals = new double[dimensionality];
+    for(int i = start; i < end; i++) {
+      vals[indexes[i]] = values[i];
+    }
+    return vals;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder featureLine = new StringBuilder(25 * (end - start))//
+        .append(end - start);
+    for(int i = start; i < end; i++) {
+      featureLine.append(ATTRIBUTE_SEPARATOR).append(indexes[i])//
+          .append(ATTRIBUTE_SEPARATOR).append(values[i]);
+    }
+    return featureLine.toString();
+  }
+
+  @Override
+  public int iter() {
+    return start;
+  }
+
+  @Override
+  public int iterDim(int iter) {
+    return indexes[iter];
+  }
+
+  @Override
+  public boolean iterValid(int iter) {
+    return iter < end;
+  }
+
+  @Override
+  public double iterDoubleValue(int iter) {
+    return values[iter];
+  }
+
+  @Override
+  public long iterLongValue(int iter) {
+    return (long) values[iter];
+  }
+
+  /**
+   * Factory class, producing vectors that own their arrays.
+   *
+   * @author Erich Schubert
+   *
+   * @has - - - CSRSparseVector
+   */
+  public static class Factory implements SparseNumberVector.Factory<CSRSparseVector> {
+    @Override
+    public <A> CSRSparseVector newFeatureVector(A array, ArrayAdapter<? extends Number, A> adapter) {
+      final int dim = adapter.size(array);
+      int nnz = 0;
+      for(int i = 0; i < dim; i++) {
+        nnz += adapter.get(array, i).doubleValue() != 0 ? 1 : 0;
+      }
+      int[] indexes = new int[nnz];
+      double[] values = new double[nnz];
+      for(int i = 0, p = 0; i < dim; i++) {
+        final double v = adapter.get(array, i).doubleValue();
+        if(v != 0) {
+          indexes[p] = i;
+          values[p++] = v;
+        }
+      }
+      return new CSRSparseVector(indexes, values, 0, nnz, dim);
+    }
+
+    @Override
+    public <A> CSRSparseVector newNumberVector(A array, NumberArrayAdapter<?, ? super A> adapter) {
+      final int dim = adapter.size(array);
+      int nnz = 0;
+      for(int i = 0; i < dim; i++) {
+        nnz += adapter.getDouble(array, i) != 0 ? 1 : 0;
+      }
+      int[] indexes = new int[nnz];
+      double[] values = new double[nnz];
+      for(int i = 0, p = 0; i < dim; i++) {
+        final double v = adapter.getDouble(array, i);
+        if(v != 0) {
+          indexes[p] = i;
+          values[p++] = v;
+        }
+      }
+      return new CSRSparseVector(indexes, values, 0, nnz, dim);
+    }
+
+    @Override
+    public CSRSparseVector newNumberVector(Int2DoubleOpenHashMap map, int maxdim) {
+      int[] indexes = map.keySet().toIntArray();
+      Arrays.sort(indexes);
+      double[] values = new double[indexes.length];
+      for(int i = 0; i < indexes.length; i++) {
+        values[i] = map.get(indexes[i]);
+      }
+      return new CSRSparseVector(indexes, values, 0, indexes.length, maxdim);
+    }
+
+    @Override
+    public ByteBufferSerializer<CSRSparseVector> getDefaultSerializer() {
+      return VARIABLE_SERIALIZER;
+    }
+
+    @Override
+    public Class<? super CSRSparseVector> getRestrictionClass() {
+      return CSRSparseVector.class;
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * @author Erich Schubert
+     */
+    public static class Par implements Parameterizer {
+      @Override
+      public CSRSparseVector.Factory make() {
+        return FACTORY;
+      }
+    }
+  }
+
+  /**
+   * Serialization class using VarInt encodings.
+   *
+   * @author Erich Schubert
+   *
+   * @assoc - serializes - CSRSparseVector
+   */
+  public static class VariableSerializer implements ByteBufferSerializer<CSRSparseVector> {
+    @Override
+    public CSRSparseVector fromByteBuffer(ByteBuffer buffer) throws IOException {
+      final int dimensionality = ByteArrayUtil.readUnsignedVarint(buffer);
+      final int nonzero = ByteArrayUtil.readUnsignedVarint(buffer);
+      final int[] dims = new int[nonzero];
+      final double[] values = new double[nonzero];
+      for(int i = 0; i < nonzero; i++) {
+        dims[i] = ByteArrayUtil.readUnsignedVarint(buffer);
+        values[i] = buffer.getDouble();
+      }
+      return new CSRSparseVector(dims, values, 0, nonzero, dimensionality);
+    }
+
+    @Override
+    public void toByteBuffer(ByteBuffer buffer, CSRSparseVector vec) throws IOException {
+      ByteArrayUtil.writeUnsignedVarint(buffer, vec.dimensionality);
+      ByteArrayUtil.writeUnsignedVarint(buffer, vec.end - vec.start);
+      for(int i = vec.start; i < vec.end; i++) {
+        ByteArrayUtil.writeUnsignedVarint(buffer, vec.indexes[i]);
+        buffer.putDouble(vec.values[i]);
+      }
+    }
+
+    @Override
+    public int getByteSize(CSRSparseVector vec) {
+      int sum = 0;
+      sum += ByteArrayUtil.getUnsignedVarintSize(vec.dimensionality);
+      sum += ByteArrayUtil.getUnsignedVarintSize(vec.end - vec.start);
+      for(int i = vec.start; i < vec.end; i++) {
+        sum += ByteArrayUtil.getUnsignedVarintSize(vec.indexes[i]);
+      }
+      sum += (vec.end - vec.start) * ByteArrayUtil.SIZE_DOUBLE;
+      return sum;
+    }
+  }
+}
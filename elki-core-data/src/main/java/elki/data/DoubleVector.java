@@ -138,6 +138,21 @@ public class DoubleVector implements NumberVector {
     return new DoubleVector(vals, true);
   }
 
+  /**
+   * Get the values of a vector as array, without copying for
+   * {@link DoubleVector}s. Other vectors are copied using
+   * {@link NumberVector#toArray()}.
+   * <p>
+   * Note: the result must not be modified, as it may be the internal storage
+   * of the vector!
+   * 
+   * @param vec Vector
+   * @return Values
+   */
+  public static double[] unwrap(NumberVector vec) {
+    return vec instanceof DoubleVector ? ((DoubleVector) vec).values : vec.toArray();
+  }
+
   /**
    * Factory for Double vectors.
    *
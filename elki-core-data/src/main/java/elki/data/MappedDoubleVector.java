@@ -0,0 +1,290 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.data;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import elki.utilities.datastructures.arraylike.ArrayAdapter;
+import elki.utilities.datastructures.arraylike.NumberArrayAdapter;
+import elki.utilities.io.ByteArrayUtil;
+import elki.utilities.io.ByteBufferSerializer;
+import elki.utilities.optionhandling.Parameterizer;
+
+/**
+ * Vector type using a region of a {@link ByteBuffer} as storage for real
+ * numbers.
+ * <p>
+ * This is a flyweight over a (usually memory-mapped) buffer: the values are
+ * not copied onto the Java heap, but read from the buffer on every access.
+ * This allows working with data sets larger than the heap, by relying on the
+ * operating system page cache instead. The buffer must not be modified while
+ * the vector is in use.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MappedDoubleVector implements NumberVector {
+  /**
+   * Static factory instance.
+   */
+  public static final MappedDoubleVector.Factory FACTORY = new MappedDoubleVector.Factory();
+
+  /**
+   * Serializer using varint encoding, compatible with
+   * {@link DoubleVector#VARIABLE_SERIALIZER}. This serializer copies the
+   * values when reading.
+   */
+  public static final ByteBufferSerializer<MappedDoubleVector> VARIABLE_SERIALIZER = new VariableSerializer();
+
+  /**
+   * Buffer containing the values.
+   */
+  private final ByteBuffer buffer;
+
+  /**
+   * Offset of the first value in the buffer.
+   */
+  private final int offset;
+
+  /**
+   * Dimensionality.
+   */
+  private final int dim;
+
+  /**
+   * Constructor.
+   *
+   * @param buffer Buffer containing the values (not copied)
+   * @param offset Offset of the first value
+   * @param dim Dimensionality
+   */
+  public MappedDoubleVector(ByteBuffer buffer, int offset, int dim) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.dim = dim;
+  }
+
+  @Override
+  public int getDimensionality() {
+    return dim;
+  }
+
+  @Override
+  public double doubleValue(int dimension) {
+    assert dimension >= 0 && dimension < dim;
+    return buffer.getDouble(offset + (dimension << 3));
+  }
+
+  @Override
+  public long longValue(int dimension) {
+    return (long) doubleValue(dimension);
+  }
+
+  @Override
+  public double[] toArray() {
+    double[] values = new double[dim];
+    for(int i = 0, p = offset; i < dim; i++, p += ByteArrayUtil.SIZE_DOUBLE) {
+      values[i] = buffer.getDouble(p);
+    }
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder featureLine = new StringBuilder();
+    for(int i = 0; i < dim; i++) {
+      featureLine.append(doubleValue(i));
+      if(i + 1 < dim) {
+        featureLine.append(ATTRIBUTE_SEPARATOR);
+      }
+    }
+    return featureLine.toString();
+  }
+
+  /**
+   * Get a serializer that reads vectors serialized by the given
+   * {@link DoubleVector} serializer as views into the buffer, without copying.
+   * <p>
+   * Note that the resulting vectors reference the buffer; this is only safe if
+   * the buffer contents are not modified afterwards (e.g., a read-only mapped
+   * file).
+   *
+   * @param ser Serializer of {@link DoubleVector}
+   * @return View serializer, or {@code null} if not supported
+   */
+  public static ByteBufferSerializer<MappedDoubleVector> viewSerializer(ByteBufferSerializer<?> ser) {
+    return ser instanceof DoubleVector.VariableSerializer ? new ViewSerializer(ViewSerializer.VARINT) //
+        : ser instanceof DoubleVector.ShortSerializer ? new ViewSerializer(ViewSerializer.SHORT) //
+            : ser instanceof DoubleVector.SmallSerializer ? new ViewSerializer(ViewSerializer.BYTE) //
+                : null;
+  }
+
+  /**
+   * Factory for mapped double vectors. New vectors are backed by a heap
+   * buffer.
+   *
+   * @author Erich Schubert
+   *
+   * @has - - - MappedDoubleVector
+   */
+  public static class Factory implements NumberVector.Factory<MappedDoubleVector> {
+    @Override
+    public <A> MappedDoubleVector newFeatureVector(A array, ArrayAdapter<? extends Number, A> adapter) {
+      final int dim = adapter.size(array);
+      ByteBuffer buffer = ByteBuffer.allocate(dim * ByteArrayUtil.SIZE_DOUBLE);
+      for(int i = 0; i < dim; i++) {
+        buffer.putDouble(i * ByteArrayUtil.SIZE_DOUBLE, adapter.get(array, i).doubleValue());
+      }
+      return new MappedDoubleVector(buffer, 0, dim);
+    }
+
+    @Override
+    public <A> MappedDoubleVector newNumberVector(A array, NumberArrayAdapter<?, ? super A> adapter) {
+      final int dim = adapter.size(array);
+      ByteBuffer buffer = ByteBuffer.allocate(dim * ByteArrayUtil.SIZE_DOUBLE);
+      for(int i = 0; i < dim; i++) {
+        buffer.putDouble(i * ByteArrayUtil.SIZE_DOUBLE, adapter.getDouble(array, i));
+      }
+      return new MappedDoubleVector(buffer, 0, dim);
+    }
+
+    @Override
+    public ByteBufferSerializer<MappedDoubleVector> getDefaultSerializer() {
+      return VARIABLE_SERIALIZER;
+    }
+
+    @Override
+    public Class<? super MappedDoubleVector> getRestrictionClass() {
+      return MappedDoubleVector.class;
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * @author Erich Schubert
+     */
+    public static class Par implements Parameterizer {
+      @Override
+      public MappedDoubleVector.Factory make() {
+        return FACTORY;
+      }
+    }
+  }
+
+  /**
+   * Serialization class using VarInt encoding of the dimensionality, in the
+   * same format as {@link DoubleVector.VariableSerializer}.
+   *
+   * @author Erich Schubert
+   *
+   * @assoc - serializes - MappedDoubleVector
+   */
+  public static class VariableSerializer implements ByteBufferSerializer<MappedDoubleVector> {
+    @Override
+    public MappedDoubleVector fromByteBuffer(ByteBuffer buffer) throws IOException {
+      final int dimensionality = ByteArrayUtil.readUnsignedVarint(buffer);
+      ByteBuffer copy = ByteBuffer.allocate(dimensionality * ByteArrayUtil.SIZE_DOUBLE);
+      for(int i = 0; i < dimensionality; i++) {
+        copy.putDouble(i * ByteArrayUtil.SIZE_DOUBLE, buffer.getDouble());
+      }
+      return new MappedDoubleVector(copy, 0, dimensionality);
+    }
+
+    @Override
+    public void toByteBuffer(ByteBuffer buffer, MappedDoubleVector vec) throws IOException {
+      ByteArrayUtil.writeUnsignedVarint(buffer, vec.dim);
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putDouble(vec.doubleValue(i));
+      }
+    }
+
+    @Override
+    public int getByteSize(MappedDoubleVector vec) {
+      return ByteArrayUtil.getUnsignedVarintSize(vec.dim) + ByteArrayUtil.SIZE_DOUBLE * vec.dim;
+    }
+  }
+
+  /**
+   * Serialization class that reads vectors as views into the buffer, for the
+   * formats of the {@link DoubleVector} serializers.
+   *
+   * @author Erich Schubert
+   *
+   * @assoc - serializes - MappedDoubleVector
+   */
+  private static class ViewSerializer implements ByteBufferSerializer<MappedDoubleVector> {
+    /**
+     * Dimensionality stored as byte, short, or varint.
+     */
+    private static final int BYTE = 0, SHORT = 1, VARINT = 2;
+
+    /**
+     * Encoding of the dimensionality.
+     */
+    private final int header;
+
+    /**
+     * Constructor.
+     *
+     * @param header Encoding of the dimensionality
+     */
+    ViewSerializer(int header) {
+      this.header = header;
+    }
+
+    @Override
+    public MappedDoubleVector fromByteBuffer(ByteBuffer buffer) throws IOException {
+      final int dimensionality = header == BYTE ? buffer.get() //
+          : header == SHORT ? buffer.getShort() //
+              : ByteArrayUtil.readUnsignedVarint(buffer);
+      final int pos = buffer.position(), len = dimensionality * ByteArrayUtil.SIZE_DOUBLE;
+      if(buffer.remaining() < len) {
+        throw new BufferUnderflowException();
+      }
+      buffer.position(pos + len);
+      return new MappedDoubleVector(buffer, pos, dimensionality);
+    }
+
+    @Override
+    public void toByteBuffer(ByteBuffer buffer, MappedDoubleVector vec) throws IOException {
+      if(header == BYTE) {
+        buffer.put((byte) vec.dim);
+      }
+      else if(header == SHORT) {
+        buffer.putShort((short) vec.dim);
+      }
+      else {
+        ByteArrayUtil.writeUnsignedVarint(buffer, vec.dim);
+      }
+      for(int i = 0; i < vec.dim; i++) {
+        buffer.putDouble(vec.doubleValue(i));
+      }
+    }
+
+    @Override
+    public int getByteSize(MappedDoubleVector vec) {
+      return (header == BYTE ? ByteArrayUtil.SIZE_BYTE : header == SHORT ? ByteArrayUtil.SIZE_SHORT : ByteArrayUtil.getUnsignedVarintSize(vec.dim)) //
+          + ByteArrayUtil.SIZE_DOUBLE * vec.dim;
+    }
+  }
+}
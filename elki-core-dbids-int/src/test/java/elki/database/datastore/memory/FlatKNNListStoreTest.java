@@ -0,0 +1,112 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.datastore.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import elki.database.ids.*;
+
+/**
+ * Test the flat kNN list storage.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class FlatKNNListStoreTest {
+  @Test
+  public void testStorage() {
+    DBIDRange range = DBIDFactory.FACTORY.generateStaticDBIDRange(20);
+    final int k = 3;
+    FlatKNNListStore store = new FlatKNNListStore(range.size(), range, k);
+    DBIDArrayIter a = range.iter(), b = range.iter();
+    for(; a.valid(); a.advance()) {
+      assertNull(store.get(a));
+      KNNHeap heap = DBIDUtil.newHeap(k);
+      for(b.seek(0); b.valid(); b.advance()) {
+        // Ties at the first object, to produce more than k neighbors
+        heap.insert(a.getOffset() == 0 ? 1. : Math.abs(a.getOffset() - b.getOffset()), b);
+      }
+      store.put(a, heap.toKNNList());
+    }
+    for(a.seek(0); a.valid(); a.advance()) {
+      KNNList knn = store.get(a);
+      assertEquals(k, knn.getK());
+      if(a.getOffset() == 0) {
+        assertEquals(range.size(), knn.size());
+        continue;
+      }
+      assertEquals(k, knn.size());
+      assertTrue(knn.contains(a));
+      DoubleDBIDListIter it = knn.iter();
+      assertTrue(DBIDUtil.equal(it, a));
+      assertEquals(0., it.doubleValue(), 0.);
+      final boolean last = a.getOffset() == range.size() - 1;
+      assertEquals(last ? 2. : 1., knn.getKNNDistance(), 0.);
+      // Both neighbors at distance 1 are kept
+      KNNList sub = knn.subList(2);
+      assertEquals(last ? 2 : 3, sub.size());
+      assertEquals(1., sub.getKNNDistance(), 0.);
+      assertTrue(DBIDUtil.equal(knn.assignVar(0, DBIDUtil.newVar()), a));
+    }
+    store.delete(a.seek(5));
+    assertNull(store.get(a));
+    store.delete(a.seek(0));
+    assertNull(store.get(a));
+    assertFalse(store.get(a.seek(6)).contains(a.seek(10)));
+  }
+
+  @Test
+  public void testModification() {
+    DBIDRange range = DBIDFactory.FACTORY.generateStaticDBIDRange(10);
+    final int k = 4;
+    FlatKNNListStore store = new FlatKNNListStore(range.size(), range, k);
+    DBIDArrayIter a = range.iter();
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    heap.insert(0., a.seek(0));
+    heap.insert(1., a.seek(1));
+    store.put(a.seek(0), heap.toKNNList());
+    KNNList view = store.get(a.seek(0));
+    // Shorter than k:
+    assertEquals(2, view.size());
+    assertEquals(2, view.subList(3).size());
+    assertEquals(Double.POSITIVE_INFINITY, view.subList(3).getKNNDistance(), 0.);
+    assertEquals(1, view.subList(1).size());
+    // Replacing or deleting the list must not modify the view.
+    heap.clear();
+    heap.insert(0., a.seek(0));
+    heap.insert(2., a.seek(2));
+    store.put(a.seek(0), heap.toKNNList());
+    assertTrue(view.contains(a.seek(1)));
+    assertEquals(1., view.doubleValue(1), 0.);
+    assertTrue(store.get(a.seek(0)).contains(a.seek(2)));
+    store.delete(a.seek(0));
+    store.put(a.seek(0), heap.toKNNList());
+    store.clear();
+    store.put(a.seek(0), heap.toKNNList());
+    assertTrue(view.contains(a.seek(1)));
+    assertFalse(view.contains(a.seek(2)));
+  }
+}
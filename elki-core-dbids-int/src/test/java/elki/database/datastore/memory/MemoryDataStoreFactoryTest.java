@@ -0,0 +1,112 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.datastore.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import elki.database.datastore.*;
+import elki.database.ids.*;
+
+/**
+ * Test the choice of storage by the in-memory data store factory.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MemoryDataStoreFactoryTest {
+  @Test
+  public void testDenseOffset() {
+    DBIDRange range = DBIDFactory.FACTORY.generateStaticDBIDRange(100);
+    // Dense: remove every third.
+    ArrayModifiableDBIDs dense = DBIDUtil.newArray(), sparse = DBIDUtil.newArray();
+    for(DBIDArrayIter it = range.iter(); it.valid(); it.advance()) {
+      (it.getOffset() % 3 != 0 ? dense : sparse).add(it);
+    }
+    DataStoreFactory f = DataStoreFactory.FACTORY;
+    final int temp = DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT;
+    assertTrue(f.makeDoubleStorage(dense, temp) instanceof ArrayDoubleStore);
+    assertTrue(f.makeIntegerStorage(dense, temp, -1) instanceof ArrayIntegerStore);
+    assertTrue(f.makeDBIDStorage(dense, temp) instanceof ArrayDBIDStore);
+    assertTrue(f.makeStorage(dense, temp, String.class) instanceof ArrayStore);
+    assertTrue(f.makeRecordStorage(dense, temp, String.class, Double.class) instanceof ArrayRecordStore);
+    // Not temporary, or too sparse:
+    assertTrue(f.makeDoubleStorage(dense, DataStoreFactory.HINT_DB) instanceof MapIntegerDBIDDoubleStore);
+    assertTrue(f.makeDoubleStorage(sparse, temp) instanceof MapIntegerDBIDDoubleStore);
+
+    WritableDoubleDataStore ds = f.makeDoubleStorage(dense, temp, -1.);
+    WritableDataStore<String> os = f.makeStorage(dense, temp, String.class);
+    WritableDBIDDataStore is = f.makeDBIDStorage(dense, temp);
+    DBIDArrayIter first = dense.iter();
+    for(DBIDIter it = dense.iter(); it.valid(); it.advance()) {
+      ds.putDouble(it, DBIDUtil.asInteger(it) * .5);
+      os.put(it, DBIDUtil.toString(it));
+      is.putDBID(it, first);
+    }
+    DBIDVar v = DBIDUtil.newVar();
+    for(DBIDIter it = dense.iter(); it.valid(); it.advance()) {
+      assertEquals(DBIDUtil.asInteger(it) * .5, ds.doubleValue(it), 0.);
+      assertEquals(DBIDUtil.toString(it), os.get(it));
+      assertTrue(DBIDUtil.equal(first, is.assignVar(it, v)));
+    }
+  }
+
+  @Test
+  public void testDenseOffsetOutside() {
+    DBIDRange range = DBIDFactory.FACTORY.generateStaticDBIDRange(100);
+    // Only the middle part of the range is covered.
+    ArrayModifiableDBIDs dense = DBIDUtil.newArray();
+    for(DBIDArrayIter it = range.iter(); it.valid(); it.advance()) {
+      if(it.getOffset() >= 10 && it.getOffset() < 90) {
+        dense.add(it);
+      }
+    }
+    DataStoreFactory f = DataStoreFactory.FACTORY;
+    final int temp = DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT;
+    WritableDoubleDataStore ds = f.makeDoubleStorage(dense, temp, -1.);
+    WritableIntegerDataStore is = f.makeIntegerStorage(dense, temp, -1);
+    WritableDataStore<String> os = f.makeStorage(dense, temp, String.class);
+    WritableDBIDDataStore dbs = f.makeDBIDStorage(dense, temp);
+    WritableRecordStore rs = f.makeRecordStorage(dense, temp, String.class);
+    assertTrue(ds instanceof ArrayDoubleStore);
+    for(DBIDIter it = dense.iter(); it.valid(); it.advance()) {
+      ds.putDouble(it, 1.);
+      is.putInt(it, 1);
+      os.put(it, "x");
+      dbs.putDBID(it, it);
+      rs.getStorage(0, String.class).put(it, "x");
+    }
+    // Reads below and above the covered interval return the default value.
+    DBIDVar v = DBIDUtil.newVar();
+    for(int off : new int[] { 0, 9, 90, 99 }) {
+      DBIDRef id = range.get(off);
+      assertEquals(-1., ds.doubleValue(id), 0.);
+      assertEquals(-1, is.intValue(id));
+      assertNull(os.get(id));
+      assertTrue(DBIDUtil.equal(DBIDUtil.invalid(), dbs.assignVar(id, v)));
+      assertTrue(DBIDUtil.equal(DBIDUtil.invalid(), dbs.get(id)));
+      assertNull(rs.getStorage(0, String.class).get(id));
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.datastore.offheap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import elki.database.datastore.*;
+import elki.database.datastore.memory.ArrayDoubleStore;
+import elki.database.datastore.memory.MapIntegerDBIDDoubleStore;
+import elki.database.ids.*;
+
+/**
+ * Test the off-heap data store factory.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class OffHeapDataStoreFactoryTest {
+  @Test
+  public void testStorage() {
+    DBIDRange range = DBIDFactory.FACTORY.generateStaticDBIDRange(OffHeapDataStoreFactory.MIN_SIZE + 10);
+    DataStoreFactory f = new OffHeapDataStoreFactory();
+    // Direct and memory-mapped storage:
+    for(int hints : new int[] { DataStoreFactory.HINT_HOT, DataStoreFactory.HINT_TEMP }) {
+      WritableDoubleDataStore ds = f.makeDoubleStorage(range, hints, -1.);
+      WritableIntegerDataStore is = f.makeIntegerStorage(range, hints, 7);
+      assertTrue(ds instanceof OffHeapDoubleStore);
+      assertTrue(is instanceof OffHeapIntegerStore);
+      for(DBIDIter it = range.iter(); it.valid(); it.advance()) {
+        assertEquals(-1., ds.doubleValue(it), 0.);
+        assertEquals(7, is.intValue(it));
+        ds.putDouble(it, DBIDUtil.asInteger(it) * .5);
+        is.increment(it, DBIDUtil.asInteger(it));
+      }
+      for(DBIDIter it = range.iter(); it.valid(); it.advance()) {
+        assertEquals(DBIDUtil.asInteger(it) * .5, ds.doubleValue(it), 0.);
+        assertEquals(DBIDUtil.asInteger(it) + 7, is.intValue(it));
+      }
+      ds.destroy();
+      is.destroy();
+    }
+    // Small or static data stays on the heap:
+    DBIDRange small = DBIDFactory.FACTORY.generateStaticDBIDRange(100);
+    assertTrue(f.makeDoubleStorage(small, DataStoreFactory.HINT_HOT) instanceof ArrayDoubleStore);
+    assertTrue(f.makeDoubleStorage(range, DataStoreFactory.HINT_STATIC) instanceof ArrayDoubleStore);
+    ArrayModifiableDBIDs sparse = DBIDUtil.newArray();
+    for(DBIDArrayIter it = range.iter(); it.valid(); it.advance(3)) {
+      sparse.add(it);
+    }
+    assertTrue(f.makeDoubleStorage(sparse, DataStoreFactory.HINT_TEMP) instanceof MapIntegerDBIDDoubleStore);
+  }
+
+  @Test
+  public void testChunks() {
+    // Small chunks of 16 values, to test addressing across buffers.
+    DBIDRange range = DBIDFactory.FACTORY.generateStaticDBIDRange(100);
+    ByteBuffer[] chunks = new ByteBuffer[7];
+    for(int i = 0; i < chunks.length; i++) {
+      chunks[i] = ByteBuffer.allocateDirect((i < 6 ? 16 : 4) * Double.BYTES);
+    }
+    WritableDoubleDataStore ds = new OffHeapDoubleStore(chunks, 4, range, 0.);
+    for(DBIDArrayIter it = range.iter(); it.valid(); it.advance()) {
+      ds.putDouble(it, it.getOffset());
+    }
+    for(DBIDArrayIter it = range.iter(); it.valid(); it.advance()) {
+      assertEquals(it.getOffset(), ds.doubleValue(it), 0.);
+    }
+    for(int i = 0; i < chunks.length; i++) {
+      assertEquals(i << 4, chunks[i].getDouble(0), 0.);
+    }
+  }
+}
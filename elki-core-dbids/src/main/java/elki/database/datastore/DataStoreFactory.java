@@ -20,13 +20,16 @@
  */
 package elki.database.datastore;
 
-import elki.database.datastore.memory.MemoryDataStoreFactory;
 import elki.database.ids.DBIDs;
+import elki.utilities.ClassGenericsUtil;
 
 /**
  * API for a storage factory used for producing larger storage maps.
  * 
  * Use {@link #FACTORY} for a static instance.
+ * <p>
+ * The implementation can be chosen globally with the Java system property
+ * {@code elki.datastore}, e.g., {@code -Delki.datastore=offheap}.
  * 
  * @author Erich Schubert
  * @since 0.4.0
@@ -40,9 +43,10 @@ import elki.database.ids.DBIDs;
  */
 public interface DataStoreFactory {
   /**
-   * Static storage factory
+   * Static storage factory, as configured by the system property
+   * {@code elki.datastore}.
    */
-  DataStoreFactory FACTORY = new MemoryDataStoreFactory();
+  DataStoreFactory FACTORY = ClassGenericsUtil.loadDefault(DataStoreFactory.class, System.getProperty("elki.datastore", "elki.database.datastore.memory.MemoryDataStoreFactory"));
 
   /**
    * Storage will be used only temporary.
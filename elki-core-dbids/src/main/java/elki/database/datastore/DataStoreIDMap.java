@@ -31,9 +31,12 @@ import elki.database.ids.DBIDRef;
 public interface DataStoreIDMap {
   /**
    * Map a DBID to an array offset.
+   * <p>
+   * Maps may return a negative value for DBIDs not covered; array storage
+   * then returns the default value on reads.
    * 
    * @param dbid DBID
-   * @return record id {@code id >= 0}
+   * @return record id {@code id >= 0}, or {@code -1} if not covered
    */
   int mapDBIDToOffset(DBIDRef dbid);
 }
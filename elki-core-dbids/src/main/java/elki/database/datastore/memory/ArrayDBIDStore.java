@@ -67,12 +67,18 @@ public class ArrayDBIDStore implements WritableDBIDDataStore {
   @Override
   @Deprecated
   public DBID get(DBIDRef id) {
-    return data.get(idmap.mapDBIDToOffset(id));
+    final int off = idmap.mapDBIDToOffset(id);
+    return off >= 0 ? data.get(off) : DBIDUtil.deref(DBIDUtil.invalid());
   }
 
   @Override
   public DBIDVar assignVar(DBIDRef id, DBIDVar var) {
-    return data.assignVar(idmap.mapDBIDToOffset(id), var);
+    final int off = idmap.mapDBIDToOffset(id);
+    if(off < 0) {
+      var.unset();
+      return var;
+    }
+    return data.assignVar(off, var);
   }
 
   @Override
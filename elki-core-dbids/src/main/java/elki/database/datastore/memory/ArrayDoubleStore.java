@@ -80,7 +80,7 @@ public class ArrayDoubleStore implements WritableDoubleDataStore {
   @Override
   @Deprecated
   public Double get(DBIDRef id) {
-    return Double.valueOf(data[idmap.mapDBIDToOffset(id)]);
+    return Double.valueOf(doubleValue(id));
   }
 
   @Override
@@ -94,7 +94,8 @@ public class ArrayDoubleStore implements WritableDoubleDataStore {
 
   @Override
   public double doubleValue(DBIDRef id) {
-    return data[idmap.mapDBIDToOffset(id)];
+    final int off = idmap.mapDBIDToOffset(id);
+    return off >= 0 ? data[off] : def;
   }
 
   @Override
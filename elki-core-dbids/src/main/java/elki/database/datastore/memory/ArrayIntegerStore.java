@@ -80,7 +80,7 @@ public class ArrayIntegerStore implements WritableIntegerDataStore {
   @Override
   @Deprecated
   public Integer get(DBIDRef id) {
-    return Integer.valueOf(data[idmap.mapDBIDToOffset(id)]);
+    return Integer.valueOf(intValue(id));
   }
 
   @Override
@@ -94,7 +94,8 @@ public class ArrayIntegerStore implements WritableIntegerDataStore {
 
   @Override
   public int intValue(DBIDRef id) {
-    return data[idmap.mapDBIDToOffset(id)];
+    final int off = idmap.mapDBIDToOffset(id);
+    return off >= 0 ? data[off] : def;
   }
 
   @Override
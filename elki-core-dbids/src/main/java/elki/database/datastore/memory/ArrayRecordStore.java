@@ -72,7 +72,8 @@ public class ArrayRecordStore implements WritableRecordStore {
    */
   @SuppressWarnings("unchecked")
   protected <T> T get(DBIDRef id, int index) {
-    return (T) data[idmap.mapDBIDToOffset(id)][index];
+    final int off = idmap.mapDBIDToOffset(id);
+    return off >= 0 ? (T) data[off][index] : null;
   }
 
   /**
@@ -64,6 +64,9 @@ public class ArrayStore<T> implements WritableDataStore<T> {
   @Override
   public T get(DBIDRef id) {
     final int off = idmap.mapDBIDToOffset(id);
+    if(off < 0 && idmap instanceof DenseOffsetIDMap) {
+      return null; // Not in the dense interval, as with hash map storage.
+    }
     if(off < 0 || off >= data.length) {
       throw new ObjectNotFoundException(id);
     }
@@ -0,0 +1,108 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.datastore.memory;
+
+import elki.database.datastore.DataStoreIDMap;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DBIDs;
+
+/**
+ * Map a mostly contiguous set of DBIDs to array offsets, by subtracting the
+ * smallest DBID.
+ * <p>
+ * This allows array-backed storage for DBID sets that are not a
+ * {@link elki.database.ids.DBIDRange}, such as the DBIDs of a dynamic database
+ * after some deletions. Gaps in the DBIDs waste array space, hence this is only
+ * used if at least half of the covered interval is used.
+ * <p>
+ * DBIDs outside of the interval are mapped to {@code -1}, and reading them
+ * from array storage returns the default value (as with hash map storage).
+ * Writing them is not supported, as with {@link elki.database.ids.DBIDRange}
+ * storage.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class DenseOffsetIDMap implements DataStoreIDMap {
+  /**
+   * Minimum fraction of the interval that must be used.
+   */
+  public static final double MIN_DENSITY = .5;
+
+  /**
+   * Smallest DBID.
+   */
+  private final int offset;
+
+  /**
+   * Size of the covered interval.
+   */
+  private final int size;
+
+  /**
+   * Constructor.
+   *
+   * @param offset Smallest DBID
+   * @param size Size of the covered interval
+   */
+  public DenseOffsetIDMap(int offset, int size) {
+    super();
+    this.offset = offset;
+    this.size = size;
+  }
+
+  @Override
+  public int mapDBIDToOffset(DBIDRef dbid) {
+    final int off = DBIDUtil.asInteger(dbid) - offset;
+    return off >= 0 && off < size ? off : -1;
+  }
+
+  /**
+   * Size of the interval, i.e., the array size needed.
+   *
+   * @return Size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Build an offset map for a set of DBIDs, if they are dense enough.
+   *
+   * @param ids DBIDs
+   * @return Offset map, or {@code null} if the DBIDs are too sparse
+   */
+  public static DenseOffsetIDMap of(DBIDs ids) {
+    if(ids.isEmpty()) {
+      return null;
+    }
+    int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      final int i = DBIDUtil.asInteger(iter);
+      min = i < min ? i : min;
+      max = i > max ? i : max;
+    }
+    final long span = (long) max - min + 1;
+    return span <= ids.size() / MIN_DENSITY ? new DenseOffsetIDMap(min, (int) span) : null;
+  }
+}
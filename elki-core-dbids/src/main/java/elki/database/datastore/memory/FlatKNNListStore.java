@@ -0,0 +1,365 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.datastore.memory;
+
+import java.util.Arrays;
+
+import elki.database.datastore.DataStoreIDMap;
+import elki.database.datastore.WritableDataStore;
+import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DBIDVar;
+import elki.database.ids.DoubleDBIDListIter;
+import elki.database.ids.KNNList;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * Compact storage of kNN lists in two flat primitive arrays of {@code n*k}
+ * integer DBIDs and distances, instead of one list object with two arrays per
+ * object. The lists returned by {@link #get} are lightweight views of these
+ * arrays.
+ * <p>
+ * Each entry of the arrays is written at most once, so views remain valid
+ * when an entry is modified later: lists with more than k entries (because of
+ * ties), and lists replacing a previously stored list, are kept separately.
+ * The store is therefore meant for lists that are computed once, such as the
+ * bulk precomputation of kNN preprocessors. The previous value is not returned
+ * by {@link #put}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - elki.database.datastore.DataStoreIDMap
+ * @has - - - View
+ */
+public class FlatKNNListStore implements WritableDataStore<KNNList> {
+  /**
+   * Size marker for missing entries.
+   */
+  private static final int MISSING = -1;
+
+  /**
+   * Size marker for entries in the overflow map.
+   */
+  private static final int OVERFLOW = -2;
+
+  /**
+   * Size marker for entries that were deleted, but may still be referenced by
+   * views.
+   */
+  private static final int DELETED = -3;
+
+  /**
+   * Maximum list size k.
+   */
+  private int k;
+
+  /**
+   * Neighbor DBIDs, k per object.
+   */
+  private int[] ids;
+
+  /**
+   * Neighbor distances, k per object.
+   */
+  private double[] dists;
+
+  /**
+   * List sizes, or a marker.
+   */
+  private int[] sizes;
+
+  /**
+   * Lists exceeding k, or replacing a list in the arrays.
+   */
+  private Int2ObjectOpenHashMap<KNNList> overflow = new Int2ObjectOpenHashMap<>();
+
+  /**
+   * DBID to index map
+   */
+  private DataStoreIDMap idmap;
+
+  /**
+   * Constructor.
+   *
+   * @param size Size
+   * @param idmap ID map
+   * @param k Maximum list size k
+   */
+  public FlatKNNListStore(int size, DataStoreIDMap idmap, int k) {
+    super();
+    this.k = k;
+    this.ids = new int[size * k];
+    this.dists = new double[size * k];
+    this.sizes = new int[size];
+    Arrays.fill(sizes, MISSING);
+    this.idmap = idmap;
+  }
+
+  @Override
+  public KNNList get(DBIDRef id) {
+    final int off = idmap.mapDBIDToOffset(id), size = sizes[off];
+    return size >= 0 ? new View(off * k, size, k) : size == OVERFLOW ? overflow.get(off) : null;
+  }
+
+  @Override
+  public KNNList put(DBIDRef id, KNNList value) {
+    if(value == null) {
+      delete(id);
+      return null;
+    }
+    final int off = idmap.mapDBIDToOffset(id), size = sizes[off];
+    if(size >= 0 && isStored(off * k, size, value)) {
+      return null; // Unchanged
+    }
+    if(size != MISSING || value.size() > k) {
+      // Do not modify the arrays, which may be in use by views.
+      overflow.put(off, value);
+      sizes[off] = OVERFLOW;
+      return null;
+    }
+    int i = off * k;
+    for(DoubleDBIDListIter it = value.iter(); it.valid(); it.advance(), i++) {
+      ids[i] = DBIDUtil.asInteger(it);
+      dists[i] = it.doubleValue();
+    }
+    sizes[off] = value.size();
+    return null;
+  }
+
+  /**
+   * Test if a list is already stored in the arrays.
+   *
+   * @param begin First array position
+   * @param size Stored list size
+   * @param value List
+   * @return {@code true} if the same list is stored
+   */
+  private boolean isStored(int begin, int size, KNNList value) {
+    if(value.size() != size) {
+      return false;
+    }
+    int i = begin;
+    for(DoubleDBIDListIter it = value.iter(); it.valid(); it.advance(), i++) {
+      if(ids[i] != DBIDUtil.asInteger(it) || dists[i] != it.doubleValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void delete(DBIDRef id) {
+    final int off = idmap.mapDBIDToOffset(id), size = sizes[off];
+    if(size == OVERFLOW) {
+      overflow.remove(off);
+    }
+    sizes[off] = size == MISSING ? MISSING : DELETED;
+  }
+
+  @Override
+  public void clear() {
+    for(int i = 0; i < sizes.length; i++) {
+      sizes[i] = sizes[i] == MISSING ? MISSING : DELETED;
+    }
+    overflow.clear();
+  }
+
+  @Override
+  public void destroy() {
+    ids = null;
+    dists = null;
+    sizes = null;
+    overflow = null;
+    idmap = null;
+  }
+
+  /**
+   * View of a kNN list in the flat arrays.
+   *
+   * @author Erich Schubert
+   */
+  private class View implements KNNList {
+    /**
+     * First array position.
+     */
+    private final int begin;
+
+    /**
+     * List size.
+     */
+    private final int size;
+
+    /**
+     * The k value of this list.
+     */
+    private final int k;
+
+    /**
+     * Constructor.
+     *
+     * @param begin First array position
+     * @param size List size
+     * @param k k value of this list
+     */
+    View(int begin, int size, int k) {
+      this.begin = begin;
+      this.size = size;
+      this.k = k;
+    }
+
+    @Override
+    public int getK() {
+      return k;
+    }
+
+    @Override
+    public double getKNNDistance() {
+      return size >= k ? dists[begin + k - 1] : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public KNNList subList(int k) {
+      if(k >= this.k) {
+        return this;
+      }
+      if(k >= size) {
+        return new View(begin, size, k);
+      }
+      // Include all values tied with the k-th:
+      final double kdist = dists[begin + k - 1];
+      int i = k;
+      while(i < size && dists[begin + i] <= kdist) {
+        i++;
+      }
+      return new View(begin, Math.min(i, size), k);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean contains(DBIDRef o) {
+      final int id = DBIDUtil.asInteger(o);
+      for(int i = begin, end = begin + size; i < end; i++) {
+        if(ids[i] == id) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public DBIDVar assignVar(int index, DBIDVar var) {
+      assert index < size : "Index: " + index + " Size: " + size;
+      return var.set(DBIDUtil.importInteger(ids[begin + index]));
+    }
+
+    @Override
+    public double doubleValue(int index) {
+      assert index < size : "Index: " + index + " Size: " + size;
+      return dists[begin + index];
+    }
+
+    @Override
+    public Itr iter() {
+      return new Itr();
+    }
+
+    @Override
+    public View slice(int begin, int end) {
+      return new View(this.begin + begin, end - begin, k);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(size * 20 + 20).append("kNNList[");
+      for(int i = 0; i < size; i++) {
+        buf.append(i > 0 ? "," : "").append(dists[begin + i]).append(':').append(ids[begin + i]);
+      }
+      return buf.append(']').toString();
+    }
+
+    /**
+     * Iterator over a list view.
+     *
+     * @author Erich Schubert
+     */
+    private class Itr implements DoubleDBIDListIter {
+      /**
+       * Current offset.
+       */
+      private int pos = 0;
+
+      @Override
+      public boolean valid() {
+        return pos < size && pos >= 0;
+      }
+
+      @Override
+      public Itr advance() {
+        ++pos;
+        return this;
+      }
+
+      @Override
+      public int getOffset() {
+        return pos;
+      }
+
+      @Override
+      public Itr advance(int count) {
+        pos += count;
+        return this;
+      }
+
+      @Override
+      public Itr retract() {
+        --pos;
+        return this;
+      }
+
+      @Override
+      public Itr seek(int off) {
+        pos = off;
+        return this;
+      }
+
+      @Override
+      public int internalGetIndex() {
+        return ids[begin + pos];
+      }
+
+      @Override
+      public double doubleValue() {
+        return dists[begin + pos];
+      }
+
+      @Override
+      public String toString() {
+        return doubleValue() + ":" + internalGetIndex();
+      }
+    }
+  }
+}
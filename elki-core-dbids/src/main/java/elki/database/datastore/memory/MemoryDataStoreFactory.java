@@ -32,9 +32,11 @@ import elki.database.ids.DBIDs;
 /**
  * Simple factory class that will store all data in memory using object arrays
  * or hashmaps.
- * 
- * Hints are currently not used by this implementation, since everything is
- * in-memory.
+ * <p>
+ * Arrays are used for {@link DBIDRange}s, and for temporary storage
+ * ({@link DataStoreFactory#HINT_TEMP}) of mostly contiguous DBIDs, using a
+ * {@link DenseOffsetIDMap}. Other storage may need to accept DBIDs added later
+ * to a dynamic database, and uses primitive-keyed open addressing hash maps.
  * 
  * @author Erich Schubert
  * @since 0.4.0
@@ -44,6 +46,7 @@ import elki.database.ids.DBIDs;
  * @navhas - create - ArrayRecordStore
  * @navhas - create - MapStore
  * @navhas - create - MapRecordStore
+ * @navhas - create - DenseOffsetIDMap
  */
 public class MemoryDataStoreFactory implements DataStoreFactory {
   @SuppressWarnings("unchecked")
@@ -60,9 +63,11 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
       Object[] data = new Object[range.size()];
       return new ArrayStore<>(data, range);
     }
-    else {
-      return new MapIntegerDBIDStore<>(ids.size());
+    DenseOffsetIDMap dense = dense(ids, hints);
+    if(dense != null) {
+      return new ArrayStore<>(new Object[dense.size()], dense);
     }
+    return new MapIntegerDBIDStore<>(ids.size());
   }
 
   @Override
@@ -71,9 +76,11 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
       DBIDRange range = (DBIDRange) ids;
       return new ArrayDBIDStore(range.size(), range);
     }
-    else {
-      return new MapIntegerDBIDDBIDStore(ids.size());
+    DenseOffsetIDMap dense = dense(ids, hints);
+    if(dense != null) {
+      return new ArrayDBIDStore(dense.size(), dense);
     }
+    return new MapIntegerDBIDDBIDStore(ids.size());
   }
 
   @Override
@@ -82,9 +89,11 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
       DBIDRange range = (DBIDRange) ids;
       return new ArrayDoubleStore(range.size(), range);
     }
-    else {
-      return new MapIntegerDBIDDoubleStore(ids.size());
+    DenseOffsetIDMap dense = dense(ids, hints);
+    if(dense != null) {
+      return new ArrayDoubleStore(dense.size(), dense);
     }
+    return new MapIntegerDBIDDoubleStore(ids.size());
   }
 
   @Override
@@ -93,9 +102,11 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
       DBIDRange range = (DBIDRange) ids;
       return new ArrayDoubleStore(range.size(), range, def);
     }
-    else {
-      return new MapIntegerDBIDDoubleStore(ids.size(), def);
+    DenseOffsetIDMap dense = dense(ids, hints);
+    if(dense != null) {
+      return new ArrayDoubleStore(dense.size(), dense, def);
     }
+    return new MapIntegerDBIDDoubleStore(ids.size(), def);
   }
 
   @Override
@@ -104,9 +115,11 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
       DBIDRange range = (DBIDRange) ids;
       return new ArrayIntegerStore(range.size(), range);
     }
-    else {
-      return new MapIntegerDBIDIntegerStore(ids.size());
+    DenseOffsetIDMap dense = dense(ids, hints);
+    if(dense != null) {
+      return new ArrayIntegerStore(dense.size(), dense);
     }
+    return new MapIntegerDBIDIntegerStore(ids.size());
   }
 
   @Override
@@ -115,9 +128,11 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
       DBIDRange range = (DBIDRange) ids;
       return new ArrayIntegerStore(range.size(), range, def);
     }
-    else {
-      return new MapIntegerDBIDIntegerStore(ids.size(), def);
+    DenseOffsetIDMap dense = dense(ids, hints);
+    if(dense != null) {
+      return new ArrayIntegerStore(dense.size(), dense, def);
     }
+    return new MapIntegerDBIDIntegerStore(ids.size(), def);
   }
 
   @Override
@@ -127,8 +142,22 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
       Object[][] data = new Object[range.size()][dataclasses.length];
       return new ArrayRecordStore(data, range);
     }
-    else {
-      return new MapIntegerDBIDRecordStore(ids.size(), dataclasses.length);
+    DenseOffsetIDMap dense = dense(ids, hints);
+    if(dense != null) {
+      return new ArrayRecordStore(new Object[dense.size()][dataclasses.length], dense);
     }
+    return new MapIntegerDBIDRecordStore(ids.size(), dataclasses.length);
+  }
+
+  /**
+   * Get an offset map for array storage of temporary data, if the DBIDs are
+   * mostly contiguous.
+   *
+   * @param ids DBIDs
+   * @param hints Hints
+   * @return Offset map, or {@code null}
+   */
+  private static DenseOffsetIDMap dense(DBIDs ids, int hints) {
+    return (hints & HINT_TEMP) != 0 ? DenseOffsetIDMap.of(ids) : null;
   }
 }
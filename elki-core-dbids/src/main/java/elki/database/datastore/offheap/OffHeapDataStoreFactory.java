@@ -0,0 +1,186 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.datastore.offheap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import elki.database.datastore.DataStoreIDMap;
+import elki.database.datastore.WritableDoubleDataStore;
+import elki.database.datastore.WritableIntegerDataStore;
+import elki.database.datastore.memory.DenseOffsetIDMap;
+import elki.database.datastore.memory.MemoryDataStoreFactory;
+import elki.database.ids.DBIDRange;
+import elki.database.ids.DBIDs;
+import elki.utilities.exceptions.AbortException;
+
+/**
+ * Storage factory that keeps large primitive (double and integer) data stores
+ * outside of the Java heap, to reduce the heap size and garbage collection
+ * overhead of huge intermediate results.
+ * <p>
+ * Storage marked as {@link #HINT_HOT} is allocated as direct memory, other
+ * temporary storage ({@link #HINT_TEMP}) is placed in memory-mapped temporary
+ * files, so the operating system can page it out. All other storage, object
+ * storage, and stores with less than {@link #MIN_SIZE} entries are handled by
+ * the {@link MemoryDataStoreFactory}.
+ * <p>
+ * Select this factory globally with {@code -Delki.datastore=offheap}, see
+ * {@link elki.database.datastore.DataStoreFactory#FACTORY}. Note that direct
+ * memory is limited by the JVM option {@code -XX:MaxDirectMemorySize}, and
+ * memory is only released when the stores are garbage collected.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @stereotype factory
+ * @navhas - create - OffHeapDoubleStore
+ * @navhas - create - OffHeapIntegerStore
+ */
+public class OffHeapDataStoreFactory extends MemoryDataStoreFactory {
+  /**
+   * Minimum number of entries to use off-heap storage.
+   */
+  public static final int MIN_SIZE = 1 << 16;
+
+  /**
+   * Number of entries per buffer (as power of two), such that each buffer
+   * stays below the 2 GiB limit of Java buffers.
+   */
+  public static final int CHUNK_BITS = 27;
+
+  /**
+   * Directory for temporary files, {@code null} for the system default.
+   */
+  private Path tmpdir;
+
+  /**
+   * Constructor, using the system default temporary directory.
+   */
+  public OffHeapDataStoreFactory() {
+    this(null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param tmpdir Directory for temporary files, {@code null} for the system
+   *        default
+   */
+  public OffHeapDataStoreFactory(Path tmpdir) {
+    super();
+    this.tmpdir = tmpdir;
+  }
+
+  @Override
+  public WritableDoubleDataStore makeDoubleStorage(DBIDs ids, int hints) {
+    return makeDoubleStorage(ids, hints, Double.NaN);
+  }
+
+  @Override
+  public WritableDoubleDataStore makeDoubleStorage(DBIDs ids, int hints, double def) {
+    DataStoreIDMap idmap = offheap(ids, hints);
+    if(idmap == null) {
+      return super.makeDoubleStorage(ids, hints, def);
+    }
+    ByteBuffer[] chunks = allocate(size(idmap), Double.BYTES, hints);
+    return new OffHeapDoubleStore(chunks, CHUNK_BITS, idmap, def);
+  }
+
+  @Override
+  public WritableIntegerDataStore makeIntegerStorage(DBIDs ids, int hints) {
+    return makeIntegerStorage(ids, hints, 0);
+  }
+
+  @Override
+  public WritableIntegerDataStore makeIntegerStorage(DBIDs ids, int hints, int def) {
+    DataStoreIDMap idmap = offheap(ids, hints);
+    if(idmap == null) {
+      return super.makeIntegerStorage(ids, hints, def);
+    }
+    ByteBuffer[] chunks = allocate(size(idmap), Integer.BYTES, hints);
+    return new OffHeapIntegerStore(chunks, CHUNK_BITS, idmap, def);
+  }
+
+  /**
+   * Get the offset map, if off-heap storage is to be used.
+   *
+   * @param ids DBIDs
+   * @param hints Hints
+   * @return Offset map, or {@code null}
+   */
+  private static DataStoreIDMap offheap(DBIDs ids, int hints) {
+    if((hints & (HINT_TEMP | HINT_HOT)) == 0 || ids.size() < MIN_SIZE) {
+      return null;
+    }
+    return ids instanceof DBIDRange ? (DBIDRange) ids : //
+        (hints & HINT_TEMP) != 0 ? DenseOffsetIDMap.of(ids) : null;
+  }
+
+  /**
+   * Number of entries needed for an offset map.
+   *
+   * @param idmap Offset map
+   * @return Size
+   */
+  private static int size(DataStoreIDMap idmap) {
+    return idmap instanceof DBIDRange ? ((DBIDRange) idmap).size() : ((DenseOffsetIDMap) idmap).size();
+  }
+
+  /**
+   * Allocate zero-initialized buffers.
+   *
+   * @param size Number of entries
+   * @param bytes Bytes per entry
+   * @param hints Hints
+   * @return Buffers of {@code 1 << CHUNK_BITS} entries each, except the last
+   */
+  protected ByteBuffer[] allocate(int size, int bytes, int hints) {
+    final int full = 1 << CHUNK_BITS;
+    ByteBuffer[] chunks = new ByteBuffer[((size - 1) >>> CHUNK_BITS) + 1];
+    if((hints & HINT_HOT) != 0) {
+      for(int i = 0; i < chunks.length; i++) {
+        final int len = i < chunks.length - 1 ? full : size - (i << CHUNK_BITS);
+        chunks[i] = ByteBuffer.allocateDirect(len * bytes).order(ByteOrder.nativeOrder());
+      }
+      return chunks;
+    }
+    try {
+      Path file = tmpdir != null ? Files.createTempFile(tmpdir, "elki", ".tmp") : Files.createTempFile("elki", ".tmp");
+      // Mappings remain valid after the file was closed and deleted.
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+        for(int i = 0; i < chunks.length; i++) {
+          final int len = i < chunks.length - 1 ? full : size - (i << CHUNK_BITS);
+          chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, ((long) i << CHUNK_BITS) * bytes, (long) len * bytes).order(ByteOrder.nativeOrder());
+        }
+      }
+      return chunks;
+    }
+    catch(IOException e) {
+      throw new AbortException("Could not map temporary storage file.", e);
+    }
+  }
+}
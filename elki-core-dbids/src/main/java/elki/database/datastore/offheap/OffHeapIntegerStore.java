@@ -0,0 +1,146 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.datastore.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import elki.database.datastore.DataStoreIDMap;
+import elki.database.datastore.WritableIntegerDataStore;
+import elki.database.ids.DBIDRef;
+
+/**
+ * Integer storage in direct or memory-mapped buffers outside of the Java heap.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - elki.database.datastore.DataStoreIDMap
+ */
+public class OffHeapIntegerStore implements WritableIntegerDataStore {
+  /**
+   * Data buffers
+   */
+  private IntBuffer[] data;
+
+  /**
+   * Number of entries per buffer, as power of two.
+   */
+  private int shift;
+
+  /**
+   * Bit mask for the offset within a buffer.
+   */
+  private int mask;
+
+  /**
+   * Default value.
+   */
+  private int def;
+
+  /**
+   * DBID to index map
+   */
+  private DataStoreIDMap idmap;
+
+  /**
+   * Constructor.
+   *
+   * @param chunks Zero-initialized buffers, of {@code 1 << shift} values each
+   *        (except the last)
+   * @param shift Number of values per buffer, as power of two
+   * @param idmap ID map
+   * @param def Default value
+   */
+  public OffHeapIntegerStore(ByteBuffer[] chunks, int shift, DataStoreIDMap idmap, int def) {
+    super();
+    this.data = new IntBuffer[chunks.length];
+    for(int i = 0; i < chunks.length; i++) {
+      data[i] = chunks[i].asIntBuffer();
+    }
+    this.shift = shift;
+    this.mask = (1 << shift) - 1;
+    this.def = def;
+    this.idmap = idmap;
+    if(def != 0) {
+      clear();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public Integer get(DBIDRef id) {
+    return Integer.valueOf(intValue(id));
+  }
+
+  @Override
+  @Deprecated
+  public Integer put(DBIDRef id, Integer value) {
+    return Integer.valueOf(putInt(id, value.intValue()));
+  }
+
+  @Override
+  public int intValue(DBIDRef id) {
+    final int off = idmap.mapDBIDToOffset(id);
+    return data[off >>> shift].get(off & mask);
+  }
+
+  @Override
+  public int putInt(DBIDRef id, int value) {
+    final int off = idmap.mapDBIDToOffset(id);
+    final IntBuffer buf = data[off >>> shift];
+    final int ret = buf.get(off & mask);
+    buf.put(off & mask, value);
+    return ret;
+  }
+
+  @Override
+  public int put(DBIDRef id, int value) {
+    return putInt(id, value);
+  }
+
+  @Override
+  public void increment(DBIDRef id, int adjust) {
+    final int off = idmap.mapDBIDToOffset(id);
+    final IntBuffer buf = data[off >>> shift];
+    buf.put(off & mask, buf.get(off & mask) + adjust);
+  }
+
+  @Override
+  public void clear() {
+    for(IntBuffer buf : data) {
+      for(int i = 0, l = buf.capacity(); i < l; i++) {
+        buf.put(i, def);
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    data = null;
+    idmap = null;
+  }
+
+  @Override
+  public void delete(DBIDRef id) {
+    throw new UnsupportedOperationException("Can't delete from a static array storage.");
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.distance;
+
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+
+/**
+ * Distance that can compute the distances of one query to a block of dense
+ * vectors at once.
+ * <p>
+ * Implementations should work directly on the primitive arrays, avoiding the
+ * (often megamorphic) {@link NumberVector#doubleValue} calls of the pairwise
+ * API, and should use independent accumulators so that the JIT compiler can
+ * pipeline the loops. The default implementation falls back to the pairwise
+ * distance, so that subclasses remain correct.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public interface BulkDistance extends PrimitiveDistance<NumberVector> {
+  /**
+   * Compute the distances of a query vector to a block of vectors.
+   *
+   * @param query Query vector
+   * @param block Vectors, only the first {@code size} are used
+   * @param size Number of vectors
+   * @param out Output array, of at least {@code size} length
+   */
+  default void distances(double[] query, double[][] block, int size, double[] out) {
+    final DoubleVector q = DoubleVector.wrap(query);
+    for(int i = 0; i < size; i++) {
+      out[i] = distance(q, DoubleVector.wrap(block[i]));
+    }
+  }
+}
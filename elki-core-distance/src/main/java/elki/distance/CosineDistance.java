@@ -20,6 +20,8 @@
  */
 package elki.distance;
 
+import elki.data.CSRSparseVector;
+import elki.data.DoubleVector;
 import elki.data.NumberVector;
 import elki.data.VectorUtil;
 import elki.data.spatial.SpatialComparable;
@@ -41,13 +43,16 @@ import elki.utilities.optionhandling.Parameterizer;
  * <p>
  * {@link ArcCosineDistance} may sometimes be more appropriate, but also
  * more computationally expensive.
+ * <p>
+ * For {@link CSRSparseVector}s, a specialized kernel works directly on the
+ * shared arrays.
  *
  * @author Arthur Zimek
  * @since 0.1
  */
 @Priority(Priority.IMPORTANT)
 @Alias({ "cosine" })
-public class CosineDistance implements SpatialPrimitiveDistance<NumberVector>, NumberVectorDistance<NumberVector> {
+public class CosineDistance implements SpatialPrimitiveDistance<NumberVector>, NumberVectorDistance<NumberVector>, BulkDistance {
   /**
    * Static instance
    */
@@ -75,10 +80,89 @@ public class CosineDistance implements SpatialPrimitiveDistance<NumberVector>, N
    */
   @Override
   public double distance(NumberVector v1, NumberVector v2) {
-    double d = VectorUtil.cosAngle(v1, v2);
+    double d = v1 instanceof CSRSparseVector && v2 instanceof CSRSparseVector ? //
+        cosAngleCSR((CSRSparseVector) v1, (CSRSparseVector) v2) : //
+        VectorUtil.cosAngle(v1, v2);
     return (d <= 1) ? 1 - d : 0;
   }
 
+  /**
+   * Cosine of the angle of two vectors in CSR storage, analogous to
+   * {@link VectorUtil#angleSparse}.
+   *
+   * @param v1 First vector
+   * @param v2 Second vector
+   * @return Cosine of the angle
+   */
+  private static double cosAngleCSR(CSRSparseVector v1, CSRSparseVector v2) {
+    final int[] x1 = v1.getIndexes(), x2 = v2.getIndexes();
+    final double[] a1 = v1.getValues(), a2 = v2.getValues();
+    final int e1 = v1.getEnd(), e2 = v2.getEnd();
+    int i1 = v1.getStart(), i2 = v2.getStart();
+    double l1 = 0., l2 = 0., cross = 0.;
+    while(i1 < e1 && i2 < e2) {
+      final int d1 = x1[i1], d2 = x2[i2];
+      if(d1 == d2) {
+        final double val1 = a1[i1++], val2 = a2[i2++];
+        l1 += val1 * val1;
+        l2 += val2 * val2;
+        cross += val1 * val2;
+      }
+      else if(d1 < d2) {
+        final double val = a1[i1++];
+        l1 += val * val;
+      }
+      else {
+        final double val = a2[i2++];
+        l2 += val * val;
+      }
+    }
+    for(; i1 < e1; i1++) {
+      l1 += a1[i1] * a1[i1];
+    }
+    for(; i2 < e2; i2++) {
+      l2 += a2[i2] * a2[i2];
+    }
+    final double a = (cross == 0.) ? 0. : //
+        (l1 == 0. || l2 == 0.) ? 1. : //
+            Math.sqrt((cross / l1) * (cross / l2));
+    return (a < 1.) ? a : 1.;
+  }
+
+  @Override
+  public void distances(double[] query, double[][] block, int size, double[] out) {
+    final int dim = query.length, dim2 = dim & ~1;
+    double lq = 0.;
+    for(int d = 0; d < dim; d++) {
+      lq += query[d] * query[d];
+    }
+    for(int i = 0; i < size; i++) {
+      final double[] v = block[i];
+      if(v.length != dim) {
+        out[i] = distance(DoubleVector.wrap(query), DoubleVector.wrap(v));
+        continue;
+      }
+      double c0 = 0., c1 = 0., l0 = 0., l1 = 0.;
+      int d = 0;
+      for(; d < dim2; d += 2) {
+        final double v0 = v[d], v1 = v[d + 1];
+        c0 += query[d] * v0;
+        c1 += query[d + 1] * v1;
+        l0 += v0 * v0;
+        l1 += v1 * v1;
+      }
+      if(d < dim) {
+        c0 += query[d] * v[d];
+        l0 += v[d] * v[d];
+      }
+      final double cross = c0 + c1, lv = l0 + l1;
+      final double a = (cross == 0.) ? 0. : //
+          (lq == 0. || lv == 0.) ? 1. : //
+              Math.sqrt((cross / lq) * (cross / lv));
+      out[i] = a < 1. ? 1. - a : 0.;
+    }
+  }
+
   @Override
   public double minDist(SpatialComparable mbr1, SpatialComparable mbr2) {
     double d = VectorUtil.minCosAngle(mbr1, mbr2);
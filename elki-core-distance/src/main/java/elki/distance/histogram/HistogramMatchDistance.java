@@ -76,6 +76,11 @@ public class HistogramMatchDistance extends AbstractNumberVectorDistance impleme
 
   @Override
   public double distance(NumberVector v1, NumberVector v2) {
+    return distance(v1, v2, Double.POSITIVE_INFINITY);
+  }
+
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
     final int dim = dimensionality(v1, v2);
     double xs = 0., ys = 0., agg = 0.;
     for(int i = 0; i < dim; i++) {
@@ -85,8 +90,14 @@ public class HistogramMatchDistance extends AbstractNumberVectorDistance impleme
       ys += v2.doubleValue(i);
     }
     double fx = xs > 0 ? 1. / xs : 1, fy = ys > 0 ? 1. / ys : 1;
-    for(int i = 0; i < dim; i++) {
-      agg += Math.abs(v1.doubleValue(i) * fx - v2.doubleValue(i) * fy);
+    for(int i = 0; i < dim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = i + 16 < dim ? i + 16 : dim; i < end; i++) {
+        agg += Math.abs(v1.doubleValue(i) * fx - v2.doubleValue(i) * fy);
+      }
+      if(agg > threshold) {
+        return agg;
+      }
     }
     return agg;
   }
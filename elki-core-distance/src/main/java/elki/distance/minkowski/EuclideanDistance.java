@@ -20,6 +20,7 @@
  */
 package elki.distance.minkowski;
 
+import elki.data.DoubleVector;
 import elki.data.NumberVector;
 import elki.data.spatial.SpatialComparable;
 import elki.utilities.Alias;
@@ -123,11 +124,48 @@ public class EuclideanDistance extends LPIntegerNormDistance {
     return FastMath.sqrt(agg);
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = dim1 < dim2 ? dim1 : dim2;
+    final double bound = threshold * threshold;
+    double agg = 0.;
+    for(int d = 0; d < mindim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = d + 16 < mindim ? d + 16 : mindim; d < end; d++) {
+        final double delta = v1.doubleValue(d) - v2.doubleValue(d);
+        agg += delta * delta;
+      }
+      if(agg > bound) {
+        final double dist = FastMath.sqrt(agg);
+        if(dist > threshold) {
+          return dist;
+        }
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return FastMath.sqrt(agg);
+  }
+
   @Override
   public double norm(NumberVector v) {
     return FastMath.sqrt(preNorm(v, 0, v.getDimensionality()));
   }
 
+  @Override
+  public void distances(double[] query, double[][] block, int size, double[] out) {
+    for(int i = 0; i < size; i++) {
+      final double[] v = block[i];
+      out[i] = v.length == query.length ? FastMath.sqrt(SquaredEuclideanDistance.sqdist(query, v)) //
+          : distance(DoubleVector.wrap(query), DoubleVector.wrap(v));
+    }
+  }
+
   @Override
   public double minDist(SpatialComparable mbr1, SpatialComparable mbr2) {
     final int dim1 = mbr1.getDimensionality(), dim2 = mbr2.getDimensionality();
@@ -23,6 +23,7 @@ package elki.distance.minkowski;
 import elki.data.NumberVector;
 import elki.data.spatial.SpatialComparable;
 import elki.data.type.SimpleTypeInformation;
+import elki.distance.BulkDistance;
 import elki.distance.Norm;
 import elki.distance.NumberVectorDistance;
 import elki.distance.SpatialPrimitiveDistance;
@@ -54,7 +55,7 @@ import net.jafama.FastMath;
  */
 @Priority(Priority.RECOMMENDED)
 @Alias({ "lp", "minkowski", "p" })
-public class LPNormDistance implements SpatialPrimitiveDistance<NumberVector>, NumberVectorDistance<NumberVector>, Norm<NumberVector> {
+public class LPNormDistance implements SpatialPrimitiveDistance<NumberVector>, NumberVectorDistance<NumberVector>, Norm<NumberVector>, BulkDistance {
   /**
    * p parameter and its inverse.
    */
@@ -185,6 +186,35 @@ public class LPNormDistance implements SpatialPrimitiveDistance<NumberVector>, N
     return FastMath.pow(agg, invp);
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = dim1 < dim2 ? dim1 : dim2;
+    final double bound = FastMath.pow(threshold, p);
+    double agg = 0.;
+    for(int d = 0; d < mindim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = d + 16 < mindim ? d + 16 : mindim; d < end; d++) {
+        final double xd = v1.doubleValue(d), yd = v2.doubleValue(d);
+        final double delta = xd >= yd ? xd - yd : yd - xd;
+        agg += FastMath.pow(delta, p);
+      }
+      if(agg > bound) {
+        final double dist = FastMath.pow(agg, invp);
+        if(dist > threshold) {
+          return dist;
+        }
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return FastMath.pow(agg, invp);
+  }
+
   @Override
   public double norm(NumberVector v) {
     return FastMath.pow(preNorm(v, 0, v.getDimensionality()), invp);
@@ -20,6 +20,7 @@
  */
 package elki.distance.minkowski;
 
+import elki.data.DoubleVector;
 import elki.data.NumberVector;
 import elki.data.spatial.SpatialComparable;
 import elki.utilities.Alias;
@@ -122,11 +123,60 @@ public class ManhattanDistance extends LPIntegerNormDistance {
     return agg;
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = dim1 < dim2 ? dim1 : dim2;
+    double agg = 0.;
+    for(int d = 0; d < mindim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = d + 16 < mindim ? d + 16 : mindim; d < end; d++) {
+        final double xd = v1.doubleValue(d), yd = v2.doubleValue(d);
+        final double delta = xd >= yd ? xd - yd : yd - xd;
+        agg += delta;
+      }
+      if(agg > threshold) {
+        return agg;
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return agg;
+  }
+
   @Override
   public double norm(NumberVector v) {
     return preNorm(v, 0, v.getDimensionality());
   }
 
+  @Override
+  public void distances(double[] query, double[][] block, int size, double[] out) {
+    final int dim = query.length, dim4 = dim & ~3;
+    for(int i = 0; i < size; i++) {
+      final double[] v = block[i];
+      if(v.length != dim) {
+        out[i] = distance(DoubleVector.wrap(query), DoubleVector.wrap(v));
+        continue;
+      }
+      double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+      int d = 0;
+      for(; d < dim4; d += 4) {
+        s0 += Math.abs(query[d] - v[d]);
+        s1 += Math.abs(query[d + 1] - v[d + 1]);
+        s2 += Math.abs(query[d + 2] - v[d + 2]);
+        s3 += Math.abs(query[d + 3] - v[d + 3]);
+      }
+      for(; d < dim; d++) {
+        s0 += Math.abs(query[d] - v[d]);
+      }
+      out[i] = (s0 + s1) + (s2 + s3);
+    }
+  }
+
   @Override
   public double minDist(SpatialComparable mbr1, SpatialComparable mbr2) {
     final int dim1 = mbr1.getDimensionality(), dim2 = mbr2.getDimensionality();
@@ -20,6 +20,7 @@
  */
 package elki.distance.minkowski;
 
+import elki.data.DoubleVector;
 import elki.data.NumberVector;
 import elki.data.spatial.SpatialComparable;
 import elki.utilities.Alias;
@@ -120,11 +121,62 @@ public class MaximumDistance extends LPNormDistance {
     return agg;
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = dim1 < dim2 ? dim1 : dim2;
+    double agg = 0.;
+    for(int d = 0; d < mindim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = d + 16 < mindim ? d + 16 : mindim; d < end; d++) {
+        final double xd = v1.doubleValue(d), yd = v2.doubleValue(d);
+        final double delta = xd >= yd ? xd - yd : yd - xd;
+        agg = delta >= agg ? delta : agg;
+      }
+      if(agg > threshold) {
+        return agg;
+      }
+    }
+    if(dim1 > mindim) {
+      double b = preNorm(v1, mindim, dim1);
+      agg = agg >= b ? agg : b;
+    }
+    else if(dim2 > mindim) {
+      double b = preNorm(v2, mindim, dim2);
+      agg = agg >= b ? agg : b;
+    }
+    return agg;
+  }
+
   @Override
   public double norm(NumberVector v) {
     return preNorm(v, 0, v.getDimensionality());
   }
 
+  @Override
+  public void distances(double[] query, double[][] block, int size, double[] out) {
+    final int dim = query.length, dim2 = dim & ~1;
+    for(int i = 0; i < size; i++) {
+      final double[] v = block[i];
+      if(v.length != dim) {
+        out[i] = distance(DoubleVector.wrap(query), DoubleVector.wrap(v));
+        continue;
+      }
+      double m0 = 0., m1 = 0.;
+      int d = 0;
+      for(; d < dim2; d += 2) {
+        final double d0 = Math.abs(query[d] - v[d]), d1 = Math.abs(query[d + 1] - v[d + 1]);
+        m0 = d0 >= m0 ? d0 : m0;
+        m1 = d1 >= m1 ? d1 : m1;
+      }
+      if(d < dim) {
+        final double d0 = Math.abs(query[d] - v[d]);
+        m0 = d0 >= m0 ? d0 : m0;
+      }
+      out[i] = m0 >= m1 ? m0 : m1;
+    }
+  }
+
   @Override
   public double minDist(SpatialComparable mbr1, SpatialComparable mbr2) {
     final int dim1 = mbr1.getDimensionality(), dim2 = mbr2.getDimensionality();
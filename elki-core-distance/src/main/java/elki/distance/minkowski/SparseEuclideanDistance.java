@@ -20,6 +20,7 @@
  */
 package elki.distance.minkowski;
 
+import elki.data.CSRSparseVector;
 import elki.data.SparseNumberVector;
 import elki.utilities.optionhandling.Parameterizer;
 import net.jafama.FastMath;
@@ -31,6 +32,8 @@ import net.jafama.FastMath;
  * \[ \text{Euclidean}(\vec{x},\vec{y}) := \sqrt{\sum\nolimits_i (x_i-y_i)^2} \]
  * <p>
  * For sparse vectors, we can skip those i where both vectors are 0.
+ * For {@link CSRSparseVector}s, a specialized kernel works directly on the
+ * shared arrays.
  *
  * @author Erich Schubert
  * @since 0.5.0
@@ -53,6 +56,9 @@ public class SparseEuclideanDistance extends SparseLPNormDistance {
 
   @Override
   public double distance(SparseNumberVector v1, SparseNumberVector v2) {
+    if(v1 instanceof CSRSparseVector && v2 instanceof CSRSparseVector) {
+      return distanceCSR((CSRSparseVector) v1, (CSRSparseVector) v2);
+    }
     // Get the bit masks
     double accu = 0.;
     int i1 = v1.iter(), i2 = v2.iter();
@@ -93,6 +99,33 @@ public class SparseEuclideanDistance extends SparseLPNormDistance {
     return FastMath.sqrt(accu);
   }
 
+  /**
+   * Euclidean distance of two vectors in CSR storage.
+   *
+   * @param v1 First vector
+   * @param v2 Second vector
+   * @return Distance
+   */
+  private static double distanceCSR(CSRSparseVector v1, CSRSparseVector v2) {
+    final int[] x1 = v1.getIndexes(), x2 = v2.getIndexes();
+    final double[] a1 = v1.getValues(), a2 = v2.getValues();
+    final int e1 = v1.getEnd(), e2 = v2.getEnd();
+    int i1 = v1.getStart(), i2 = v2.getStart();
+    double accu = 0.;
+    while(i1 < e1 && i2 < e2) {
+      final int d1 = x1[i1], d2 = x2[i2];
+      final double val = d1 < d2 ? a1[i1++] : d2 < d1 ? -a2[i2++] : a1[i1++] - a2[i2++];
+      accu += val * val;
+    }
+    for(; i1 < e1; i1++) {
+      accu += a1[i1] * a1[i1];
+    }
+    for(; i2 < e2; i2++) {
+      accu += a2[i2] * a2[i2];
+    }
+    return FastMath.sqrt(accu);
+  }
+
   @Override
   public double norm(SparseNumberVector v1) {
     double accu = 0.;
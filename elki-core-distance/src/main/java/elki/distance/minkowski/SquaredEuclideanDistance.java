@@ -40,7 +40,7 @@ import elki.utilities.optionhandling.Parameterizer;
  * @since 0.1
  */
 @Alias({ "squaredeuclidean" })
-public class SquaredEuclideanDistance extends AbstractNumberVectorDistance implements SpatialPrimitiveDistance<NumberVector>, Norm<NumberVector> {
+public class SquaredEuclideanDistance extends AbstractNumberVectorDistance implements SpatialPrimitiveDistance<NumberVector>, Norm<NumberVector>, BulkDistance {
   /**
    * Static instance. Use this!
    */
@@ -159,11 +159,72 @@ public class SquaredEuclideanDistance extends AbstractNumberVectorDistance imple
     return agg;
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = dim1 < dim2 ? dim1 : dim2;
+    double agg = 0.;
+    for(int d = 0; d < mindim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = d + 16 < mindim ? d + 16 : mindim; d < end; d++) {
+        final double delta = v1.doubleValue(d) - v2.doubleValue(d);
+        agg += delta * delta;
+      }
+      if(agg > threshold) {
+        return agg;
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return agg;
+  }
+
   @Override
   public double norm(NumberVector v) {
     return preNorm(v, 0, v.getDimensionality());
   }
 
+  @Override
+  public void distances(double[] query, double[][] block, int size, double[] out) {
+    for(int i = 0; i < size; i++) {
+      final double[] v = block[i];
+      out[i] = v.length == query.length ? sqdist(query, v) : distance(query, v);
+    }
+  }
+
+  /**
+   * Squared Euclidean distance of two arrays of the same length.
+   * <p>
+   * Uses four independent accumulators, to break the dependency chain of the
+   * additions.
+   *
+   * @param a First vector
+   * @param b Second vector
+   * @return Squared distance
+   */
+  protected static double sqdist(double[] a, double[] b) {
+    final int dim = a.length, dim4 = dim & ~3;
+    double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+    int d = 0;
+    for(; d < dim4; d += 4) {
+      final double d0 = a[d] - b[d], d1 = a[d + 1] - b[d + 1];
+      final double d2 = a[d + 2] - b[d + 2], d3 = a[d + 3] - b[d + 3];
+      s0 += d0 * d0;
+      s1 += d1 * d1;
+      s2 += d2 * d2;
+      s3 += d3 * d3;
+    }
+    for(; d < dim; d++) {
+      final double delta = a[d] - b[d];
+      s0 += delta * delta;
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
   @Override
   public double minDist(SpatialComparable mbr1, SpatialComparable mbr2) {
     final int dim1 = mbr1.getDimensionality(), dim2 = mbr2.getDimensionality();
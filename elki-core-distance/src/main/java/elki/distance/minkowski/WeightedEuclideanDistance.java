@@ -118,6 +118,34 @@ public class WeightedEuclideanDistance extends WeightedLPNormDistance {
     return FastMath.sqrt(agg);
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = dim1 < dim2 ? dim1 : dim2;
+    final double bound = threshold * threshold;
+    double agg = 0.;
+    for(int d = 0; d < mindim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = d + 16 < mindim ? d + 16 : mindim; d < end; d++) {
+        final double delta = v1.doubleValue(d) - v2.doubleValue(d);
+        agg += delta * delta * weights[d];
+      }
+      if(agg > bound) {
+        final double dist = FastMath.sqrt(agg);
+        if(dist > threshold) {
+          return dist;
+        }
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return FastMath.sqrt(agg);
+  }
+
   @Override
   public double norm(NumberVector v) {
     return FastMath.sqrt(preNorm(v, 0, v.getDimensionality()));
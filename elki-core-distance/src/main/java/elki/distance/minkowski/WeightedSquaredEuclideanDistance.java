@@ -70,6 +70,23 @@ public class WeightedSquaredEuclideanDistance extends AbstractNumberVectorDistan
     return agg;
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    final int dim = dimensionality(v1, v2, weights.length);
+    double agg = 0.;
+    for(int d = 0; d < dim;) {
+      // Check the threshold only every 16 dimensions:
+      for(final int end = d + 16 < dim ? d + 16 : dim; d < end; d++) {
+        final double delta = v1.doubleValue(d) - v2.doubleValue(d);
+        agg += delta * delta * weights[d];
+      }
+      if(agg > threshold) {
+        return agg;
+      }
+    }
+    return agg;
+  }
+
   @Override
   public double norm(NumberVector obj) {
     final int dim = obj.getDimensionality();
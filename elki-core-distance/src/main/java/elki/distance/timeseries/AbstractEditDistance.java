@@ -58,7 +58,7 @@ public abstract class AbstractEditDistance extends AbstractNumberVectorDistance
    * @param dim2 Second dimensionality
    * @return Effective bandsize
    */
-  protected int effectiveBandSize(final int dim1, final int dim2) {
+  public int effectiveBandSize(final int dim1, final int dim2) {
     if(bandSize == Double.POSITIVE_INFINITY) {
       return (dim1 > dim2) ? dim1 : dim2;
     }
@@ -69,6 +69,15 @@ public abstract class AbstractEditDistance extends AbstractNumberVectorDistance
     return (int) Math.ceil((dim1 >= dim2 ? dim1 : dim2) * bandSize);
   }
 
+  /**
+   * Get the band size parameter.
+   *
+   * @return Band size, absolute if at least 1, relative otherwise
+   */
+  public double getBandSize() {
+    return bandSize;
+  }
+
   @Override
   public VectorTypeInformation<? super NumberVector> getInputTypeRestriction() {
     return NumberVector.VARIABLE_LENGTH;
@@ -69,6 +69,27 @@ public class DTWDistance extends AbstractEditDistance {
 
   @Override
   public double distance(NumberVector v1, NumberVector v2) {
+    return distance(v1, v2, Double.POSITIVE_INFINITY);
+  }
+
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
+    return distance(v1, v2, threshold, new double[v2.getDimensionality() << 1]);
+  }
+
+  /**
+   * Compute the distance with early abandoning, using a buffer provided by the
+   * caller to avoid memory allocations when computing many distances.
+   *
+   * @param v1 First vector
+   * @param v2 Second vector
+   * @param threshold Threshold for early abandoning
+   * @param buf Buffer, of at least twice the length of the second vector
+   * @return Distance, or a value larger than the threshold
+   */
+  public double distance(NumberVector v1, NumberVector v2, double threshold, double[] buf) {
+    // Threshold on the squared distances:
+    final double bound = threshold * threshold;
     // Dimensionality, and last valid value in second vector:
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     final int m2 = dim2 - 1;
@@ -80,8 +101,7 @@ public class DTWDistance extends AbstractEditDistance {
       return Double.POSITIVE_INFINITY;
     }
     // Current and previous columns of the matrix
-    double[] buf = new double[dim2 << 1];
-    Arrays.fill(buf, Double.POSITIVE_INFINITY);
+    Arrays.fill(buf, 0, dim2 << 1, Double.POSITIVE_INFINITY);
 
     // Fill first row:
     firstRow(buf, band, v1, v2, dim2);
@@ -91,6 +111,7 @@ public class DTWDistance extends AbstractEditDistance {
     // Fill remaining rows:
     int i = 1, l = 0, r = Math.min(m2, i + band);
     while(i < dim1) {
+      double rowmin = Double.POSITIVE_INFINITY;
       final double val1 = v1.doubleValue(i);
       for(int j = l; j <= r; j++) {
         // Value in previous row (must exist, may be infinite):
@@ -106,7 +127,16 @@ public class DTWDistance extends AbstractEditDistance {
           }
         }
         // Write:
-        buf[nxt + j] = min + delta(val1, v2.doubleValue(j));
+        final double v = min + delta(val1, v2.doubleValue(j));
+        buf[nxt + j] = v;
+        rowmin = v < rowmin ? v : rowmin;
+      }
+      // Every warping path passes through this row, so we can stop early:
+      if(rowmin > bound) {
+        final double dist = FastMath.sqrt(rowmin);
+        if(dist > threshold) {
+          return dist;
+        }
       }
       // Swap buffer positions:
       cur = dim2 - cur;
@@ -125,6 +155,17 @@ public class DTWDistance extends AbstractEditDistance {
     return FastMath.sqrt(buf[cur + dim2 - 1]);
   }
 
+  /**
+   * Get the sequence of values that are aligned by this distance, e.g., for
+   * computing lower bounds.
+   *
+   * @param v Vector
+   * @return Sequence (a copy)
+   */
+  public double[] sequence(NumberVector v) {
+    return v.toArray();
+  }
+
   /**
    * Fill the first row.
    * 
@@ -0,0 +1,153 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.distance.timeseries;
+
+import elki.utilities.documentation.Reference;
+
+/**
+ * Lower bounds for (squared) dynamic time warping with a Sakoe-Chiba band,
+ * for pruning in similarity search.
+ * <p>
+ * All bounds are on the <em>squared</em> distance, as computed by
+ * {@link DTWDistance} before taking the square root.
+ * <p>
+ * Reference:
+ * <p>
+ * S.-W. Kim, S. Park, W. W. Chu<br>
+ * An index-based approach for similarity search supporting time warping in
+ * large sequence databases<br>
+ * Proc. 17th Int. Conf. on Data Engineering (ICDE 2001)
+ * <p>
+ * E. Keogh<br>
+ * Exact indexing of dynamic time warping<br>
+ * Proc. 28th Int. Conf. on Very Large Data Bases (VLDB 2002)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@Reference(authors = "S.-W. Kim, S. Park, W. W. Chu", //
+    title = "An index-based approach for similarity search supporting time warping in large sequence databases", //
+    booktitle = "Proc. 17th Int. Conf. on Data Engineering (ICDE 2001)", //
+    url = "https://doi.org/10.1109/ICDE.2001.914875", //
+    bibkey = "DBLP:conf/icde/KimPC01")
+@Reference(authors = "E. Keogh", //
+    title = "Exact indexing of dynamic time warping", //
+    booktitle = "Proc. 28th Int. Conf. on Very Large Data Bases (VLDB 2002)", //
+    url = "https://doi.org/10.1016/B978-155860869-6/50043-3", //
+    bibkey = "DBLP:conf/vldb/Keogh02")
+public final class DTWLowerBounds {
+  /**
+   * Fake constructor for static class.
+   */
+  private DTWLowerBounds() {
+    // Static methods only - do not instantiate!
+  }
+
+  /**
+   * Compute the upper and lower envelope of a sequence, i.e., the maximum and
+   * minimum within a window of radius w around each position, in linear time.
+   *
+   * @param s Sequence
+   * @param w Window radius (band size)
+   * @param upper Output upper envelope, of at least the length of s
+   * @param lower Output lower envelope, of at least the length of s
+   */
+  @Reference(authors = "D. Lemire", //
+      title = "Faster retrieval with a two-pass dynamic-time-warping lower bound", //
+      booktitle = "Pattern Recognition 42(9)", //
+      url = "https://doi.org/10.1016/j.patcog.2008.11.030", //
+      bibkey = "DBLP:journals/pr/Lemire09")
+  public static void envelope(double[] s, int w, double[] upper, double[] lower) {
+    final int n = s.length;
+    w = w < n ? w : n;
+    // Monotone queues of positions, each position is added only once:
+    int[] uq = new int[n], lq = new int[n];
+    int uh = 0, ut = 0, lh = 0, lt = 0;
+    for(int i = 0, c = -w; c < n; i++, c++) {
+      if(i < n) {
+        final double v = s[i];
+        while(ut > uh && s[uq[ut - 1]] <= v) {
+          --ut;
+        }
+        uq[ut++] = i;
+        while(lt > lh && s[lq[lt - 1]] >= v) {
+          --lt;
+        }
+        lq[lt++] = i;
+      }
+      if(c >= 0) {
+        // Drop positions that left the window:
+        while(uq[uh] < c - w) {
+          ++uh;
+        }
+        while(lq[lh] < c - w) {
+          ++lh;
+        }
+        upper[c] = s[uq[uh]];
+        lower[c] = s[lq[lh]];
+      }
+    }
+  }
+
+  /**
+   * LB_Kim lower bound, using the first and last elements only, which every
+   * warping path must align.
+   *
+   * @param q First sequence
+   * @param c Second sequence
+   * @return Lower bound of the squared DTW distance
+   */
+  public static double lbKim(double[] q, double[] c) {
+    final double d0 = q[0] - c[0];
+    if(q.length == 1 && c.length == 1) {
+      return d0 * d0;
+    }
+    final double dn = q[q.length - 1] - c[c.length - 1];
+    return d0 * d0 + dn * dn;
+  }
+
+  /**
+   * LB_Keogh lower bound of a sequence to the envelope of another sequence of
+   * the same length, with early abandoning.
+   *
+   * @param c Sequence
+   * @param upper Upper envelope of the other sequence
+   * @param lower Lower envelope of the other sequence
+   * @param bound Threshold for early abandoning
+   * @return Lower bound of the squared DTW distance, or a value larger than
+   *         the threshold
+   */
+  public static double lbKeogh(double[] c, double[] upper, double[] lower, double bound) {
+    double agg = 0.;
+    for(int i = 0; i < c.length;) {
+      // Check the threshold only every 16 values:
+      for(final int end = i + 16 < c.length ? i + 16 : c.length; i < end; i++) {
+        final double v = c[i], u = upper[i], l = lower[i];
+        final double d = v > u ? v - u : v < l ? l - v : 0.;
+        agg += d * d;
+      }
+      if(agg > bound) {
+        return agg;
+      }
+    }
+    return agg;
+  }
+}
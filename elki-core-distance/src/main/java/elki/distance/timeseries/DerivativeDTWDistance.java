@@ -63,7 +63,9 @@ public class DerivativeDTWDistance extends DTWDistance {
   }
 
   @Override
-  public double distance(NumberVector v1, NumberVector v2) {
+  public double distance(NumberVector v1, NumberVector v2, double threshold, double[] buf) {
+    // Threshold on the squared distances:
+    final double bound = threshold * threshold;
     // Dimensionality, and last valid value in second vector:
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     final int m2 = dim2 - 1;
@@ -75,8 +77,7 @@ public class DerivativeDTWDistance extends DTWDistance {
       return Double.POSITIVE_INFINITY;
     }
     // Current and previous columns of the matrix
-    double[] buf = new double[dim2 << 1];
-    Arrays.fill(buf, Double.POSITIVE_INFINITY);
+    Arrays.fill(buf, 0, dim2 << 1, Double.POSITIVE_INFINITY);
 
     // Fill first row:
     firstRow(buf, band, v1, v2, dim2);
@@ -86,6 +87,7 @@ public class DerivativeDTWDistance extends DTWDistance {
     // Fill remaining rows:
     int i = 1, l = 0, r = Math.min(m2, i + band);
     while(i < dim1) {
+      double rowmin = Double.POSITIVE_INFINITY;
       final double val1 = derivative(i, v1);
       for(int j = l; j <= r; j++) {
         // Value in previous row (must exist, may be infinite):
@@ -101,7 +103,16 @@ public class DerivativeDTWDistance extends DTWDistance {
           }
         }
         // Write:
-        buf[nxt + j] = min + delta(val1, derivative(j, v2));
+        final double v = min + delta(val1, derivative(j, v2));
+        buf[nxt + j] = v;
+        rowmin = v < rowmin ? v : rowmin;
+      }
+      // Every warping path passes through this row, so we can stop early:
+      if(rowmin > bound) {
+        final double dist = FastMath.sqrt(rowmin);
+        if(dist > threshold) {
+          return dist;
+        }
       }
       // Swap buffer positions:
       cur = dim2 - cur;
@@ -120,6 +131,16 @@ public class DerivativeDTWDistance extends DTWDistance {
     return FastMath.sqrt(buf[cur + dim2 - 1]);
   }
 
+  @Override
+  public double[] sequence(NumberVector v) {
+    final int dim = v.getDimensionality();
+    double[] seq = new double[dim];
+    for(int i = 0; i < dim; i++) {
+      seq[i] = derivative(i, v);
+    }
+    return seq;
+  }
+
   @Override
   protected void firstRow(double[] buf, int band, NumberVector v1, NumberVector v2, int dim2) {
     // First cell:
@@ -66,7 +66,7 @@ public class EDRDistance extends DTWDistance {
   }
 
   @Override
-  public double distance(NumberVector v1, NumberVector v2) {
+  public double distance(NumberVector v1, NumberVector v2, double threshold, double[] buf) {
     // Dimensionality, and last valid value in second vector:
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
 
@@ -77,8 +77,7 @@ public class EDRDistance extends DTWDistance {
       return Double.POSITIVE_INFINITY;
     }
     // Current and previous columns of the matrix
-    double[] buf = new double[dim2 << 1];
-    Arrays.fill(buf, Double.POSITIVE_INFINITY);
+    Arrays.fill(buf, 0, dim2 << 1, Double.POSITIVE_INFINITY);
 
     // Fill first row:
     firstRow(buf, band, v1, v2, dim2);
@@ -89,6 +88,7 @@ public class EDRDistance extends DTWDistance {
     // Fill remaining rows:
     int i = 1, l = 0, r = Math.min(m2, i + band);
     while(i < dim1) {
+      double rowmin = Double.POSITIVE_INFINITY;
       final double val1 = v1.doubleValue(i);
       for(int j = l; j <= r; j++) {
         // Value in previous row (must exist, may be infinite):
@@ -104,7 +104,13 @@ public class EDRDistance extends DTWDistance {
           }
         }
         // Write:
-        buf[nxt + j] = min + delta(val1, v2.doubleValue(j));
+        final double v = min + delta(val1, v2.doubleValue(j));
+        buf[nxt + j] = v;
+        rowmin = v < rowmin ? v : rowmin;
+      }
+      // Every warping path passes through this row, so we can stop early:
+      if(rowmin > threshold) {
+        return rowmin;
       }
       // Swap buffer positions:
       cur = dim2 - cur;
@@ -66,7 +66,9 @@ public class ERPDistance extends DTWDistance {
   }
 
   @Override
-  public double distance(NumberVector v1, NumberVector v2) {
+  public double distance(NumberVector v1, NumberVector v2, double threshold, double[] buf) {
+    // Threshold on the squared distances:
+    final double bound = threshold * threshold;
     // Dimensionality, and last valid value in second vector:
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     final int m2 = dim2 - 1;
@@ -78,8 +80,7 @@ public class ERPDistance extends DTWDistance {
       return Double.POSITIVE_INFINITY;
     }
     // Current and previous columns of the matrix
-    double[] buf = new double[dim2 << 1];
-    Arrays.fill(buf, Double.POSITIVE_INFINITY);
+    Arrays.fill(buf, 0, dim2 << 1, Double.POSITIVE_INFINITY);
 
     // Fill first row:
     firstRow(buf, band, v1, v2, dim2);
@@ -89,6 +90,7 @@ public class ERPDistance extends DTWDistance {
     // Fill remaining rows:
     int i = 1, l = 0, r = Math.min(m2, i + band);
     while(i < dim1) {
+      double rowmin = Double.POSITIVE_INFINITY;
       final double val1 = v1.doubleValue(i);
       for(int j = l; j <= r; j++) {
         // Value in previous row (must exist, may be infinite):
@@ -105,6 +107,14 @@ public class ERPDistance extends DTWDistance {
         }
         // Write:
         buf[nxt + j] = min;
+        rowmin = min < rowmin ? min : rowmin;
+      }
+      // Every warping path passes through this row, so we can stop early:
+      if(rowmin > bound) {
+        final double dist = FastMath.sqrt(rowmin);
+        if(dist > threshold) {
+          return dist;
+        }
       }
       // Swap buffer positions:
       cur = dim2 - cur;
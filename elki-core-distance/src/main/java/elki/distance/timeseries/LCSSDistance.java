@@ -78,9 +78,14 @@ public class LCSSDistance extends AbstractNumberVectorDistance {
 
   @Override
   public double distance(NumberVector v1, NumberVector v2) {
+    return distance(v1, v2, Double.POSITIVE_INFINITY);
+  }
+
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double threshold) {
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     if(dim1 > dim2) {
-      return distance(v2, v1);
+      return distance(v2, v1, threshold);
     }
     final int delta = (int) Math.ceil(dim2 * pDelta);
 
@@ -89,6 +94,8 @@ public class LCSSDistance extends AbstractNumberVectorDistance {
 
     double[] curr = new double[dim2 + 1], next = new double[dim2 + 1];
 
+    // Largest value computed so far, for early abandoning:
+    double best = 0.;
     for(int i = 0; i < dim1; i++) {
       final double ai = v1.doubleValue(i);
       for(int j = Math.max(0, i - delta); j <= Math.min(dim2 - 1, i + delta); j++) {
@@ -102,6 +109,12 @@ public class LCSSDistance extends AbstractNumberVectorDistance {
         else { // del
           next[j + 1] = next[j];
         }
+        best = next[j + 1] > best ? next[j + 1] : best;
+      }
+      // Each remaining row can extend the subsequence by at most one:
+      final double lower = 1. - (best + dim1 - 1 - i) / dim1;
+      if(lower > threshold) {
+        return lower;
       }
       // Swap
       double[] tmp = curr;
@@ -219,6 +219,62 @@ public abstract class AbstractDistanceTest {
     assertEquals("Distances not same", ref.minDist(v1, v2), test.minDist(v1, v2), tol);
   }
 
+  /**
+   * Check that the bulk distances agree with the pairwise distances, including
+   * vectors of different length.
+   *
+   * @param dist Distance function to check
+   */
+  public static void assertBulkConsistency(BulkDistance dist) {
+    final Random rnd = new FastNonThreadsafeRandom(2);
+    double[][] block = new double[20][];
+    for(int i = 0; i < block.length; i++) {
+      // Mostly 13 dimensions, to exercise the unrolled loops; some 12.
+      block[i] = new double[i % 7 == 6 ? 12 : 13];
+      for(int d = 0; d < block[i].length; d++) {
+        block[i][d] = rnd.nextDouble() - .3;
+      }
+    }
+    double[] out = new double[block.length];
+    for(int q = 0; q < 3; q++) {
+      final double[] query = block[q];
+      dist.distances(query, block, block.length, out);
+      for(int i = 0; i < block.length; i++) {
+        final double expect = dist.distance(DoubleVector.wrap(query), DoubleVector.wrap(block[i]));
+        assertEquals("Bulk distance differs", expect, out[i], 1e-14 * (1 + expect));
+      }
+    }
+  }
+
+  /**
+   * Check that the early abandoning distance agrees with the full distance
+   * whenever the threshold is not exceeded.
+   *
+   * @param dist Distance function to check
+   * @param dim Dimensionality
+   */
+  public static void assertEarlyAbandoning(PrimitiveDistance<? super NumberVector> dist, int dim) {
+    final Random rnd = new FastNonThreadsafeRandom(3);
+    for(int i = 0; i < 20; i++) {
+      double[] a = new double[dim], b = new double[dim];
+      for(int d = 0; d < dim; d++) {
+        a[d] = rnd.nextDouble();
+        b[d] = rnd.nextDouble();
+      }
+      final DoubleVector v1 = DoubleVector.wrap(a), v2 = DoubleVector.wrap(b);
+      final double full = dist.distance(v1, v2);
+      for(double t : new double[] { 0., full * .1, full * .5, Math.nextDown(full), full, full * 2, Double.POSITIVE_INFINITY }) {
+        final double d = dist.distance(v1, v2, t);
+        if(full <= t) {
+          assertEquals("Early abandoning distance differs", full, d, 0.);
+        }
+        else {
+          assertTrue("Early abandoning distance not above threshold", d > t);
+        }
+      }
+    }
+  }
+
   /**
    * MBR consistency check, around 0.
    *
@@ -36,6 +36,7 @@ public class CosineDistanceTest extends AbstractDistanceTest {
     // Also test the builder - we could have just used .STATIC
     CosineDistance dist = new ELKIBuilder<>(CosineDistance.class).build();
     basicChecks(dist);
+    assertBulkConsistency(dist);
     // Note: some of these are not well defined, as we have zero vectors.
     assertVaryingLengthBasic(dist, new double[] { 1, 1, 1, 1, 1, 1 }, 0);
     assertNonnegativeSpatialConsistency(dist);
@@ -40,6 +40,7 @@ public class KolmogorovSmirnovDistanceTest extends AbstractDistanceTest {
     // Also test the builder - we could have just used .STATIC
     KolmogorovSmirnovDistance dist = new ELKIBuilder<>(KolmogorovSmirnovDistance.class).build();
     basicChecks(dist);
+    assertEarlyAbandoning(dist, 40);
     double[] v1 = { .2, .2, .2, .2, .2 }; // uniform
     double[] v2 = { 0, 0, 1, 0, 0 }; // point
     double[] v3 = { 1, 0, 0, 0, 0 }; // point
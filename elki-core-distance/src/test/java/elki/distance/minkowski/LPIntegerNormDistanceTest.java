@@ -43,6 +43,7 @@ public class LPIntegerNormDistanceTest extends AbstractDistanceTest {
         .build();
     assertSame("Subtyped", LPIntegerNormDistance.class, dist.getClass());
     basicChecks(dist);
+    assertEarlyAbandoning(dist, 40);
     assertVaryingLengthBasic(dist, new double[] { 1, 0, 1, 1, FastMath.pow(2, 1. / 3), 1 }, 0);
     assertSpatialConsistency(dist);
     assertNonnegativeSpatialConsistency(dist);
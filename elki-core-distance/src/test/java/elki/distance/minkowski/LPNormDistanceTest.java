@@ -46,6 +46,8 @@ public class LPNormDistanceTest extends AbstractDistanceTest {
     assertSame("Subtyped", LPNormDistance.class, dist.getClass());
     assertFalse("Not metric", dist.isMetric());
     basicChecks(dist);
+    assertEarlyAbandoning(dist, 40);
+    assertBulkConsistency(dist);
     assertVaryingLengthBasic(dist, new double[] { 1, 0, 1, 1, 4, 1 }, 0);
     assertSpatialConsistency(dist);
     assertNonnegativeSpatialConsistency(dist);
@@ -55,6 +57,7 @@ public class LPNormDistanceTest extends AbstractDistanceTest {
     assertSame("Not optimized", LPIntegerNormDistance.class, dist.getClass());
     assertTrue("Not metric", dist.isMetric());
     basicChecks(dist);
+    assertEarlyAbandoning(dist, 40);
     assertVaryingLengthBasic(dist, new double[] { 1, 0, 1, 1, FastMath.pow(2, 1. / 3), 1 }, 0);
     assertSpatialConsistency(dist);
     assertNonnegativeSpatialConsistency(dist);
@@ -39,6 +39,8 @@ public class SquaredEuclideanDistanceTest extends AbstractDistanceTest {
     // Also test the builder - we could have just used .STATIC
     SquaredEuclideanDistance dist = new ELKIBuilder<>(SquaredEuclideanDistance.class).build();
     basicChecks(dist);
+    assertEarlyAbandoning(dist, 40);
+    assertBulkConsistency(dist);
     assertVaryingLengthBasic(dist, new double[] { 1, 0, 1, 1, 2, 1 }, 0);
     assertSpatialConsistency(dist);
     assertNonnegativeSpatialConsistency(dist);
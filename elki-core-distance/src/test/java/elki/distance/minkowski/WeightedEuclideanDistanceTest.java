@@ -43,6 +43,7 @@ public class WeightedEuclideanDistanceTest extends AbstractDistanceTest {
         .with(WeightedNumberVectorDistance.WEIGHTS_ID, MathUtil.randomDoubleArray(TEST_DIM, new Random(0L))) //
         .build();
     basicChecks(dist);
+    assertEarlyAbandoning(dist, TEST_DIM);
     assertSpatialConsistency(dist);
     assertNonnegativeSpatialConsistency(dist);
   }
@@ -48,6 +48,7 @@ public class WeightedLPNormDistanceTest extends AbstractDistanceTest {
         .build();
     assertFalse("Not metric", dist.isMetric());
     basicChecks(dist);
+    assertEarlyAbandoning(dist, TEST_DIM);
     assertSpatialConsistency(dist);
     assertNonnegativeSpatialConsistency(dist);
     dist = new ELKIBuilder<>(WeightedLPNormDistance.class) //
@@ -56,6 +57,7 @@ public class WeightedLPNormDistanceTest extends AbstractDistanceTest {
         .build();
     assertTrue("Not metric", dist.isMetric());
     basicChecks(dist);
+    assertEarlyAbandoning(dist, TEST_DIM);
     assertSpatialConsistency(dist);
     assertNonnegativeSpatialConsistency(dist);
   }
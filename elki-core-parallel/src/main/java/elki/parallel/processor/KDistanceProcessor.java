@@ -104,7 +104,8 @@ public class KDistanceProcessor extends AbstractDoubleProcessor {
 
     @Override
     public void map(DBIDRef id) {
-      output.set(input.get().doubleValue(k - 1));
+      final KNNList knn = input.get();
+      output.set(knn.size() >= k ? knn.doubleValue(k - 1) : Double.POSITIVE_INFINITY);
     }
   }
 }
@@ -23,6 +23,8 @@ package elki.parallel.processor;
 import java.util.function.Supplier;
 
 import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.KNNHeap;
 import elki.database.ids.KNNList;
 import elki.database.query.knn.KNNSearcher;
 import elki.parallel.Executor;
@@ -107,6 +109,11 @@ public class KNNProcessor implements Processor {
      */
     SharedObject.Instance<KNNList> out;
 
+    /**
+     * kNN heap, reused for each query of this thread.
+     */
+    KNNHeap heap;
+
     /**
      * Constructor.
      * 
@@ -119,11 +126,13 @@ public class KNNProcessor implements Processor {
       this.k = k;
       this.knnq = knnq;
       this.out = out;
+      this.heap = DBIDUtil.newHeap(k);
     }
 
     @Override
     public void map(DBIDRef id) {
-      out.set(knnq.getKNN(id, k));
+      heap.clear();
+      out.set(knnq.getKNN(id, heap).toKNNList());
     }
   }
 }
@@ -0,0 +1,345 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.utilities.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.regex.Pattern;
+
+import elki.logging.Logging;
+import elki.utilities.datastructures.iterator.Iter;
+
+/**
+ * Tokenizer for byte input, with a single character as column separator.
+ * <p>
+ * This avoids both the decoding of the input into characters and the regular
+ * expression matching of the {@link Tokenizer}, and parses numbers directly
+ * from the bytes. Only tokens used as strings are decoded. This requires a
+ * character set where ASCII characters are encoded as single bytes, such as
+ * UTF-8.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ByteTokenizer implements Iter {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ByteTokenizer.class);
+
+  /**
+   * Column separator.
+   */
+  private byte separator;
+
+  /**
+   * Stores the quotation character
+   */
+  private byte[] quoteChars;
+
+  /**
+   * Character set for decoding strings.
+   */
+  private Charset charset;
+
+  /**
+   * Data currently processed.
+   */
+  private byte[] input;
+
+  /**
+   * Substring to process.
+   */
+  private int send;
+
+  /**
+   * Current positions of result and iterator.
+   */
+  private int start, end, index;
+
+  /**
+   * Whether the current token is a quoted string.
+   */
+  private boolean quoted;
+
+  /**
+   * Constructor.
+   *
+   * @param separator Column separator, must be an ASCII character
+   * @param quoteChars Quotation characters, must be ASCII characters
+   * @param charset Character set to decode strings
+   */
+  public ByteTokenizer(char separator, String quoteChars, Charset charset) {
+    super();
+    assert (separator < 0x80) : "Separator must be an ASCII character.";
+    this.separator = (byte) separator;
+    this.quoteChars = new byte[quoteChars != null ? quoteChars.length() : 0];
+    for(int i = 0; i < this.quoteChars.length; i++) {
+      assert (quoteChars.charAt(i) < 0x80) : "Quote characters must be ASCII characters.";
+      this.quoteChars[i] = (byte) quoteChars.charAt(i);
+    }
+    this.charset = charset;
+  }
+
+  /**
+   * Constructor, using the default character set.
+   *
+   * @param separator Column separator, must be an ASCII character
+   * @param quoteChars Quotation characters, must be ASCII characters
+   */
+  public ByteTokenizer(char separator, String quoteChars) {
+    this(separator, quoteChars, Charset.defaultCharset());
+  }
+
+  /**
+   * Get the separator character, if the pattern matches exactly a single
+   * ASCII character (other than line breaks).
+   *
+   * @param colSep Column separator pattern
+   * @return Separator character, or -1
+   */
+  public static int literalSeparator(Pattern colSep) {
+    final String p = colSep.pattern();
+    if((colSep.flags() & Pattern.LITERAL) != 0) {
+      return colSep.flags() == Pattern.LITERAL && p.length() == 1 ? validSeparator(p.charAt(0)) : -1;
+    }
+    if(colSep.flags() != 0) {
+      return -1;
+    }
+    if(p.length() == 1) {
+      return ".$^|?*+()[{\\".indexOf(p.charAt(0)) < 0 ? validSeparator(p.charAt(0)) : -1;
+    }
+    if(p.length() == 2 && p.charAt(0) == '\\') {
+      final char c = p.charAt(1);
+      return c == 't' ? '\t' : c == 'f' ? '\f' : //
+          (c < 0x80 && !Character.isLetterOrDigit(c)) ? validSeparator(c) : -1;
+    }
+    return -1;
+  }
+
+  /**
+   * Check that a character is usable as separator.
+   *
+   * @param c Character
+   * @return Character, or -1
+   */
+  private static int validSeparator(char c) {
+    return c < 0x80 && c != '\n' && c != '\r' ? c : -1;
+  }
+
+  /**
+   * Initialize parser with new data.
+   *
+   * @param input New data to parse.
+   * @param begin Begin
+   * @param end End
+   */
+  public void initialize(byte[] input, int begin, int end) {
+    this.input = input;
+    this.send = end;
+    this.index = begin;
+    advance();
+  }
+
+  /**
+   * Initialize parser with the remaining data of a buffer. Token positions
+   * refer to the backing array, if the buffer has one, and to a copy
+   * otherwise.
+   *
+   * @param buffer New data to parse.
+   */
+  public void initialize(ByteBuffer buffer) {
+    if(buffer.hasArray()) {
+      final int off = buffer.arrayOffset();
+      initialize(buffer.array(), off + buffer.position(), off + buffer.limit());
+      return;
+    }
+    byte[] copy = new byte[buffer.remaining()];
+    buffer.duplicate().get(copy);
+    initialize(copy, 0, copy.length);
+  }
+
+  @Override
+  public boolean valid() {
+    return start < send;
+  }
+
+  @Override
+  public ByteTokenizer advance() {
+    final byte inquote = isQuote(index);
+    for(int pos = index; pos < send; pos++) {
+      if(input[pos] != separator) {
+        continue;
+      }
+      // Quoted code path vs. regular code path
+      if(inquote != 0) {
+        // Matching closing quote found?
+        if(pos > index + 1 && input[pos - 1] == inquote) {
+          this.start = index + 1;
+          this.end = pos - 1;
+          this.index = pos + 1;
+          this.quoted = true;
+          return this;
+        }
+      }
+      else {
+        this.start = index;
+        this.end = pos;
+        this.index = pos + 1;
+        this.quoted = false;
+        return this;
+      }
+    }
+    // Add tail after last separator.
+    this.start = index;
+    this.end = send;
+    this.index = end + 1;
+    this.quoted = false;
+    if(inquote != 0) {
+      if(input[send - 1] == inquote) {
+        ++this.start;
+        --this.end;
+        this.quoted = true;
+      }
+      else {
+        LOG.warning("Invalid quoted line in input: no closing quote found in: " + new String(input, start, send - start, charset));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Get the current part as substring
+   *
+   * @return Current value as substring.
+   */
+  public String getSubstring() {
+    return new String(input, start, end - start, charset);
+  }
+
+  /**
+   * Get the current part as substring, without leading and trailing
+   * whitespace.
+   *
+   * @return Current value as substring.
+   */
+  public String getStrippedSubstring() {
+    int sstart = start, ssend = end;
+    while(sstart < ssend && isWhitespace(input[sstart])) {
+      ++sstart;
+    }
+    while(ssend > sstart && isWhitespace(input[ssend - 1])) {
+      --ssend;
+    }
+    return (sstart < ssend) ? new String(input, sstart, ssend - sstart, charset) : "";
+  }
+
+  /**
+   * Test for whitespace.
+   *
+   * @param c Byte
+   * @return {@code true} for whitespace
+   */
+  private static boolean isWhitespace(byte c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  /**
+   * Get current value as double.
+   *
+   * @return double value
+   * @throws NumberFormatException when current value cannot be parsed as double
+   */
+  public double getDouble() {
+    return ParseUtil.parseDouble(input, start, end);
+  }
+
+  /**
+   * Test for empty tokens; usually at end of line.
+   *
+   * @return Empty
+   */
+  public boolean isEmpty() {
+    return end <= start;
+  }
+
+  /**
+   * Detect quote characters.
+   *
+   * @param index Position
+   * @return Quote character, {@code 0} otherwise.
+   */
+  private byte isQuote(int index) {
+    if(index >= send) {
+      return 0;
+    }
+    final byte c = input[index];
+    for(int i = 0; i < quoteChars.length; i++) {
+      if(c == quoteChars[i]) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Test if the current string was quoted.
+   *
+   * @return {@code true} when quoted.
+   */
+  public boolean isQuoted() {
+    return quoted;
+  }
+
+  /**
+   * Get start of token.
+   *
+   * @return Start
+   */
+  public int getStart() {
+    return start;
+  }
+
+  /**
+   * Get end of token.
+   *
+   * @return End
+   */
+  public int getEnd() {
+    return end;
+  }
+
+  /**
+   * Get length of token.
+   *
+   * @return Token length
+   */
+  public int getLength() {
+    return end - start;
+  }
+
+  /**
+   * Perform cleanup.
+   */
+  public void cleanup() {
+    input = null;
+  }
+}
@@ -189,7 +189,7 @@ public final class FileUtil {
     }
     // Mark is supported.
     in.mark(16);
-    boolean isgzip = ((in.read() << 8) | in.read()) == GZIPInputStream.GZIP_MAGIC;
+    boolean isgzip = (in.read() | (in.read() << 8)) == GZIPInputStream.GZIP_MAGIC;
     in.reset(); // Rewind
     return isgzip ? new GZIPInputStream(in) : in;
   }
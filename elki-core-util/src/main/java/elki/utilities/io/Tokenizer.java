@@ -166,14 +166,14 @@ public class Tokenizer implements Iter {
     int sstart = start, ssend = end;
     while(sstart < ssend) {
       char c = input.charAt(sstart);
-      if(c != ' ' || c != '\n' || c != '\r' || c != '\t') {
+      if(c != ' ' && c != '\n' && c != '\r' && c != '\t') {
         break;
       }
       ++sstart;
     }
     while(--ssend >= sstart) {
       char c = input.charAt(ssend);
-      if(c != ' ' || c != '\n' || c != '\r' || c != '\t') {
+      if(c != ' ' && c != '\n' && c != '\r' && c != '\t') {
         break;
       }
     }
@@ -0,0 +1,136 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.utilities.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the byte tokenizer.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ByteTokenizerTest {
+  ByteTokenizer t = new ByteTokenizer(',', "\"'", StandardCharsets.UTF_8);
+
+  @Test
+  public void testSimple() {
+    tokenizerTest("1,-234,3.1415,-,banana", 1., -234., 3.1415, "-", "banana");
+  }
+
+  @Test
+  public void testQuotes() {
+    tokenizerTest("'this,is',\"a test\",'123','123,456',\"bana', na\"", "this,is", "a test", 123., "123,456", "bana', na");
+  }
+
+  @Test
+  public void testSpecials() {
+    tokenizerTest("nan,inf,-∞,NaN,infinity,NA", Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, Double.POSITIVE_INFINITY, Double.NaN);
+  }
+
+  @Test
+  public void testEmpty() {
+    tokenizerTest("");
+  }
+
+  @Test
+  public void testLineEnd() {
+    tokenizerTest("1,", 1.);
+  }
+
+  @Test
+  public void testEmptyFields() {
+    tokenizerTest(",1,,x ä ", "", 1., "", "x ä ");
+  }
+
+  @Test
+  public void testPartial() {
+    byte[] input = "abc1def".getBytes(StandardCharsets.UTF_8);
+    t.initialize(input, 3, 4);
+    tokenizerTest(new Object[] { 1. });
+    t.initialize(ByteBuffer.wrap(input, 3, 1).slice());
+    tokenizerTest(new Object[] { 1. });
+    ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+    direct.put(input).position(3).limit(4);
+    t.initialize(direct);
+    tokenizerTest(new Object[] { 1. });
+  }
+
+  @Test
+  public void testStripped() {
+    t.initialize(" a b\t,c".getBytes(StandardCharsets.UTF_8), 0, 7);
+    assertEquals("a b", t.getStrippedSubstring());
+    assertEquals(" a b\t", t.getSubstring());
+  }
+
+  @Test
+  public void testLiteralSeparator() {
+    assertEquals(',', ByteTokenizer.literalSeparator(Pattern.compile(",")));
+    assertEquals('\t', ByteTokenizer.literalSeparator(Pattern.compile("\\t")));
+    assertEquals('\t', ByteTokenizer.literalSeparator(Pattern.compile("\t")));
+    assertEquals('|', ByteTokenizer.literalSeparator(Pattern.compile("\\|")));
+    assertEquals('.', ByteTokenizer.literalSeparator(Pattern.compile(".", Pattern.LITERAL)));
+    assertEquals(-1, ByteTokenizer.literalSeparator(Pattern.compile(".")));
+    assertEquals(-1, ByteTokenizer.literalSeparator(Pattern.compile("\\s")));
+    assertEquals(-1, ByteTokenizer.literalSeparator(Pattern.compile(",,")));
+    assertEquals(-1, ByteTokenizer.literalSeparator(Pattern.compile("\\s*[,;\\s]\\s*")));
+    assertEquals(-1, ByteTokenizer.literalSeparator(Pattern.compile("ä")));
+  }
+
+  private void tokenizerTest(String input, Object... expect) {
+    byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+    t.initialize(bytes, 0, bytes.length);
+    tokenizerTest(expect);
+  }
+
+  private void tokenizerTest(Object[] expect) {
+    for(int i = 0; i < expect.length; i++, t.advance()) {
+      assertTrue("Tokenizer stopped early.", t.valid());
+      Object e = expect[i];
+      if(e instanceof String) {
+        try {
+          double val = t.getDouble();
+          fail("The value " + t.getSubstring() + " was expected to be not parseable as double, but returned: " + val);
+        }
+        catch(NumberFormatException ex) {
+          // pass. this is expected to fail.
+        }
+        assertEquals("String parsing failed.", (String) e, t.getSubstring());
+      }
+      if(e instanceof Double) {
+        // Note: this also works for NaNs, they are treated special.
+        assertEquals("Double parsing failed.", (double) e, t.getDouble(), Double.MIN_VALUE);
+      }
+    }
+    if(t.valid()) {
+      assertFalse("Spurous data after expected end: " + t.getSubstring(), t.valid());
+    }
+  }
+}
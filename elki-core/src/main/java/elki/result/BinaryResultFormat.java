@@ -0,0 +1,371 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.result;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import elki.database.ids.DBID;
+import elki.database.ids.DBIDRange;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DBIDs;
+import elki.utilities.exceptions.AbortException;
+import elki.utilities.io.ByteArrayUtil;
+
+/**
+ * Compact binary format for exporting results, for downstream systems and
+ * for loading the results back quickly.
+ * <p>
+ * Files consist of a sequence of records, each starting with a magic number
+ * identifying the record type, followed by column-oriented data. All values
+ * are stored in little-endian byte order; DBIDs are stored as 32 bit integers,
+ * as in the text output. Results can therefore only be loaded into a database
+ * with the same DBIDs, which is verified when reading.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public final class BinaryResultFormat {
+  /**
+   * Magic number of clustering records.
+   */
+  public static final int CLUSTERING_MAGIC = 0xe1c1b001;
+
+  /**
+   * Magic number of score records.
+   */
+  public static final int SCORES_MAGIC = 0xe1c1b002;
+
+  /**
+   * Magic number of kNN list records.
+   */
+  public static final int KNN_MAGIC = 0xe1c1b003;
+
+  /**
+   * Buffer size.
+   */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /**
+   * Fake constructor: do not instantiate.
+   */
+  private BinaryResultFormat() {
+    // Do not instantiate.
+  }
+
+  /**
+   * Get the local file, if it is in binary result format.
+   *
+   * @param file File
+   * @return Path, or {@code null} if not a local file in binary result format
+   * @throws IOException on IO errors
+   */
+  public static Path binaryFile(URI file) throws IOException {
+    if(!"file".equals(file.getScheme())) {
+      return null;
+    }
+    Path path = Paths.get(file);
+    if(!Files.isRegularFile(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path)) {
+      ByteBuffer buf = ByteBuffer.allocate(ByteArrayUtil.SIZE_INT).order(ByteOrder.LITTLE_ENDIAN);
+      while(buf.hasRemaining() && channel.read(buf) >= 0) {
+        // Continue reading.
+      }
+      if(buf.hasRemaining()) {
+        return null;
+      }
+      final int magic = buf.getInt(0);
+      return magic == CLUSTERING_MAGIC || magic == SCORES_MAGIC || magic == KNN_MAGIC ? path : null;
+    }
+  }
+
+  /**
+   * Prepare the objects of the database for validating the stored DBIDs with
+   * {@link Input#getDBID}.
+   *
+   * @param ids Objects of the database
+   * @return Objects, with efficient containment tests
+   */
+  public static DBIDs validIDs(DBIDs ids) {
+    return ids instanceof DBIDRange ? ids : DBIDUtil.ensureSet(ids);
+  }
+
+  /**
+   * Buffered output of a binary result file.
+   *
+   * @author Erich Schubert
+   */
+  public static class Output implements Closeable {
+    /**
+     * Output channel.
+     */
+    private FileChannel channel;
+
+    /**
+     * Output buffer.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Constructor.
+     *
+     * @param file Output file
+     * @param append Append to an existing file
+     * @throws IOException on IO errors
+     */
+    public Output(Path file, boolean append) throws IOException {
+      OpenOption[] opts = append //
+          ? new OpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND } //
+          : new OpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING };
+      this.channel = FileChannel.open(file, opts);
+    }
+
+    /**
+     * Ensure there is enough space in the buffer.
+     *
+     * @param bytes Number of bytes needed
+     * @throws IOException on IO errors
+     */
+    private void ensure(int bytes) throws IOException {
+      if(buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    /**
+     * Write the buffer to the channel.
+     *
+     * @throws IOException on IO errors
+     */
+    private void flush() throws IOException {
+      buffer.flip();
+      while(buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    /**
+     * Write an integer.
+     *
+     * @param v Value
+     * @return this
+     * @throws IOException on IO errors
+     */
+    public Output putInt(int v) throws IOException {
+      ensure(ByteArrayUtil.SIZE_INT);
+      buffer.putInt(v);
+      return this;
+    }
+
+    /**
+     * Write a double.
+     *
+     * @param v Value
+     * @return this
+     * @throws IOException on IO errors
+     */
+    public Output putDouble(double v) throws IOException {
+      ensure(ByteArrayUtil.SIZE_DOUBLE);
+      buffer.putDouble(v);
+      return this;
+    }
+
+    /**
+     * Write a string, as length and UTF-8 bytes. {@code null} is stored as
+     * length -1.
+     *
+     * @param s String
+     * @return this
+     * @throws IOException on IO errors
+     */
+    public Output putString(String s) throws IOException {
+      if(s == null) {
+        return putInt(-1);
+      }
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      for(int off = 0; off < bytes.length;) {
+        ensure(1);
+        final int len = Math.min(buffer.remaining(), bytes.length - off);
+        buffer.put(bytes, off, len);
+        off += len;
+      }
+      return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if(channel != null) {
+        flush();
+        channel.close();
+        channel = null;
+      }
+    }
+  }
+
+  /**
+   * Buffered input of a binary result file.
+   *
+   * @author Erich Schubert
+   */
+  public static class Input implements Closeable {
+    /**
+     * Input channel.
+     */
+    private FileChannel channel;
+
+    /**
+     * Input buffer.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Constructor.
+     *
+     * @param file Input file
+     * @throws IOException on IO errors
+     */
+    public Input(Path file) throws IOException {
+      this.channel = FileChannel.open(file);
+      buffer.flip(); // Empty
+    }
+
+    /**
+     * Fill the buffer to contain at least the given number of bytes.
+     *
+     * @param bytes Number of bytes needed
+     * @return {@code false} if the end of the file was reached before
+     * @throws IOException on IO errors
+     */
+    private boolean fill(int bytes) throws IOException {
+      if(buffer.remaining() >= bytes) {
+        return true;
+      }
+      buffer.compact();
+      while(buffer.position() < bytes) {
+        if(channel.read(buffer) < 0) {
+          buffer.flip();
+          return false;
+        }
+      }
+      buffer.flip();
+      return true;
+    }
+
+    /**
+     * Test if there is more data.
+     *
+     * @return {@code true} when more data is available
+     * @throws IOException on IO errors
+     */
+    public boolean hasMore() throws IOException {
+      return fill(1);
+    }
+
+    /**
+     * Read an integer.
+     *
+     * @return Value
+     * @throws IOException on IO errors
+     */
+    public int getInt() throws IOException {
+      if(!fill(ByteArrayUtil.SIZE_INT)) {
+        throw new EOFException();
+      }
+      return buffer.getInt();
+    }
+
+    /**
+     * Read a double.
+     *
+     * @return Value
+     * @throws IOException on IO errors
+     */
+    public double getDouble() throws IOException {
+      if(!fill(ByteArrayUtil.SIZE_DOUBLE)) {
+        throw new EOFException();
+      }
+      return buffer.getDouble();
+    }
+
+    /**
+     * Read a DBID, which must be one of the objects of the database.
+     *
+     * @param valid Objects of the database, as obtained from
+     *        {@link BinaryResultFormat#validIDs}
+     * @return DBID
+     * @throws IOException on IO errors
+     */
+    public DBID getDBID(DBIDs valid) throws IOException {
+      final int id = getInt();
+      final DBID dbid = DBIDUtil.importInteger(id);
+      if(!valid.contains(dbid)) {
+        throw new AbortException("Object " + id + " is not in the database. Binary results can only be loaded into a database with the same DBIDs.");
+      }
+      return dbid;
+    }
+
+    /**
+     * Read a string.
+     *
+     * @return String, may be {@code null}
+     * @throws IOException on IO errors
+     */
+    public String getString() throws IOException {
+      final int len = getInt();
+      if(len < 0) {
+        return null;
+      }
+      byte[] bytes = new byte[len];
+      for(int off = 0; off < len;) {
+        if(!fill(1)) {
+          throw new EOFException();
+        }
+        final int l = Math.min(buffer.remaining(), len - off);
+        buffer.get(bytes, off, l);
+        off += l;
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if(channel != null) {
+        channel.close();
+        channel = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.result;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.WritableDataStore;
+import elki.database.ids.ArrayModifiableDBIDs;
+import elki.database.ids.DBIDArrayIter;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DBIDs;
+import elki.database.ids.DoubleDBIDListIter;
+import elki.database.ids.KNNHeap;
+import elki.database.ids.KNNList;
+import elki.database.relation.Relation;
+import elki.index.preprocessed.knn.AbstractMaterializeKNNPreprocessor;
+import elki.logging.Logging;
+import elki.utilities.datastructures.iterator.It;
+import elki.utilities.exceptions.AbortException;
+import elki.utilities.optionhandling.OptionID;
+import elki.utilities.optionhandling.Parameterizer;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.FileParameter;
+import elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Output materialized kNN lists in a compact binary format (see
+ * {@link BinaryResultFormat}).
+ * <p>
+ * The kNN lists of each materialized kNN preprocessor are stored as one
+ * record:
+ * 
+ * <pre>
+ * int magic, string name, int k, int n, n * int DBID, n * int list size,
+ * sum(sizes) * int neighbor DBID, sum(sizes) * double distance
+ * </pre>
+ * 
+ * The lists can be loaded using {@link #load}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class KNNBinaryDumper implements ResultHandler {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(KNNBinaryDumper.class);
+
+  /**
+   * Output file.
+   */
+  private Path outputFile;
+
+  /**
+   * Always append to the output file.
+   */
+  private boolean append;
+
+  /**
+   * Constructor.
+   * 
+   * @param outputFile Output file
+   * @param append Append to output file (overwrite otherwise).
+   */
+  public KNNBinaryDumper(Path outputFile, boolean append) {
+    super();
+    this.outputFile = outputFile;
+    this.append = append;
+  }
+
+  @Override
+  public void processNewResult(Object newResult) {
+    It<AbstractMaterializeKNNPreprocessor<?>> it = Metadata.hierarchyOf(newResult).iterDescendantsSelf().filter(AbstractMaterializeKNNPreprocessor.class);
+    if(!it.valid()) {
+      return;
+    }
+    try (BinaryResultFormat.Output out = new BinaryResultFormat.Output(outputFile, append)) {
+      for(; it.valid(); it.advance()) {
+        AbstractMaterializeKNNPreprocessor<?> index = it.get();
+        It<Relation<?>> rel = Metadata.hierarchyOf(index).iterParents().filter(Relation.class);
+        if(!rel.valid()) {
+          LOG.warning("kNN preprocessor without relation, not written: " + Metadata.of(index).getLongName());
+          continue;
+        }
+        dumpKNN(out, index, rel.get().getDBIDs());
+      }
+      append = true; // Append future results.
+    }
+    catch(IOException e) {
+      LOG.exception("Error writing to output file.", e);
+    }
+  }
+
+  /**
+   * Write the kNN lists of a single preprocessor.
+   * 
+   * @param out Output
+   * @param index Preprocessor
+   * @param ids Objects
+   * @throws IOException on IO errors
+   */
+  protected void dumpKNN(BinaryResultFormat.Output out, AbstractMaterializeKNNPreprocessor<?> index, DBIDs ids) throws IOException {
+    out.putInt(BinaryResultFormat.KNN_MAGIC).putString(Metadata.of(index).getLongName());
+    out.putInt(index.getK()).putInt(ids.size());
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      out.putInt(DBIDUtil.asInteger(iter));
+    }
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      out.putInt(index.get(iter).size());
+    }
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      for(DoubleDBIDListIter n = index.get(iter).iter(); n.valid(); n.advance()) {
+        out.putInt(DBIDUtil.asInteger(n));
+      }
+    }
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      for(DoubleDBIDListIter n = index.get(iter).iter(); n.valid(); n.advance()) {
+        out.putDouble(n.doubleValue());
+      }
+    }
+  }
+
+  /**
+   * Load the kNN lists of the first record of a binary file.
+   *
+   * @param file Binary file
+   * @param ids Objects to allocate the storage for, all stored objects and
+   *        neighbors must be contained
+   * @return kNN lists
+   * @throws IOException on IO errors
+   */
+  public static WritableDataStore<KNNList> load(Path file, DBIDs ids) throws IOException {
+    try (BinaryResultFormat.Input in = new BinaryResultFormat.Input(file)) {
+      if(in.getInt() != BinaryResultFormat.KNN_MAGIC) {
+        throw new AbortException("Not a binary kNN record in " + file);
+      }
+      in.getString(); // Name, unused.
+      final int k = in.getInt(), n = in.getInt();
+      final DBIDs valid = BinaryResultFormat.validIDs(ids);
+      ArrayModifiableDBIDs oids = DBIDUtil.newArray(n);
+      for(int i = 0; i < n; i++) {
+        oids.add(in.getDBID(valid));
+      }
+      int[] sizes = new int[n];
+      long total = 0;
+      for(int i = 0; i < n; i++) {
+        total += sizes[i] = in.getInt();
+      }
+      if(total > Integer.MAX_VALUE) {
+        throw new AbortException("Too many neighbors to load: " + total);
+      }
+      ArrayModifiableDBIDs nids = DBIDUtil.newArray((int) total);
+      for(int i = 0; i < total; i++) {
+        nids.add(in.getDBID(valid));
+      }
+      WritableDataStore<KNNList> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, KNNList.class);
+      DBIDArrayIter oit = oids.iter(), nit = nids.iter();
+      for(int i = 0; i < n; i++, oit.advance()) {
+        KNNHeap heap = DBIDUtil.newHeap(k);
+        for(int j = 0; j < sizes[i]; j++, nit.advance()) {
+          heap.insert(in.getDouble(), nit);
+        }
+        store.put(oit, heap.toKNNList());
+      }
+      return store;
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   */
+  public static class Par implements Parameterizer {
+    /**
+     * Output file name parameter.
+     */
+    public static final OptionID OUT_ID = new OptionID("knn.binary.output", "Output file name for binary kNN lists.");
+
+    /**
+     * Append flag.
+     */
+    public static final OptionID APPEND_ID = new OptionID("knn.binary.append", "Always append to the output file.");
+
+    /**
+     * Output file.
+     */
+    private Path outputFile;
+
+    /**
+     * Always append to the output file.
+     */
+    private boolean append;
+
+    @Override
+    public void configure(Parameterization config) {
+      new FileParameter(OUT_ID, FileParameter.FileType.OUTPUT_FILE) //
+          .grab(config, x -> outputFile = Paths.get(x));
+      new Flag(APPEND_ID).grab(config, x -> append = x);
+    }
+
+    @Override
+    public KNNBinaryDumper make() {
+      return new KNNBinaryDumper(outputFile, append);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+import elki.data.NumberVector;
+import elki.data.type.TypeUtil;
+import elki.database.Database;
+import elki.database.StaticArrayDatabase;
+import elki.database.datastore.WritableDataStore;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DoubleDBIDListIter;
+import elki.database.ids.KNNList;
+import elki.database.relation.Relation;
+import elki.datasource.ArrayAdapterDatabaseConnection;
+import elki.distance.minkowski.EuclideanDistance;
+import elki.index.preprocessed.knn.MaterializeKNNPreprocessor;
+import elki.utilities.exceptions.AbortException;
+
+/**
+ * Test the binary kNN list format.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class KNNBinaryDumperTest {
+  @Test
+  public void testRoundtrip() throws IOException {
+    Random rnd = new Random(0L);
+    double[][] data = new double[500][2];
+    for(double[] row : data) {
+      row[0] = rnd.nextDouble();
+      row[1] = rnd.nextDouble();
+    }
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+    Relation<NumberVector> relation = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    MaterializeKNNPreprocessor<NumberVector> index = new MaterializeKNNPreprocessor<>(relation, EuclideanDistance.STATIC, 7);
+    index.initialize();
+    Metadata.hierarchyOf(relation).addChild(index);
+    Path file = Files.createTempFile("elki-test", ".bin");
+    try {
+      new KNNBinaryDumper(file, false).processNewResult(relation);
+      WritableDataStore<KNNList> knns = KNNBinaryDumper.load(file, relation.getDBIDs());
+      for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+        KNNList expected = index.get(it), actual = knns.get(it);
+        assertEquals("List size", expected.size(), actual.size());
+        for(DoubleDBIDListIter e = expected.iter(), a = actual.iter(); e.valid(); e.advance(), a.advance()) {
+          assertTrue("Neighbor differs", DBIDUtil.equal(e, a));
+          assertEquals("Distance differs", e.doubleValue(), a.doubleValue(), 0.);
+        }
+      }
+      // Loading into a database with other DBIDs must fail.
+      try {
+        KNNBinaryDumper.load(file, DBIDUtil.generateStaticDBIDRange(relation.size()));
+        fail("Loaded kNN lists with different DBIDs.");
+      }
+      catch(AbortException e) {
+        // Expected.
+      }
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -22,6 +22,7 @@ package elki.database;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import elki.data.type.SimpleTypeInformation;
 import elki.database.ids.*;
@@ -48,6 +49,11 @@ import elki.utilities.optionhandling.parameters.ObjectParameter;
 /**
  * Database storing data using hashtable storage, and thus allowing additional
  * and removal of objects.
+ * <p>
+ * Insertions and deletions are passed to the indexes in bulk, and fire a
+ * single event per call. For frequent small insertions, use
+ * {@link #beginBatch()} and {@link #commitBatch()} to collect them into a
+ * single insertion.
  *
  * @author Arthur Zimek
  * @author Erich Schubert
@@ -79,6 +85,21 @@ public class HashmapDatabase extends AbstractDatabase implements UpdatableDataba
    */
   protected DatabaseConnection databaseConnection;
 
+  /**
+   * Objects collected in the current batch, or {@code null}.
+   */
+  private MultipleObjectsBundle batch;
+
+  /**
+   * IDs of the objects in the current batch.
+   */
+  private ArrayModifiableDBIDs batchids;
+
+  /**
+   * Set of the IDs in the current batch, to detect duplicates.
+   */
+  private HashSetModifiableDBIDs batchset;
+
   /**
    * Constructor.
    *
@@ -124,36 +145,131 @@ public class HashmapDatabase extends AbstractDatabase implements UpdatableDataba
     if(objpackages.dataLength() == 0) {
       return DBIDUtil.EMPTYDBIDS;
     }
-    // insert into db
+    return batch != null ? appendBatch(objpackages) : insertBundle(objpackages);
+  }
+
+  /**
+   * Insert a bundle into the database, updating the indexes in bulk.
+   *
+   * @param objpackages Objects to insert
+   * @return Assigned DBIDs
+   */
+  private DBIDs insertBundle(ObjectBundle objpackages) {
     ArrayModifiableDBIDs newids = DBIDUtil.newArray(objpackages.dataLength());
     Relation<?>[] targets = alignColumns(objpackages);
+    for(int i = 0; i < targets.length; i++) {
+      if(!(targets[i] instanceof ModifiableRelation)) {
+        throw new AbortException("Non-modifiable relations have been added to the database.");
+      }
+    }
 
     DBIDVar var = DBIDUtil.newVar();
     for(int j = 0; j < objpackages.dataLength(); j++) {
-      // insert object
       if(!objpackages.assignDBID(j, var)) {
         var.set(DBIDUtil.generateSingleDBID());
       }
       if(ids.contains(var)) {
+        ids.removeDBIDs(newids);
         throw new AbortException("Duplicate DBID conflict.");
       }
       ids.add(var);
-      for(int i = 0; i < targets.length; i++) {
-        if(!(targets[i] instanceof ModifiableRelation)) {
-          throw new AbortException("Non-modifiable relations have been added to the database.");
-        }
-        @SuppressWarnings("unchecked")
-        final ModifiableRelation<Object> relation = (ModifiableRelation<Object>) targets[i];
-        relation.insert(var, objpackages.data(j, i));
-      }
       newids.add(var);
     }
+    // insert objects, and update the indexes in bulk
+    for(int i = 0; i < targets.length; i++) {
+      List<Object> column = new ArrayList<>(objpackages.dataLength());
+      for(int j = 0; j < objpackages.dataLength(); j++) {
+        column.add(objpackages.data(j, i));
+      }
+      @SuppressWarnings("unchecked")
+      final ModifiableRelation<Object> relation = (ModifiableRelation<Object>) targets[i];
+      relation.insertAll(newids, column);
+    }
 
     // fire insertion event
     eventManager.fireObjectsInserted(newids);
     return newids;
   }
 
+  /**
+   * Begin collecting insertions into a batch.
+   * <p>
+   * Subsequent calls to {@link #insert} only assign DBIDs; the objects become
+   * visible when {@link #commitBatch()} is called, which updates the indexes
+   * and fires a single insertion event for the whole batch. Deletions commit
+   * the current batch first.
+   */
+  public void beginBatch() {
+    if(batch == null) {
+      batch = new MultipleObjectsBundle();
+      batchids = DBIDUtil.newArray();
+      batchset = DBIDUtil.newHashSet();
+    }
+  }
+
+  /**
+   * Insert all objects collected since {@link #beginBatch()}.
+   *
+   * @return IDs of the inserted objects
+   */
+  public DBIDs commitBatch() {
+    if(batch == null) {
+      return DBIDUtil.EMPTYDBIDS;
+    }
+    batch.setDBIDs(batchids);
+    // Keep the batch if the insertion fails.
+    DBIDs newids = batch.dataLength() > 0 ? insertBundle(batch) : DBIDUtil.EMPTYDBIDS;
+    batch = null;
+    batchids = null;
+    batchset = null;
+    return newids;
+  }
+
+  /**
+   * Add objects to the current batch.
+   *
+   * @param objpackages Objects to add
+   * @return Assigned DBIDs
+   */
+  private DBIDs appendBatch(ObjectBundle objpackages) {
+    // Start a new batch if the column types do not match.
+    boolean match = batch.metaLength() == objpackages.metaLength();
+    for(int i = 0; match && i < objpackages.metaLength(); i++) {
+      SimpleTypeInformation<?> m1 = batch.meta(i), m2 = objpackages.meta(i);
+      match = m1.isAssignableFromType(m2) && m2.isAssignableFromType(m1);
+    }
+    if(!match) {
+      if(batch.metaLength() > 0) {
+        commitBatch();
+        beginBatch();
+      }
+      for(int i = 0; i < objpackages.metaLength(); i++) {
+        batch.appendColumn(objpackages.meta(i), new ArrayList<>());
+      }
+    }
+    ArrayModifiableDBIDs newids = DBIDUtil.newArray(objpackages.dataLength());
+    DBIDVar var = DBIDUtil.newVar();
+    for(int j = 0; j < objpackages.dataLength(); j++) {
+      if(!objpackages.assignDBID(j, var)) {
+        var.set(DBIDUtil.generateSingleDBID());
+      }
+      if(ids.contains(var) || !batchset.add(var)) {
+        batchset.removeDBIDs(newids);
+        throw new AbortException("Duplicate DBID conflict.");
+      }
+      newids.add(var);
+    }
+    Object[] row = new Object[objpackages.metaLength()];
+    for(int j = 0; j < objpackages.dataLength(); j++) {
+      for(int i = 0; i < row.length; i++) {
+        row[i] = objpackages.data(j, i);
+      }
+      batch.appendSimple(row);
+    }
+    batchids.addDBIDs(newids);
+    return newids;
+  }
+
   /**
    * Find a mapping from package columns to database columns, eventually adding
    * new database columns when needed.
@@ -210,14 +326,14 @@ public class HashmapDatabase extends AbstractDatabase implements UpdatableDataba
   }
 
   /**
-   * Removes the objects from the database (by calling
-   * {@link #doDelete(DBIDRef)} for each object) and indexes and fires a
-   * deletion event.
+   * Removes the objects from the database and indexes in bulk, and fires a
+   * single deletion event.
    *
    * {@inheritDoc}
    */
   @Override
   public MultipleObjectsBundle delete(DBIDs ids) {
+    commitBatch();
     // Prepare bundle to return
     MultipleObjectsBundle bundle = new MultipleObjectsBundle();
     for(Relation<?> relation : relations) {
@@ -227,9 +343,17 @@ public class HashmapDatabase extends AbstractDatabase implements UpdatableDataba
       }
       bundle.appendColumn(relation.getDataTypeInformation(), data);
     }
-    // remove from db
-    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      doDelete(iter);
+    // remove from db, and update the indexes in bulk
+    this.ids.removeDBIDs(ids);
+    for(Relation<?> relation : relations) {
+      // IDs have already been removed, and this would loop...
+      if(relation == idrep) {
+        continue;
+      }
+      if(!(relation instanceof ModifiableRelation)) {
+        throw new AbortException("Non-modifiable relations have been added to the database.");
+      }
+      ((ModifiableRelation<?>) relation).deleteAll(ids);
     }
     // fire deletion event
     eventManager.fireObjectsRemoved(ids);
@@ -245,6 +369,7 @@ public class HashmapDatabase extends AbstractDatabase implements UpdatableDataba
    */
   @Override
   public SingleObjectBundle delete(DBIDRef id) {
+    commitBatch();
     // Prepare bundle to return
     SingleObjectBundle bundle = new SingleObjectBundle();
     for(Relation<?> relation : relations) {
@@ -21,15 +21,19 @@
 package elki.database;
 
 import java.util.Collection;
+import java.util.List;
 
+import elki.data.SparseNumberVector;
 import elki.data.type.SimpleTypeInformation;
 import elki.database.datastore.DataStoreFactory;
 import elki.database.datastore.DataStoreUtil;
 import elki.database.datastore.WritableDataStore;
 import elki.database.ids.ArrayStaticDBIDs;
 import elki.database.ids.DBIDArrayIter;
+import elki.database.ids.DBIDRange;
 import elki.database.ids.DBIDUtil;
 import elki.database.ids.DBIDs;
+import elki.database.relation.CSRSparseRelation;
 import elki.database.relation.DBIDView;
 import elki.database.relation.MaterializedRelation;
 import elki.database.relation.Relation;
@@ -42,7 +46,9 @@ import elki.logging.Logging;
 import elki.logging.statistics.Duration;
 import elki.result.Metadata;
 import elki.utilities.documentation.Description;
+import elki.utilities.optionhandling.OptionID;
 import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.Flag;
 import elki.utilities.optionhandling.parameters.ObjectListParameter;
 import elki.utilities.optionhandling.parameters.ObjectParameter;
 
@@ -81,6 +87,11 @@ public class StaticArrayDatabase extends AbstractDatabase {
    */
   protected DatabaseConnection databaseConnection;
 
+  /**
+   * Store sparse vectors in compressed sparse row form.
+   */
+  protected boolean csr;
+
   /**
    * Constructor.
    *
@@ -88,8 +99,20 @@ public class StaticArrayDatabase extends AbstractDatabase {
    * @param indexFactories Indexes to add
    */
   public StaticArrayDatabase(DatabaseConnection databaseConnection, Collection<? extends IndexFactory<?>> indexFactories) {
+    this(databaseConnection, indexFactories, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param databaseConnection Database connection to get the initial data from.
+   * @param indexFactories Indexes to add
+   * @param csr Store sparse vectors in compressed sparse row form
+   */
+  public StaticArrayDatabase(DatabaseConnection databaseConnection, Collection<? extends IndexFactory<?>> indexFactories, boolean csr) {
     super();
     this.databaseConnection = databaseConnection;
+    this.csr = csr;
     this.ids = null;
     this.idrep = null;
 
@@ -148,25 +171,34 @@ public class StaticArrayDatabase extends AbstractDatabase {
     int numrel = bundle.metaLength();
     for(int i = 0; i < numrel; i++) {
       SimpleTypeInformation<?> meta = bundle.meta(i);
-      @SuppressWarnings("unchecked")
-      SimpleTypeInformation<Object> ometa = (SimpleTypeInformation<Object>) meta;
-      WritableDataStore<Object> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_DB, ometa.getRestrictionClass());
-      for(it.seek(0); it.valid(); it.advance()) {
-        store.put(it, bundle.data(it.getOffset(), i));
+      Relation<?> relation;
+      if(csr && ids instanceof DBIDRange && SparseNumberVector.class.isAssignableFrom(meta.getRestrictionClass())) {
+        @SuppressWarnings("unchecked")
+        List<? extends SparseNumberVector> column = (List<? extends SparseNumberVector>) bundle.getColumn(i);
+        relation = CSRSparseRelation.build(null, (DBIDRange) ids, column, meta);
+        meta = relation.getDataTypeInformation();
+      }
+      else {
+        @SuppressWarnings("unchecked")
+        SimpleTypeInformation<Object> ometa = (SimpleTypeInformation<Object>) meta;
+        WritableDataStore<Object> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_DB, ometa.getRestrictionClass());
+        for(it.seek(0); it.valid(); it.advance()) {
+          store.put(it, bundle.data(it.getOffset(), i));
+        }
+        relation = new MaterializedRelation<>(null, ometa, ids, store);
       }
-      Relation<?> relation = new MaterializedRelation<>(null, ometa, ids, store);
       relations.add(relation);
       Metadata.hierarchyOf(this).addChild(relation);
 
       // Try to add indexes where appropriate
       for(IndexFactory<?> factory : indexFactories) {
-        if(factory.getInputTypeRestriction().isAssignableFromType(ometa)) {
+        if(factory.getInputTypeRestriction().isAssignableFromType(meta)) {
           @SuppressWarnings("unchecked")
           final IndexFactory<Object> ofact = (IndexFactory<Object>) factory;
           @SuppressWarnings("unchecked")
           final Relation<Object> orep = (Relation<Object>) relation;
           final Index index = ofact.instantiate(orep);
-          Duration duration = LOG.isStatistics() ? LOG.newDuration(index.getClass().getName() + ".construction").begin() : null;
+          Duration duration = LOG.isStatistics() ? LOG.newPhase(index.getClass().getName() + ".construction").begin() : null;
           index.initialize();
           if(duration != null) {
             LOG.statistics(duration.end());
@@ -191,11 +223,21 @@ public class StaticArrayDatabase extends AbstractDatabase {
    * @author Erich Schubert
    */
   public static class Par extends AbstractDatabase.Par {
+    /**
+     * Flag to store sparse vectors in compressed sparse row (CSR) form.
+     */
+    public static final OptionID CSR_ID = new OptionID("db.csr", "Store sparse vectors in compressed sparse row (CSR) form, sharing two large arrays instead of two arrays per object.");
+
     /**
      * Holds the database connection to get the initial data from.
      */
     protected DatabaseConnection databaseConnection = null;
 
+    /**
+     * Store sparse vectors in compressed sparse row form.
+     */
+    protected boolean csr;
+
     /**
      * Indexes to add.
      */
@@ -211,11 +253,12 @@ public class StaticArrayDatabase extends AbstractDatabase {
       new ObjectListParameter<IndexFactory<?>>(INDEX_ID, IndexFactory.class) //
           .setOptional(true) //
           .grab(config, x -> indexFactories = x);
+      new Flag(CSR_ID).grab(config, x -> csr = x);
     }
 
     @Override
     public StaticArrayDatabase make() {
-      return new StaticArrayDatabase(databaseConnection, indexFactories);
+      return new StaticArrayDatabase(databaseConnection, indexFactories, csr);
     }
   }
 }
@@ -0,0 +1,167 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query;
+
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.database.ids.ArrayModifiableDBIDs;
+import elki.database.ids.DBIDArrayIter;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDUtil;
+import elki.database.relation.Relation;
+import elki.distance.BulkDistance;
+import elki.distance.Distance;
+
+/**
+ * Linear scan of a relation of dense vectors in blocks, using a
+ * {@link BulkDistance} to compute the distances of one block at a time.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * BulkDistanceScan scan = new BulkDistanceScan(dist, relation, query);
+ * for(int n; (n = scan.next()) &gt; 0;) {
+ *   double[] d = scan.distances();
+ *   DBIDArrayIter it = scan.iter();
+ *   for(int i = 0; i &lt; n; i++, it.advance()) {
+ *     // use d[i] and it
+ *   }
+ * }
+ * </pre>
+ * 
+ * A scan is meant to be used for a single query, and is not thread safe.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - - - BulkDistance
+ */
+public class BulkDistanceScan {
+  /**
+   * Number of vectors per block.
+   */
+  public static final int BLOCKSIZE = 256;
+
+  /**
+   * Distance function.
+   */
+  private final BulkDistance distance;
+
+  /**
+   * Relation to scan.
+   */
+  private final Relation<? extends NumberVector> relation;
+
+  /**
+   * Query vector.
+   */
+  private final double[] query;
+
+  /**
+   * Iterator over the relation.
+   */
+  private final DBIDIter iter;
+
+  /**
+   * Current block of vectors.
+   */
+  private final double[][] block = new double[BLOCKSIZE][];
+
+  /**
+   * Distances of the current block.
+   */
+  private final double[] dists = new double[BLOCKSIZE];
+
+  /**
+   * IDs of the current block.
+   */
+  private final ArrayModifiableDBIDs ids = DBIDUtil.newArray(BLOCKSIZE);
+
+  /**
+   * Iterator over the current block.
+   */
+  private final DBIDArrayIter biter = ids.iter();
+
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param relation Relation to scan
+   * @param query Query vector
+   */
+  public BulkDistanceScan(BulkDistance distance, Relation<? extends NumberVector> relation, NumberVector query) {
+    this.distance = distance;
+    this.relation = relation;
+    this.query = DoubleVector.unwrap(query);
+    this.iter = relation.iterDBIDs();
+  }
+
+  /**
+   * Process the next block.
+   *
+   * @return Number of vectors in the block, 0 when done
+   */
+  public int next() {
+    ids.clear();
+    int n = 0;
+    for(; n < BLOCKSIZE && iter.valid(); iter.advance()) {
+      block[n++] = DoubleVector.unwrap(relation.get(iter));
+      ids.add(iter);
+    }
+    if(n > 0) {
+      distance.distances(query, block, n, dists);
+    }
+    return n;
+  }
+
+  /**
+   * Get the distances of the current block.
+   *
+   * @return Distances, not a copy
+   */
+  public double[] distances() {
+    return dists;
+  }
+
+  /**
+   * Get an iterator over the IDs of the current block, positioned at the
+   * first element.
+   *
+   * @return Iterator
+   */
+  public DBIDArrayIter iter() {
+    return biter.seek(0);
+  }
+
+  /**
+   * Test whether a distance can be used with a bulk scan on a relation.
+   * <p>
+   * This is only the case for relations of {@link DoubleVector}s, where the
+   * values can be used without copying.
+   *
+   * @param distance Distance function
+   * @param relation Relation
+   * @return {@code true} if a bulk scan can be used
+   */
+  public static boolean applicable(Distance<?> distance, Relation<?> relation) {
+    return distance instanceof BulkDistance && DoubleVector.class.isAssignableFrom(relation.getDataTypeInformation().getRestrictionClass());
+  }
+}
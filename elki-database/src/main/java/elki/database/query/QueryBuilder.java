@@ -24,6 +24,7 @@ import java.util.Objects;
 
 import elki.data.NumberVector;
 import elki.database.ids.DBIDRef;
+import elki.database.query.distance.CountingDistanceQuery;
 import elki.database.query.distance.DistanceQuery;
 import elki.database.query.distance.LinearScanEuclideanPrioritySearcher;
 import elki.database.query.distance.LinearScanPrioritySearcher;
@@ -161,7 +162,7 @@ public class QueryBuilder<O> {
    */
   @SuppressWarnings("unchecked")
   public QueryBuilder(DistanceQuery<? super O> distQuery) {
-    this.distQuery = (DistanceQuery<O>) distQuery;
+    this.distQuery = CountingDistanceQuery.unwrap((DistanceQuery<O>) distQuery);
     this.relation = (Relation<O>) distQuery.getRelation();
     this.distance = distQuery.getDistance();
   }
@@ -263,6 +264,15 @@ public class QueryBuilder<O> {
    * @return distance query
    */
   public DistanceQuery<O> distanceQuery() {
+    return CountingDistanceQuery.wrap(makeDistanceQuery());
+  }
+
+  /**
+   * Build a distance query, without instrumentation.
+   *
+   * @return distance query
+   */
+  private DistanceQuery<O> makeDistanceQuery() {
     if(distQuery != null) {
       return distQuery;
     }
@@ -339,11 +349,21 @@ public class QueryBuilder<O> {
    * @param maxk Maximum k that will be used later.
    * @return knn query
    */
-  @SuppressWarnings("unchecked")
   public KNNSearcher<O> kNNByObject(int maxk) {
+    return InstrumentedKNNSearcher.wrap(makeKNNByObject(maxk));
+  }
+
+  /**
+   * Build a k-nearest-neighbors query, without instrumentation.
+   * 
+   * @param maxk Maximum k that will be used later.
+   * @return knn query
+   */
+  @SuppressWarnings("unchecked")
+  private KNNSearcher<O> makeKNNByObject(int maxk) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<KNNIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(KNNIndex.class); it.valid(); it.advance()) {
       KNNSearcher<O> q = it.get().kNNByObject(distanceQuery, maxk, flags);
@@ -364,12 +384,16 @@ public class QueryBuilder<O> {
     }
     logNotAccelerated("knn");
     // Slight optimizations of linear scans for primitive functions
-    if(distanceQuery instanceof PrimitiveDistanceQuery) {
+    if(isPrimitiveScan(distanceQuery)) {
       final PrimitiveDistanceQuery<O> pdq = (PrimitiveDistanceQuery<O>) distanceQuery;
       if(EuclideanDistance.STATIC.equals(pdq.getDistance())) {
         final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
         return (KNNSearcher<O>) new LinearScanEuclideanKNNByObject<>(ndq);
       }
+      if(LinearScanDTWKNNByObject.applicable(pdq.getDistance())) {
+        final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
+        return (KNNSearcher<O>) new LinearScanDTWKNNByObject<>(ndq);
+      }
       return new LinearScanPrimitiveKNNByObject<>(pdq);
     }
     return new LinearScanKNNByObject<>(distanceQuery);
@@ -390,11 +414,21 @@ public class QueryBuilder<O> {
    * @param maxk Maximum k that will be used later.
    * @return knn query
    */
-  @SuppressWarnings("unchecked")
   public KNNSearcher<DBIDRef> kNNByDBID(int maxk) {
+    return InstrumentedKNNSearcher.wrap(makeKNNByDBID(maxk));
+  }
+
+  /**
+   * Build a k-nearest-neighbors query, without instrumentation.
+   * 
+   * @param maxk Maximum k that will be used later.
+   * @return knn query
+   */
+  @SuppressWarnings("unchecked")
+  private KNNSearcher<DBIDRef> makeKNNByDBID(int maxk) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<KNNIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(KNNIndex.class); it.valid(); it.advance()) {
       KNNSearcher<DBIDRef> q = it.get().kNNByDBID(distanceQuery, maxk, flags);
@@ -415,12 +449,16 @@ public class QueryBuilder<O> {
     }
     logNotAccelerated("knn");
     // Slight optimizations of linear scans for primitive functions
-    if(distanceQuery instanceof PrimitiveDistanceQuery) {
+    if(isPrimitiveScan(distanceQuery)) {
       final PrimitiveDistanceQuery<O> pdq = (PrimitiveDistanceQuery<O>) distanceQuery;
       if(EuclideanDistance.STATIC.equals(pdq.getDistance())) {
         final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
         return WrappedKNNDBIDByLookup.wrap(ndq.getRelation(), new LinearScanEuclideanKNNByObject<>(ndq));
       }
+      if(LinearScanDTWKNNByObject.applicable(pdq.getDistance())) {
+        final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
+        return WrappedKNNDBIDByLookup.wrap(ndq.getRelation(), new LinearScanDTWKNNByObject<>(ndq));
+      }
       return WrappedKNNDBIDByLookup.wrap(pdq.getRelation(), new LinearScanPrimitiveKNNByObject<>(pdq));
     }
     return new LinearScanKNNByDBID<>(distanceQuery);
@@ -441,11 +479,21 @@ public class QueryBuilder<O> {
    * @param maxrange Maximum radius that will be used.
    * @return range query
    */
-  @SuppressWarnings("unchecked")
   public RangeSearcher<O> rangeByObject(double maxrange) {
+    return InstrumentedRangeSearcher.wrap(makeRangeByObject(maxrange));
+  }
+
+  /**
+   * Build a range query with maximum radius, without instrumentation.
+   *
+   * @param maxrange Maximum radius that will be used.
+   * @return range query
+   */
+  @SuppressWarnings("unchecked")
+  private RangeSearcher<O> makeRangeByObject(double maxrange) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<RangeIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(RangeIndex.class); it.valid(); it.advance()) {
       RangeSearcher<O> q = it.get().rangeByObject(distanceQuery, maxrange, flags);
@@ -469,7 +517,7 @@ public class QueryBuilder<O> {
     }
     logNotAccelerated("range");
     // Slight optimizations of linear scans
-    if(distanceQuery instanceof PrimitiveDistanceQuery) {
+    if(isPrimitiveScan(distanceQuery)) {
       final PrimitiveDistanceQuery<O> pdq = (PrimitiveDistanceQuery<O>) distanceQuery;
       if(EuclideanDistance.STATIC.equals(distance)) {
         final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
@@ -495,11 +543,21 @@ public class QueryBuilder<O> {
    * @param maxrange Maximum radius that will be used.
    * @return range query
    */
-  @SuppressWarnings("unchecked")
   public RangeSearcher<DBIDRef> rangeByDBID(double maxrange) {
+    return InstrumentedRangeSearcher.wrap(makeRangeByDBID(maxrange));
+  }
+
+  /**
+   * Build a range query with maximum radius, without instrumentation.
+   *
+   * @param maxrange Maximum radius that will be used.
+   * @return range query
+   */
+  @SuppressWarnings("unchecked")
+  private RangeSearcher<DBIDRef> makeRangeByDBID(double maxrange) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<RangeIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(RangeIndex.class); it.valid(); it.advance()) {
       RangeSearcher<DBIDRef> q = it.get().rangeByDBID(distanceQuery, maxrange, flags);
@@ -523,7 +581,7 @@ public class QueryBuilder<O> {
     }
     logNotAccelerated("range");
     // Slight optimizations of linear scans
-    if(distanceQuery instanceof PrimitiveDistanceQuery) {
+    if(isPrimitiveScan(distanceQuery)) {
       final PrimitiveDistanceQuery<O> pdq = (PrimitiveDistanceQuery<O>) distanceQuery;
       if(EuclideanDistance.STATIC.equals(distance)) {
         final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
@@ -650,7 +708,7 @@ public class QueryBuilder<O> {
   public RKNNSearcher<O> rKNNByObject(int k) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<RKNNIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(RKNNIndex.class); it.valid(); it.advance()) {
       RKNNSearcher<O> q = it.get().rkNNByObject(distanceQuery, k, flags);
@@ -694,7 +752,7 @@ public class QueryBuilder<O> {
   public RKNNSearcher<DBIDRef> rKNNByDBID(int k) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<RKNNIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(RKNNIndex.class); it.valid(); it.advance()) {
       RKNNSearcher<DBIDRef> q = it.get().rkNNByDBID(distanceQuery, k, flags);
@@ -739,7 +797,7 @@ public class QueryBuilder<O> {
   public PrioritySearcher<O> priorityByObject(double maxrange) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<DistancePriorityIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(DistancePriorityIndex.class); it.valid(); it.advance()) {
       PrioritySearcher<O> q = it.get().priorityByObject(distanceQuery, maxrange, flags);
@@ -762,7 +820,7 @@ public class QueryBuilder<O> {
       return null;
     }
     logNotAccelerated("priority");
-    if(distanceQuery instanceof PrimitiveDistanceQuery && EuclideanDistance.STATIC.equals(distance)) {
+    if(isPrimitiveScan(distanceQuery) && EuclideanDistance.STATIC.equals(distance)) {
       PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) distanceQuery;
       return (PrioritySearcher<O>) new LinearScanEuclideanPrioritySearcher.ByObject<>(ndq);
     }
@@ -788,7 +846,7 @@ public class QueryBuilder<O> {
   public PrioritySearcher<DBIDRef> priorityByDBID(double maxrange) {
     int precompute = flags & FLAG_PRECOMPUTE;
     flags ^= precompute; // Mask
-    DistanceQuery<O> distanceQuery = distanceQuery();
+    DistanceQuery<O> distanceQuery = CountingDistanceQuery.wrap(makeDistanceQuery());
     flags ^= precompute; // Restore
     for(It<DistancePriorityIndex<O>> it = Metadata.hierarchyOf(relation).iterChildrenReverse().filter(DistancePriorityIndex.class); it.valid(); it.advance()) {
       PrioritySearcher<DBIDRef> q = it.get().priorityByDBID(distanceQuery, maxrange, flags);
@@ -811,13 +869,26 @@ public class QueryBuilder<O> {
       return null;
     }
     logNotAccelerated("priority");
-    if(distanceQuery instanceof PrimitiveDistanceQuery && EuclideanDistance.STATIC.equals(distance)) {
+    if(isPrimitiveScan(distanceQuery) && EuclideanDistance.STATIC.equals(distance)) {
       PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) distanceQuery;
       return (PrioritySearcher<DBIDRef>) new LinearScanEuclideanPrioritySearcher.ByDBID<>(ndq);
     }
     return new LinearScanPrioritySearcher.ByDBID<>(distanceQuery);
   }
 
+  /**
+   * Test if the specialized linear scans for primitive distances can be used.
+   * <p>
+   * These scans call the distance function directly, so they are not used
+   * when distance computations are counted.
+   *
+   * @param distanceQuery Distance query
+   * @return {@code true} if the primitive scans can be used
+   */
+  private static boolean isPrimitiveScan(DistanceQuery<?> distanceQuery) {
+    return distanceQuery instanceof PrimitiveDistanceQuery && !(distanceQuery instanceof CountingDistanceQuery);
+  }
+
   /**
    * Log if we use a particular index.
    *
@@ -0,0 +1,177 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import elki.logging.Logging;
+import elki.logging.statistics.DoubleStatistic;
+import elki.logging.statistics.LongStatistic;
+
+/**
+ * Opt-in instrumentation of the queries built by the {@link QueryBuilder}:
+ * number of distance computations, and the number and latency of kNN and
+ * range queries, separately for each query implementation.
+ * <p>
+ * If enabled, the query builder wraps the queries it returns, so queries
+ * obtained earlier are not counted. Counters are striped ({@link LongAdder}),
+ * and latencies are collected in a histogram with power-of-two buckets, so
+ * the overhead is small even for concurrent queries. Index-internal
+ * statistics such as node and page accesses are reported by
+ * {@link elki.index.Index#logStatistics()}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class QueryStatistics {
+  /**
+   * Whether instrumentation is enabled.
+   */
+  private static volatile boolean enabled = false;
+
+  /**
+   * Statistics by key.
+   */
+  private static final ConcurrentHashMap<String, QueryStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+  /**
+   * Number of queries or distance computations.
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Total time in nanoseconds.
+   */
+  private final LongAdder nanos = new LongAdder();
+
+  /**
+   * Latency histogram, bucket i counts durations in [2^i, 2^(i+1)) ns.
+   */
+  private final LongAdder[] histogram = new LongAdder[Long.SIZE];
+
+  /**
+   * Constructor.
+   */
+  private QueryStatistics() {
+    super();
+    for(int i = 0; i < histogram.length; i++) {
+      histogram[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Enable or disable instrumentation of new queries.
+   *
+   * @param enable Enable flag
+   */
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+  }
+
+  /**
+   * Test whether instrumentation is enabled.
+   *
+   * @return {@code true} if enabled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Get the statistics for a key.
+   *
+   * @param key Key, usually query class and query type
+   * @return Statistics
+   */
+  public static QueryStatistics get(String key) {
+    return STATISTICS.computeIfAbsent(key, k -> new QueryStatistics());
+  }
+
+  /**
+   * Count an operation without timing.
+   */
+  public void increment() {
+    count.increment();
+  }
+
+  /**
+   * Record a timed operation.
+   *
+   * @param start Start time from {@link System#nanoTime()}
+   */
+  public void record(long start) {
+    final long t = System.nanoTime() - start;
+    count.increment();
+    nanos.add(t);
+    histogram[63 - Long.numberOfLeadingZeros(t | 1L)].increment();
+  }
+
+  /**
+   * Get the number of operations.
+   *
+   * @return Count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Estimate a quantile of the latency from the histogram.
+   *
+   * @param q Quantile
+   * @param total Number of timed operations
+   * @return Upper bound of the histogram bucket, in microseconds
+   */
+  private double quantile(double q, long total) {
+    long seen = 0;
+    for(int i = 0; i < histogram.length; i++) {
+      seen += histogram[i].sum();
+      if(seen >= q * total) {
+        return Math.scalb(1., i + 1) * 1e-3;
+      }
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Log all statistics, and reset them.
+   *
+   * @param log Logger to use
+   */
+  public static void logAndReset(Logging log) {
+    List<String> keys = new ArrayList<>(STATISTICS.keySet());
+    Collections.sort(keys);
+    for(String key : keys) {
+      QueryStatistics stat = STATISTICS.remove(key);
+      final long c = stat.count.sum(), t = stat.nanos.sum();
+      log.statistics(new LongStatistic(key + ".count", c));
+      if(t > 0) {
+        log.statistics(new DoubleStatistic(key + ".mean-time.us", t * 1e-3 / c));
+        log.statistics(new DoubleStatistic(key + ".median-time.us", stat.quantile(.5, c)));
+        log.statistics(new DoubleStatistic(key + ".p99-time.us", stat.quantile(.99, c)));
+      }
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query.distance;
+
+import elki.data.spatial.SpatialComparable;
+import elki.database.ids.DBIDRef;
+import elki.database.query.QueryStatistics;
+import elki.database.relation.Relation;
+import elki.distance.Distance;
+
+/**
+ * Distance query wrapper that counts the number of distance computations.
+ * <p>
+ * Primitive and spatial primitive distance queries are wrapped into subclasses
+ * of {@link PrimitiveDistanceQuery} and {@link SpatialPrimitiveDistanceQuery},
+ * so that code (and indexes) that check for these types continue to work.
+ * All distance computations of these classes go through
+ * {@link PrimitiveDistanceQuery#distance(Object, Object)}, which is counted.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - QueryStatistics
+ *
+ * @param <O> Object type
+ */
+public interface CountingDistanceQuery<O> extends DistanceQuery<O> {
+  /**
+   * Get the wrapped query.
+   *
+   * @return Inner query
+   */
+  DistanceQuery<O> getInner();
+
+  /**
+   * Wrap a query, if instrumentation is enabled.
+   *
+   * @param inner Inner query
+   * @param <O> Object type
+   * @return Wrapped query, or the inner query
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  static <O> DistanceQuery<O> wrap(DistanceQuery<O> inner) {
+    if(inner == null || inner instanceof CountingDistanceQuery || !QueryStatistics.isEnabled()) {
+      return inner;
+    }
+    if(inner instanceof SpatialPrimitiveDistanceQuery) {
+      return new SpatialPrimitive((SpatialPrimitiveDistanceQuery<?>) inner);
+    }
+    if(inner instanceof PrimitiveDistanceQuery) {
+      return new Primitive<>((PrimitiveDistanceQuery<O>) inner);
+    }
+    return new Generic<>(inner);
+  }
+
+  /**
+   * Unwrap a counting query.
+   *
+   * @param query Query
+   * @param <O> Object type
+   * @return Inner query, or the query itself
+   */
+  static <O> DistanceQuery<O> unwrap(DistanceQuery<O> query) {
+    return query instanceof CountingDistanceQuery ? ((CountingDistanceQuery<O>) query).getInner() : query;
+  }
+
+  /**
+   * Statistics key for a distance query.
+   *
+   * @param inner Inner query
+   * @return Counter
+   */
+  static QueryStatistics counter(DistanceQuery<?> inner) {
+    return QueryStatistics.get(inner.getClass().getName() + "." + inner.getDistance().getClass().getSimpleName() + ".distance");
+  }
+
+  /**
+   * Counting wrapper for arbitrary distance queries.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  class Generic<O> implements CountingDistanceQuery<O> {
+    /**
+     * Inner query.
+     */
+    private DistanceQuery<O> inner;
+
+    /**
+     * Counter.
+     */
+    private QueryStatistics stats;
+
+    /**
+     * Constructor.
+     *
+     * @param inner Inner query
+     */
+    public Generic(DistanceQuery<O> inner) {
+      super();
+      this.inner = inner;
+      this.stats = counter(inner);
+    }
+
+    @Override
+    public double distance(DBIDRef id1, DBIDRef id2) {
+      stats.increment();
+      return inner.distance(id1, id2);
+    }
+
+    @Override
+    public double distance(O o1, DBIDRef id2) {
+      stats.increment();
+      return inner.distance(o1, id2);
+    }
+
+    @Override
+    public double distance(DBIDRef id1, O o2) {
+      stats.increment();
+      return inner.distance(id1, o2);
+    }
+
+    @Override
+    public double distance(O o1, O o2) {
+      stats.increment();
+      return inner.distance(o1, o2);
+    }
+
+    @Override
+    public Distance<? super O> getDistance() {
+      return inner.getDistance();
+    }
+
+    @Override
+    public Relation<? extends O> getRelation() {
+      return inner.getRelation();
+    }
+
+    @Override
+    public DistanceQuery<O> getInner() {
+      return inner;
+    }
+  }
+
+  /**
+   * Counting wrapper for primitive distance queries.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  class Primitive<O> extends PrimitiveDistanceQuery<O> implements CountingDistanceQuery<O> {
+    /**
+     * Inner query.
+     */
+    private PrimitiveDistanceQuery<O> inner;
+
+    /**
+     * Counter.
+     */
+    private QueryStatistics stats;
+
+    /**
+     * Constructor.
+     *
+     * @param inner Inner query
+     */
+    public Primitive(PrimitiveDistanceQuery<O> inner) {
+      super(inner.getRelation(), inner.getDistance());
+      this.inner = inner;
+      this.stats = counter(inner);
+    }
+
+    @Override
+    public double distance(O o1, O o2) {
+      stats.increment();
+      return inner.distance(o1, o2);
+    }
+
+    @Override
+    public PrimitiveDistanceQuery<O> getInner() {
+      return inner;
+    }
+  }
+
+  /**
+   * Counting wrapper for spatial primitive distance queries.
+   * <p>
+   * Bounding box distances ({@code minDist}) are not counted.
+   *
+   * @author Erich Schubert
+   *
+   * @param <V> Object type
+   */
+  class SpatialPrimitive<V extends SpatialComparable> extends SpatialPrimitiveDistanceQuery<V> implements CountingDistanceQuery<V> {
+    /**
+     * Inner query.
+     */
+    private SpatialPrimitiveDistanceQuery<V> inner;
+
+    /**
+     * Counter.
+     */
+    private QueryStatistics stats;
+
+    /**
+     * Constructor.
+     *
+     * @param inner Inner query
+     */
+    public SpatialPrimitive(SpatialPrimitiveDistanceQuery<V> inner) {
+      super(inner.getRelation(), inner.getDistance());
+      this.inner = inner;
+      this.stats = counter(inner);
+    }
+
+    @Override
+    public double distance(V o1, V o2) {
+      stats.increment();
+      return inner.distance(o1, o2);
+    }
+
+    @Override
+    public double minDist(SpatialComparable mbr, V v) {
+      return inner.minDist(mbr, v);
+    }
+
+    @Override
+    public SpatialPrimitiveDistanceQuery<V> getInner() {
+      return inner;
+    }
+  }
+}
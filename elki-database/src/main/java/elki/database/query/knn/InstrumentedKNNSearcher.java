@@ -0,0 +1,105 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query.knn;
+
+import elki.database.ids.KNNHeap;
+import elki.database.ids.KNNList;
+import elki.database.query.LinearScanQuery;
+import elki.database.query.QueryStatistics;
+
+/**
+ * kNN searcher wrapper that counts queries and measures their latency.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - QueryStatistics
+ *
+ * @param <O> Object type
+ */
+public class InstrumentedKNNSearcher<O> implements KNNSearcher<O> {
+  /**
+   * Inner searcher.
+   */
+  private KNNSearcher<O> inner;
+
+  /**
+   * Statistics.
+   */
+  private QueryStatistics stats;
+
+  /**
+   * Constructor.
+   *
+   * @param inner Inner searcher
+   */
+  private InstrumentedKNNSearcher(KNNSearcher<O> inner) {
+    super();
+    this.inner = inner;
+    this.stats = QueryStatistics.get(inner.getClass().getName() + ".knn");
+  }
+
+  @Override
+  public KNNList getKNN(O query, int k) {
+    final long start = System.nanoTime();
+    KNNList result = inner.getKNN(query, k);
+    stats.record(start);
+    return result;
+  }
+
+  @Override
+  public KNNHeap getKNN(O query, KNNHeap heap) {
+    final long start = System.nanoTime();
+    inner.getKNN(query, heap);
+    stats.record(start);
+    return heap;
+  }
+
+  /**
+   * Instrumented linear scan.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  public static class Linear<O> extends InstrumentedKNNSearcher<O> implements LinearScanQuery {
+    /**
+     * Constructor.
+     *
+     * @param inner Inner searcher
+     */
+    private Linear(KNNSearcher<O> inner) {
+      super(inner);
+    }
+  }
+
+  /**
+   * Wrap a searcher, if instrumentation is enabled.
+   *
+   * @param inner Inner searcher
+   * @param <O> Object type
+   * @return Wrapped searcher, or the inner searcher
+   */
+  public static <O> KNNSearcher<O> wrap(KNNSearcher<O> inner) {
+    return inner == null || !QueryStatistics.isEnabled() ? inner : //
+        inner instanceof LinearScanQuery ? new Linear<>(inner) : new InstrumentedKNNSearcher<>(inner);
+  }
+}
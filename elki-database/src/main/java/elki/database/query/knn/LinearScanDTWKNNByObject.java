@@ -0,0 +1,184 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query.knn;
+
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.WritableDataStore;
+import elki.database.ids.*;
+import elki.database.query.LinearScanQuery;
+import elki.database.query.distance.PrimitiveDistanceQuery;
+import elki.database.relation.Relation;
+import elki.distance.Distance;
+import elki.distance.timeseries.DTWDistance;
+import elki.distance.timeseries.DTWLowerBounds;
+import elki.distance.timeseries.DerivativeDTWDistance;
+import elki.utilities.documentation.Reference;
+
+import net.jafama.FastMath;
+
+/**
+ * Linear scan kNN search for dynamic time warping, using a cascade of lower
+ * bounds before computing the exact distance.
+ * <p>
+ * Each candidate is first checked with LB_Kim, then (for sequences of equal
+ * length) with LB_Keogh against the envelope of the query and with LB_Keogh of
+ * the query against the envelope of the candidate. Only the remaining
+ * candidates are compared with the exact (banded) DTW distance, with early
+ * abandoning and a reused buffer.
+ * <p>
+ * The sequences and envelopes of all objects are precomputed when this
+ * searcher is constructed, at the cost of three times the memory of the data.
+ * This is used for {@link DTWDistance} and
+ * {@link DerivativeDTWDistance}.
+ * <p>
+ * Reference:
+ * <p>
+ * T. Rakthanmanon, B. Campana, A. Mueen, G. Batista, B. Westover, Q. Zhu, J.
+ * Zakaria, E. Keogh<br>
+ * Searching and mining trillions of time series subsequences under dynamic
+ * time warping<br>
+ * Proc. 18th ACM SIGKDD Int. Conf. on Knowledge Discovery and Data Mining
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - - - DTWDistance
+ * @assoc - - - DTWLowerBounds
+ *
+ * @param <O> relation object type
+ */
+@Reference(authors = "T. Rakthanmanon, B. Campana, A. Mueen, G. Batista, B. Westover, Q. Zhu, J. Zakaria, E. Keogh", //
+    title = "Searching and mining trillions of time series subsequences under dynamic time warping", //
+    booktitle = "Proc. 18th ACM SIGKDD Int. Conf. on Knowledge Discovery and Data Mining", //
+    url = "https://doi.org/10.1145/2339530.2339576", //
+    bibkey = "DBLP:conf/kdd/RakthanmanonCMBWZZK12")
+public class LinearScanDTWKNNByObject<O extends NumberVector> implements KNNSearcher<O>, LinearScanQuery {
+  /**
+   * Relation to query.
+   */
+  private final Relation<? extends O> relation;
+
+  /**
+   * Distance function.
+   */
+  private final DTWDistance distance;
+
+  /**
+   * Plain DTW on the sequences, with the same band.
+   */
+  private final DTWDistance kernel;
+
+  /**
+   * Precomputed sequence, upper and lower envelope of each object.
+   */
+  private final WritableDataStore<double[][]> envelopes;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceQuery Distance function to use
+   */
+  public LinearScanDTWKNNByObject(PrimitiveDistanceQuery<O> distanceQuery) {
+    super();
+    assert applicable(distanceQuery.getDistance());
+    this.relation = distanceQuery.getRelation();
+    this.distance = (DTWDistance) distanceQuery.getDistance();
+    this.kernel = new DTWDistance(distance.getBandSize());
+    this.envelopes = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, double[][].class);
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+      envelopes.put(iter, prepare(relation.get(iter)));
+    }
+  }
+
+  /**
+   * Compute the sequence and its envelope.
+   *
+   * @param v Vector
+   * @return Sequence, upper envelope, lower envelope
+   */
+  private double[][] prepare(NumberVector v) {
+    final double[] seq = distance.sequence(v);
+    final int n = seq.length;
+    final double[] upper = new double[n], lower = new double[n];
+    DTWLowerBounds.envelope(seq, distance.effectiveBandSize(n, n), upper, lower);
+    return new double[][] { seq, upper, lower };
+  }
+
+  @Override
+  public KNNList getKNN(O obj, int k) {
+    return getKNN(obj, DBIDUtil.newHeap(k)).toKNNList();
+  }
+
+  @Override
+  public KNNHeap getKNN(O obj, KNNHeap heap) {
+    final double[][] qe = prepare(obj);
+    final double[] q = qe[0], qu = qe[1], ql = qe[2];
+    final DoubleVector qv = DoubleVector.wrap(q);
+    double[] buf = new double[q.length << 1];
+    double max = heap.getKNNDistance(), bound = max * max;
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+      double[][] ce = envelopes.get(iter);
+      // Objects added after construction:
+      ce = ce != null ? ce : prepare(relation.get(iter));
+      final double[] c = ce[0];
+      if(pruned(DTWLowerBounds.lbKim(q, c), bound, max)) {
+        continue;
+      }
+      if(c.length == q.length && (pruned(DTWLowerBounds.lbKeogh(c, qu, ql, bound), bound, max) //
+          || pruned(DTWLowerBounds.lbKeogh(q, ce[1], ce[2], bound), bound, max))) {
+        continue;
+      }
+      buf = buf.length >= c.length << 1 ? buf : new double[c.length << 1];
+      final double dist = kernel.distance(qv, DoubleVector.wrap(c), max, buf);
+      if(dist <= max) {
+        max = heap.insert(dist, iter);
+        bound = max * max;
+      }
+    }
+    return heap;
+  }
+
+  /**
+   * Test whether a lower bound on the squared distance allows pruning.
+   *
+   * @param lb Lower bound of the squared distance
+   * @param bound Squared maximum distance
+   * @param max Maximum distance
+   * @return {@code true} if the candidate cannot be a neighbor
+   */
+  private static boolean pruned(double lb, double bound, double max) {
+    return lb > bound && FastMath.sqrt(lb) > max;
+  }
+
+  /**
+   * Test whether this searcher can be used with a distance function.
+   *
+   * @param distance Distance function
+   * @return {@code true} for DTW and derivative DTW
+   */
+  public static boolean applicable(Distance<?> distance) {
+    return distance != null && (distance.getClass() == DTWDistance.class //
+        || distance.getClass() == DerivativeDTWDistance.class);
+  }
+}
@@ -22,6 +22,7 @@ package elki.database.query.knn;
 
 import elki.data.NumberVector;
 import elki.database.ids.*;
+import elki.database.query.BulkDistanceScan;
 import elki.database.query.distance.PrimitiveDistanceQuery;
 import elki.database.relation.Relation;
 import elki.distance.minkowski.EuclideanDistance;
@@ -58,6 +59,9 @@ public class LinearScanEuclideanKNNByObject<O extends NumberVector> extends Line
   @Override
   public KNNList getKNN(O obj, int k) {
     final SquaredEuclideanDistance squared = SquaredEuclideanDistance.STATIC;
+    if(BulkDistanceScan.applicable(squared, relation)) {
+      return getKNNBulk(squared, obj, DBIDUtil.newHeap(k)).toKNNListSqrt();
+    }
     final Relation<? extends O> relation = this.relation;
     final KNNHeap heap = DBIDUtil.newHeap(k);
     double max = Double.POSITIVE_INFINITY;
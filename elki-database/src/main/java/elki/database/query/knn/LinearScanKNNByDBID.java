@@ -52,13 +52,17 @@ public class LinearScanKNNByDBID<O> implements KNNSearcher<DBIDRef>, LinearScanQ
 
   @Override
   public KNNList getKNN(DBIDRef id, int k) {
+    return getKNN(id, DBIDUtil.newHeap(k)).toKNNList();
+  }
+
+  @Override
+  public KNNHeap getKNN(DBIDRef id, KNNHeap heap) {
     final DistanceQuery<O> dq = distanceQuery;
-    KNNHeap heap = DBIDUtil.newHeap(k);
-    double max = Double.POSITIVE_INFINITY;
+    double max = heap.getKNNDistance();
     for(DBIDIter iter = dq.getRelation().iterDBIDs(); iter.valid(); iter.advance()) {
       final double dist = dq.distance(id, iter);
       max = dist <= max ? heap.insert(dist, iter) : max;
     }
-    return heap.toKNNList();
+    return heap;
   }
 }
@@ -52,13 +52,17 @@ public class LinearScanKNNByObject<O> implements KNNSearcher<O>, LinearScanQuery
 
   @Override
   public KNNList getKNN(O obj, int k) {
+    return getKNN(obj, DBIDUtil.newHeap(k)).toKNNList();
+  }
+
+  @Override
+  public KNNHeap getKNN(O obj, KNNHeap heap) {
     final DistanceQuery<O> dq = distanceQuery;
-    KNNHeap heap = DBIDUtil.newHeap(k);
-    double max = Double.POSITIVE_INFINITY;
+    double max = heap.getKNNDistance();
     for(DBIDIter iter = dq.getRelation().iterDBIDs(); iter.valid(); iter.advance()) {
       final double dist = dq.distance(obj, iter);
       max = dist <= max ? heap.insert(dist, iter) : max;
     }
-    return heap.toKNNList();
+    return heap;
   }
 }
@@ -20,10 +20,13 @@
  */
 package elki.database.query.knn;
 
+import elki.data.NumberVector;
 import elki.database.ids.*;
+import elki.database.query.BulkDistanceScan;
 import elki.database.query.LinearScanQuery;
 import elki.database.query.distance.PrimitiveDistanceQuery;
 import elki.database.relation.Relation;
+import elki.distance.BulkDistance;
 import elki.distance.PrimitiveDistance;
 
 /**
@@ -31,6 +34,9 @@ import elki.distance.PrimitiveDistance;
  * <p>
  * This is a subtle optimization: for primitive queries, it is clearly faster to
  * retrieve the query object from the relation only once!
+ * <p>
+ * For {@link BulkDistance}s on dense vectors, the distances are computed in
+ * blocks using {@link BulkDistanceScan}.
  * 
  * @author Erich Schubert
  * @since 0.4.0
@@ -51,6 +57,11 @@ public class LinearScanPrimitiveKNNByObject<O> implements KNNSearcher<O>, Linear
    */
   protected Relation<? extends O> relation;
 
+  /**
+   * Bulk distance function, or {@code null}.
+   */
+  private BulkDistance bulk;
+
   /**
    * Constructor.
    * 
@@ -60,18 +71,49 @@ public class LinearScanPrimitiveKNNByObject<O> implements KNNSearcher<O>, Linear
     super();
     rawdist = distanceQuery.getDistance();
     relation = distanceQuery.getRelation();
+    bulk = BulkDistanceScan.applicable(rawdist, relation) ? (BulkDistance) rawdist : null;
   }
 
   @Override
   public KNNList getKNN(O obj, int k) {
+    return getKNN(obj, DBIDUtil.newHeap(k)).toKNNList();
+  }
+
+  @Override
+  public KNNHeap getKNN(O obj, KNNHeap heap) {
+    if(bulk != null) {
+      return getKNNBulk(bulk, obj, heap);
+    }
     final PrimitiveDistance<? super O> rawdist = this.rawdist;
     final Relation<? extends O> relation = this.relation;
-    KNNHeap heap = DBIDUtil.newHeap(k);
-    double max = Double.POSITIVE_INFINITY;
+    double max = heap.getKNNDistance();
     for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
-      final double dist = rawdist.distance(obj, relation.get(iter));
+      final double dist = rawdist.distance(obj, relation.get(iter), max);
       max = dist <= max ? heap.insert(dist, iter) : max;
     }
-    return heap.toKNNList();
+    return heap;
+  }
+
+  /**
+   * Perform a kNN search using a bulk distance.
+   *
+   * @param bulk Bulk distance function
+   * @param obj Query object
+   * @param heap kNN heap to fill
+   * @return kNN heap
+   */
+  @SuppressWarnings("unchecked")
+  protected KNNHeap getKNNBulk(BulkDistance bulk, O obj, KNNHeap heap) {
+    BulkDistanceScan scan = new BulkDistanceScan(bulk, (Relation<? extends NumberVector>) relation, (NumberVector) obj);
+    double max = heap.getKNNDistance();
+    for(int n; (n = scan.next()) > 0;) {
+      final double[] dists = scan.distances();
+      DBIDArrayIter it = scan.iter();
+      for(int i = 0; i < n; i++, it.advance()) {
+        final double dist = dists[i];
+        max = dist <= max ? heap.insert(dist, it) : max;
+      }
+    }
+    return heap;
   }
 }
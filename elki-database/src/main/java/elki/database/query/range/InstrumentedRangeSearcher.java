@@ -0,0 +1,105 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query.range;
+
+import elki.database.ids.DoubleDBIDList;
+import elki.database.ids.ModifiableDoubleDBIDList;
+import elki.database.query.LinearScanQuery;
+import elki.database.query.QueryStatistics;
+
+/**
+ * Range searcher wrapper that counts queries and measures their latency.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - QueryStatistics
+ *
+ * @param <O> Object type
+ */
+public class InstrumentedRangeSearcher<O> implements RangeSearcher<O> {
+  /**
+   * Inner searcher.
+   */
+  private RangeSearcher<O> inner;
+
+  /**
+   * Statistics.
+   */
+  private QueryStatistics stats;
+
+  /**
+   * Constructor.
+   *
+   * @param inner Inner searcher
+   */
+  private InstrumentedRangeSearcher(RangeSearcher<O> inner) {
+    super();
+    this.inner = inner;
+    this.stats = QueryStatistics.get(inner.getClass().getName() + ".range");
+  }
+
+  @Override
+  public DoubleDBIDList getRange(O query, double range) {
+    final long start = System.nanoTime();
+    DoubleDBIDList result = inner.getRange(query, range);
+    stats.record(start);
+    return result;
+  }
+
+  @Override
+  public ModifiableDoubleDBIDList getRange(O query, double range, ModifiableDoubleDBIDList result) {
+    final long start = System.nanoTime();
+    inner.getRange(query, range, result);
+    stats.record(start);
+    return result;
+  }
+
+  /**
+   * Instrumented linear scan.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  public static class Linear<O> extends InstrumentedRangeSearcher<O> implements LinearScanQuery {
+    /**
+     * Constructor.
+     *
+     * @param inner Inner searcher
+     */
+    private Linear(RangeSearcher<O> inner) {
+      super(inner);
+    }
+  }
+
+  /**
+   * Wrap a searcher, if instrumentation is enabled.
+   *
+   * @param inner Inner searcher
+   * @param <O> Object type
+   * @return Wrapped searcher, or the inner searcher
+   */
+  public static <O> RangeSearcher<O> wrap(RangeSearcher<O> inner) {
+    return inner == null || !QueryStatistics.isEnabled() ? inner : //
+        inner instanceof LinearScanQuery ? new Linear<>(inner) : new InstrumentedRangeSearcher<>(inner);
+  }
+}
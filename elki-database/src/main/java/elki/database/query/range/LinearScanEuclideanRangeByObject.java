@@ -21,8 +21,10 @@
 package elki.database.query.range;
 
 import elki.data.NumberVector;
+import elki.database.ids.DBIDArrayIter;
 import elki.database.ids.DBIDIter;
 import elki.database.ids.ModifiableDoubleDBIDList;
+import elki.database.query.BulkDistanceScan;
 import elki.database.query.LinearScanQuery;
 import elki.database.query.distance.DistanceQuery;
 import elki.database.relation.Relation;
@@ -62,6 +64,19 @@ public class LinearScanEuclideanRangeByObject<O extends NumberVector> implements
     final SquaredEuclideanDistance squared = SquaredEuclideanDistance.STATIC;
     float frange = Math.nextUp((float) range);
     final double sqrange = frange * frange;
+    if(BulkDistanceScan.applicable(squared, relation)) {
+      BulkDistanceScan scan = new BulkDistanceScan(squared, relation, obj);
+      for(int n; (n = scan.next()) > 0;) {
+        final double[] dists = scan.distances();
+        DBIDArrayIter it = scan.iter();
+        for(int i = 0; i < n; i++, it.advance()) {
+          if(dists[i] <= sqrange) {
+            result.add(FastMath.sqrt(dists[i]), it);
+          }
+        }
+      }
+      return result;
+    }
     for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
       final double sqdistance = squared.distance(obj, relation.get(iter));
       if(sqdistance <= sqrange) {
@@ -20,10 +20,13 @@
  */
 package elki.database.query.range;
 
+import elki.data.NumberVector;
 import elki.database.ids.*;
+import elki.database.query.BulkDistanceScan;
 import elki.database.query.LinearScanQuery;
 import elki.database.query.distance.PrimitiveDistanceQuery;
 import elki.database.relation.Relation;
+import elki.distance.BulkDistance;
 import elki.distance.PrimitiveDistance;
 
 /**
@@ -59,8 +62,22 @@ public class LinearScanPrimitiveDistanceRangeByObject<O> implements RangeSearche
   public ModifiableDoubleDBIDList getRange(O obj, double range, ModifiableDoubleDBIDList result) {
     final PrimitiveDistance<? super O> rawdist = this.distance.getDistance();
     final Relation<? extends O> relation = this.distance.getRelation();
+    if(BulkDistanceScan.applicable(rawdist, relation)) {
+      @SuppressWarnings("unchecked")
+      BulkDistanceScan scan = new BulkDistanceScan((BulkDistance) rawdist, (Relation<? extends NumberVector>) relation, (NumberVector) obj);
+      for(int n; (n = scan.next()) > 0;) {
+        final double[] dists = scan.distances();
+        DBIDArrayIter it = scan.iter();
+        for(int i = 0; i < n; i++, it.advance()) {
+          if(dists[i] <= range) {
+            result.add(dists[i], it);
+          }
+        }
+      }
+      return result;
+    }
     for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
-      final double distance = rawdist.distance(obj, relation.get(iter));
+      final double distance = rawdist.distance(obj, relation.get(iter), range);
       if(distance <= range) {
         result.add(distance, iter);
       }
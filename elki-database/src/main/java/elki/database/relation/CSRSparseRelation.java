@@ -0,0 +1,225 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.relation;
+
+import java.util.List;
+
+import elki.data.CSRSparseVector;
+import elki.data.SparseNumberVector;
+import elki.data.type.SimpleTypeInformation;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.data.type.VectorTypeInformation;
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDRange;
+import elki.database.ids.DBIDRef;
+
+/**
+ * Relation of sparse vectors, stored in compressed sparse row (CSR) form.
+ * <p>
+ * All non-zero entries are stored in two shared arrays of dimension indexes
+ * and values, plus an array of row offsets. Objects are returned as
+ * {@link CSRSparseVector} views into these arrays. Compared to storing one
+ * {@link elki.data.SparseDoubleVector} per object, this saves two array
+ * headers per object, and keeps the data contiguous in memory.
+ * <p>
+ * This relation is static, and requires the objects to be a contiguous range
+ * of DBIDs.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - CSRSparseVector
+ */
+public class CSRSparseRelation implements Relation<CSRSparseVector> {
+  /**
+   * The DBIDs of this relation.
+   */
+  private final DBIDRange ids;
+
+  /**
+   * Row offsets, of length size + 1.
+   */
+  private final int[] rowptr;
+
+  /**
+   * Dimension indexes of the non-zero entries.
+   */
+  private final int[] indexes;
+
+  /**
+   * Values of the non-zero entries.
+   */
+  private final double[] values;
+
+  /**
+   * Dimensionality of the vectors.
+   */
+  private final int dim;
+
+  /**
+   * Type information.
+   */
+  private final SimpleTypeInformation<CSRSparseVector> type;
+
+  /**
+   * The relation name.
+   */
+  private final String name;
+
+  /**
+   * Constructor.
+   *
+   * @param name Relation name, may be {@code null}
+   * @param ids Object IDs
+   * @param rowptr Row offsets, of length size + 1
+   * @param indexes Dimension indexes, sorted within each row
+   * @param values Values
+   * @param type Type information
+   */
+  public CSRSparseRelation(String name, DBIDRange ids, int[] rowptr, int[] indexes, double[] values, SimpleTypeInformation<CSRSparseVector> type) {
+    super();
+    assert rowptr.length == ids.size() + 1 && rowptr[ids.size()] <= indexes.length;
+    this.name = name;
+    this.ids = ids;
+    this.rowptr = rowptr;
+    this.indexes = indexes;
+    this.values = values;
+    this.type = type;
+    this.dim = type instanceof VectorTypeInformation ? ((VectorTypeInformation<?>) type).maxdim() : Integer.MAX_VALUE;
+  }
+
+  /**
+   * Convert a list of sparse vectors into CSR form.
+   *
+   * @param name Relation name, may be {@code null}
+   * @param ids Object IDs
+   * @param data Sparse vectors, in the same order as the IDs
+   * @param type Original type information
+   * @return New relation
+   */
+  public static CSRSparseRelation build(String name, DBIDRange ids, List<? extends SparseNumberVector> data, SimpleTypeInformation<?> type) {
+    final int size = ids.size();
+    assert data.size() == size;
+    // First pass: count the non-zero values, and the dimensionality.
+    int[] rowptr = new int[size + 1];
+    int mindim = Integer.MAX_VALUE, maxdim = 0;
+    long nnz = 0;
+    for(int i = 0; i < size; i++) {
+      final SparseNumberVector v = data.get(i);
+      for(int it = v.iter(); v.iterValid(it); it = v.iterAdvance(it)) {
+        ++nnz;
+      }
+      rowptr[i + 1] = (int) nnz;
+      final int d = v.getDimensionality();
+      mindim = d < mindim ? d : mindim;
+      maxdim = d > maxdim ? d : maxdim;
+    }
+    if(nnz > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Too many non-zero values for CSR storage: " + nnz);
+    }
+    // Second pass: copy the data.
+    int[] indexes = new int[(int) nnz];
+    double[] values = new double[(int) nnz];
+    for(int i = 0, p = 0; i < size; i++) {
+      final SparseNumberVector v = data.get(i);
+      for(int it = v.iter(); v.iterValid(it); it = v.iterAdvance(it), p++) {
+        indexes[p] = v.iterDim(it);
+        values[p] = v.iterDoubleValue(it);
+      }
+    }
+    mindim = mindim <= maxdim ? mindim : maxdim;
+    SimpleTypeInformation<CSRSparseVector> ntype;
+    if(type instanceof VectorFieldTypeInformation && ((VectorFieldTypeInformation<?>) type).mindim() == ((VectorFieldTypeInformation<?>) type).maxdim()) {
+      // Keep the dimensionality and column labels of the input.
+      VectorFieldTypeInformation<?> vtype = (VectorFieldTypeInformation<?>) type;
+      final int d = vtype.getDimensionality();
+      String[] labels = new String[d];
+      for(int i = 0; i < d; i++) {
+        labels[i] = vtype.getLabel(i);
+      }
+      ntype = new VectorFieldTypeInformation<>(CSRSparseVector.FACTORY, d, d > 0 && labels[0] != null ? labels : null, CSRSparseVector.VARIABLE_SERIALIZER);
+    }
+    else {
+      ntype = new VectorTypeInformation<>(CSRSparseVector.FACTORY, CSRSparseVector.VARIABLE_SERIALIZER, mindim, maxdim);
+    }
+    return new CSRSparseRelation(name, ids, rowptr, indexes, values, ntype);
+  }
+
+  @Override
+  public CSRSparseVector get(DBIDRef id) {
+    final int off = ids.getOffset(id);
+    return new CSRSparseVector(indexes, values, rowptr[off], rowptr[off + 1], dim);
+  }
+
+  /**
+   * Get the row offsets. Row i uses the positions from {@code rowptr[i]} to
+   * {@code rowptr[i+1]} (exclusive) in the index and value arrays, where i is
+   * the offset in {@link #getDBIDs()}.
+   *
+   * @return Row offsets, not a copy
+   */
+  public int[] getRowPointers() {
+    return rowptr;
+  }
+
+  /**
+   * Get the dimension indexes of all non-zero entries.
+   *
+   * @return Dimension indexes, not a copy
+   */
+  public int[] getIndexes() {
+    return indexes;
+  }
+
+  /**
+   * Get the values of all non-zero entries.
+   *
+   * @return Values, not a copy
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  @Override
+  public DBIDRange getDBIDs() {
+    return ids;
+  }
+
+  @Override
+  public DBIDIter iterDBIDs() {
+    return ids.iter();
+  }
+
+  @Override
+  public int size() {
+    return ids.size();
+  }
+
+  @Override
+  public SimpleTypeInformation<CSRSparseVector> getDataTypeInformation() {
+    return type;
+  }
+
+  @Override
+  public String getLongName() {
+    return name != null ? name : type.toString();
+  }
+}
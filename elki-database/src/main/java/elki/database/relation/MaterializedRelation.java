@@ -20,6 +20,8 @@
  */
 package elki.database.relation;
 
+import java.util.List;
+
 import elki.data.type.SimpleTypeInformation;
 import elki.database.datastore.DataStore;
 import elki.database.datastore.DataStoreFactory;
@@ -149,6 +151,45 @@ public class MaterializedRelation<O> implements ModifiableRelation<O> {
     ((WritableDataStore<O>) content).delete(id);
   }
 
+  @Override
+  public void insertAll(DBIDs newids, List<? extends O> vals) {
+    assert (newids.size() == vals.size());
+    if(!(content instanceof WritableDataStore)) {
+      throw new AbortException("Data is stored in a non-writable data store. Modifications are not possible.");
+    }
+    final WritableDataStore<O> store = (WritableDataStore<O>) content;
+    DBIDIter iter = newids.iter();
+    for(O val : vals) {
+      assert (ids.contains(iter)) : "Object not yet in DBIDs.";
+      store.put(iter, val);
+      iter.advance();
+    }
+    for(It<Index> it = Metadata.hierarchyOf(this).iterDescendants().filter(Index.class); it.valid(); it.advance()) {
+      if(!(it.get() instanceof DynamicIndex)) {
+        throw new AbortException("A non-dynamic index was added to this database. Modifications are not allowed, unless this index is removed.");
+      }
+      ((DynamicIndex) it.get()).insertAll(newids);
+    }
+  }
+
+  @Override
+  public void deleteAll(DBIDs delids) {
+    if(!(content instanceof WritableDataStore)) {
+      throw new AbortException("Data is stored in a non-writable data store. Modifications are not possible.");
+    }
+    for(It<Index> it = Metadata.hierarchyOf(this).iterDescendants().filter(Index.class); it.valid(); it.advance()) {
+      if(!(it.get() instanceof DynamicIndex)) {
+        throw new AbortException("A non-dynamic index was added to this database. Modifications are not allowed, unless this index is removed.");
+      }
+      ((DynamicIndex) it.get()).deleteAll(delids);
+    }
+    final WritableDataStore<O> store = (WritableDataStore<O>) content;
+    for(DBIDIter iter = delids.iter(); iter.valid(); iter.advance()) {
+      assert (!ids.contains(iter)) : "Object still in DBIDs.";
+      store.delete(iter);
+    }
+  }
+
   @Override
   public StaticDBIDs getDBIDs() {
     return ids;
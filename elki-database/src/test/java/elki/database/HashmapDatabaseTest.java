@@ -0,0 +1,197 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.data.type.TypeInformation;
+import elki.data.type.TypeUtil;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.database.datastore.DataStoreEvent;
+import elki.database.ids.ArrayModifiableDBIDs;
+import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DBIDs;
+import elki.database.relation.Relation;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.index.DynamicIndex;
+import elki.index.Index;
+import elki.index.IndexFactory;
+import elki.utilities.exceptions.AbortException;
+
+/**
+ * Test batched modifications of the hashmap database.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class HashmapDatabaseTest {
+  /**
+   * Index counting the calls.
+   */
+  private static class CountingIndex implements DynamicIndex {
+    int single = 0, bulk = 0, objects = 0;
+
+    @Override
+    public void initialize() {
+      // Nothing to do.
+    }
+
+    @Override
+    public boolean delete(DBIDRef id) {
+      single++;
+      objects--;
+      return true;
+    }
+
+    @Override
+    public void insert(DBIDRef id) {
+      single++;
+      objects++;
+    }
+
+    @Override
+    public void deleteAll(DBIDs ids) {
+      bulk++;
+      objects -= ids.size();
+    }
+
+    @Override
+    public void insertAll(DBIDs ids) {
+      bulk++;
+      objects += ids.size();
+    }
+  }
+
+  @Test
+  public void testBatch() {
+    final CountingIndex idx = new CountingIndex();
+    IndexFactory<NumberVector> factory = new IndexFactory<NumberVector>() {
+      @Override
+      public Index instantiate(Relation<NumberVector> relation) {
+        return idx;
+      }
+
+      @Override
+      public TypeInformation getInputTypeRestriction() {
+        return TypeUtil.NUMBER_VECTOR_FIELD;
+      }
+    };
+    HashmapDatabase db = new HashmapDatabase(null, Arrays.asList(factory));
+    db.initialize();
+    List<DataStoreEvent> events = new ArrayList<>();
+    db.addDataStoreListener(events::add);
+    VectorFieldTypeInformation<DoubleVector> type = new VectorFieldTypeInformation<>(DoubleVector.FACTORY, 2);
+
+    // Unbatched: one bulk update and one event per call.
+    DBIDs first = db.insert(MultipleObjectsBundle.makeSimple(type, Arrays.asList(DoubleVector.wrap(new double[] { 1, 2 }), DoubleVector.wrap(new double[] { 3, 4 }))));
+    assertEquals(2, first.size());
+    assertEquals(1, events.size());
+    assertEquals(1, idx.bulk);
+
+    db.beginBatch();
+    for(int i = 0; i < 10; i++) {
+      db.insert(MultipleObjectsBundle.makeSimple(type, Arrays.asList(DoubleVector.wrap(new double[] { i, i }))));
+    }
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    assertEquals("Batch visible before commit.", 2, rel.size());
+    assertEquals(1, events.size());
+    DBIDs batch = db.commitBatch();
+    assertEquals(10, batch.size());
+    assertEquals(12, rel.size());
+    assertEquals("Not one event per batch.", 2, events.size());
+    assertEquals(10, events.get(1).getInserts().size());
+    assertEquals("Not one index update per batch.", 2, idx.bulk);
+    assertEquals(12, idx.objects);
+    assertEquals(0, idx.single);
+    assertEquals(0., rel.get(batch.iter()).doubleValue(0), 0.);
+
+    // Bulk deletion
+    db.delete(batch);
+    assertEquals(2, rel.size());
+    assertEquals(3, events.size());
+    assertEquals(3, idx.bulk);
+    assertEquals(2, idx.objects);
+    assertEquals(0, idx.single);
+  }
+
+  @Test
+  public void testBatchDuplicates() {
+    HashmapDatabase db = new HashmapDatabase();
+    db.initialize();
+    VectorFieldTypeInformation<DoubleVector> type = new VectorFieldTypeInformation<>(DoubleVector.FACTORY, 2);
+    DBIDs first = db.insert(MultipleObjectsBundle.makeSimple(type, Arrays.asList(DoubleVector.wrap(new double[] { 1, 2 }))));
+
+    db.beginBatch();
+    ArrayModifiableDBIDs batchids = DBIDUtil.newArray();
+    batchids.add(DBIDUtil.generateSingleDBID());
+    db.insert(bundle(type, batchids));
+    // Already in the database:
+    try {
+      db.insert(bundle(type, DBIDUtil.newArray(first)));
+      fail("Duplicate DBID accepted.");
+    }
+    catch(AbortException e) {
+      // Expected.
+    }
+    // Already in the batch, together with a new DBID:
+    ArrayModifiableDBIDs dup = DBIDUtil.newArray();
+    dup.add(DBIDUtil.generateSingleDBID());
+    dup.addDBIDs(batchids);
+    try {
+      db.insert(bundle(type, dup));
+      fail("Duplicate DBID accepted.");
+    }
+    catch(AbortException e) {
+      // Expected.
+    }
+    // The rejected bundles must not be part of the batch.
+    DBIDs batch = db.commitBatch();
+    assertEquals(1, batch.size());
+    assertEquals(2, db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD).size());
+  }
+
+  /**
+   * Make a bundle with the given DBIDs.
+   *
+   * @param type Vector type
+   * @param ids DBIDs
+   * @return Bundle
+   */
+  private static MultipleObjectsBundle bundle(VectorFieldTypeInformation<DoubleVector> type, ArrayModifiableDBIDs ids) {
+    List<DoubleVector> vecs = new ArrayList<>(ids.size());
+    for(int i = 0; i < ids.size(); i++) {
+      vecs.add(DoubleVector.wrap(new double[] { i, i }));
+    }
+    MultipleObjectsBundle b = MultipleObjectsBundle.makeSimple(type, vecs);
+    b.setDBIDs(ids);
+    return b;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.data.type.TypeUtil;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.database.Database;
+import elki.database.StaticArrayDatabase;
+import elki.database.ids.DBIDIter;
+import elki.database.query.distance.CountingDistanceQuery;
+import elki.database.query.distance.DistanceQuery;
+import elki.database.query.distance.SpatialPrimitiveDistanceQuery;
+import elki.database.query.knn.InstrumentedKNNSearcher;
+import elki.database.query.knn.KNNSearcher;
+import elki.database.query.knn.LinearScanKNNByObject;
+import elki.database.query.range.InstrumentedRangeSearcher;
+import elki.database.query.range.LinearScanDistanceRangeByObject;
+import elki.database.query.range.RangeSearcher;
+import elki.database.relation.Relation;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.distance.minkowski.EuclideanDistance;
+import elki.logging.Logging;
+
+/**
+ * Unit test for the query instrumentation.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class QueryStatisticsTest {
+  @Test
+  public void testInstrumentation() {
+    Random rnd = new Random(0L);
+    List<DoubleVector> data = new ArrayList<>();
+    for(int i = 0; i < 100; i++) {
+      data.add(DoubleVector.wrap(new double[] { rnd.nextDouble(), rnd.nextDouble() }));
+    }
+    MultipleObjectsBundle bundle = MultipleObjectsBundle.makeSimple(new VectorFieldTypeInformation<>(DoubleVector.FACTORY, 2), data);
+    Database db = new StaticArrayDatabase(() -> bundle, null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+
+    // Not instrumented by default:
+    DistanceQuery<NumberVector> plain = new QueryBuilder<>(rel, EuclideanDistance.STATIC).distanceQuery();
+    KNNSearcher<NumberVector> plainKNN = new QueryBuilder<>(rel, EuclideanDistance.STATIC).linearOnly().kNNByObject(5);
+    RangeSearcher<NumberVector> plainRange = new QueryBuilder<>(rel, EuclideanDistance.STATIC).linearOnly().rangeByObject(.1);
+    assertTrue(!(plain instanceof CountingDistanceQuery));
+    assertTrue(!(plainKNN instanceof InstrumentedKNNSearcher));
+
+    QueryStatistics.setEnabled(true);
+    try {
+      DistanceQuery<NumberVector> dq = new QueryBuilder<>(rel, EuclideanDistance.STATIC).distanceQuery();
+      KNNSearcher<NumberVector> knn = new QueryBuilder<>(rel, EuclideanDistance.STATIC).linearOnly().kNNByObject(5);
+      RangeSearcher<NumberVector> range = new QueryBuilder<>(rel, EuclideanDistance.STATIC).linearOnly().rangeByObject(.1);
+      assertTrue(dq instanceof CountingDistanceQuery);
+      // Spatial primitive queries must remain spatial primitive queries:
+      assertTrue(dq instanceof SpatialPrimitiveDistanceQuery);
+      assertSame(plain.getClass(), ((CountingDistanceQuery<?>) dq).getInner().getClass());
+      assertTrue(knn instanceof InstrumentedKNNSearcher);
+      assertTrue(range instanceof InstrumentedRangeSearcher);
+      assertEquals(plainKNN instanceof LinearScanQuery, knn instanceof LinearScanQuery);
+      assertEquals(plainRange instanceof LinearScanQuery, range instanceof LinearScanQuery);
+      // Wrapped queries must not be wrapped twice:
+      assertTrue(new QueryBuilder<>(dq).distanceQuery() instanceof CountingDistanceQuery);
+      assertSame(plain.getClass(), ((CountingDistanceQuery<?>) new QueryBuilder<>(dq).distanceQuery()).getInner().getClass());
+
+      DBIDIter first = rel.iterDBIDs();
+      for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+        dq.distance(first, it);
+        assertEquals(plainKNN.getKNN(rel.get(it), 5).getKNNDistance(), knn.getKNN(rel.get(it), 5).getKNNDistance(), 0.);
+        assertEquals(plainRange.getRange(rel.get(it), .1).size(), range.getRange(rel.get(it), .1).size());
+      }
+      String prefix = plain.getClass().getName() + "." + EuclideanDistance.class.getSimpleName();
+      // One distance per iteration, plus a full scan for each kNN and range query
+      assertEquals(rel.size() * (1 + 2 * rel.size()), QueryStatistics.get(prefix + ".distance").getCount());
+      // When counting, the generic linear scans are used
+      assertEquals(rel.size(), QueryStatistics.get(LinearScanKNNByObject.class.getName() + ".knn").getCount());
+      assertEquals(rel.size(), QueryStatistics.get(LinearScanDistanceRangeByObject.class.getName() + ".range").getCount());
+
+      QueryStatistics.logAndReset(Logging.getLogger(QueryStatisticsTest.class));
+      assertEquals(0, QueryStatistics.get(prefix + ".distance").getCount());
+    }
+    finally {
+      QueryStatistics.setEnabled(false);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.query.knn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.data.type.TypeUtil;
+import elki.data.type.VectorTypeInformation;
+import elki.database.Database;
+import elki.database.StaticArrayDatabase;
+import elki.database.ids.DoubleDBIDListIter;
+import elki.database.ids.KNNList;
+import elki.database.query.QueryBuilder;
+import elki.database.query.distance.PrimitiveDistanceQuery;
+import elki.database.relation.Relation;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.distance.timeseries.DTWDistance;
+import elki.distance.timeseries.DerivativeDTWDistance;
+
+/**
+ * Unit test for the DTW kNN search with lower bounds.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class LinearScanDTWKNNByObjectTest {
+  @Test
+  public void testDTW() {
+    Random rnd = new Random(0L);
+    List<DoubleVector> data = new ArrayList<>();
+    for(int i = 0; i < 300; i++) {
+      // Random walks, some of different length:
+      double[] v = new double[i % 10 == 0 ? 41 : 40];
+      for(int j = 1; j < v.length; j++) {
+        v[j] = v[j - 1] + rnd.nextGaussian();
+      }
+      data.add(DoubleVector.wrap(v));
+    }
+    MultipleObjectsBundle bundle = MultipleObjectsBundle.makeSimple(new VectorTypeInformation<>(DoubleVector.FACTORY, DoubleVector.FACTORY.getDefaultSerializer(), 40, 41), data);
+    Database db = new StaticArrayDatabase(() -> bundle, null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_VARIABLE_LENGTH);
+
+    for(DTWDistance dist : new DTWDistance[] { new DTWDistance(), new DTWDistance(.1), new DerivativeDTWDistance(.1) }) {
+      KNNSearcher<NumberVector> knn = new QueryBuilder<>(rel, dist).kNNByObject(10);
+      assertTrue("DTW searcher not used.", knn instanceof LinearScanDTWKNNByObject);
+      KNNSearcher<NumberVector> ref = new LinearScanPrimitiveKNNByObject<>(new PrimitiveDistanceQuery<>(rel, dist));
+      for(int i = 0; i < 20; i++) {
+        NumberVector q = data.get(rnd.nextInt(data.size()));
+        KNNList exp = ref.getKNN(q, 10), got = knn.getKNN(q, 10);
+        assertEquals("Result size differs.", exp.size(), got.size());
+        for(DoubleDBIDListIter e = exp.iter(), g = got.iter(); e.valid(); e.advance(), g.advance()) {
+          assertEquals("Distance differs.", e.doubleValue(), g.doubleValue(), 0.);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.database.relation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import elki.data.CSRSparseVector;
+import elki.data.SparseDoubleVector;
+import elki.data.SparseNumberVector;
+import elki.data.type.TypeUtil;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.database.Database;
+import elki.database.StaticArrayDatabase;
+import elki.database.ids.DBIDIter;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.distance.CosineDistance;
+import elki.distance.minkowski.SparseEuclideanDistance;
+
+/**
+ * Unit test for compressed sparse row storage.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class CSRSparseRelationTest {
+  @Test
+  public void testCSR() {
+    final int dim = 50;
+    Random rnd = new Random(0L);
+    List<SparseDoubleVector> data = new ArrayList<>();
+    for(int i = 0; i < 200; i++) {
+      double[] v = new double[dim];
+      for(int j = rnd.nextInt(8); j > 0; j--) {
+        v[rnd.nextInt(dim)] = rnd.nextInt(5) + 1;
+      }
+      data.add(new SparseDoubleVector(v));
+    }
+    MultipleObjectsBundle bundle = MultipleObjectsBundle.makeSimple(new VectorFieldTypeInformation<>(SparseDoubleVector.FACTORY, dim), data);
+    Database db = new StaticArrayDatabase(() -> bundle, null, true);
+    db.initialize();
+    Relation<? extends SparseNumberVector> rel = db.getRelation(TypeUtil.SPARSE_VECTOR_FIELD);
+    assertTrue("Not stored in CSR form.", rel instanceof CSRSparseRelation);
+    assertEquals("Dimensionality", dim, RelationUtil.dimensionality(rel));
+
+    int i = 0;
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance(), i++) {
+      SparseNumberVector v = rel.get(it);
+      assertTrue(v instanceof CSRSparseVector);
+      assertArrayEquals("Vector differs.", data.get(i).toArray(), v.toArray(), 0.);
+      int j = 0;
+      for(DBIDIter it2 = rel.iterDBIDs(); it2.valid(); it2.advance(), j++) {
+        SparseNumberVector v2 = rel.get(it2);
+        assertEquals("Euclidean", SparseEuclideanDistance.STATIC.distance(data.get(i), data.get(j)), SparseEuclideanDistance.STATIC.distance(v, v2), 1e-15);
+        assertEquals("Cosine", CosineDistance.STATIC.distance(data.get(i), data.get(j)), CosineDistance.STATIC.distance(v, v2), 1e-15);
+      }
+    }
+  }
+}
@@ -65,6 +65,11 @@ public class LatLngToECEFFilter<V extends NumberVector> extends AbstractStreamCo
     this.model = model;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V obj) {
     return factory.newNumberVector(model.latLngDegToECEF(obj.doubleValue(0), obj.doubleValue(1)));
@@ -24,7 +24,10 @@ import elki.data.type.TypeInformation;
 import elki.database.datastore.DataStoreFactory;
 import elki.database.datastore.DataStoreUtil;
 import elki.database.datastore.WritableDataStore;
+import elki.database.datastore.memory.FlatKNNListStore;
+import elki.database.ids.DBIDRange;
 import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDs;
 import elki.database.ids.KNNList;
 import elki.database.query.distance.DistanceQuery;
 import elki.database.query.knn.KNNSearcher;
@@ -147,9 +150,15 @@ public abstract class AbstractMaterializeKNNPreprocessor<O> implements KNNIndex<
 
   /**
    * Create the default storage.
+   * <p>
+   * For static DBID ranges, the kNN lists are stored in flat primitive arrays,
+   * which avoids two arrays and a list object per data point.
    */
   void createStorage() {
-    storage = DataStoreUtil.makeStorage(distanceQuery.getRelation().getDBIDs(), DataStoreFactory.HINT_HOT, KNNList.class);
+    DBIDs ids = distanceQuery.getRelation().getDBIDs();
+    storage = ids instanceof DBIDRange && (long) ids.size() * k < Integer.MAX_VALUE ? //
+        new FlatKNNListStore(ids.size(), (DBIDRange) ids, k) : //
+        DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT, KNNList.class);
   }
 
   @Override
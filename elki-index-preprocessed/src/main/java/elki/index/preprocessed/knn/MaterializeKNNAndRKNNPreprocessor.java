@@ -156,7 +156,6 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
       // kNNs for oldid have changed:
       if(heap != null) {
         KNNList newkNNs = heap.toKNNList();
-        storage.put(id, newkNNs);
 
         // get the difference
         ModifiableDoubleDBIDList added = DBIDUtil.newDistanceDBIDList(),
@@ -187,6 +186,8 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
         for(; newiter.valid(); newiter.advance()) {
           added.add(newiter.doubleValue(), newiter);
         }
+        // Store only now, the old list may be a view of the storage.
+        storage.put(id, newkNNs);
         // add new RkNN
         for(DoubleDBIDListIter newnn = added.iter(); newnn.valid(); newnn.advance()) {
           storageRkNN.get(newnn).add(newnn.doubleValue(), id);
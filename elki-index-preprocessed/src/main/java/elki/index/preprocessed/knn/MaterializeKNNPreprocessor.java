@@ -112,7 +112,7 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
     if(log.isStatistics()) {
       log.statistics(new LongStatistic(this.getClass().getName() + ".k", k));
     }
-    Duration duration = log.isStatistics() ? log.newDuration(this.getClass().getName() + ".precomputation-time").begin() : null;
+    Duration duration = log.isStatistics() ? log.newPhase(this.getClass().getName() + ".precomputation-time").begin() : null;
     FiniteProgress progress = getLogger().isVerbose() ? new FiniteProgress("Materializing k nearest neighbors (k=" + k + ")", ids.size(), getLogger()) : null;
     // Try bulk
     final boolean ismetric = getDistanceQuery().getDistance().isMetric();
@@ -20,8 +20,6 @@
  */
 package elki.index.preprocessed.knn;
 
-import elki.database.datastore.DataStoreFactory;
-import elki.database.datastore.DataStoreUtil;
 import elki.database.ids.*;
 import elki.database.query.QueryBuilder;
 import elki.database.query.distance.DistanceQuery;
@@ -88,7 +86,7 @@ public class PartitionApproximationMaterializeKNNPreprocessor<O> extends Abstrac
   @Override
   protected void preprocess() {
     DistanceQuery<O> distanceQuery = new QueryBuilder<>(relation, distance).distanceQuery();
-    storage = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_STATIC, KNNList.class);
+    createStorage();
     MeanVariance ksize = new MeanVariance();
     if(LOG.isVerbose()) {
       LOG.verbose("Approximating nearest neighbor lists to database objects");
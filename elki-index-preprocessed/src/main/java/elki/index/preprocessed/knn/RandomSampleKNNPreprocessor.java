@@ -22,8 +22,6 @@ package elki.index.preprocessed.knn;
 
 import java.util.Random;
 
-import elki.database.datastore.DataStoreFactory;
-import elki.database.datastore.DataStoreUtil;
 import elki.database.ids.*;
 import elki.database.query.QueryBuilder;
 import elki.database.query.distance.DistanceQuery;
@@ -93,7 +91,7 @@ public class RandomSampleKNNPreprocessor<O> extends AbstractMaterializeKNNPrepro
   @Override
   protected void preprocess() {
     DistanceQuery<O> distanceQuery = new QueryBuilder<>(relation, distance).distanceQuery();
-    storage = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_STATIC, KNNList.class);
+    createStorage();
     FiniteProgress progress = getLogger().isVerbose() ? new FiniteProgress("Materializing random-sample k nearest neighbors (k=" + k + ")", relation.size(), getLogger()) : null;
 
     final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
@@ -198,7 +198,7 @@ public class SpacefillingMaterializeKNNPreprocessor<O extends NumberVector> exte
 
     // Convert to final storage
     final int wsize = (int) Math.ceil(window * k);
-    storage = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_STATIC, KNNList.class);
+    createStorage();
     HashSetModifiableDBIDs cands = DBIDUtil.newHashSet(2 * wsize * numcurves);
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
       // Get candidates.
@@ -21,7 +21,9 @@
 package elki.index.invertedlist;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
+import elki.data.CSRSparseVector;
 import elki.data.NumberVector;
 import elki.data.SparseNumberVector;
 import elki.data.type.TypeInformation;
@@ -33,6 +35,7 @@ import elki.database.ids.*;
 import elki.database.query.distance.DistanceQuery;
 import elki.database.query.knn.KNNSearcher;
 import elki.database.query.range.RangeSearcher;
+import elki.database.relation.CSRSparseRelation;
 import elki.database.relation.Relation;
 import elki.distance.ArcCosineDistance;
 import elki.distance.CosineDistance;
@@ -49,6 +52,10 @@ import net.jafama.FastMath;
 /**
  * Simple index using inverted lists, for cosine distance only.
  * <p>
+ * Data stored in a {@link CSRSparseRelation} is indexed directly from the
+ * shared arrays, and {@link CSRSparseVector} queries are processed without
+ * the generic iterator API.
+ * <p>
  * TODO: support additional distances.
  * 
  * @author Erich Schubert
@@ -98,13 +105,18 @@ public class InMemoryInvertedIndex<V extends NumberVector> implements KNNIndex<V
     }
     index = new ArrayList<>();
     length = DataStoreUtil.makeDoubleStorage(relation.getDBIDs(), DataStoreFactory.HINT_DB);
-    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
-      V obj = relation.get(iter);
-      if(obj instanceof SparseNumberVector) {
-        indexSparse(iter, (SparseNumberVector) obj);
-      }
-      else {
-        indexDense(iter, obj);
+    if(relation instanceof CSRSparseRelation) {
+      indexCSR((CSRSparseRelation) relation);
+    }
+    else {
+      for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+        V obj = relation.get(iter);
+        if(obj instanceof SparseNumberVector) {
+          indexSparse(iter, (SparseNumberVector) obj);
+        }
+        else {
+          indexDense(iter, obj);
+        }
       }
     }
     // Sort indexes
@@ -135,7 +147,45 @@ public class InMemoryInvertedIndex<V extends NumberVector> implements KNNIndex<V
       len += val * val;
       getOrCreateColumn(dim).add(val, ref);
     }
-    length.put(ref, len);
+    length.put(ref, FastMath.sqrt(len));
+  }
+
+  /**
+   * Index all data of a relation in CSR storage.
+   * <p>
+   * The column sizes are counted first, so that every column is allocated
+   * only once.
+   *
+   * @param rel Relation
+   */
+  private void indexCSR(CSRSparseRelation rel) {
+    final int[] rowptr = rel.getRowPointers(), indexes = rel.getIndexes();
+    final double[] values = rel.getValues();
+    final int nnz = rowptr[rel.size()];
+    int[] counts = new int[0];
+    for(int i = 0; i < nnz; i++) {
+      final int dim = indexes[i];
+      if(dim >= counts.length) {
+        counts = Arrays.copyOf(counts, Math.max(dim + 1, counts.length << 1));
+      }
+      counts[dim]++;
+    }
+    for(int dim = index.size(); dim < counts.length; dim++) {
+      index.add(DBIDUtil.newDistanceDBIDList(counts[dim]));
+    }
+    DBIDArrayIter iter = rel.getDBIDs().iter();
+    for(int row = 0; iter.valid(); iter.advance(), row++) {
+      double len = 0.;
+      for(int i = rowptr[row], end = rowptr[row + 1]; i < end; i++) {
+        final double val = values[i];
+        if(val == 0. || val != val) {
+          continue;
+        }
+        len += val * val;
+        index.get(indexes[i]).add(val, iter);
+      }
+      length.put(iter, FastMath.sqrt(len));
+    }
   }
 
   /**
@@ -200,6 +250,38 @@ public class InMemoryInvertedIndex<V extends NumberVector> implements KNNIndex<V
     return FastMath.sqrt(len);
   }
 
+  /**
+   * Query the most similar objects, for a query in CSR storage.
+   * 
+   * @param obj Query object
+   * @param scores Score storage
+   * @param cands Non-zero objects set
+   * @return Result
+   */
+  private double naiveQueryCSR(CSRSparseVector obj, WritableDoubleDataStore scores, HashSetModifiableDBIDs cands) {
+    final int[] indexes = obj.getIndexes();
+    final double[] values = obj.getValues();
+    final int isize = index.size();
+    double len = 0.; // Length of query object, for final normalization
+    for(int i = obj.getStart(), end = obj.getEnd(); i < end; i++) {
+      final int dim = indexes[i];
+      final double val = values[i];
+      if(val == 0. || val != val) {
+        continue;
+      }
+      len += val * val;
+      // No matching documents in index:
+      if(dim >= isize) {
+        continue;
+      }
+      for(DoubleDBIDListIter n = index.get(dim).iter(); n.valid(); n.advance()) {
+        scores.increment(n, n.doubleValue() * val);
+        cands.add(n);
+      }
+    }
+    return FastMath.sqrt(len);
+  }
+
   /**
    * Query the most similar objects, dense version.
    * 
@@ -238,7 +320,10 @@ public class InMemoryInvertedIndex<V extends NumberVector> implements KNNIndex<V
    * @return Result
    */
   private double naiveQuery(V obj, WritableDoubleDataStore scores, HashSetModifiableDBIDs cands) {
-    if(obj instanceof SparseNumberVector) {
+    if(obj instanceof CSRSparseVector) {
+      return naiveQueryCSR((CSRSparseVector) obj, scores, cands);
+    }
+    else if(obj instanceof SparseNumberVector) {
       return naiveQuerySparse((SparseNumberVector) obj, scores, cands);
     }
     else {
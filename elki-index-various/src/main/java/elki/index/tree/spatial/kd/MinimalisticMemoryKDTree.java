@@ -301,9 +301,13 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> implements Distanc
 
     @Override
     public KNNList getKNN(O obj, int k) {
-      final KNNHeap knns = DBIDUtil.newHeap(k);
-      kdKNNSearch(0, sorted.size(), 0, obj, knns, sorted.iter(), Double.POSITIVE_INFINITY);
-      return knns.toKNNList();
+      return getKNN(obj, DBIDUtil.newHeap(k)).toKNNList();
+    }
+
+    @Override
+    public KNNHeap getKNN(O obj, KNNHeap knns) {
+      kdKNNSearch(0, sorted.size(), 0, obj, knns, sorted.iter(), knns.getKNNDistance());
+      return knns;
     }
 
     /**
@@ -321,7 +325,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> implements Distanc
     private double kdKNNSearch(int left, int right, int axis, O query, KNNHeap knns, DBIDArrayIter iter, double maxdist) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = distance.distance(query, relation.get(iter));
+          double dist = distance.distance(query, relation.get(iter), maxdist);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= maxdist) {
@@ -346,7 +350,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> implements Distanc
       // Exact match chance (delta == 0)!
       // process first, then descend both sides.
       if(onleft && onright) {
-        double dist = distance.distance(query, split);
+        double dist = distance.distance(query, split, maxdist);
         countDistanceComputation();
         if(dist <= maxdist) {
           assert (iter.getOffset() == middle);
@@ -368,7 +372,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> implements Distanc
           }
           // Look at splitting element (unless already above):
           if(mindist <= maxdist) {
-            double dist = distance.distance(query, split);
+            double dist = distance.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               knns.insert(dist, iter.seek(middle));
@@ -385,7 +389,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> implements Distanc
           }
           // Look at splitting element (unless already above):
           if(mindist <= maxdist) {
-            double dist = distance.distance(query, split);
+            double dist = distance.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               knns.insert(dist, iter.seek(middle));
@@ -442,7 +446,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> implements Distanc
     private void kdRangeSearch(int left, int right, int axis, O query, ModifiableDoubleDBIDList res, DBIDArrayIter iter, double radius) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = distance.distance(query, relation.get(iter));
+          double dist = distance.distance(query, relation.get(iter), radius);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= radius) {
@@ -468,7 +472,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> implements Distanc
 
       // Current object:
       if(close) {
-        double dist = distance.distance(query, split);
+        double dist = distance.distance(query, split, radius);
         countDistanceComputation();
         if(dist <= radius) {
           assert (iter.getOffset() == middle);
@@ -272,9 +272,13 @@ public class SmallMemoryKDTree<O extends NumberVector> implements DistancePriori
 
     @Override
     public KNNList getKNN(O obj, int k) {
-      final KNNHeap knns = DBIDUtil.newHeap(k);
-      kdKNNSearch(0, sorted.size(), 0, obj, knns, sorted.iter(), Double.POSITIVE_INFINITY);
-      return knns.toKNNList();
+      return getKNN(obj, DBIDUtil.newHeap(k)).toKNNList();
+    }
+
+    @Override
+    public KNNHeap getKNN(O obj, KNNHeap knns) {
+      kdKNNSearch(0, sorted.size(), 0, obj, knns, sorted.iter(), knns.getKNNDistance());
+      return knns;
     }
 
     /**
@@ -292,7 +296,7 @@ public class SmallMemoryKDTree<O extends NumberVector> implements DistancePriori
     private double kdKNNSearch(int left, int right, int axis, O query, KNNHeap knns, DoubleDBIDListIter iter, double maxdist) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = distance.distance(query, relation.get(iter));
+          double dist = distance.distance(query, relation.get(iter), maxdist);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= maxdist) {
@@ -319,7 +323,7 @@ public class SmallMemoryKDTree<O extends NumberVector> implements DistancePriori
       if(onleft && onright) {
         O split = relation.get(iter.seek(middle));
         countObjectAccess();
-        double dist = distance.distance(query, split);
+        double dist = distance.distance(query, split, maxdist);
         countDistanceComputation();
         if(dist <= maxdist) {
           assert (iter.getOffset() == middle);
@@ -343,7 +347,7 @@ public class SmallMemoryKDTree<O extends NumberVector> implements DistancePriori
           if(mindist <= maxdist) {
             O split = relation.get(iter.seek(middle));
             countObjectAccess();
-            double dist = distance.distance(query, split);
+            double dist = distance.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               knns.insert(dist, iter);
@@ -362,7 +366,7 @@ public class SmallMemoryKDTree<O extends NumberVector> implements DistancePriori
           if(mindist <= maxdist) {
             O split = relation.get(iter.seek(middle));
             countObjectAccess();
-            double dist = distance.distance(query, split);
+            double dist = distance.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               knns.insert(dist, iter);
@@ -419,7 +423,7 @@ public class SmallMemoryKDTree<O extends NumberVector> implements DistancePriori
     private void kdRangeSearch(int left, int right, int axis, O query, ModifiableDoubleDBIDList res, DoubleDBIDListIter iter, double radius) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = distance.distance(query, relation.get(iter));
+          double dist = distance.distance(query, relation.get(iter), radius);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= radius) {
@@ -444,7 +448,7 @@ public class SmallMemoryKDTree<O extends NumberVector> implements DistancePriori
       if(close) {
         O split = relation.get(iter.seek(middle));
         countObjectAccess();
-        double dist = distance.distance(query, split);
+        double dist = distance.distance(query, split, radius);
         countDistanceComputation();
         if(dist <= radius) {
           assert (iter.getOffset() == middle);
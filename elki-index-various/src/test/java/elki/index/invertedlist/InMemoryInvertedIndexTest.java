@@ -20,8 +20,30 @@
  */
 package elki.index.invertedlist;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
+import elki.data.CSRSparseVector;
+import elki.data.SparseDoubleVector;
+import elki.data.SparseNumberVector;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.database.datastore.DataStoreFactory;
+import elki.database.datastore.DataStoreUtil;
+import elki.database.datastore.WritableDataStore;
+import elki.database.ids.DBIDArrayIter;
+import elki.database.ids.DBIDRange;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DoubleDBIDListIter;
+import elki.database.ids.KNNList;
+import elki.database.query.QueryBuilder;
+import elki.database.relation.CSRSparseRelation;
+import elki.database.relation.MaterializedRelation;
+import elki.distance.CosineDistance;
 import elki.index.AbstractIndexStructureTest;
 import elki.utilities.ELKIBuilder;
 
@@ -39,4 +61,47 @@ public class InMemoryInvertedIndexTest extends AbstractIndexStructureTest {
     InMemoryInvertedIndex.Factory<?> factory = new ELKIBuilder<>(InMemoryInvertedIndex.Factory.class).build();
     assertExactCosine(factory, InMemoryInvertedIndex.CosineKNNQuery.class, InMemoryInvertedIndex.CosineRangeQuery.class);
   }
+
+  @Test
+  public void testCSR() {
+    final int dim = 40, k = 5;
+    Random rnd = new Random(0L);
+    List<SparseDoubleVector> data = new ArrayList<>();
+    for(int i = 0; i < 100; i++) {
+      double[] v = new double[dim];
+      for(int j = rnd.nextInt(6) + 1; j > 0; j--) {
+        v[rnd.nextInt(dim)] = rnd.nextDouble();
+      }
+      data.add(new SparseDoubleVector(v));
+    }
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(data.size());
+    VectorFieldTypeInformation<SparseDoubleVector> type = new VectorFieldTypeInformation<>(SparseDoubleVector.FACTORY, dim);
+    CSRSparseRelation csr = CSRSparseRelation.build(null, ids, data, type);
+    WritableDataStore<SparseNumberVector> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_DB, SparseNumberVector.class);
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      store.put(it, data.get(it.getOffset()));
+    }
+    MaterializedRelation<SparseNumberVector> sparse = new MaterializedRelation<>(null, SparseNumberVector.VARIABLE_LENGTH, ids, store);
+
+    InMemoryInvertedIndex<CSRSparseVector> idx1 = new InMemoryInvertedIndex<>(csr);
+    idx1.initialize();
+    InMemoryInvertedIndex<SparseNumberVector> idx2 = new InMemoryInvertedIndex<>(sparse);
+    idx2.initialize();
+    InMemoryInvertedIndex<CSRSparseVector>.CosineKNNQuery knn1 = idx1.new CosineKNNQuery();
+    InMemoryInvertedIndex<SparseNumberVector>.CosineKNNQuery knn2 = idx2.new CosineKNNQuery();
+    QueryBuilder<CSRSparseVector> qb = new QueryBuilder<>(csr, CosineDistance.STATIC);
+    KNNList[] scan = new KNNList[ids.size()];
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      scan[it.getOffset()] = qb.kNNByObject(k).getKNN(csr.get(it), k);
+    }
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      KNNList r1 = knn1.getKNN(csr.get(it), k), r2 = knn2.getKNN(data.get(it.getOffset()), k);
+      assertEquals("Result size", r2.size(), r1.size());
+      DoubleDBIDListIter i1 = r1.iter(), i2 = r2.iter(), i3 = scan[it.getOffset()].iter();
+      for(; i1.valid() && i3.valid(); i1.advance(), i2.advance(), i3.advance()) {
+        assertEquals("Sparse and CSR differ", i2.doubleValue(), i1.doubleValue(), 1e-15);
+        assertEquals("Index and linear scan differ", i3.doubleValue(), i1.doubleValue(), 1e-12);
+      }
+    }
+  }
 }
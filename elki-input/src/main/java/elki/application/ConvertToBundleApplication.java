@@ -28,14 +28,20 @@ import java.nio.file.StandardOpenOption;
 import elki.datasource.DatabaseConnection;
 import elki.datasource.FileBasedDatabaseConnection;
 import elki.datasource.bundle.BundleWriter;
+import elki.datasource.bundle.ColumnBundleWriter;
 import elki.datasource.bundle.MultipleObjectsBundle;
 import elki.logging.Logging;
 import elki.utilities.optionhandling.OptionID;
 import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.Flag;
 import elki.utilities.optionhandling.parameters.ObjectParameter;
 
 /**
  * Convert an input file to the more efficient ELKI bundle format.
+ * <p>
+ * Optionally, the column-oriented format of {@link ColumnBundleWriter} can be
+ * produced, to be loaded with
+ * {@link elki.datasource.ColumnBundleDatabaseConnection}.
  *
  * @author Erich Schubert
  * @since 0.5.5
@@ -56,6 +62,16 @@ public class ConvertToBundleApplication extends AbstractApplication {
    */
   private Path outfile;
 
+  /**
+   * Write the column-oriented format.
+   */
+  private boolean columnar;
+
+  /**
+   * Compress dense columns of the column-oriented format.
+   */
+  private boolean compress;
+
   /**
    * Constructor.
    *
@@ -63,9 +79,23 @@ public class ConvertToBundleApplication extends AbstractApplication {
    * @param outfile Output filename
    */
   public ConvertToBundleApplication(DatabaseConnection input, Path outfile) {
+    this(input, outfile, false, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param input Data source configuration
+   * @param outfile Output filename
+   * @param columnar Write the column-oriented format
+   * @param compress Compress dense columns of the column-oriented format
+   */
+  public ConvertToBundleApplication(DatabaseConnection input, Path outfile, boolean columnar, boolean compress) {
     super();
     this.input = input;
     this.outfile = outfile;
+    this.columnar = columnar;
+    this.compress = compress;
   }
 
   @Override
@@ -77,6 +107,16 @@ public class ConvertToBundleApplication extends AbstractApplication {
     if(LOG.isVerbose()) {
       LOG.verbose("Serializing to output file: " + outfile.toString());
     }
+    if(columnar) {
+      try (FileChannel channel = FileChannel.open(outfile, //
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        new ColumnBundleWriter(compress).write(bundle, channel);
+      }
+      catch(IOException e) {
+        LOG.exception("IO Error", e);
+      }
+      return;
+    }
     // TODO: make configurable?
     try (FileChannel channel = FileChannel.open(outfile, //
         StandardOpenOption.WRITE)) {
@@ -98,6 +138,16 @@ public class ConvertToBundleApplication extends AbstractApplication {
      */
     public static final OptionID DATABASE_CONNECTION_ID = new OptionID("dbc", "Database connection class.");
 
+    /**
+     * Flag to write the column-oriented format.
+     */
+    public static final OptionID COLUMNAR_ID = new OptionID("bundle.columnar", "Write the column-oriented bundle format.");
+
+    /**
+     * Flag to compress dense columns.
+     */
+    public static final OptionID COMPRESS_ID = new OptionID("bundle.compress", "Compress dense numerical columns of the column-oriented format.");
+
     /**
      * The data input step.
      */
@@ -108,17 +158,31 @@ public class ConvertToBundleApplication extends AbstractApplication {
      */
     private Path outfile;
 
+    /**
+     * Write the column-oriented format.
+     */
+    private boolean columnar;
+
+    /**
+     * Compress dense columns of the column-oriented format.
+     */
+    private boolean compress;
+
     @Override
     public void configure(Parameterization config) {
       super.configure(config);
       new ObjectParameter<DatabaseConnection>(DATABASE_CONNECTION_ID, DatabaseConnection.class, FileBasedDatabaseConnection.class) //
           .grab(config, x -> input = x);
       outfile = super.getParameterOutputFile(config, "File name to serialize the bundle to.");
+      new Flag(COLUMNAR_ID).grab(config, x -> columnar = x);
+      if(columnar) {
+        new Flag(COMPRESS_ID).grab(config, x -> compress = x);
+      }
     }
 
     @Override
     public ConvertToBundleApplication make() {
-      return new ConvertToBundleApplication(input, outfile);
+      return new ConvertToBundleApplication(input, outfile, columnar, compress);
     }
   }
 
@@ -21,11 +21,13 @@
 package elki.datasource;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import elki.datasource.bundle.BundleStreamSource;
 import elki.datasource.bundle.MultipleObjectsBundle;
 import elki.datasource.filter.ObjectFilter;
 import elki.datasource.filter.StreamFilter;
+import elki.datasource.filter.TwoPassFilter;
 import elki.datasource.parser.Parser;
 import elki.logging.Logging;
 import elki.utilities.optionhandling.Parameterizer;
@@ -98,13 +100,86 @@ public abstract class AbstractDatabaseConnection implements DatabaseConnection {
    * @return processed objects
    */
   protected BundleStreamSource invokeStreamFilters(BundleStreamSource stream) {
+    return invokeStreamFilters(stream, 0);
+  }
+
+  /**
+   * Transforms the objects of a re-readable input. Filters that need
+   * statistics ({@link TwoPassFilter}) are prepared in additional passes over
+   * the input, instead of materializing the data.
+   * <p>
+   * Only the leading repeatable (see {@link ObjectFilter#isRepeatable})
+   * stream filters and two-pass filters are processed this way; the remaining
+   * filters are processed as in {@link #invokeStreamFilters(BundleStreamSource)}.
+   * Randomized filters such as sampling would produce different data in every
+   * pass, so two-pass filters after them are applied to the materialized data
+   * instead. A randomized two-pass filter is still prepared in a separate pass,
+   * but applied in the final pass only.
+   * 
+   * @param opener Open the input for another pass, closing the previous one
+   * @return processed objects
+   */
+  protected BundleStreamSource invokeStreamFilters(Supplier<BundleStreamSource> opener) {
+    if(filters == null) {
+      return opener.get();
+    }
+    int streaming = 0;
+    String reason = null;
+    for(ObjectFilter filter : filters) {
+      if(filter instanceof TwoPassFilter) {
+        if(!((TwoPassFilter) filter).prepare(applyStreaming(opener.get(), streaming))) {
+          reason = "Filter " + filter + " requires materializing the data.";
+          break;
+        }
+      }
+      else if(!(filter instanceof StreamFilter)) {
+        reason = "Filter " + filter + " requires materializing the data.";
+        break;
+      }
+      if(!filter.isRepeatable()) {
+        // Two-pass filters are prepared, but applied in the final pass only.
+        streaming += filter instanceof TwoPassFilter ? 1 : 0;
+        reason = "Filter " + filter + " is not repeatable, it and the following filters are applied in the final pass only.";
+        break;
+      }
+      ++streaming;
+    }
+    if(reason != null && getLogger().isVerbose()) {
+      getLogger().verbose(reason);
+    }
+    return invokeStreamFilters(applyStreaming(opener.get(), streaming), streaming);
+  }
+
+  /**
+   * Apply the leading filters in streaming mode.
+   * 
+   * @param stream Input stream
+   * @param end Number of filters to apply
+   * @return Filtered stream
+   */
+  private BundleStreamSource applyStreaming(BundleStreamSource stream, int end) {
+    for(int i = 0; i < end; i++) {
+      final ObjectFilter filter = filters.get(i);
+      stream = filter instanceof TwoPassFilter ? ((TwoPassFilter) filter).transform(stream) : ((StreamFilter) filter).init(stream);
+    }
+    return stream;
+  }
+
+  /**
+   * Transforms the specified list of objects, starting with the given filter.
+   * 
+   * @param stream the objects to process
+   * @param start First filter to apply
+   * @return processed objects
+   */
+  private BundleStreamSource invokeStreamFilters(BundleStreamSource stream, int start) {
     assert (stream != null);
     if(filters == null) {
       return stream;
     }
     // We dynamically switch between streaming and bundle operations.
     MultipleObjectsBundle bundle = null;
-    for(ObjectFilter filter : filters) {
+    for(ObjectFilter filter : filters.subList(start, filters.size())) {
       if(filter instanceof StreamFilter) {
         stream = ((StreamFilter) filter).init(bundle != null ? bundle.asStream() : stream);
         bundle = null;
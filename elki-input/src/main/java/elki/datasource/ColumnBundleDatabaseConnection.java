@@ -0,0 +1,143 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import elki.datasource.bundle.ColumnBundleReader;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.datasource.filter.ObjectFilter;
+import elki.logging.Logging;
+import elki.logging.statistics.Duration;
+import elki.utilities.exceptions.AbortException;
+import elki.utilities.optionhandling.OptionID;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.FileParameter;
+import elki.utilities.optionhandling.parameters.IntListParameter;
+
+/**
+ * Class to load a database from a column-oriented bundle file, as written by
+ * {@link elki.datasource.bundle.ColumnBundleWriter}.
+ * <p>
+ * Only the selected columns are read from the file.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - ColumnBundleReader
+ */
+public class ColumnBundleDatabaseConnection extends AbstractDatabaseConnection {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ColumnBundleDatabaseConnection.class);
+
+  /**
+   * File to load.
+   */
+  private Path infile;
+
+  /**
+   * Columns to load, {@code null} for all.
+   */
+  private int[] columns;
+
+  /**
+   * Constructor.
+   *
+   * @param filters Filters
+   * @param infile Input file
+   * @param columns Columns to load, {@code null} for all
+   */
+  public ColumnBundleDatabaseConnection(List<? extends ObjectFilter> filters, Path infile, int[] columns) {
+    super(filters);
+    this.infile = infile;
+    this.columns = columns;
+  }
+
+  @Override
+  public MultipleObjectsBundle loadData() {
+    Duration duration = LOG.isStatistics() ? LOG.newPhase(this.getClass().getName() + ".load").begin() : null;
+    MultipleObjectsBundle bundle;
+    try (FileChannel channel = FileChannel.open(infile)) {
+      bundle = new ColumnBundleReader(channel).read(columns);
+    }
+    catch(IOException e) {
+      throw new AbortException("IO error loading bundle", e);
+    }
+    if(duration != null) {
+      LOG.statistics(duration.end());
+    }
+    return invokeBundleFilters(bundle);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Par extends AbstractDatabaseConnection.Par {
+    /**
+     * Option ID for the bundle parameter.
+     */
+    public static final OptionID BUNDLE_ID = new OptionID("columnbundle.input", "Column bundle file to load the data from.");
+
+    /**
+     * Option ID for the column selection.
+     */
+    public static final OptionID COLUMNS_ID = new OptionID("columnbundle.columns", "Columns to load (starting at 0). By default, all columns are loaded.");
+
+    /**
+     * File to load.
+     */
+    private Path infile;
+
+    /**
+     * Columns to load.
+     */
+    private int[] columns;
+
+    @Override
+    public void configure(Parameterization config) {
+      super.configure(config);
+      configFilters(config);
+      new FileParameter(BUNDLE_ID, FileParameter.FileType.INPUT_FILE) //
+          .grab(config, x -> infile = Paths.get(x));
+      new IntListParameter(COLUMNS_ID) //
+          .setOptional(true) //
+          .grab(config, x -> columns = x);
+    }
+
+    @Override
+    public ColumnBundleDatabaseConnection make() {
+      return new ColumnBundleDatabaseConnection(filters, infile, columns);
+    }
+  }
+}
@@ -36,6 +36,7 @@ import elki.utilities.io.FileUtil;
 import elki.utilities.optionhandling.OptionID;
 import elki.utilities.optionhandling.parameterization.Parameterization;
 import elki.utilities.optionhandling.parameters.FileParameter;
+import elki.utilities.optionhandling.parameters.Flag;
 
 /**
  * File based database connection based on the parser to be set.
@@ -55,6 +56,19 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
    * @param infile File to load the data from
    */
   public FileBasedDatabaseConnection(List<? extends ObjectFilter> filters, Parser parser, URI infile) {
+    this(filters, parser, infile, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param filters Filters, can be null
+   * @param parser the parser to provide a database
+   * @param infile File to load the data from
+   * @param twopass Read the file again for filters that need statistics,
+   *        instead of materializing the data.
+   */
+  public FileBasedDatabaseConnection(List<? extends ObjectFilter> filters, Parser parser, URI infile, boolean twopass) {
     super(() -> {
       try {
         return new BufferedInputStream(FileUtil.open(infile));
@@ -62,7 +76,7 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
       catch(IOException e) {
         throw new UncheckedIOException("Could not load input file: " + infile, e);
       }
-    }, filters, parser);
+    }, filters, parser, twopass);
   }
 
   /**
@@ -98,11 +112,22 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
      */
     public static final OptionID INPUT_ID = new OptionID("dbc.in", "The name of the input file to be parsed.");
 
+    /**
+     * Flag to read the input file multiple times, for filters that need
+     * statistics.
+     */
+    public static final OptionID TWOPASS_ID = new OptionID("dbc.twopass", "Read the input file again for filters that need statistics (such as normalizations), instead of keeping a copy of the data in memory.");
+
     /**
      * Input stream to process.
      */
     protected URI infile;
 
+    /**
+     * Flag to read the file multiple times.
+     */
+    protected boolean twopass;
+
     @Override
     public void configure(Parameterization config) {
       // Add the input file first, for usability reasons.
@@ -114,11 +139,12 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
       }
       configParser(config, Parser.class, defaultParser);
       configFilters(config);
+      new Flag(TWOPASS_ID).grab(config, x -> twopass = x);
     }
 
     @Override
     public FileBasedDatabaseConnection make() {
-      return new FileBasedDatabaseConnection(filters, parser, infile);
+      return new FileBasedDatabaseConnection(filters, parser, infile, twopass);
     }
   }
 }
@@ -70,6 +70,11 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection im
    */
   InputStream ins;
 
+  /**
+   * Read the input multiple times for filters that need statistics.
+   */
+  boolean twopass;
+
   /**
    * Constructor.
    * 
@@ -78,9 +83,23 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection im
    * @param parser the parser to provide a database
    */
   public InputStreamDatabaseConnection(Supplier<InputStream> in, List<? extends ObjectFilter> filters, Parser parser) {
+    this(in, filters, parser, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param in Input stream opener
+   * @param filters Filters to use
+   * @param parser the parser to provide a database
+   * @param twopass Read the input multiple times for filters that need
+   *        statistics, instead of materializing the data.
+   */
+  public InputStreamDatabaseConnection(Supplier<InputStream> in, List<? extends ObjectFilter> filters, Parser parser, boolean twopass) {
     super(filters);
     this.in = in;
     this.parser = parser;
+    this.twopass = twopass;
   }
 
   /**
@@ -105,14 +124,20 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection im
     // Streaming parsers may yield to stream filters immediately.
     if(parser instanceof StreamingParser) {
       final StreamingParser streamParser = (StreamingParser) parser;
-      ins = ins != null ? ins : in.get();
-      streamParser.initStream(ins);
       // normalize objects and transform labels
       if(LOG.isDebugging()) {
         LOG.debugFine("Parsing as stream.");
       }
-      Duration duration = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".load").begin() : null;
-      MultipleObjectsBundle objects = invokeStreamFilters(streamParser).asMultipleObjectsBundle();
+      Duration duration = LOG.isStatistics() ? LOG.newPhase(this.getClass().getName() + ".load").begin() : null;
+      MultipleObjectsBundle objects;
+      if(twopass && ins == null) {
+        objects = invokeStreamFilters(() -> reopen(streamParser)).asMultipleObjectsBundle();
+      }
+      else {
+        ins = ins != null ? ins : in.get();
+        streamParser.initStream(ins);
+        objects = invokeStreamFilters(streamParser).asMultipleObjectsBundle();
+      }
       parser.cleanup();
       try {
         close();
@@ -127,7 +152,7 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection im
     }
     else {
       // For non-streaming parsers, we first parse, then filter
-      Duration duration = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".parse").begin() : null;
+      Duration duration = LOG.isStatistics() ? LOG.newPhase(this.getClass().getName() + ".parse").begin() : null;
       ins = ins != null ? ins : in.get();
       MultipleObjectsBundle parsingResult = parser.parse(ins);
       parser.cleanup();
@@ -145,7 +170,7 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection im
       if(LOG.isDebugging()) {
         LOG.debugFine("Invoking filters.");
       }
-      Duration fduration = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".filter").begin() : null;
+      Duration fduration = LOG.isStatistics() ? LOG.newPhase(this.getClass().getName() + ".filter").begin() : null;
       MultipleObjectsBundle objects = invokeBundleFilters(parsingResult);
       if(fduration != null) {
         LOG.statistics(fduration.end());
@@ -154,6 +179,27 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection im
     }
   }
 
+  /**
+   * Open the input for another pass, closing the previous pass.
+   * 
+   * @param streamParser Parser
+   * @return Parser, initialized on the input
+   */
+  private StreamingParser reopen(StreamingParser streamParser) {
+    if(ins != null) {
+      streamParser.cleanup();
+      try {
+        close();
+      }
+      catch(IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    ins = in.get();
+    streamParser.initStream(ins);
+    return streamParser;
+  }
+
   @Override
   public void close() throws IOException {
     if(ins != null) {
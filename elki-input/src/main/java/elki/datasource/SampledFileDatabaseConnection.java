@@ -0,0 +1,386 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import elki.datasource.filter.ObjectFilter;
+import elki.datasource.parser.CSVReaderFormat;
+import elki.datasource.parser.NumberVectorLabelParser;
+import elki.datasource.parser.Parser;
+import elki.logging.Logging;
+import elki.utilities.exceptions.AbortException;
+import elki.utilities.io.TokenizedReader;
+import elki.utilities.io.Tokenizer;
+import elki.utilities.optionhandling.OptionID;
+import elki.utilities.optionhandling.constraints.CommonConstraints;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.FileParameter;
+import elki.utilities.optionhandling.parameters.Flag;
+import elki.utilities.optionhandling.parameters.IntParameter;
+import elki.utilities.optionhandling.parameters.RandomParameter;
+import elki.utilities.random.RandomFactory;
+
+/**
+ * Database connection that loads only a random sample of the lines of a large
+ * text file, for exploratory runs.
+ * <p>
+ * In the default, approximate mode, the file is not read sequentially.
+ * Instead, we jump to random byte offsets, and resynchronize on the next line
+ * boundary. Only the bytes of the sampled lines are read, but the sample is
+ * biased towards lines that follow long lines. In the exact mode, the line
+ * boundaries of the whole file are scanned (but not parsed), and a uniform
+ * random sample is drawn with reservoir sampling.
+ * <p>
+ * If the first line of the file is a header (a comment, or a line without
+ * numbers in the default CSV format), it is always included in addition to
+ * the sample, as it may contain column labels; otherwise it is sampled like
+ * any other line. Other comment lines are sampled like data lines, and then
+ * skipped by the parser. The file must not be compressed.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class SampledFileDatabaseConnection extends InputStreamDatabaseConnection {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(SampledFileDatabaseConnection.class);
+
+  /**
+   * Size of the read buffer.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Maximum number of attempts to find new lines in approximate mode.
+   */
+  private static final int MAX_ROUNDS = 10;
+
+  /**
+   * Constructor.
+   *
+   * @param filters Filters, can be null
+   * @param parser the parser to provide a database
+   * @param infile File to load the data from
+   * @param samplesize Number of lines to sample
+   * @param exact Draw an exact uniform sample, by scanning the line boundaries
+   * @param rnd Random generator
+   */
+  public SampledFileDatabaseConnection(List<? extends ObjectFilter> filters, Parser parser, Path infile, int samplesize, boolean exact, RandomFactory rnd) {
+    super(() -> {
+      try {
+        return sample(infile, samplesize, exact, rnd.getSingleThreadedRandom());
+      }
+      catch(IOException e) {
+        throw new UncheckedIOException("Could not sample input file: " + infile, e);
+      }
+    }, filters, parser);
+  }
+
+  /**
+   * Draw a sample of lines from a file.
+   *
+   * @param infile Input file
+   * @param samplesize Sample size
+   * @param exact Exact uniform sampling
+   * @param random Random generator
+   * @return Sampled lines, as input stream
+   * @throws IOException on IO errors
+   */
+  private static InputStream sample(Path infile, int samplesize, boolean exact, Random random) throws IOException {
+    try (FileChannel channel = FileChannel.open(infile)) {
+      ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+      channel.read(buf, 0);
+      if(buf.position() >= 2 && buf.get(0) == (byte) 0x1f && buf.get(1) == (byte) 0x8b) {
+        throw new AbortException("Sampling by seeking is not possible in compressed files: " + infile);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      long start = readLine(channel, 0, buf, out);
+      if(!isHeader(out.toByteArray())) {
+        out.reset();
+        start = 0;
+      }
+      long[] starts = exact ? reservoir(channel, start, samplesize, buf, random) //
+          : approximate(channel, start, samplesize, buf, random);
+      for(long s : starts) {
+        readLine(channel, s, buf, out);
+      }
+      if(LOG.isVerbose()) {
+        LOG.verbose("Sampled " + starts.length + " lines, " + out.size() + " of " + channel.size() + " bytes.");
+      }
+      return new ByteArrayInputStream(out.toByteArray());
+    }
+  }
+
+  /**
+   * Test if the first line is a header: a comment, or a line without numbers
+   * (as {@link NumberVectorLabelParser} uses it for column labels).
+   *
+   * @param line First line
+   * @return {@code true} if the line is not a data line
+   * @throws IOException on IO errors
+   */
+  private static boolean isHeader(byte[] line) throws IOException {
+    try (TokenizedReader reader = CSVReaderFormat.DEFAULT_FORMAT.makeReader()) {
+      reader.reset(new ByteArrayInputStream(line));
+      if(!reader.nextLineExceptComments()) {
+        return true;
+      }
+      for(Tokenizer tokenizer = reader.getTokenizer(); tokenizer.valid(); tokenizer.advance()) {
+        if(!tokenizer.isQuoted()) {
+          try {
+            tokenizer.getDouble();
+            return false;
+          }
+          catch(NumberFormatException e) {
+            // Not a number, continue.
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Read a line, including the line terminator.
+   *
+   * @param channel Input channel
+   * @param pos Start position
+   * @param buf Buffer
+   * @param out Output
+   * @return Position after the line
+   * @throws IOException on IO errors
+   */
+  private static long readLine(FileChannel channel, long pos, ByteBuffer buf, ByteArrayOutputStream out) throws IOException {
+    while(true) {
+      buf.clear();
+      final int read = channel.read(buf, pos);
+      if(read <= 0) {
+        return pos;
+      }
+      final byte[] data = buf.array();
+      for(int i = 0; i < read; i++) {
+        if(data[i] == '\n') {
+          out.write(data, 0, i + 1);
+          return pos + i + 1;
+        }
+      }
+      out.write(data, 0, read);
+      pos += read;
+    }
+  }
+
+  /**
+   * Find the start of the next line, at or after the given offset.
+   *
+   * @param channel Input channel
+   * @param offset Offset
+   * @param buf Buffer
+   * @return Start of the next line, or the file size
+   * @throws IOException on IO errors
+   */
+  private static long nextLineStart(FileChannel channel, long offset, ByteBuffer buf) throws IOException {
+    // Include the previous byte, in case we hit the beginning of a line.
+    long pos = offset - 1;
+    while(true) {
+      buf.clear();
+      final int read = channel.read(buf, pos);
+      if(read <= 0) {
+        return channel.size();
+      }
+      final byte[] data = buf.array();
+      for(int i = 0; i < read; i++) {
+        if(data[i] == '\n') {
+          return pos + i + 1;
+        }
+      }
+      pos += read;
+    }
+  }
+
+  /**
+   * Approximate sampling, by seeking to random offsets.
+   *
+   * @param channel Input channel
+   * @param start Start of the first line to sample
+   * @param samplesize Sample size
+   * @param buf Buffer
+   * @param random Random generator
+   * @return Sorted line starts
+   * @throws IOException on IO errors
+   */
+  private static long[] approximate(FileChannel channel, long start, int samplesize, ByteBuffer buf, Random random) throws IOException {
+    final long size = channel.size();
+    long[] starts = new long[samplesize];
+    int found = 0;
+    // Lines may be found repeatedly; draw more offsets until enough are found.
+    for(int round = 0; round < MAX_ROUNDS && found < samplesize && start < size; round++) {
+      final int before = found;
+      for(int i = before; i < samplesize; i++) {
+        final long offset = start + (long) (random.nextDouble() * (size - start));
+        final long s = offset == start ? start : nextLineStart(channel, offset, buf);
+        // Wrap around at the end, so the first line is treated like the others.
+        starts[found++] = s < size ? s : start;
+      }
+      Arrays.sort(starts, 0, found);
+      // Remove duplicates.
+      int j = 0;
+      for(int i = 0; i < found; i++) {
+        if(j == 0 || starts[i] != starts[j - 1]) {
+          starts[j++] = starts[i];
+        }
+      }
+      if(j == before) {
+        break; // No progress, probably too few lines.
+      }
+      found = j;
+    }
+    return found < samplesize ? Arrays.copyOf(starts, found) : starts;
+  }
+
+  /**
+   * Exact sampling, by scanning the line boundaries of the entire file and
+   * reservoir sampling.
+   *
+   * @param channel Input channel
+   * @param start Start of the first line to sample
+   * @param samplesize Sample size
+   * @param buf Buffer
+   * @param random Random generator
+   * @return Sorted line starts
+   * @throws IOException on IO errors
+   */
+  private static long[] reservoir(FileChannel channel, long start, int samplesize, ByteBuffer buf, Random random) throws IOException {
+    final long size = channel.size();
+    long[] starts = new long[samplesize];
+    long count = 0;
+    long next = start; // Start of the next line
+    for(long pos = start; pos < size;) {
+      buf.clear();
+      final int read = channel.read(buf, pos);
+      if(read <= 0) {
+        break;
+      }
+      final byte[] data = buf.array();
+      for(int i = 0; i <= read; i++) {
+        if(next >= 0 && next < size) {
+          if(count < samplesize) {
+            starts[(int) count] = next;
+          }
+          else {
+            final long r = (long) (random.nextDouble() * (count + 1));
+            if(r < samplesize) {
+              starts[(int) r] = next;
+            }
+          }
+          ++count;
+          next = -1;
+        }
+        if(i < read && data[i] == '\n') {
+          next = pos + i + 1;
+        }
+      }
+      pos += read;
+    }
+    if(count < samplesize) {
+      starts = Arrays.copyOf(starts, (int) count);
+    }
+    Arrays.sort(starts);
+    return starts;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Par extends AbstractDatabaseConnection.Par {
+    /**
+     * Number of lines to sample.
+     */
+    public static final OptionID SAMPLESIZE_ID = new OptionID("dbc.sample.size", "Number of lines to sample from the input file.");
+
+    /**
+     * Flag for exact sampling.
+     */
+    public static final OptionID EXACT_ID = new OptionID("dbc.sample.exact", "Draw an exact uniform sample, by scanning all line boundaries of the file. Otherwise, random offsets are sampled, which only reads the sampled lines, but is biased towards lines following long lines.");
+
+    /**
+     * Random seed.
+     */
+    public static final OptionID SEED_ID = new OptionID("dbc.sample.seed", "Random generator seed for sampling.");
+
+    /**
+     * Input file.
+     */
+    protected Path infile;
+
+    /**
+     * Sample size.
+     */
+    protected int samplesize;
+
+    /**
+     * Exact sampling.
+     */
+    protected boolean exact;
+
+    /**
+     * Random generator.
+     */
+    protected RandomFactory rnd;
+
+    @Override
+    public void configure(Parameterization config) {
+      new FileParameter(FileBasedDatabaseConnection.Par.INPUT_ID, FileParameter.FileType.INPUT_FILE) //
+          .grab(config, x -> infile = Paths.get(x));
+      new IntParameter(SAMPLESIZE_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT) //
+          .grab(config, x -> samplesize = x);
+      new Flag(EXACT_ID).grab(config, x -> exact = x);
+      new RandomParameter(SEED_ID).grab(config, x -> rnd = x);
+      configParser(config, Parser.class, NumberVectorLabelParser.class);
+      configFilters(config);
+    }
+
+    @Override
+    public SampledFileDatabaseConnection make() {
+      return new SampledFileDatabaseConnection(filters, parser, infile, samplesize, exact, rnd);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource.bundle;
+
+import java.nio.channels.FileChannel;
+
+import elki.data.MappedDoubleVector;
+import elki.data.type.SimpleTypeInformation;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.utilities.io.ByteBufferSerializer;
+
+/**
+ * Read an ELKI bundle file, exposing the double vectors as
+ * {@link MappedDoubleVector} views into the mapped file instead of copying
+ * them onto the Java heap.
+ * <p>
+ * This allows loading bundles much larger than the Java heap quickly, as the
+ * vector data is only paged in by the operating system when accessed. Other
+ * columns (such as labels) are still read into memory.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - produces - MappedDoubleVector
+ */
+public class MappedBundleReader extends BundleReader {
+  /**
+   * Constructor.
+   *
+   * @param input Input channel
+   */
+  public MappedBundleReader(FileChannel input) {
+    super(input);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param input Input channel
+   * @param window Size of the mapped windows, must exceed the largest object
+   */
+  public MappedBundleReader(FileChannel input, int window) {
+    super(input, window);
+  }
+
+  @Override
+  protected SimpleTypeInformation<?> convertType(SimpleTypeInformation<?> type) {
+    if(!(type instanceof VectorFieldTypeInformation) || MappedDoubleVector.viewSerializer(type.getSerializer()) == null) {
+      return type;
+    }
+    VectorFieldTypeInformation<?> vtype = (VectorFieldTypeInformation<?>) type;
+    if(vtype.mindim() != vtype.maxdim()) {
+      return new VectorFieldTypeInformation<>(MappedDoubleVector.FACTORY, vtype.mindim(), vtype.maxdim(), MappedDoubleVector.VARIABLE_SERIALIZER);
+    }
+    final int dim = vtype.mindim();
+    String[] labels = null;
+    for(int i = 0; i < dim; i++) {
+      final String label = vtype.getLabel(i);
+      if(label != null) {
+        (labels = labels != null ? labels : new String[dim])[i] = label;
+      }
+    }
+    return new VectorFieldTypeInformation<>(MappedDoubleVector.FACTORY, dim, labels, MappedDoubleVector.VARIABLE_SERIALIZER);
+  }
+
+  @Override
+  protected ByteBufferSerializer<?> getSerializer(SimpleTypeInformation<?> type) {
+    ByteBufferSerializer<?> view = type instanceof VectorFieldTypeInformation ? MappedDoubleVector.viewSerializer(type.getSerializer()) : null;
+    return view != null ? view : type.getSerializer();
+  }
+}
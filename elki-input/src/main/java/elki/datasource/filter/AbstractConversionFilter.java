@@ -23,13 +23,19 @@ package elki.datasource.filter;
 import java.util.List;
 
 import elki.data.type.SimpleTypeInformation;
+import elki.datasource.bundle.BundleMeta;
+import elki.datasource.bundle.BundleStreamSource;
 import elki.datasource.bundle.MultipleObjectsBundle;
 import elki.logging.Logging;
 import elki.logging.progress.FiniteProgress;
+import elki.logging.progress.IndefiniteProgress;
 import elki.utilities.exceptions.AbortException;
 
 /**
  * Abstract base class for simple conversion filters such as normalizations and projections.
+ * <p>
+ * On re-readable streams, these filters can be used in two passes, see
+ * {@link TwoPassFilter}; this supports a single column of a suitable type.
  * 
  * @author Erich Schubert
  * @since 0.4.0
@@ -37,7 +43,12 @@ import elki.utilities.exceptions.AbortException;
  * @param <I> Input object type
  * @param <O> Input object type
  */
-public abstract class AbstractConversionFilter<I, O> implements ObjectFilter {
+public abstract class AbstractConversionFilter<I, O> implements TwoPassFilter {
+  /**
+   * Column converted in streaming mode.
+   */
+  private int streamColumn = -1;
+
   /**
    * A standard implementation of the filter process. First of all, all suitable
    * representations are found. Then (if {@link #prepareStart} returns true),
@@ -101,6 +112,122 @@ public abstract class AbstractConversionFilter<I, O> implements ObjectFilter {
     return bundle;
   }
 
+  @Override
+  public boolean prepare(BundleStreamSource source) {
+    final Logging logger = getLogger();
+    IndefiniteProgress pprog = null;
+    streamColumn = -1;
+    while(true) {
+      switch(source.nextEvent()){
+      case META_CHANGED: {
+        final int column = findColumn(source.getMeta());
+        if(streamColumn < 0) {
+          if(column < 0) {
+            return column == -1; // No matching column, or multiple columns
+          }
+          streamColumn = column;
+          @SuppressWarnings("unchecked")
+          final SimpleTypeInformation<I> castType = (SimpleTypeInformation<I>) source.getMeta().get(column);
+          if(!prepareStart(castType)) {
+            return true; // No statistics needed.
+          }
+          pprog = logger.isVerbose() ? new IndefiniteProgress("Preparing normalization", logger) : null;
+        }
+        else if(column != streamColumn) {
+          throw new AbortException("Data type changed while preparing " + toString());
+        }
+        break;
+      }
+      case NEXT_OBJECT: {
+        @SuppressWarnings("unchecked")
+        final I obj = (I) source.data(streamColumn);
+        prepareProcessInstance(obj);
+        logger.incrementProcessed(pprog);
+        break;
+      }
+      case END_OF_STREAM:
+        logger.setCompleted(pprog);
+        if(streamColumn >= 0) {
+          prepareComplete();
+        }
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Find the column to convert in streaming mode.
+   *
+   * @param meta Stream metadata
+   * @return Column number, -1 if none, -2 if there are multiple columns.
+   */
+  private int findColumn(BundleMeta meta) {
+    int column = -1;
+    for(int i = 0; i < meta.size(); i++) {
+      if(getInputTypeRestriction().isAssignableFromType(meta.get(i))) {
+        if(column >= 0) {
+          return -2;
+        }
+        column = i;
+      }
+    }
+    return column;
+  }
+
+  @Override
+  public BundleStreamSource transform(BundleStreamSource source) {
+    return new ConversionStream().init(source);
+  }
+
+  /**
+   * Stream converting the objects on the fly, for the second pass.
+   *
+   * @author Erich Schubert
+   */
+  private class ConversionStream extends AbstractStreamFilter {
+    /**
+     * Converted metadata.
+     */
+    private BundleMeta meta;
+
+    @Override
+    public BundleMeta getMeta() {
+      return meta;
+    }
+
+    @Override
+    public Event nextEvent() {
+      final Event ev = source.nextEvent();
+      if(ev == Event.META_CHANGED) {
+        final BundleMeta origmeta = source.getMeta();
+        if(findColumn(origmeta) != streamColumn) {
+          throw new AbortException("Data type changed after preparing " + AbstractConversionFilter.this.toString());
+        }
+        meta = new BundleMeta(origmeta.size());
+        for(int i = 0; i < origmeta.size(); i++) {
+          if(i == streamColumn) {
+            @SuppressWarnings("unchecked")
+            final SimpleTypeInformation<I> castType = (SimpleTypeInformation<I>) origmeta.get(i);
+            meta.add(convertedType(castType));
+            continue;
+          }
+          meta.add(origmeta.get(i));
+        }
+      }
+      return ev;
+    }
+
+    @Override
+    public Object data(int rnum) {
+      if(rnum != streamColumn) {
+        return source.data(rnum);
+      }
+      @SuppressWarnings("unchecked")
+      final I obj = (I) source.data(rnum);
+      return filterSingleObject(obj);
+    }
+  }
+
   /**
    * Class logger.
    * 
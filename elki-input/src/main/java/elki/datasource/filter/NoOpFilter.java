@@ -41,6 +41,11 @@ public class NoOpFilter extends AbstractStreamFilter {
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   public MultipleObjectsBundle filter(MultipleObjectsBundle objects) {
     return objects;
@@ -60,6 +60,11 @@ public class DropNaNFilter extends AbstractStreamFilter {
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   public BundleMeta getMeta() {
     return source.getMeta();
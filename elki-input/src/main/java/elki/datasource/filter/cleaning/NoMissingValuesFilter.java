@@ -52,6 +52,11 @@ public class NoMissingValuesFilter extends AbstractStreamFilter {
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   public BundleMeta getMeta() {
     return source.getMeta();
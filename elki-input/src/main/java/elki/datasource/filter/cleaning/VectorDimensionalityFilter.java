@@ -75,6 +75,11 @@ public class VectorDimensionalityFilter<V extends NumberVector> extends Abstract
     this.dim = dim;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   public BundleMeta getMeta() {
     if(meta == null) {
@@ -82,6 +82,11 @@ public class AttributeWiseMeanNormalization<V extends NumberVector> extends Abst
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected boolean prepareStart(SimpleTypeInformation<V> in) {
     return (mean == null || mean.length == 0);
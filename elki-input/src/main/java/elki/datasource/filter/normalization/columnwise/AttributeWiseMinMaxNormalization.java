@@ -90,6 +90,11 @@ public class AttributeWiseMinMaxNormalization<V extends NumberVector> extends Ab
     this.maxima = maxima != null ? maxima : EMPTY_ARRAY;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected boolean prepareStart(SimpleTypeInformation<V> in) {
     return (minima.length == 0 || maxima.length == 0);
@@ -96,6 +96,11 @@ public class AttributeWiseVarianceNormalization<V extends NumberVector> extends
     this.stddev = stddev;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected boolean prepareStart(SimpleTypeInformation<V> in) {
     return (mean == null || stddev == null || mean.length == 0 || stddev.length == 0);
@@ -66,6 +66,11 @@ public class InverseDocumentFrequencyNormalization<V extends SparseNumberVector>
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected boolean prepareStart(SimpleTypeInformation<V> in) {
     if(idf.size() > 0) {
@@ -60,6 +60,11 @@ public class HellingerHistogramNormalization<V extends NumberVector> extends Abs
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V featureVector) {
     double[] data = new double[featureVector.getDimensionality()];
@@ -54,6 +54,11 @@ public class InstanceLogRankNormalization<V extends NumberVector> extends Abstra
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V featureVector) {
     double[] raw = featureVector.toArray();
@@ -51,6 +51,11 @@ public class InstanceMeanVarianceNormalization<V extends NumberVector> extends A
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V featureVector) {
     double[] raw = featureVector.toArray();
@@ -72,6 +72,11 @@ public class InstanceMinMaxNormalization<V extends NumberVector> extends Abstrac
     this(0., 1.);
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V featureVector) {
     double[] raw = featureVector.toArray();
@@ -46,6 +46,11 @@ public class InstanceRankNormalization<V extends NumberVector> extends AbstractV
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V featureVector) {
     double[] raw = featureVector.toArray();
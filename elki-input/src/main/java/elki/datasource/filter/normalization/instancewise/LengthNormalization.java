@@ -58,6 +58,11 @@ public class LengthNormalization<V extends NumberVector> extends AbstractVectorS
     this.norm = norm;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V featureVector) {
     final double d = norm.norm(featureVector);
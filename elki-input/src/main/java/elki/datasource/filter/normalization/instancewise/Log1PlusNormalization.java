@@ -67,6 +67,11 @@ public class Log1PlusNormalization<V extends NumberVector> extends AbstractVecto
     this.scale = 1. / FastMath.log1p(boost);
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V featureVector) {
     double[] data = new double[featureVector.getDimensionality()];
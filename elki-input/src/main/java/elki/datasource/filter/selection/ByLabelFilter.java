@@ -75,6 +75,11 @@ public class ByLabelFilter extends AbstractStreamFilter {
     this.inverted = inverted;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   public BundleMeta getMeta() {
     return source.getMeta();
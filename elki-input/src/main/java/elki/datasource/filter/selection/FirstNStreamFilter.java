@@ -21,6 +21,7 @@
 package elki.datasource.filter.selection;
 
 import elki.datasource.bundle.BundleMeta;
+import elki.datasource.bundle.BundleStreamSource;
 import elki.datasource.filter.AbstractStreamFilter;
 import elki.utilities.optionhandling.Parameterizer;
 import elki.utilities.optionhandling.OptionID;
@@ -36,10 +37,15 @@ import elki.utilities.optionhandling.parameters.IntParameter;
  */
 public class FirstNStreamFilter extends AbstractStreamFilter {
   /**
-   * Remaining entries to keep
+   * Number of entries to keep
    */
   protected int n;
 
+  /**
+   * Remaining entries to keep
+   */
+  protected int remaining;
+
   /**
    * Constructor.
    * 
@@ -50,6 +56,17 @@ public class FirstNStreamFilter extends AbstractStreamFilter {
     this.n = n;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public BundleStreamSource init(BundleStreamSource source) {
+    remaining = n;
+    return super.init(source);
+  }
+
   @Override
   public BundleMeta getMeta() {
     return source.getMeta();
@@ -70,10 +87,10 @@ public class FirstNStreamFilter extends AbstractStreamFilter {
       case META_CHANGED:
         return ev;
       case NEXT_OBJECT:
-        if(n == 0) {
+        if(remaining == 0) {
           return Event.END_OF_STREAM;
         }
-        --n;
+        --remaining;
         return ev;
       }
     }
@@ -140,6 +140,11 @@ public class GlobalPrincipalComponentAnalysisTransform<O extends NumberVector> e
     this.mode = mode;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected boolean prepareStart(SimpleTypeInformation<O> in) {
     if(!(in instanceof VectorFieldTypeInformation)) {
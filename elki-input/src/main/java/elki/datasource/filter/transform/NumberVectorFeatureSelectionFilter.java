@@ -62,6 +62,11 @@ public class NumberVectorFeatureSelectionFilter<V extends NumberVector> extends
     this.selectedAttributes = selectedAttributes;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V obj) {
     return VectorUtil.project(obj, getSelectedAttributes(), factory);
@@ -96,6 +96,11 @@ public class ClassLabelFromPatternFilter extends AbstractStreamFilter {
     this.negative = negative;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   public BundleMeta getMeta() {
     if(meta == null) {
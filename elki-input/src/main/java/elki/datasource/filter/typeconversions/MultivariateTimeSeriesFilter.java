@@ -57,6 +57,11 @@ public class MultivariateTimeSeriesFilter<V extends FeatureVector<?>> extends Ab
     this.variates = variates;
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected V filterSingleObject(V obj) {
     if(obj.getDimensionality() % variates != 0) {
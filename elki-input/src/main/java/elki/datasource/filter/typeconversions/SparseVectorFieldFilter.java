@@ -55,6 +55,11 @@ public class SparseVectorFieldFilter<V extends SparseNumberVector> extends Abstr
     super();
   }
 
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
   @Override
   protected boolean prepareStart(SimpleTypeInformation<V> in) {
     return true;
@@ -22,6 +22,7 @@ package elki.datasource.parser;
 
 import java.util.regex.Pattern;
 
+import elki.utilities.io.ByteTokenizer;
 import elki.utilities.io.TokenizedReader;
 import elki.utilities.optionhandling.Parameterizer;
 import elki.utilities.optionhandling.OptionID;
@@ -42,6 +43,7 @@ import elki.utilities.optionhandling.parameters.StringParameter;
  * @since 0.1
  * 
  * @has - - - TokenizedReader
+ * @has - - - ByteTokenizer
  */
 public class CSVReaderFormat {
   /**
@@ -116,6 +118,26 @@ public class CSVReaderFormat {
     return new TokenizedReader(colSep, quoteChars, comment);
   }
 
+  /**
+   * Make a tokenizer for byte input, if the column separator is a single
+   * literal ASCII character (and the quotation characters are ASCII, too).
+   * This avoids decoding the input and regular expression matching.
+   *
+   * @return Byte tokenizer, or {@code null} if the format is not supported.
+   */
+  public ByteTokenizer makeByteTokenizer() {
+    final int sep = ByteTokenizer.literalSeparator(colSep);
+    if(sep < 0) {
+      return null;
+    }
+    for(int i = 0; quoteChars != null && i < quoteChars.length(); i++) {
+      if(quoteChars.charAt(i) >= 0x80) {
+        return null;
+      }
+    }
+    return new ByteTokenizer((char) sep, quoteChars);
+  }
+
   /**
    * Parameterization class.
    * 
@@ -207,33 +207,61 @@ public class NumberVectorLabelParser<V extends NumberVector> extends AbstractStr
     try {
       while(reader.nextLineExceptComments()) {
         if(parseLineInternal()) {
-          final int curdim = curvec.getDimensionality();
-          if(curdim > maxdim || mindim > curdim) {
-            mindim = (curdim < mindim) ? curdim : mindim;
-            maxdim = (curdim > maxdim) ? curdim : maxdim;
-            if(mindim != maxdim && LOG.isVerbose()) {
-              LOG.verbose("Non-uniform column width detected in input line " + reader.getLineNumber() + ", widening data type to " + mindim + "-" + maxdim + " dimensions.");
-            }
-            buildMeta();
-            nextevent = Event.NEXT_OBJECT;
-            return Event.META_CHANGED;
-          }
-          else if(curlbl != null && meta != null && haslabels && meta.size() == 1) {
-            buildMeta();
-            nextevent = Event.NEXT_OBJECT;
-            return Event.META_CHANGED;
-          }
-          return Event.NEXT_OBJECT;
+          return objectEvent();
         }
       }
-      if(maxdim == 0) {
-        throw new AbortException("No numeric data was read in line " + reader.getLineNumber() + ". Verify the column separator; for textual data use other parsers.");
-      }
-      return Event.END_OF_STREAM;
+      return endOfStream();
     }
     catch(IOException e) {
-      throw new IllegalArgumentException("Error while parsing line " + reader.getLineNumber() + ".");
+      throw new IllegalArgumentException("Error while parsing line " + getLineNumber() + ".");
+    }
+  }
+
+  /**
+   * Produce the event for the current object, updating the metadata if the
+   * dimensionality or the presence of labels changed.
+   *
+   * @return Event to report
+   */
+  protected Event objectEvent() {
+    final int curdim = curvec.getDimensionality();
+    if(curdim > maxdim || mindim > curdim) {
+      mindim = (curdim < mindim) ? curdim : mindim;
+      maxdim = (curdim > maxdim) ? curdim : maxdim;
+      if(mindim != maxdim && LOG.isVerbose()) {
+        LOG.verbose("Non-uniform column width detected in input line " + getLineNumber() + ", widening data type to " + mindim + "-" + maxdim + " dimensions.");
+      }
+      buildMeta();
+      nextevent = Event.NEXT_OBJECT;
+      return Event.META_CHANGED;
+    }
+    else if(curlbl != null && meta != null && haslabels && meta.size() == 1) {
+      buildMeta();
+      nextevent = Event.NEXT_OBJECT;
+      return Event.META_CHANGED;
     }
+    return Event.NEXT_OBJECT;
+  }
+
+  /**
+   * Produce the end of stream event.
+   *
+   * @return Event to report
+   */
+  protected Event endOfStream() {
+    if(maxdim == 0) {
+      throw new AbortException("No numeric data was read in line " + getLineNumber() + ". Verify the column separator; for textual data use other parsers.");
+    }
+    return Event.END_OF_STREAM;
+  }
+
+  /**
+   * Get the current line number, for error reporting.
+   *
+   * @return Line number
+   */
+  protected int getLineNumber() {
+    return reader.getLineNumber();
   }
 
   @Override
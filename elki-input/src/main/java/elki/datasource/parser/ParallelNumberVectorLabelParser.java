@@ -0,0 +1,573 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+
+import elki.data.LabelList;
+import elki.data.NumberVector;
+import elki.data.NumberVector.Factory;
+import elki.logging.Logging;
+import elki.parallel.ParallelCore;
+import elki.utilities.datastructures.arraylike.DoubleArray;
+import elki.utilities.io.ByteTokenizer;
+import elki.utilities.io.ParseUtil;
+import elki.utilities.io.Tokenizer;
+import elki.utilities.optionhandling.OptionID;
+import elki.utilities.optionhandling.constraints.CommonConstraints;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.IntParameter;
+
+/**
+ * Multi-threaded variant of the {@link NumberVectorLabelParser}.
+ * <p>
+ * The input is read in blocks of bytes, which are split at the last line
+ * break. Each block is then decoded, tokenized and converted to vectors on a
+ * worker thread, while the next blocks are read (and, e.g., decompressed) by
+ * the calling thread. The results are consumed in input order, so the
+ * resulting data is identical to the serial parser.
+ * <p>
+ * If the column separator is a single character, the numbers are parsed
+ * directly from the bytes using a {@link ByteTokenizer}, without decoding.
+ * <p>
+ * Because blocks are split on the byte level, this requires an ASCII
+ * compatible character set such as UTF-8.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <V> the type of NumberVector used
+ */
+public class ParallelNumberVectorLabelParser<V extends NumberVector> extends NumberVectorLabelParser<V> {
+  /**
+   * Logging class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelNumberVectorLabelParser.class);
+
+  /**
+   * Input format.
+   */
+  private CSVReaderFormat format;
+
+  /**
+   * Block size in bytes.
+   */
+  private int blocksize;
+
+  /**
+   * Input stream.
+   */
+  private InputStream in;
+
+  /**
+   * Input buffer.
+   */
+  private byte[] buffer;
+
+  /**
+   * Number of bytes carried over from the previous block.
+   */
+  private int carry;
+
+  /**
+   * End of input reached.
+   */
+  private boolean eof;
+
+  /**
+   * Blocks submitted for parsing, in input order.
+   */
+  private ArrayDeque<Future<Block<V>>> pending = new ArrayDeque<>();
+
+  /**
+   * Block currently consumed.
+   */
+  private Block<V> current;
+
+  /**
+   * Position in the current block.
+   */
+  private int pos;
+
+  /**
+   * Number of lines in the blocks consumed before the current block.
+   */
+  private int lineoffset;
+
+  /**
+   * Constructor.
+   *
+   * @param format Input format
+   * @param labelIndices Column indexes that are not numeric.
+   * @param factory Vector factory
+   * @param blocksize Block size in bytes
+   */
+  public ParallelNumberVectorLabelParser(CSVReaderFormat format, long[] labelIndices, Factory<V> factory, int blocksize) {
+    super(format, labelIndices, factory);
+    this.format = format;
+    this.blocksize = blocksize;
+  }
+
+  @Override
+  public void initStream(InputStream in) {
+    // The line reader of the superclass is only used to close the stream.
+    super.initStream(in);
+    this.in = in;
+    this.buffer = new byte[blocksize];
+    this.carry = 0;
+    this.eof = false;
+    this.current = null;
+    this.pos = 0;
+    this.lineoffset = 0;
+    ParallelCore.getCore().connect();
+  }
+
+  @Override
+  public Event nextEvent() {
+    if(nextevent != null) {
+      Event ret = nextevent;
+      nextevent = null;
+      return ret;
+    }
+    while(nextRow()) {
+      final V vec = current.vecs.get(pos);
+      final String[] lbls = current.labels.get(pos);
+      // Maybe a label row?
+      if(curvec == null && vec.getDimensionality() == 0) {
+        columnnames = new ArrayList<>(Arrays.asList(lbls));
+        haslabels = false;
+        curlbl = null;
+        continue;
+      }
+      for(int i = 0; i < lbls.length; i++) {
+        labels.add(unique.addOrGet(lbls[i]));
+      }
+      haslabels |= lbls.length > 0;
+      curvec = vec;
+      curlbl = LabelList.make(labels);
+      labels.clear();
+      return objectEvent();
+    }
+    return endOfStream();
+  }
+
+  /**
+   * Advance to the next parsed row.
+   *
+   * @return {@code false} at the end of the input
+   */
+  private boolean nextRow() {
+    if(current != null && ++pos < current.vecs.size()) {
+      return true;
+    }
+    while(true) {
+      if(current != null) {
+        lineoffset += current.lines;
+        current = null;
+      }
+      // Keep the workers busy, while we wait for the first block.
+      final int ahead = ParallelCore.getCore().getParallelism() << 1;
+      while(!eof && pending.size() < ahead) {
+        submitBlock();
+      }
+      if(pending.isEmpty()) {
+        return false;
+      }
+      try {
+        current = pending.removeFirst().get();
+      }
+      catch(InterruptedException e) {
+        throw new RuntimeException("Parallel execution interrupted.");
+      }
+      catch(ExecutionException e) {
+        throw new RuntimeException("Processor execution failed.", e);
+      }
+      if(current.precision != null && !warnedPrecision) {
+        getLogger().warning("Too many digits in what looked like a double number - treating as string: " + current.precision);
+        warnedPrecision = true;
+      }
+      pos = 0;
+      if(!current.vecs.isEmpty()) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Read the next block of complete lines, and submit it for parsing.
+   */
+  private void submitBlock() {
+    int len = carry;
+    try {
+      while(true) {
+        int r = in.read(buffer, len, buffer.length - len);
+        if(r < 0) {
+          eof = true;
+          break;
+        }
+        len += r;
+        if(len == buffer.length) {
+          if(lastLinebreak(buffer, len) >= 0) {
+            break;
+          }
+          // Very long line, enlarge the buffer.
+          buffer = Arrays.copyOf(buffer, buffer.length << 1);
+        }
+      }
+    }
+    catch(IOException e) {
+      throw new IllegalArgumentException("Error while reading input after line " + lineoffset + ".", e);
+    }
+    if(len == 0) {
+      return;
+    }
+    final int end = eof ? len : lastLinebreak(buffer, len) + 1;
+    final byte[] data = Arrays.copyOf(buffer, end);
+    carry = len - end;
+    System.arraycopy(buffer, end, buffer, 0, carry);
+    pending.addLast(ParallelCore.getCore().submit(() -> parseBlock(data)));
+  }
+
+  /**
+   * Find the last line break in a buffer.
+   *
+   * @param buf Buffer
+   * @param len Length of the buffer
+   * @return Position of the last line break, or -1
+   */
+  private static int lastLinebreak(byte[] buf, int len) {
+    int i = len - 1;
+    while(i >= 0 && buf[i] != '\n') {
+      --i;
+    }
+    return i;
+  }
+
+  /**
+   * Parse a block of complete lines. This is executed on a worker thread, and
+   * must only use local state.
+   *
+   * @param data Input data
+   * @return Parsed block
+   */
+  private Block<V> parseBlock(byte[] data) {
+    ByteTokenizer bytes = format.makeByteTokenizer();
+    return bytes != null ? parseBytes(data, bytes) : parseChars(data);
+  }
+
+  /**
+   * Parse a block of lines, decoded to characters.
+   *
+   * @param data Input data
+   * @return Parsed block
+   */
+  private Block<V> parseChars(byte[] data) {
+    final String str = new String(data, Charset.defaultCharset());
+    final Tokenizer tokenizer = new Tokenizer(format.colSep, format.quoteChars);
+    final Matcher comment = format.comment != null ? format.comment.matcher(str) : null;
+    final Block<V> block = new Block<>();
+    final int len = str.length();
+    for(int start = 0; start < len; start++) {
+      int end = str.indexOf('\n', start);
+      end = end < 0 ? len : end;
+      final int next = end;
+      while(end > start && str.charAt(end - 1) == '\r') {
+        --end;
+      }
+      block.lines++;
+      if(end > start && (comment == null || !comment.region(start, end).matches())) {
+        for(tokenizer.initialize(str, start, end); tokenizer.valid(); tokenizer.advance()) {
+          if(!isLabelColumn(block.col) && !tokenizer.isQuoted()) {
+            try {
+              block.addValue(tokenizer.getDouble());
+              continue;
+            }
+            catch(NumberFormatException e) {
+              block.checkPrecision(e, tokenizer.getSubstring());
+            }
+          }
+          block.addLabel(tokenizer.getStrippedSubstring());
+        }
+        block.endRow(factory);
+      }
+      start = next;
+    }
+    tokenizer.cleanup();
+    return block;
+  }
+
+  /**
+   * Parse a block of lines, without decoding the numeric columns.
+   *
+   * @param data Input data
+   * @param tokenizer Byte tokenizer
+   * @return Parsed block
+   */
+  private Block<V> parseBytes(byte[] data, ByteTokenizer tokenizer) {
+    final Matcher comment = format.comment != null ? format.comment.matcher(new AsciiSequence(data)) : null;
+    final Block<V> block = new Block<>();
+    final int len = data.length;
+    for(int start = 0; start < len; start++) {
+      int end = start;
+      while(end < len && data[end] != '\n') {
+        ++end;
+      }
+      final int next = end;
+      while(end > start && data[end - 1] == '\r') {
+        --end;
+      }
+      block.lines++;
+      if(end > start && (comment == null || !comment.region(start, end).matches())) {
+        for(tokenizer.initialize(data, start, end); tokenizer.valid(); tokenizer.advance()) {
+          if(!isLabelColumn(block.col) && !tokenizer.isQuoted()) {
+            try {
+              block.addValue(tokenizer.getDouble());
+              continue;
+            }
+            catch(NumberFormatException e) {
+              block.checkPrecision(e, tokenizer.getSubstring());
+            }
+          }
+          block.addLabel(tokenizer.getStrippedSubstring());
+        }
+        block.endRow(factory);
+      }
+      start = next;
+    }
+    tokenizer.cleanup();
+    return block;
+  }
+
+  @Override
+  protected int getLineNumber() {
+    return current != null ? lineoffset + current.lines : lineoffset;
+  }
+
+  @Override
+  public void cleanup() {
+    for(Future<Block<V>> f : pending) {
+      f.cancel(true);
+    }
+    pending.clear();
+    if(in != null) {
+      ParallelCore.getCore().disconnect();
+      in = null;
+    }
+    buffer = null;
+    current = null;
+    super.cleanup();
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * A parsed block of lines.
+   *
+   * @author Erich Schubert
+   *
+   * @param <V> Vector type
+   */
+  private static class Block<V extends NumberVector> {
+    /**
+     * Vectors, one per data row.
+     */
+    List<V> vecs = new ArrayList<>();
+
+    /**
+     * Labels, one array per data row.
+     */
+    List<String[]> labels = new ArrayList<>();
+
+    /**
+     * Number of lines, including comments and empty lines.
+     */
+    int lines;
+
+    /**
+     * First value that exceeded the parser precision.
+     */
+    String precision;
+
+    /**
+     * Current column.
+     */
+    int col;
+
+    /**
+     * Numerical attributes of the current row.
+     */
+    DoubleArray attributes = new DoubleArray(11);
+
+    /**
+     * Labels of the current row.
+     */
+    List<String> lbls = new ArrayList<>();
+
+    /**
+     * Add a numerical value to the current row.
+     *
+     * @param v Value
+     */
+    void addValue(double v) {
+      attributes.add(v);
+      ++col;
+    }
+
+    /**
+     * Add a label to the current row.
+     *
+     * @param lbl Label
+     */
+    void addLabel(String lbl) {
+      if(lbl.length() > 0) {
+        lbls.add(lbl);
+      }
+      ++col;
+    }
+
+    /**
+     * Remember values that exceeded the parser precision.
+     *
+     * @param e Exception
+     * @param str Value
+     */
+    void checkPrecision(NumberFormatException e, String str) {
+      if(precision == null && (e == ParseUtil.PRECISION_OVERFLOW || e == ParseUtil.EXPONENT_OVERFLOW)) {
+        precision = str;
+      }
+    }
+
+    /**
+     * Finish the current row.
+     *
+     * @param factory Vector factory
+     */
+    void endRow(NumberVector.Factory<V> factory) {
+      vecs.add(factory.newNumberVector(attributes, attributes));
+      labels.add(lbls.toArray(new String[lbls.size()]));
+      attributes.clear();
+      lbls.clear();
+      col = 0;
+    }
+  }
+
+  /**
+   * Character sequence view of ASCII bytes, for matching comments.
+   *
+   * @author Erich Schubert
+   */
+  private static class AsciiSequence implements CharSequence {
+    /**
+     * Data.
+     */
+    private byte[] data;
+
+    /**
+     * Offset and end.
+     */
+    private int start, end;
+
+    /**
+     * Constructor.
+     *
+     * @param data Data
+     */
+    AsciiSequence(byte[] data) {
+      this(data, 0, data.length);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param data Data
+     * @param start Start
+     * @param end End
+     */
+    AsciiSequence(byte[] data, int start, int end) {
+      this.data = data;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (data[start + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int s, int e) {
+      return new AsciiSequence(data, start + s, start + e);
+    }
+
+    @Override
+    public String toString() {
+      return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Par<V extends NumberVector> extends NumberVectorLabelParser.Par<V> {
+    /**
+     * Size of the blocks processed by each thread.
+     */
+    public static final OptionID BLOCKSIZE_ID = new OptionID("parser.blocksize", "Size of the input blocks (in bytes) parsed by each thread.");
+
+    /**
+     * Block size in bytes.
+     */
+    protected int blocksize = 4 << 20;
+
+    @Override
+    public void configure(Parameterization config) {
+      super.configure(config);
+      new IntParameter(BLOCKSIZE_ID, 4 << 20) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT) //
+          .grab(config, x -> blocksize = x);
+    }
+
+    @Override
+    public ParallelNumberVectorLabelParser<V> make() {
+      return new ParallelNumberVectorLabelParser<>(format, labelIndices, factory, blocksize);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import elki.data.NumberVector;
+import elki.data.type.TypeUtil;
+import elki.database.ids.DBIDUtil;
+import elki.datasource.bundle.ColumnBundleReader;
+import elki.datasource.bundle.ColumnBundleWriter;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.utilities.ELKIBuilder;
+
+/**
+ * Test the column-oriented bundle format.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ColumnBundleDatabaseConnectionTest extends AbstractDataSourceTest {
+  @Test
+  public void testRoundtrip() throws IOException {
+    MultipleObjectsBundle orig = readBundle(UNITTEST + "external-id-test-1.csv");
+    orig.setDBIDs(DBIDUtil.generateStaticDBIDRange(orig.dataLength()));
+    for(boolean compress : new boolean[] { false, true }) {
+      Path file = write(orig, compress);
+      try {
+        MultipleObjectsBundle bundle = new ELKIBuilder<>(ColumnBundleDatabaseConnection.class) //
+            .with(ColumnBundleDatabaseConnection.Par.BUNDLE_ID, file.toString()) //
+            .build().loadData();
+        assertNotNull("DBIDs not restored", bundle.getDBIDs());
+        compare(orig, bundle, 0, 1);
+        // Projection on the label column only.
+        bundle = new ColumnBundleDatabaseConnection(null, file, new int[] { 1 }).loadData();
+        assertEquals("Projection", 1, bundle.metaLength());
+        assertTrue("Not a label column", TypeUtil.LABELLIST.isAssignableFromType(bundle.meta(0)));
+        compare(orig, bundle, 1);
+      }
+      finally {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Test
+  public void testCompression() throws IOException {
+    MultipleObjectsBundle orig = readBundle(UNITTEST + "sorted-data-1.csv");
+    Path plain = write(orig, false), compressed = write(orig, true);
+    try {
+      assertTrue("Not compressed: " + Files.size(compressed) + " >= " + Files.size(plain), Files.size(compressed) < Files.size(plain));
+      compare(orig, new ColumnBundleDatabaseConnection(null, compressed, null).loadData(), 0);
+    }
+    finally {
+      Files.delete(plain);
+      Files.delete(compressed);
+    }
+  }
+
+  @Test
+  public void testEmbedded() throws IOException {
+    MultipleObjectsBundle orig = readBundle(UNITTEST + "external-id-test-1.csv");
+    Path file = Files.createTempFile("elki-test", ".bundle");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // Bundle not starting at an aligned position in the file.
+      channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+      new ColumnBundleWriter(false).write(orig, channel);
+      channel.position(3);
+      compare(orig, new ColumnBundleReader(channel).read(), 0, 1);
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Write a bundle to a temporary file.
+   *
+   * @param bundle Bundle
+   * @param compress Compression flag
+   * @return File
+   */
+  private static Path write(MultipleObjectsBundle bundle, boolean compress) throws IOException {
+    Path file = Files.createTempFile("elki-test", ".bundle");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      new ColumnBundleWriter(compress).write(bundle, channel);
+    }
+    return file;
+  }
+
+  /**
+   * Compare the selected columns.
+   *
+   * @param expected Expected data
+   * @param actual Loaded data
+   * @param columns Columns of the expected data
+   */
+  private static void compare(MultipleObjectsBundle expected, MultipleObjectsBundle actual, int... columns) {
+    assertEquals("Rows", expected.dataLength(), actual.dataLength());
+    for(int c = 0; c < columns.length; c++) {
+      assertEquals("Type", expected.meta(columns[c]).toString(), actual.meta(c).toString());
+      for(int r = 0; r < expected.dataLength(); r++) {
+        Object e = expected.data(r, columns[c]), a = actual.data(r, c);
+        if(e instanceof NumberVector) {
+          NumberVector ev = (NumberVector) e, av = (NumberVector) a;
+          assertEquals("Dimensionality", ev.getDimensionality(), av.getDimensionality());
+          for(int d = 0; d < ev.getDimensionality(); d++) {
+            assertEquals("Value", ev.doubleValue(d), av.doubleValue(d), 0.);
+          }
+        }
+        else {
+          assertEquals("Object", e.toString(), a.toString());
+        }
+      }
+    }
+  }
+}
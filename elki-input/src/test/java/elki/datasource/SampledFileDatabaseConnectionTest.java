@@ -0,0 +1,120 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import elki.data.DoubleVector;
+import elki.data.type.VectorFieldTypeInformation;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.datasource.parser.NumberVectorLabelParser;
+import elki.utilities.random.RandomFactory;
+
+/**
+ * Test sampling lines from a file.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class SampledFileDatabaseConnectionTest extends AbstractDataSourceTest {
+  @Test
+  public void testSampling() throws IOException {
+    Path file = Files.createTempFile("elki-test", ".csv");
+    try {
+      try (BufferedWriter w = Files.newBufferedWriter(file)) {
+        w.write("x y\n");
+        for(int i = 0; i < 10000; i++) {
+          // Variable line lengths
+          w.write(i + " " + (i << 1) + (i % 7 == 0 ? " some-longer-label" : "") + "\n");
+        }
+      }
+      for(boolean exact : new boolean[] { false, true }) {
+        check(load(file, 100, exact), 100);
+        check(load(file, 20000, exact), exact ? 10000 : -1);
+      }
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testNoHeader() throws IOException {
+    Path file = Files.createTempFile("elki-test", ".csv");
+    try {
+      try (BufferedWriter w = Files.newBufferedWriter(file)) {
+        for(int i = 0; i < 10000; i++) {
+          w.write(i + " " + (i << 1) + "\n");
+        }
+      }
+      for(boolean exact : new boolean[] { false, true }) {
+        MultipleObjectsBundle bundle = load(file, 100, exact);
+        // The first line must not be added to the sample.
+        assertEquals("Sample size", 100, bundle.dataLength());
+        assertNotEquals("First line always sampled", 0., get(bundle, 0, 0, DoubleVector.class).doubleValue(0), 0.);
+      }
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Load a sample.
+   *
+   * @param file File
+   * @param size Sample size
+   * @param exact Exact sampling
+   * @return Bundle
+   */
+  private static MultipleObjectsBundle load(Path file, int size, boolean exact) {
+    return new SampledFileDatabaseConnection(null, new NumberVectorLabelParser<>(DoubleVector.FACTORY), file, size, exact, new RandomFactory(0L)).loadData();
+  }
+
+  /**
+   * Check a sample.
+   *
+   * @param bundle Bundle
+   * @param expected Expected size, -1 for unknown
+   */
+  private static void check(MultipleObjectsBundle bundle, int expected) {
+    if(expected >= 0) {
+      assertEquals("Sample size", expected, bundle.dataLength());
+    }
+    assertEquals("Header not used", "x", ((VectorFieldTypeInformation<?>) bundle.meta(0)).getLabel(0));
+    HashSet<Integer> seen = new HashSet<>();
+    for(int i = 0; i < bundle.dataLength(); i++) {
+      DoubleVector v = get(bundle, i, 0, DoubleVector.class);
+      assertEquals("Broken line", v.doubleValue(0) * 2, v.doubleValue(1), 0.);
+      assertTrue("Duplicate line", seen.add((int) v.doubleValue(0)));
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource.bundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import elki.data.MappedDoubleVector;
+import elki.data.type.TypeUtil;
+import elki.datasource.AbstractDataSourceTest;
+import elki.datasource.BundleDatabaseConnection;
+
+/**
+ * Test reading bundles with mapped vectors.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MappedBundleReaderTest extends AbstractDataSourceTest {
+  @Test
+  public void testMapped() throws IOException {
+    MultipleObjectsBundle orig = readBundle(UNITTEST + "normalization-test-1.csv");
+    Path file = Files.createTempFile("elki-test", ".bundle");
+    try {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        new BundleWriter().writeBundleStream(orig.asStream(), channel);
+      }
+      // Small windows, to test moving the mapping.
+      MultipleObjectsBundle bundle;
+      try (FileChannel channel = FileChannel.open(file)) {
+        bundle = new MappedBundleReader(channel, 4096).asMultipleObjectsBundle();
+      }
+      compare(orig, bundle);
+      assertTrue("Vectors not mapped", bundle.data(0, 0) instanceof MappedDoubleVector);
+      // Default window, via the database connection.
+      compare(orig, new BundleDatabaseConnection(null, file, true).loadData());
+      // Plain reader with small windows.
+      try (FileChannel channel = FileChannel.open(file)) {
+        compare(orig, new BundleReader(channel, 4096).asMultipleObjectsBundle());
+      }
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Compare two bundles.
+   *
+   * @param orig Original bundle
+   * @param bundle Bundle read
+   */
+  private static void compare(MultipleObjectsBundle orig, MultipleObjectsBundle bundle) {
+    assertEquals("Number of columns", orig.metaLength(), bundle.metaLength());
+    assertEquals("Number of rows", orig.dataLength(), bundle.dataLength());
+    assertTrue("Not a vector field", TypeUtil.NUMBER_VECTOR_FIELD.isAssignableFromType(bundle.meta(0)));
+    for(int row = 0; row < orig.dataLength(); row++) {
+      for(int col = 0; col < orig.metaLength(); col++) {
+        assertEquals("Data differs", orig.data(row, col).toString(), bundle.data(row, col).toString());
+      }
+    }
+  }
+}
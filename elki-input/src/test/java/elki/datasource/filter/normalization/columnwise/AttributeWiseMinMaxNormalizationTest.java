@@ -23,13 +23,22 @@ package elki.datasource.filter.normalization.columnwise;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import elki.data.DoubleVector;
 import elki.data.type.FieldTypeInformation;
 import elki.data.type.TypeUtil;
 import elki.datasource.AbstractDataSourceTest;
+import elki.datasource.InputStreamDatabaseConnection;
 import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.datasource.filter.ObjectFilter;
+import elki.datasource.filter.selection.RandomSamplingStreamFilter;
+import elki.datasource.filter.transform.PerturbationFilter;
+import elki.datasource.parser.NumberVectorLabelParser;
 import elki.math.DoubleMinMax;
 import elki.utilities.ELKIBuilder;
 
@@ -96,4 +105,122 @@ public class AttributeWiseMinMaxNormalizationTest extends AbstractDataSourceTest
       assertEquals("Maximum not as expected", 1., mms[col].getMax(), 0.);
     }
   }
+
+  /**
+   * Test reading the input twice instead of materializing the data.
+   */
+  @Test
+  public void testTwoPass() {
+    String filename = UNITTEST + "normalization-test-1.csv";
+    AttributeWiseMinMaxNormalization<DoubleVector> filter = new ELKIBuilder<AttributeWiseMinMaxNormalization<DoubleVector>>(AttributeWiseMinMaxNormalization.class).build();
+    MultipleObjectsBundle expected = readBundle(filename, filter);
+    filter = new ELKIBuilder<AttributeWiseMinMaxNormalization<DoubleVector>>(AttributeWiseMinMaxNormalization.class).build();
+    MultipleObjectsBundle bundle = new InputStreamDatabaseConnection(() -> {
+      try {
+        return open(filename);
+      }
+      catch(IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, Arrays.asList(filter), new NumberVectorLabelParser<>(DoubleVector.FACTORY), true).loadData();
+    assertEquals("Number of columns", expected.metaLength(), bundle.metaLength());
+    assertEquals("Number of rows", expected.dataLength(), bundle.dataLength());
+    for(int row = 0; row < bundle.dataLength(); row++) {
+      assertEquals("Vector differs", expected.data(row, 0).toString(), get(bundle, row, 0, DoubleVector.class).toString());
+    }
+  }
+
+  /**
+   * Test that randomized filters before a two-pass filter are not repeated.
+   */
+  @Test
+  public void testTwoPassSampling() {
+    String filename = UNITTEST + "normalization-test-1.csv";
+    MultipleObjectsBundle expected = readBundle(filename, sampling(), minmax());
+    assertTwoPass(expected, readTwoPass(filename, sampling(), minmax()));
+  }
+
+  /**
+   * Test that randomized two-pass filters are applied only once.
+   */
+  @Test
+  public void testTwoPassPerturbation() {
+    String filename = UNITTEST + "normalization-test-1.csv";
+    MultipleObjectsBundle expected = readBundle(filename, perturbation(), minmax());
+    assertTwoPass(expected, readTwoPass(filename, perturbation(), minmax()));
+  }
+
+  /**
+   * Read a file in two-pass mode.
+   *
+   * @param filename File name
+   * @param filters Filters
+   * @return Bundle
+   */
+  private MultipleObjectsBundle readTwoPass(String filename, ObjectFilter... filters) {
+    return new InputStreamDatabaseConnection(() -> {
+      try {
+        return open(filename);
+      }
+      catch(IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, Arrays.asList(filters), new NumberVectorLabelParser<>(DoubleVector.FACTORY), true).loadData();
+  }
+
+  /**
+   * Compare the two-pass result to the materialized result, and verify the
+   * normalization.
+   *
+   * @param expected Materialized result
+   * @param bundle Two-pass result
+   */
+  private void assertTwoPass(MultipleObjectsBundle expected, MultipleObjectsBundle bundle) {
+    assertEquals("Number of rows", expected.dataLength(), bundle.dataLength());
+    int dim = getFieldDimensionality(bundle, 0, TypeUtil.NUMBER_VECTOR_FIELD);
+    DoubleMinMax[] mms = DoubleMinMax.newArray(dim);
+    for(int row = 0; row < bundle.dataLength(); row++) {
+      DoubleVector d = get(bundle, row, 0, DoubleVector.class);
+      assertEquals("Vector differs", expected.data(row, 0).toString(), d.toString());
+      for(int col = 0; col < dim; col++) {
+        mms[col].put(d.doubleValue(col));
+      }
+    }
+    for(int col = 0; col < dim; col++) {
+      assertEquals("Minimum not as expected", 0., mms[col].getMin(), 0.);
+      assertEquals("Maximum not as expected", 1., mms[col].getMax(), 0.);
+    }
+  }
+
+  /**
+   * Min-max normalization.
+   *
+   * @return Filter
+   */
+  private static AttributeWiseMinMaxNormalization<DoubleVector> minmax() {
+    return new ELKIBuilder<AttributeWiseMinMaxNormalization<DoubleVector>>(AttributeWiseMinMaxNormalization.class).build();
+  }
+
+  /**
+   * Seeded perturbation filter.
+   *
+   * @return Filter
+   */
+  private static PerturbationFilter<DoubleVector> perturbation() {
+    return new ELKIBuilder<PerturbationFilter<DoubleVector>>(PerturbationFilter.class) //
+        .with(PerturbationFilter.Par.SEED_ID, 0) //
+        .build();
+  }
+
+  /**
+   * Seeded random sampling filter.
+   *
+   * @return Filter
+   */
+  private static RandomSamplingStreamFilter sampling() {
+    return new ELKIBuilder<>(RandomSamplingStreamFilter.class) //
+        .with(RandomSamplingStreamFilter.Par.PROB_ID, .5) //
+        .with(RandomSamplingStreamFilter.Par.SEED_ID, 0) //
+        .build();
+  }
 }
@@ -0,0 +1,179 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.datasource.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.datasource.AbstractDataSourceTest;
+import elki.datasource.InputStreamDatabaseConnection;
+import elki.datasource.bundle.MultipleObjectsBundle;
+import elki.utilities.ELKIBuilder;
+import elki.utilities.datastructures.BitsUtil;
+import elki.utilities.io.FileUtil;
+
+/**
+ * Test the parallel number vector parser against the serial parser.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ParallelNumberVectorLabelParserTest extends AbstractDataSourceTest {
+  /**
+   * Test input with header, comments, empty lines and labels.
+   */
+  private static final String DATA = "# Comment\r\nx,y,z,class\r\n\r\n1,2,3,a\r\n4,5,6,b\n// Comment\n7,8,9,a\n\n10,11,12,\"c d\"\n13,14,15,b";
+
+  @Test
+  public void testSmallBlocks() throws IOException {
+    byte[] data = DATA.getBytes(StandardCharsets.UTF_8);
+    // Block size smaller than a line, to test buffer enlarging.
+    for(int bs : new int[] { 1, 7, 16, 1 << 20 }) {
+      compare(parse(serial(), data), parse(parallel(bs), data));
+    }
+  }
+
+  @Test
+  public void testByteTokenizer() throws IOException {
+    CSVReaderFormat format = new CSVReaderFormat(Pattern.compile(","), CSVReaderFormat.QUOTE_CHARS, Pattern.compile(CSVReaderFormat.COMMENT_PATTERN));
+    assertNotNull("Byte tokenizer not used", format.makeByteTokenizer());
+    byte[] data = (DATA + "\n16,1e400,17,\" e \",f").getBytes(StandardCharsets.UTF_8);
+    for(int bs : new int[] { 1, 16, 1 << 20 }) {
+      compare(parse(new NumberVectorLabelParser<>(format, null, DoubleVector.FACTORY), data), //
+          parse(new ParallelNumberVectorLabelParser<>(format, null, DoubleVector.FACTORY, bs), data));
+    }
+    data = read(open(UNITTEST + "label-selection-test-1.csv"));
+    compare(parse(new NumberVectorLabelParser<>(format, BitsUtil.of(new int[] { 1 }), DoubleVector.FACTORY), data), //
+        parse(new ParallelNumberVectorLabelParser<>(format, BitsUtil.of(new int[] { 1 }), DoubleVector.FACTORY, 64), data));
+  }
+
+  @Test
+  public void testFiles() throws IOException {
+    for(String f : new String[] { "dimensionality-test-1.csv", "label-selection-test-1.csv", "normalization-test-1.csv" }) {
+      byte[] data = read(open(UNITTEST + f));
+      compare(parse(serial(), data), parse(parallel(256), data));
+    }
+  }
+
+  @Test
+  public void testGzip() throws IOException {
+    byte[] data = read(open(UNITTEST + "normally-distributed-data-1.csv"));
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bos)) {
+      out.write(data);
+    }
+    MultipleObjectsBundle bundle;
+    Parser parser = parallel(512);
+    try (InputStream is = FileUtil.tryGzipInput(new ByteArrayInputStream(bos.toByteArray()));
+        InputStreamDatabaseConnection dbc = new InputStreamDatabaseConnection(is, null, parser)) {
+      assertEquals("Not decompressed", GZIPInputStream.class, is.getClass());
+      bundle = dbc.loadData();
+    }
+    compare(parse(serial(), data), bundle);
+  }
+
+  /**
+   * Build the serial parser.
+   *
+   * @return Parser
+   */
+  private static Parser serial() {
+    return new NumberVectorLabelParser<>(DoubleVector.FACTORY);
+  }
+
+  /**
+   * Build the parallel parser.
+   *
+   * @param blocksize Block size
+   * @return Parser
+   */
+  private static Parser parallel(int blocksize) {
+    return new ELKIBuilder<>(ParallelNumberVectorLabelParser.class) //
+        .with(ParallelNumberVectorLabelParser.Par.BLOCKSIZE_ID, blocksize) //
+        .build();
+  }
+
+  /**
+   * Parse a byte array.
+   *
+   * @param parser Parser
+   * @param data Data
+   * @return Bundle
+   */
+  private static MultipleObjectsBundle parse(Parser parser, byte[] data) throws IOException {
+    try (InputStreamDatabaseConnection dbc = new InputStreamDatabaseConnection(new ByteArrayInputStream(data), null, parser)) {
+      return dbc.loadData();
+    }
+  }
+
+  /**
+   * Read a stream completely.
+   *
+   * @param is Input stream
+   * @return Data
+   */
+  private static byte[] read(InputStream is) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buf = new byte[4096];
+    for(int r; (r = is.read(buf)) >= 0;) {
+      bos.write(buf, 0, r);
+    }
+    is.close();
+    return bos.toByteArray();
+  }
+
+  /**
+   * Compare two bundles.
+   *
+   * @param expected Expected bundle
+   * @param actual Actual bundle
+   */
+  private static void compare(MultipleObjectsBundle expected, MultipleObjectsBundle actual) {
+    assertEquals("Columns", expected.metaLength(), actual.metaLength());
+    assertEquals("Rows", expected.dataLength(), actual.dataLength());
+    for(int c = 0; c < expected.metaLength(); c++) {
+      assertEquals("Type", expected.meta(c).toString(), actual.meta(c).toString());
+    }
+    for(int r = 0; r < expected.dataLength(); r++) {
+      NumberVector e = (NumberVector) expected.data(r, 0), a = (NumberVector) actual.data(r, 0);
+      assertEquals("Dimensionality", e.getDimensionality(), a.getDimensionality());
+      for(int d = 0; d < e.getDimensionality(); d++) {
+        assertEquals("Value", e.doubleValue(d), a.doubleValue(d), 0.);
+      }
+      for(int c = 1; c < expected.metaLength(); c++) {
+        assertEquals("Label", expected.data(r, c).toString(), actual.data(r, c).toString());
+      }
+    }
+  }
+}
@@ -33,7 +33,9 @@ import elki.logging.progress.StepProgress;
 import elki.logging.statistics.Counter;
 import elki.logging.statistics.Duration;
 import elki.logging.statistics.MillisTimeDuration;
+import elki.logging.statistics.Phase;
 import elki.logging.statistics.Statistic;
+import elki.logging.statistics.StatisticLogRecord;
 import elki.logging.statistics.UnsynchronizedLongCounter;
 
 /**
@@ -622,6 +624,16 @@ public class Logging {
     return new MillisTimeDuration(key);
   }
 
+  /**
+   * Generate a new nested phase timer.
+   * 
+   * @param key Key to use
+   * @return Phase timer.
+   */
+  public Phase newPhase(String key) {
+    return new Phase(key);
+  }
+
   /**
    * Increment a progress (unless {@code null}).
    * 
@@ -689,8 +701,10 @@ public class Logging {
    * @param stats Statistics object to report.
    */
   public void statistics(Statistic stats) {
-    if(stats != null) {
-      log(Level.STATISTICS, stats.getKey() + ": " + stats.formatValue());
+    if(stats != null && logger.isLoggable(Level.STATISTICS)) {
+      StatisticLogRecord record = new StatisticLogRecord(Level.STATISTICS, stats);
+      record.setLoggerName(logger.getName());
+      logger.log(record);
     }
   }
 
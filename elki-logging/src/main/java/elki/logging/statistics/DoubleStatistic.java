@@ -63,6 +63,15 @@ public class DoubleStatistic extends AbstractStatistic {
     return this;
   }
 
+  /**
+   * Get the current value.
+   * 
+   * @return Value
+   */
+  public double getDouble() {
+    return value;
+  }
+
   @Override
   public String formatValue() {
     return Double.toString(value);
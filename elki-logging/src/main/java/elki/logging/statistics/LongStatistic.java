@@ -63,6 +63,15 @@ public class LongStatistic extends AbstractStatistic {
     return this;
   }
 
+  /**
+   * Get the current value.
+   * 
+   * @return Value
+   */
+  public long getLong() {
+    return value;
+  }
+
   /**
    * Increment counter.
    * 
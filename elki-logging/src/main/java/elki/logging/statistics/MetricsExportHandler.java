@@ -0,0 +1,392 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.logging.statistics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Log handler that collects all statistics logged via
+ * {@link elki.logging.Logging#statistics(Statistic)}, and exports them in a
+ * machine readable format, either at the end of the run, or periodically.
+ * <p>
+ * Two formats are supported: JSON lines, where every statistic reported is
+ * appended as a separate JSON object, with a timestamp; and the Prometheus
+ * text exposition format, where the file is replaced with the latest value of
+ * each statistic (e.g., for the node exporter textfile collector). Durations
+ * are exported in seconds to Prometheus.
+ * <p>
+ * The values are copied when the statistic is logged, as statistic objects
+ * are often reused.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - - - StatisticLogRecord
+ */
+public class MetricsExportHandler extends Handler {
+  /**
+   * Export formats.
+   *
+   * @author Erich Schubert
+   */
+  public enum Format {
+    /** One JSON object per line and statistic */
+    JSON,
+    /** Prometheus text exposition format */
+    PROMETHEUS,
+  }
+
+  /**
+   * Output file.
+   */
+  private final Path file;
+
+  /**
+   * Output format.
+   */
+  private final Format format;
+
+  /**
+   * Samples not yet written (JSON only).
+   */
+  private final List<Sample> pending = new ArrayList<>();
+
+  /**
+   * Latest sample for each key (Prometheus only).
+   */
+  private final Map<String, Sample> latest = new LinkedHashMap<>();
+
+  /**
+   * Whether the output file was already written to.
+   */
+  private boolean started = false;
+
+  /**
+   * Timer for periodic export, may be {@code null}.
+   */
+  private Timer timer;
+
+  /**
+   * Constructor.
+   *
+   * @param file Output file
+   * @param format Output format
+   * @param interval Export interval in seconds, 0 to write at the end only
+   */
+  public MetricsExportHandler(Path file, Format format, int interval) {
+    super();
+    this.file = file;
+    this.format = format;
+    if(interval > 0) {
+      timer = new Timer("ELKI metrics export", true);
+      timer.scheduleAtFixedRate(new TimerTask() {
+        @Override
+        public void run() {
+          flush();
+        }
+      }, interval * 1000L, interval * 1000L);
+    }
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+    if(!(record instanceof StatisticLogRecord) || !isLoggable(record)) {
+      return;
+    }
+    Statistic stat = ((StatisticLogRecord) record).getStatistic();
+    Sample sample = new Sample(stat, record.getLoggerName(), record.getMillis());
+    synchronized(pending) {
+      if(format == Format.JSON) {
+        pending.add(sample);
+      }
+      else {
+        latest.put(stat.getKey(), sample);
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    List<Sample> todo;
+    synchronized(pending) {
+      if(format == Format.JSON && pending.isEmpty()) {
+        return;
+      }
+      todo = new ArrayList<>(format == Format.JSON ? pending : latest.values());
+      pending.clear();
+    }
+    StringBuilder buf = new StringBuilder(todo.size() * 100);
+    try {
+      if(format == Format.JSON) {
+        for(Sample s : todo) {
+          s.appendJSON(buf).append('\n');
+        }
+        synchronized(this) {
+          try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, //
+              StandardOpenOption.WRITE, started ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            w.append(buf);
+          }
+          started = true;
+        }
+        return;
+      }
+      appendPrometheus(buf, todo);
+      synchronized(this) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, buf.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+          Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e) {
+          Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+    catch(IOException e) {
+      reportError("Failed to export metrics to " + file, e, ErrorManager.WRITE_FAILURE);
+    }
+  }
+
+  @Override
+  public void close() {
+    if(timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+    flush();
+  }
+
+  /**
+   * Format the samples in the Prometheus text format.
+   *
+   * @param buf Output buffer
+   * @param todo Samples
+   */
+  private static void appendPrometheus(StringBuilder buf, List<Sample> todo) {
+    buf.append("# HELP elki_statistic Numeric statistics reported by ELKI.\n") //
+        .append("# TYPE elki_statistic gauge\n");
+    for(Sample s : todo) {
+      if(s.type == Sample.NUMBER) {
+        appendPrometheusNumber(appendLabel(buf.append("elki_statistic{key="), s.key).append("} "), s.number).append('\n');
+      }
+    }
+    buf.append("# HELP elki_duration_seconds Durations reported by ELKI.\n") //
+        .append("# TYPE elki_duration_seconds gauge\n");
+    for(Sample s : todo) {
+      if(s.type == Sample.DURATION) {
+        appendPrometheusNumber(appendLabel(buf.append("elki_duration_seconds{key="), s.key).append("} "), s.number).append('\n');
+      }
+    }
+    buf.append("# HELP elki_info Textual statistics reported by ELKI.\n") //
+        .append("# TYPE elki_info gauge\n");
+    for(Sample s : todo) {
+      if(s.type == Sample.TEXT) {
+        appendLabel(appendLabel(buf.append("elki_info{key="), s.key).append(",value="), s.text).append("} 1\n");
+      }
+    }
+  }
+
+  /**
+   * Append a quoted and escaped label value for the Prometheus format.
+   *
+   * @param buf Output buffer
+   * @param val Label value
+   * @return Output buffer
+   */
+  private static StringBuilder appendLabel(StringBuilder buf, String val) {
+    buf.append('"');
+    for(int i = 0; i < val.length(); i++) {
+      final char c = val.charAt(i);
+      if(c == '\\' || c == '"') {
+        buf.append('\\').append(c);
+      }
+      else if(c == '\n') {
+        buf.append("\\n");
+      }
+      else {
+        buf.append(c);
+      }
+    }
+    return buf.append('"');
+  }
+
+  /**
+   * Append a number in the Prometheus format.
+   *
+   * @param buf Output buffer
+   * @param val Value
+   * @return Output buffer
+   */
+  private static StringBuilder appendPrometheusNumber(StringBuilder buf, double val) {
+    return Double.isInfinite(val) ? buf.append(val > 0 ? "+Inf" : "-Inf") : //
+        val == (long) val ? buf.append((long) val) : buf.append(val);
+  }
+
+  /**
+   * Append a quoted and escaped JSON string.
+   *
+   * @param buf Output buffer
+   * @param val String value
+   * @return Output buffer
+   */
+  private static StringBuilder appendJSONString(StringBuilder buf, String val) {
+    buf.append('"');
+    for(int i = 0; i < val.length(); i++) {
+      final char c = val.charAt(i);
+      if(c == '\\' || c == '"') {
+        buf.append('\\').append(c);
+      }
+      else if(c < 0x20) {
+        buf.append(String.format("\\u%04x", (int) c));
+      }
+      else {
+        buf.append(c);
+      }
+    }
+    return buf.append('"');
+  }
+
+  /**
+   * Append a number to a JSON buffer.
+   *
+   * @param buf Output buffer
+   * @param val Value
+   * @return Output buffer
+   */
+  private static StringBuilder appendJSONNumber(StringBuilder buf, double val) {
+    if(Double.isNaN(val) || Double.isInfinite(val)) {
+      return buf.append("null"); // Not valid in JSON.
+    }
+    return val == (long) val ? buf.append((long) val) : buf.append(val);
+  }
+
+  /**
+   * Copy of a statistic at the time it was logged.
+   *
+   * @author Erich Schubert
+   */
+  private static class Sample {
+    /** Sample types */
+    static final int NUMBER = 0, DURATION = 1, TEXT = 2;
+
+    /**
+     * Statistic key.
+     */
+    final String key;
+
+    /**
+     * Logger name.
+     */
+    final String logger;
+
+    /**
+     * Time stamp in milliseconds.
+     */
+    final long millis;
+
+    /**
+     * Sample type.
+     */
+    final int type;
+
+    /**
+     * Numerical value; durations in seconds.
+     */
+    final double number;
+
+    /**
+     * Textual value.
+     */
+    final String text;
+
+    /**
+     * Constructor.
+     *
+     * @param stat Statistic
+     * @param logger Logger name
+     * @param millis Time stamp
+     */
+    Sample(Statistic stat, String logger, long millis) {
+      this.key = stat.getKey();
+      this.logger = logger;
+      this.millis = millis;
+      if(stat instanceof Duration) {
+        final long d = ((Duration) stat).getDuration();
+        type = DURATION;
+        number = stat instanceof NanoDuration ? d / 1e9 : d / 1e3;
+      }
+      else if(stat instanceof LongStatistic) {
+        type = NUMBER;
+        number = ((LongStatistic) stat).getLong();
+      }
+      else if(stat instanceof DoubleStatistic) {
+        type = NUMBER;
+        number = ((DoubleStatistic) stat).getDouble();
+      }
+      else if(stat instanceof Counter) {
+        type = NUMBER;
+        number = ((Counter) stat).getValue();
+      }
+      else {
+        type = TEXT;
+        number = Double.NaN;
+      }
+      this.text = type == TEXT ? stat.formatValue() : null;
+    }
+
+    /**
+     * Format as JSON object.
+     *
+     * @param buf Output buffer
+     * @return Output buffer
+     */
+    StringBuilder appendJSON(StringBuilder buf) {
+      appendJSONString(buf.append("{\"time\":").append(millis).append(",\"key\":"), key);
+      if(logger != null) {
+        appendJSONString(buf.append(",\"logger\":"), logger);
+      }
+      buf.append(",\"type\":\"").append(type == NUMBER ? "number" : type == DURATION ? "duration" : "text").append("\",\"value\":");
+      if(type == TEXT) {
+        appendJSONString(buf, text);
+      }
+      else {
+        appendJSONNumber(buf, number);
+      }
+      return buf.append(type == DURATION ? ",\"unit\":\"s\"}" : "}");
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.logging.statistics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nanosecond timer for a phase of a computation, such as loading the data,
+ * building an index, or a single iteration of an algorithm.
+ * <p>
+ * Phases begun while another phase is running in the same thread are nested
+ * into this phase. When a phase ends, its self time (excluding nested phases)
+ * is added to a global summary by call stack, which can be written in the
+ * "folded stacks" format used by flame graph tools (one line per stack, with
+ * frames separated by semicolons, followed by the time in nanoseconds).
+ * <p>
+ * Every phase that is begun <em>must</em> be ended, also in the case of
+ * early loop exits; otherwise later phases will be nested incorrectly. Phases
+ * can be used in try-with-resources statements for this. Phases begun in
+ * worker threads appear at the top level of the summary.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class Phase extends NanoDuration implements AutoCloseable {
+  /**
+   * Currently running phase of each thread.
+   */
+  private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Self time by call stack.
+   */
+  private static final Map<String, Long> SUMMARY = new ConcurrentHashMap<>();
+
+  /**
+   * Enclosing phase.
+   */
+  private Phase parent;
+
+  /**
+   * Call stack, frames separated by semicolons.
+   */
+  private String stack;
+
+  /**
+   * Time spent in nested phases.
+   */
+  private long nested;
+
+  /**
+   * Constructor.
+   *
+   * @param key Key, also used as frame name
+   */
+  public Phase(String key) {
+    super(key);
+  }
+
+  @Override
+  public Phase begin() {
+    parent = CURRENT.get();
+    // Semicolons separate frames, spaces separate the value:
+    final String frame = key.replace(';', ',').replace(' ', '_');
+    stack = parent != null ? parent.stack + ";" + frame : frame;
+    nested = 0;
+    CURRENT.set(this);
+    super.begin();
+    return this;
+  }
+
+  @Override
+  public Phase end() {
+    if(stack == null) {
+      return this; // Not running, or ended already.
+    }
+    super.end();
+    final long duration = getDuration();
+    if(parent != null) {
+      parent.nested += duration;
+    }
+    SUMMARY.merge(stack, duration - nested, Long::sum);
+    CURRENT.set(parent);
+    parent = null;
+    stack = null;
+    return this;
+  }
+
+  @Override
+  public void close() {
+    end();
+  }
+
+  /**
+   * Get the currently running phase of this thread.
+   *
+   * @return Current phase, or {@code null}
+   */
+  public static Phase current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Clear the summary, and the phases of this thread.
+   */
+  public static void reset() {
+    SUMMARY.clear();
+    CURRENT.remove();
+  }
+
+  /**
+   * Test if the summary is empty.
+   *
+   * @return {@code true} if no phase has ended since the last reset.
+   */
+  public static boolean isSummaryEmpty() {
+    return SUMMARY.isEmpty();
+  }
+
+  /**
+   * Write the summary in the folded stacks format of flame graph tools.
+   *
+   * @param out Output
+   * @param <A> Output type
+   * @return Output
+   * @throws IOException on write errors
+   */
+  public static <A extends Appendable> A appendFolded(A out) throws IOException {
+    List<String> stacks = new ArrayList<>(SUMMARY.keySet());
+    Collections.sort(stacks);
+    for(String s : stacks) {
+      out.append(s).append(' ').append(Long.toString(SUMMARY.get(s))).append('\n');
+    }
+    return out;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.logging.statistics;
+
+import java.util.logging.Level;
+
+import elki.logging.ELKILogRecord;
+
+/**
+ * Log record for statistics, to allow log handlers to access the statistic
+ * itself instead of its formatted message.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - Statistic
+ */
+public class StatisticLogRecord extends ELKILogRecord {
+  /**
+   * Serial version
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Statistic storage
+   */
+  private final transient Statistic statistic;
+
+  /**
+   * Constructor for statistics log messages.
+   *
+   * @param level Logging level
+   * @param statistic Statistic to log
+   */
+  public StatisticLogRecord(Level level, Statistic statistic) {
+    super(level, statistic.getKey() + ": " + statistic.formatValue());
+    this.statistic = statistic;
+  }
+
+  /**
+   * Get the statistic.
+   *
+   * @return the statistic
+   */
+  public Statistic getStatistic() {
+    return statistic;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.logging.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import elki.logging.Logging;
+import elki.logging.Logging.Level;
+
+/**
+ * Test the export of statistics.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MetricsExportHandlerTest {
+  @Test
+  public void testJSON() throws IOException {
+    Path file = Files.createTempFile("elki-metrics", ".jsonl");
+    try {
+      MetricsExportHandler h = new MetricsExportHandler(file, MetricsExportHandler.Format.JSON, 0);
+      LongStatistic stat = new LongStatistic("test.iterations", 3);
+      h.publish(new StatisticLogRecord(Level.STATISTICS, stat));
+      // Values must be copied on logging:
+      h.publish(new StatisticLogRecord(Level.STATISTICS, stat.setLong(4)));
+      h.flush();
+      h.publish(new StatisticLogRecord(Level.STATISTICS, new StringStatistic("test.\"name\"", "a\nb")));
+      NanoDuration dur = new NanoDuration("test.runtime");
+      dur.begin = 0;
+      dur.end = 1500000000L;
+      h.publish(new StatisticLogRecord(Level.STATISTICS, dur));
+      h.close();
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      assertEquals(4, lines.size());
+      assertTrue(lines.get(0), lines.get(0).endsWith(",\"key\":\"test.iterations\",\"type\":\"number\",\"value\":3}"));
+      assertTrue(lines.get(1), lines.get(1).endsWith(",\"value\":4}"));
+      assertTrue(lines.get(2), lines.get(2).contains("\"key\":\"test.\\\"name\\\"\""));
+      assertTrue(lines.get(2), lines.get(2).endsWith("\"type\":\"text\",\"value\":\"a\\u000ab\"}"));
+      assertTrue(lines.get(3), lines.get(3).endsWith("\"type\":\"duration\",\"value\":1.5,\"unit\":\"s\"}"));
+    }
+    finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testLoggerName() throws IOException {
+    Path file = Files.createTempFile("elki-metrics", ".jsonl");
+    // Initialize the logging configuration first, this resets all handlers.
+    Logging log = Logging.getLogger(MetricsExportHandlerTest.class);
+    java.util.logging.Logger logger = java.util.logging.Logger.getLogger(MetricsExportHandlerTest.class.getName());
+    java.util.logging.Level level = logger.getLevel();
+    MetricsExportHandler h = new MetricsExportHandler(file, MetricsExportHandler.Format.JSON, 0);
+    try {
+      logger.setLevel(Level.STATISTICS);
+      logger.addHandler(h);
+      log.statistics(new LongStatistic("test.iterations", 3));
+      h.close();
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      assertEquals(1, lines.size());
+      assertTrue(lines.get(0), lines.get(0).contains("\"logger\":\"" + MetricsExportHandlerTest.class.getName() + "\""));
+    }
+    finally {
+      logger.removeHandler(h);
+      logger.setLevel(level);
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testPrometheus() throws IOException {
+    Path file = Files.createTempFile("elki-metrics", ".prom");
+    try {
+      MetricsExportHandler h = new MetricsExportHandler(file, MetricsExportHandler.Format.PROMETHEUS, 0);
+      h.publish(new StatisticLogRecord(Level.STATISTICS, new LongStatistic("test.iterations", 3)));
+      h.publish(new StatisticLogRecord(Level.STATISTICS, new DoubleStatistic("test.quality", .25)));
+      h.publish(new StatisticLogRecord(Level.STATISTICS, new LongStatistic("test.iterations", 4)));
+      MillisTimeDuration dur = new MillisTimeDuration("test.runtime");
+      dur.begin = 0;
+      dur.end = 250;
+      h.publish(new StatisticLogRecord(Level.STATISTICS, dur));
+      // Other records are ignored:
+      h.publish(new java.util.logging.LogRecord(Level.STATISTICS, "test.ignored: 1"));
+      h.close();
+      String out = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      assertEquals("# HELP elki_statistic Numeric statistics reported by ELKI.\n" //
+          + "# TYPE elki_statistic gauge\n" //
+          + "elki_statistic{key=\"test.iterations\"} 4\n" //
+          + "elki_statistic{key=\"test.quality\"} 0.25\n" //
+          + "# HELP elki_duration_seconds Durations reported by ELKI.\n" //
+          + "# TYPE elki_duration_seconds gauge\n" //
+          + "elki_duration_seconds{key=\"test.runtime\"} 0.25\n" //
+          + "# HELP elki_info Textual statistics reported by ELKI.\n" //
+          + "# TYPE elki_info gauge\n", out);
+    }
+    finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.logging.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Test the nesting of phase timers.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class PhaseTest {
+  @Test
+  public void testNesting() throws IOException {
+    Phase.reset();
+    Phase outer = new Phase("outer").begin();
+    for(int i = 0; i < 3; i++) {
+      try (Phase inner = new Phase("inner").begin()) {
+        assertSame(inner, Phase.current());
+        new Phase("a b;c").begin().end();
+      }
+    }
+    assertSame(outer, Phase.current());
+    outer.end();
+    assertNull(Phase.current());
+    // Ending twice must not change the summary:
+    outer.end();
+
+    String[] lines = Phase.appendFolded(new StringBuilder()).toString().split("\n");
+    assertEquals(3, lines.length);
+    assertTrue(lines[0], lines[0].startsWith("outer "));
+    assertTrue(lines[1], lines[1].startsWith("outer;inner "));
+    assertTrue(lines[2], lines[2].startsWith("outer;inner;a_b,c "));
+    long total = 0;
+    for(String line : lines) {
+      total += Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+    }
+    // Self times add up to the total time:
+    assertEquals(outer.getDuration(), total);
+    Phase.reset();
+    assertTrue(Phase.isSummaryEmpty());
+  }
+}
@@ -28,6 +28,8 @@ import elki.database.datastore.DataStoreUtil;
 import elki.database.datastore.WritableDoubleDataStore;
 import elki.database.ids.DBIDIter;
 import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.KNNHeap;
 import elki.database.query.QueryBuilder;
 import elki.database.query.knn.KNNSearcher;
 import elki.database.relation.DoubleRelation;
@@ -132,11 +134,13 @@ public class KNNOutlier<O> implements OutlierAlgorithm {
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("kNN distance for objects", relation.size(), LOG) : null;
     DoubleMinMax minmax = new DoubleMinMax();
     WritableDoubleDataStore knno_score = DataStoreUtil.makeDoubleStorage(relation.getDBIDs(), DataStoreFactory.HINT_STATIC);
-    // compute distance to the k nearest neighbor.
+    // compute distance to the k nearest neighbor, reusing the heap.
+    KNNHeap heap = DBIDUtil.newHeap(kplus);
     for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
       // distance to the kth nearest neighbor
       // (assuming the query point is always included, with distance 0)
-      final double dkn = knnQuery.getKNN(it, kplus).getKNNDistance();
+      heap.clear();
+      final double dkn = knnQuery.getKNN(it, heap).getKNNDistance();
       knno_score.putDouble(it, dkn);
       minmax.put(dkn);
       LOG.incrementProcessed(prog);
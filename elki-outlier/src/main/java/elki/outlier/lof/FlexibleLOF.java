@@ -201,7 +201,7 @@ public class FlexibleLOF<O> implements OutlierAlgorithm {
 
     // Compute LRDs
     LOG.beginStep(stepprog, 2, "Computing LRDs.");
-    WritableDoubleDataStore lrds = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    WritableDoubleDataStore lrds = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT);
     computeLRDs(kNNReach, ids, lrds);
 
     // compute LOF_SCORE of each db object
@@ -23,6 +23,7 @@ package elki.outlier.meta;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,8 +32,10 @@ import elki.data.type.TypeUtil;
 import elki.database.datastore.DataStoreFactory;
 import elki.database.datastore.DataStoreUtil;
 import elki.database.datastore.WritableDoubleDataStore;
+import elki.database.ids.ArrayModifiableDBIDs;
 import elki.database.ids.DBIDIter;
 import elki.database.ids.DBIDUtil;
+import elki.database.ids.DBIDs;
 import elki.database.relation.DoubleRelation;
 import elki.database.relation.MaterializedDoubleRelation;
 import elki.database.relation.Relation;
@@ -40,6 +43,7 @@ import elki.datasource.parser.CSVReaderFormat;
 import elki.logging.Logging;
 import elki.math.DoubleMinMax;
 import elki.outlier.OutlierAlgorithm;
+import elki.result.BinaryResultFormat;
 import elki.result.outlier.BasicOutlierScoreMeta;
 import elki.result.outlier.InvertedOutlierScoreMeta;
 import elki.result.outlier.OutlierResult;
@@ -65,6 +69,10 @@ import elki.utilities.scaling.outlier.OutlierScaling;
  * file. This class is meant to be able to read the default output of ELKI, i.e.
  * one object per line, with the DBID specified as <tt>ID=</tt> and the outlier
  * score specified with an algorithm-specific prefix.
+ * <p>
+ * Alternatively, the binary format of
+ * {@link elki.result.outlier.OutlierScoreBinaryDumper} is read, which is
+ * detected automatically. The first record of the file is used.
  *
  * @author Erich Schubert
  * @since 0.4.0
@@ -146,6 +154,16 @@ public class ExternalDoubleOutlierScore implements OutlierAlgorithm {
   public OutlierResult run(Relation<?> relation) {
     WritableDoubleDataStore scores = DataStoreUtil.makeDoubleStorage(relation.getDBIDs(), DataStoreFactory.HINT_STATIC);
     DoubleMinMax minmax = new DoubleMinMax();
+    try {
+      Path binary = BinaryResultFormat.binaryFile(file);
+      if(binary != null) {
+        loadBinary(binary, relation.getDBIDs(), scores, minmax);
+        return finish(relation, scores, minmax);
+      }
+    }
+    catch(IOException e) {
+      throw new AbortException("Could not load outlier scores: " + e.getMessage() + " when loading " + file, e);
+    }
     try (InputStream in = FileUtil.open(file); //
         TokenizedReader reader = CSVReaderFormat.DEFAULT_FORMAT.makeReader()) {
       Tokenizer tokenizer = reader.getTokenizer();
@@ -190,7 +208,47 @@ public class ExternalDoubleOutlierScore implements OutlierAlgorithm {
     catch(IOException e) {
       throw new AbortException("Could not load outlier scores: " + e.getMessage() + " when loading " + file, e);
     }
+    return finish(relation, scores, minmax);
+  }
+
+  /**
+   * Load the scores from a binary file.
+   *
+   * @param binary Binary file
+   * @param ids Objects of the relation
+   * @param scores Score output
+   * @param minmax Minimum and maximum score
+   * @throws IOException on IO errors
+   */
+  private void loadBinary(Path binary, DBIDs ids, WritableDoubleDataStore scores, DoubleMinMax minmax) throws IOException {
+    try (BinaryResultFormat.Input in = new BinaryResultFormat.Input(binary)) {
+      if(in.getInt() != BinaryResultFormat.SCORES_MAGIC) {
+        throw new AbortException("Not a binary outlier score record in " + file);
+      }
+      in.getString(); // Name, unused.
+      final int n = in.getInt();
+      final DBIDs valid = BinaryResultFormat.validIDs(ids);
+      ArrayModifiableDBIDs oids = DBIDUtil.newArray(n);
+      for(int i = 0; i < n; i++) {
+        oids.add(in.getDBID(valid));
+      }
+      for(DBIDIter it = oids.iter(); it.valid(); it.advance()) {
+        final double score = in.getDouble();
+        scores.putDouble(it, score);
+        minmax.put(score);
+      }
+    }
+  }
 
+  /**
+   * Build the outlier result, and apply the scaling.
+   *
+   * @param relation Relation
+   * @param scores Scores
+   * @param minmax Minimum and maximum score
+   * @return Outlier result
+   */
+  private OutlierResult finish(Relation<?> relation, WritableDoubleDataStore scores, DoubleMinMax minmax) {
     OutlierScoreMeta meta = inverted //
         ? new InvertedOutlierScoreMeta(minmax.getMin(), minmax.getMax()) //
         : new BasicOutlierScoreMeta(minmax.getMin(), minmax.getMax());
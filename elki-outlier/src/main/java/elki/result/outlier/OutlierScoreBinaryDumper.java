@@ -0,0 +1,158 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.result.outlier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import elki.database.ids.DBIDIter;
+import elki.database.ids.DBIDUtil;
+import elki.database.relation.DoubleRelation;
+import elki.logging.Logging;
+import elki.result.BinaryResultFormat;
+import elki.result.Metadata;
+import elki.result.ResultHandler;
+import elki.utilities.optionhandling.OptionID;
+import elki.utilities.optionhandling.Parameterizer;
+import elki.utilities.optionhandling.parameterization.Parameterization;
+import elki.utilities.optionhandling.parameters.FileParameter;
+import elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Output outlier scores in a compact binary format, as DBID and score columns
+ * (see {@link BinaryResultFormat}).
+ * <p>
+ * Each outlier result is stored as one record:
+ * 
+ * <pre>
+ * int magic, string name, int n, n * int DBID, n * double score
+ * </pre>
+ * <p>
+ * This format can be read using
+ * {@link elki.outlier.meta.ExternalDoubleOutlierScore}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class OutlierScoreBinaryDumper implements ResultHandler {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(OutlierScoreBinaryDumper.class);
+
+  /**
+   * Output file.
+   */
+  private Path outputFile;
+
+  /**
+   * Always append to the output file.
+   */
+  private boolean append;
+
+  /**
+   * Constructor.
+   * 
+   * @param outputFile Output file
+   * @param append Append to output file (overwrite otherwise).
+   */
+  public OutlierScoreBinaryDumper(Path outputFile, boolean append) {
+    super();
+    this.outputFile = outputFile;
+    this.append = append;
+  }
+
+  @Override
+  public void processNewResult(Object newResult) {
+    List<OutlierResult> ors = OutlierResult.getOutlierResults(newResult);
+    if(ors.isEmpty()) {
+      return;
+    }
+    try (BinaryResultFormat.Output out = new BinaryResultFormat.Output(outputFile, append)) {
+      for(OutlierResult or : ors) {
+        dumpScores(out, Metadata.of(or).getLongName(), or.getScores());
+      }
+      append = true; // Append future results.
+    }
+    catch(IOException e) {
+      LOG.exception("Error writing to output file.", e);
+    }
+  }
+
+  /**
+   * Write a single score relation.
+   * 
+   * @param out Output
+   * @param name Name of the result
+   * @param scores Scores
+   * @throws IOException on IO errors
+   */
+  public static void dumpScores(BinaryResultFormat.Output out, String name, DoubleRelation scores) throws IOException {
+    out.putInt(BinaryResultFormat.SCORES_MAGIC).putString(name).putInt(scores.size());
+    for(DBIDIter iter = scores.iterDBIDs(); iter.valid(); iter.advance()) {
+      out.putInt(DBIDUtil.asInteger(iter));
+    }
+    for(DBIDIter iter = scores.iterDBIDs(); iter.valid(); iter.advance()) {
+      out.putDouble(scores.doubleValue(iter));
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   */
+  public static class Par implements Parameterizer {
+    /**
+     * Output file name parameter.
+     */
+    public static final OptionID OUT_ID = new OptionID("outlier.binary.output", "Output file name for binary outlier scores.");
+
+    /**
+     * Append flag.
+     */
+    public static final OptionID APPEND_ID = new OptionID("outlier.binary.append", "Always append to the output file.");
+
+    /**
+     * Output file.
+     */
+    private Path outputFile;
+
+    /**
+     * Always append to the output file.
+     */
+    private boolean append;
+
+    @Override
+    public void configure(Parameterization config) {
+      new FileParameter(OUT_ID, FileParameter.FileType.OUTPUT_FILE) //
+          .grab(config, x -> outputFile = Paths.get(x));
+      new Flag(APPEND_ID).grab(config, x -> append = x);
+    }
+
+    @Override
+    public OutlierScoreBinaryDumper make() {
+      return new OutlierScoreBinaryDumper(outputFile, append);
+    }
+  }
+}
@@ -20,10 +20,16 @@
  */
 package elki.outlier.distance;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Test;
 
 import elki.outlier.AbstractOutlierAlgorithmTest;
 import elki.database.Database;
+import elki.database.query.QueryStatistics;
+import elki.database.query.distance.SpatialPrimitiveDistanceQuery;
+import elki.distance.minkowski.EuclideanDistance;
+import elki.logging.Logging;
 import elki.result.outlier.OutlierResult;
 import elki.utilities.ELKIBuilder;
 import elki.utilities.referencepoints.*;
@@ -48,6 +54,28 @@ public class ReferenceBasedOutlierDetectionTest extends AbstractOutlierAlgorithm
     assertSingleScore(result, 945, 0.933574455);
   }
 
+  @Test
+  public void testReferenceBasedOutlierDetectionInstrumented() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    String key = SpatialPrimitiveDistanceQuery.class.getName() + "." + EuclideanDistance.class.getSimpleName() + ".distance";
+    QueryStatistics.setEnabled(true);
+    try {
+      long before = QueryStatistics.get(key).getCount();
+      OutlierResult result = new ELKIBuilder<>(ReferenceBasedOutlierDetection.class) //
+          .with(ReferenceBasedOutlierDetection.Par.K_ID, 11) //
+          .with(GridBasedReferencePoints.Par.GRID_ID, 3)//
+          .build().autorun(db);
+      assertAUC(db, "Noise", result, 0.9693703703703);
+      assertSingleScore(result, 945, 0.933574455);
+      // One distance for each of the 4^3 grid points and each object
+      assertEquals(64 * 960, QueryStatistics.get(key).getCount() - before);
+      QueryStatistics.logAndReset(Logging.getLogger(ReferenceBasedOutlierDetectionTest.class));
+    }
+    finally {
+      QueryStatistics.setEnabled(false);
+    }
+  }
+
   @Test
   public void testReferenceBasedOutlierDetectionStar() {
     Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
@@ -0,0 +1,64 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.outlier.meta;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import elki.data.DoubleVector;
+import elki.database.Database;
+import elki.outlier.AbstractOutlierAlgorithmTest;
+import elki.outlier.lof.LOF;
+import elki.result.outlier.OutlierResult;
+import elki.result.outlier.OutlierScoreBinaryDumper;
+import elki.utilities.ELKIBuilder;
+
+/**
+ * Test loading external outlier scores.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ExternalDoubleOutlierScoreTest extends AbstractOutlierAlgorithmTest {
+  @Test
+  public void testBinary() throws IOException {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-axis-subspaces-6d.ascii", 1345);
+    OutlierResult orig = new ELKIBuilder<LOF<DoubleVector>>(LOF.class) //
+        .with(LOF.Par.K_ID, 10).build().autorun(db);
+    Path file = Files.createTempFile("elki-test", ".bin");
+    OutlierResult result;
+    try {
+      new OutlierScoreBinaryDumper(file, false).processNewResult(orig);
+      result = new ELKIBuilder<>(ExternalDoubleOutlierScore.class) //
+          .with(ExternalDoubleOutlierScore.Par.FILE_ID, file) //
+          .with(ExternalDoubleOutlierScore.Par.SCORE_ID, "^lof=") //
+          .build().autorun(db);
+    }
+    finally {
+      Files.delete(file);
+    }
+    assertSingleScore(result, 1293, 1.1945314199156365);
+    assertAUC(db, "Noise", result, 0.8921680672268908);
+  }
+}
@@ -228,6 +228,14 @@ public abstract class AbstractIndexStructureTest {
         assertNeighbors(relation, dist, knnq.getKNN(DoubleVector.wrap(querypoint), k), shouldd, shouldc);
       }
       assertNeighbors(knnq2.getKNN(second, k), shouldd2, shouldc2);
+      // Reuse a heap for multiple queries:
+      KNNHeap heap = DBIDUtil.newHeap(k);
+      for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+        heap.clear();
+        assertEquals("Heap reuse", knnq2.getKNN(it, k).getKNNDistance(), knnq2.getKNN(it, heap).getKNNDistance(), 0.);
+      }
+      heap.clear();
+      assertNeighbors(knnq2.getKNN(second, heap).toKNNList(), shouldd2, shouldc2);
     }
     if(expectRangeQuery != null) {
       RangeSearcher<DoubleVector> rangeq = qb.rangeByObject(eps);
@@ -21,10 +21,18 @@
 package elki.distance.timeseries;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
 import elki.data.DoubleVector;
+import elki.data.NumberVector;
+import elki.distance.PrimitiveDistance;
+import elki.math.MathUtil;
 
 /**
  * Unit test for dynamic time warping distance.
@@ -114,4 +122,31 @@ public class DTWDistanceTest {
       }
     }
   }
+
+  /**
+   * The early abandoning distance must agree with the full distance unless
+   * the threshold is exceeded; checked for the related edit distances, too.
+   */
+  @Test
+  public void testEarlyAbandoning() {
+    Random rnd = new Random(0L);
+    List<PrimitiveDistance<NumberVector>> dists = Arrays.asList(new DTWDistance(), new DTWDistance(.2), //
+        new DerivativeDTWDistance(), new ERPDistance(.3, 0.), new EDRDistance(.3, .1), new LCSSDistance(.2, .05));
+    for(int i = 0; i < 20; i++) {
+      DoubleVector v1 = DoubleVector.wrap(MathUtil.randomDoubleArray(30, rnd));
+      DoubleVector v2 = DoubleVector.wrap(MathUtil.randomDoubleArray(30 + (i & 3), rnd));
+      for(PrimitiveDistance<NumberVector> f : dists) {
+        final double full = f.distance(v1, v2);
+        for(double t : new double[] { 0., full * .5, Math.nextDown(full), full, INF }) {
+          final double d = f.distance(v1, v2, t);
+          if(full <= t) {
+            assertEquals("Early abandoning distance differs: " + f, full, d, 0.);
+          }
+          else {
+            assertTrue("Early abandoning distance not above threshold: " + f, d > t);
+          }
+        }
+      }
+    }
+  }
 }
@@ -20,16 +20,28 @@
  */
 package elki;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collection;
 
 import elki.application.KDDCLIApplication;
 import elki.database.Database;
+import elki.logging.Logging;
+import elki.logging.LoggingConfiguration;
+import elki.logging.statistics.Duration;
+import elki.logging.statistics.Phase;
 import elki.result.Metadata;
 import elki.result.SettingsResult;
+import elki.utilities.optionhandling.OptionID;
 import elki.utilities.optionhandling.Parameterizer;
 import elki.utilities.optionhandling.parameterization.Parameterization;
 import elki.utilities.optionhandling.parameterization.TrackParameters;
 import elki.utilities.optionhandling.parameterization.TrackedParameter;
+import elki.utilities.optionhandling.parameters.FileParameter;
 import elki.workflow.AlgorithmStep;
 import elki.workflow.EvaluationStep;
 import elki.workflow.InputStep;
@@ -48,6 +60,11 @@ import elki.workflow.OutputStep;
  * @composed - - - OutputStep
  */
 public class KDDTask {
+  /**
+   * Logger
+   */
+  private static final Logging LOG = Logging.getLogger(KDDTask.class);
+
   /**
    * The settings used, for settings reporting.
    */
@@ -73,6 +90,11 @@ public class KDDTask {
    */
   private OutputStep outputStep;
 
+  /**
+   * Output file for the phase summary, may be {@code null}.
+   */
+  private Path phasesOut;
+
   /**
    * Constructor.
    *
@@ -83,12 +105,27 @@ public class KDDTask {
    * @param settings
    */
   public KDDTask(InputStep inputStep, AlgorithmStep algorithmStep, EvaluationStep evaluationStep, OutputStep outputStep, Collection<TrackedParameter> settings) {
+    this(inputStep, algorithmStep, evaluationStep, outputStep, settings, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param inputStep
+   * @param algorithmStep
+   * @param evaluationStep
+   * @param outputStep
+   * @param settings
+   * @param phasesOut Output file for the phase summary, may be {@code null}
+   */
+  public KDDTask(InputStep inputStep, AlgorithmStep algorithmStep, EvaluationStep evaluationStep, OutputStep outputStep, Collection<TrackedParameter> settings, Path phasesOut) {
     super();
     this.inputStep = inputStep;
     this.algorithmStep = algorithmStep;
     this.evaluationStep = evaluationStep;
     this.outputStep = outputStep;
     this.settings = settings;
+    this.phasesOut = phasesOut;
   }
 
   /**
@@ -96,6 +133,8 @@ public class KDDTask {
    * connection.
    */
   public void run() {
+    Phase.reset();
+    Duration duration = LOG.isStatistics() ? LOG.newPhase(KDDTask.class.getName() + ".runtime").begin() : null;
     // Input step
     Database db = inputStep.getDatabase();
 
@@ -110,6 +149,31 @@ public class KDDTask {
 
     // Output / Visualization
     outputStep.runResultHandlers(db);
+
+    if(duration != null) {
+      LOG.statistics(duration.end());
+      writePhaseSummary();
+    }
+  }
+
+  /**
+   * Write the summary of the phase timings, in the folded stacks format of
+   * flame graph tools.
+   */
+  private void writePhaseSummary() {
+    try {
+      if(phasesOut != null) {
+        try (Writer out = Files.newBufferedWriter(phasesOut, StandardCharsets.UTF_8)) {
+          Phase.appendFolded(out);
+        }
+      }
+      else if(!Phase.isSummaryEmpty()) {
+        LOG.statistics(Phase.appendFolded(new StringBuilder(1000).append("Phase summary (folded stacks, ns):\n")));
+      }
+    }
+    catch(IOException e) {
+      LOG.exception("Failed to write the phase summary.", e);
+    }
   }
 
   /**
@@ -128,8 +192,18 @@ public class KDDTask {
 
     OutputStep outputStep = null;
 
+    Path phasesOut = null;
+
+    /**
+     * Optional file to write the phase summary to.
+     */
+    public static final OptionID PHASES_OUT_ID = new OptionID("phases.out", "Write the nested phase timings in the folded stacks format of flame graph tools to this file. Enables logging of statistics.");
+
     @Override
     public void configure(Parameterization config) {
+      new FileParameter(PHASES_OUT_ID, FileParameter.FileType.OUTPUT_FILE) //
+          .setOptional(true) //
+          .grab(config, x -> phasesOut = Paths.get(x));
       TrackParameters track = new TrackParameters(config);
 
       inputStep = track.tryInstantiate(InputStep.class);
@@ -144,7 +218,10 @@ public class KDDTask {
 
     @Override
     public KDDTask make() {
-      return new KDDTask(inputStep, algorithmStep, evaluationStep, outputStep, settings);
+      if(phasesOut != null) {
+        LoggingConfiguration.setStatistics();
+      }
+      return new KDDTask(inputStep, algorithmStep, evaluationStep, outputStep, settings, phasesOut);
     }
   }
 
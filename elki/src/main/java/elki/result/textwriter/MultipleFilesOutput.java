@@ -44,6 +44,11 @@ public class MultipleFilesOutput implements StreamFactory {
    */
   private static final String GZIP_EXTENSION = ".gz";
 
+  /**
+   * Output buffer size.
+   */
+  static final int BUFFER_SIZE = 1 << 20;
+
   /**
    * Base file name.
    */
@@ -95,7 +100,7 @@ public class MultipleFilesOutput implements StreamFactory {
     Path fn = basename.resolve(name + (usegzip ? GZIP_EXTENSION : EXTENSION));
     OutputStream os = Files.newOutputStream(fn);
     // Both PrintStream and GZIPOutputStream call close()
-    PrintStream res = new PrintStream(usegzip ? new GZIPOutputStream(os) : os);
+    PrintStream res = new PrintStream(new BufferedOutputStream(usegzip ? new GZIPOutputStream(os, BUFFER_SIZE) : os, BUFFER_SIZE));
     if(LOG.isDebuggingFiner()) {
       LOG.debugFiner("Opened new output stream:" + fn);
     }
@@ -86,7 +86,7 @@ public class SingleStreamOutput implements StreamFactory {
    * @throws IOException on IO error
    */
   public SingleStreamOutput(OutputStream out, boolean gzip) throws IOException {
-    this.stream = new PrintStream(gzip ? new GZIPOutputStream(out) : out);
+    this.stream = new PrintStream(new BufferedOutputStream(gzip ? new GZIPOutputStream(out, MultipleFilesOutput.BUFFER_SIZE) : out, MultipleFilesOutput.BUFFER_SIZE));
   }
 
   /**
@@ -20,23 +20,31 @@
  */
 package elki.result.textwriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import elki.data.*;
 import elki.data.model.Model;
 import elki.data.type.TypeUtil;
 import elki.database.Database;
+import elki.database.ids.ArrayModifiableDBIDs;
 import elki.database.ids.DBID;
 import elki.database.ids.DBIDIter;
 import elki.database.ids.DBIDRef;
+import elki.database.ids.DBIDUtil;
+import elki.database.ids.DBIDs;
 import elki.database.relation.Relation;
 import elki.datasource.bundle.SingleObjectBundle;
 import elki.evaluation.classification.ConfusionMatrixEvaluationResult;
 import elki.math.geometry.XYCurve;
+import elki.parallel.ParallelCore;
 import elki.result.*;
 import elki.result.SettingsResult.SettingInformation;
 import elki.result.textwriter.naming.NamingScheme;
@@ -52,6 +60,9 @@ import elki.utilities.pairs.Pair;
  * Class to write a result to human-readable text output.
  * <p>
  * Note: these classes need to be <b>redesigned</b>. Contributions welcome!
+ * <p>
+ * The objects of large clusters and orderings are formatted in parallel, in
+ * blocks of {@link #BLOCKSIZE} objects, which are then written in order.
  *
  * @author Erich Schubert
  * @since 0.2
@@ -67,6 +78,11 @@ public class TextWriter {
    */
   public static final String FILE_EXTENSION = ".txt";
 
+  /**
+   * Number of objects to format at once in parallel output.
+   */
+  public static final int BLOCKSIZE = 1024;
+
   /**
    * Hash map for supported classes in writer.
    */
@@ -109,6 +125,23 @@ public class TextWriter {
    */
   private TextWriterWriterInterface<?> fallback = new TextWriterObjectComment();
 
+  /**
+   * Number of threads to format with, 1 for serial output.
+   */
+  private int parallelism = ParallelCore.getCore().getParallelism();
+
+  /**
+   * Set the number of threads to format with. The output does not depend on
+   * this setting.
+   *
+   * @param parallelism Number of threads, 1 for serial output
+   * @return this
+   */
+  public TextWriter setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
   /**
    * Try to find a unique file name.
    *
@@ -200,13 +233,123 @@ public class TextWriter {
     }
   }
 
-  private void printObject(TextWriterStream out, Database db, final DBIDRef objID, List<Relation<?>> ra) throws IOException {
+  /**
+   * Print the objects, formatting blocks of objects in parallel if
+   * beneficial.
+   *
+   * @param out Output
+   * @param outStream Output stream of {@code out}
+   * @param db Database
+   * @param ids Objects to print, in order
+   * @param ra Annotation relations
+   * @throws IOException on IO error
+   */
+  private void printObjects(TextWriterStream out, PrintStream outStream, Database db, DBIDs ids, List<Relation<?>> ra) throws IOException {
+    // Annotations to print, except the database relations.
+    List<Relation<?>> annotations = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+    if(ra != null) {
+      Collection<Relation<?>> dbrels = db.getRelations();
+      for(Relation<?> a : ra) {
+        if(!dbrels.contains(a)) {
+          annotations.add(a);
+          labels.add(Metadata.of(a).getLongName());
+        }
+      }
+    }
+    if(parallelism <= 1 || ids.size() <= BLOCKSIZE) {
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        printObject(out, db, iter, annotations, labels, out::getWriterFor);
+      }
+      return;
+    }
+    out.flush();
+    ArrayDeque<Future<ByteArrayOutputStream>> pending = new ArrayDeque<>();
+    ParallelCore.getCore().connect();
+    try {
+      DBIDIter iter = ids.iter();
+      while(iter.valid() || !pending.isEmpty()) {
+        // Keep a bounded number of blocks in flight.
+        while(iter.valid() && pending.size() < parallelism << 1) {
+          ArrayModifiableDBIDs block = DBIDUtil.newArray(BLOCKSIZE);
+          for(; iter.valid() && block.size() < BLOCKSIZE; iter.advance()) {
+            block.add(iter);
+          }
+          pending.addLast(ParallelCore.getCore().submit(() -> printBlock(db, block, annotations, labels)));
+        }
+        pending.removeFirst().get().writeTo(outStream);
+      }
+    }
+    catch(InterruptedException e) {
+      throw new RuntimeException("Parallel execution interrupted.");
+    }
+    catch(ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException("Processor execution failed.", e);
+    }
+    finally {
+      for(Future<ByteArrayOutputStream> f : pending) {
+        f.cancel(true);
+      }
+      ParallelCore.getCore().disconnect();
+    }
+  }
+
+  /**
+   * Format a block of objects into a buffer.
+   *
+   * @param db Database
+   * @param block Objects to print
+   * @param annotations Annotation relations
+   * @param labels Annotation labels
+   * @return Buffer
+   * @throws IOException on formatting errors
+   */
+  private ByteArrayOutputStream printBlock(Database db, DBIDs block, List<Relation<?>> annotations, List<String> labels) throws IOException {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(block.size() << 7);
+    PrintStream ps = new PrintStream(buf);
+    TextWriterStream out = new TextWriterStream(ps, writers, fallback);
+    // The shared handler list is not thread safe, so cache the lookups.
+    Map<Class<?>, TextWriterWriterInterface<?>> cache = new HashMap<>();
+    Function<Object, TextWriterWriterInterface<?>> lookup = o -> {
+      TextWriterWriterInterface<?> w = cache.get(o.getClass());
+      if(w == null) {
+        synchronized(writers) {
+          w = out.getWriterFor(o);
+        }
+        if(w != null) {
+          cache.put(o.getClass(), w);
+        }
+      }
+      return w;
+    };
+    for(DBIDIter iter = block.iter(); iter.valid(); iter.advance()) {
+      printObject(out, db, iter, annotations, labels, lookup);
+    }
+    ps.flush();
+    return buf;
+  }
+
+  /**
+   * Print a single object.
+   *
+   * @param out Output
+   * @param db Database
+   * @param objID Object
+   * @param annotations Annotation relations
+   * @param labels Annotation labels
+   * @param lookup Writer lookup
+   * @throws IOException on formatting errors
+   */
+  private void printObject(TextWriterStream out, Database db, final DBIDRef objID, List<Relation<?>> annotations, List<String> labels, Function<Object, TextWriterWriterInterface<?>> lookup) throws IOException {
     SingleObjectBundle bundle = db.getBundle(objID);
     // Write database element itself.
     for(int i = 0; i < bundle.metaLength(); i++) {
       Object obj = bundle.data(i);
       if(obj != null) {
-        TextWriterWriterInterface<?> owriter = out.getWriterFor(obj);
+        TextWriterWriterInterface<?> owriter = lookup.apply(obj);
         if(owriter == null) {
           throw new IOException("No handler for database object itself: " + obj.getClass().getSimpleName());
         }
@@ -219,26 +362,18 @@ public class TextWriter {
       }
     }
 
-    Collection<Relation<?>> dbrels = db.getRelations();
     // print the annotations
-    if(ra != null) {
-      for(Relation<?> a : ra) {
-        // Avoid duplicated output.
-        if(dbrels.contains(a)) {
-          continue;
-        }
-        String label = Metadata.of(a).getLongName();
-        Object value = a.get(objID);
-        if(value == null) {
-          continue;
-        }
-        TextWriterWriterInterface<?> writer = out.getWriterFor(value);
-        if(writer == null) {
-          // Ignore
-          continue;
-        }
-        writer.writeObject(out, label, value);
+    for(int i = 0; i < annotations.size(); i++) {
+      Object value = annotations.get(i).get(objID);
+      if(value == null) {
+        continue;
       }
+      TextWriterWriterInterface<?> writer = lookup.apply(value);
+      if(writer == null) {
+        // Ignore
+        continue;
+      }
+      writer.writeObject(out, labels.get(i), value);
     }
     out.flush();
   }
@@ -269,9 +404,7 @@ public class TextWriter {
     }
     out.flush();
 
-    for(DBIDIter iter = clus.getIDs().iter(); iter.valid(); iter.advance()) {
-      printObject(out, db, iter, ra);
-    }
+    printObjects(out, outStream, db, clus.getIDs(), ra);
     out.flush();
     streamOpener.closeStream(outStream);
   }
@@ -307,9 +440,7 @@ public class TextWriter {
     PrintStream outStream = streamOpener.openStream(getFilename(or, Metadata.of(or).getLongName()));
     TextWriterStream out = new TextWriterStream(outStream, writers, fallback);
 
-    for(DBIDIter i = or.order(or.getDBIDs()).iter(); i.valid(); i.advance()) {
-      printObject(out, db, i, ra);
-    }
+    printObjects(out, outStream, db, or.order(or.getDBIDs()), ra);
     out.flush();
     streamOpener.closeStream(outStream);
   }
@@ -24,6 +24,7 @@ import java.util.List;
 
 import elki.Algorithm;
 import elki.database.Database;
+import elki.database.query.QueryStatistics;
 import elki.index.Index;
 import elki.logging.Logging;
 import elki.logging.LoggingConfiguration;
@@ -89,11 +90,12 @@ public class AlgorithmStep implements WorkflowStep {
         it.get().logStatistics();
       }
     }
+    Duration stepduration = LOG.isStatistics() ? LOG.newPhase(AlgorithmStep.class.getName() + ".runtime").begin() : null;
     stepresult = new Object();
     Metadata.of(stepresult).setLongName("Algorithm Step");
     for(Algorithm algorithm : algorithms) {
       Thread.currentThread().setName(algorithm.toString());
-      Duration duration = LOG.isStatistics() ? LOG.newDuration(algorithm.getClass().getName() + ".runtime").begin() : null;
+      Duration duration = LOG.isStatistics() ? LOG.newPhase(algorithm.getClass().getName() + ".runtime").begin() : null;
       Object res = algorithm.autorun(database);
       if(duration != null) {
         LOG.statistics(duration.end());
@@ -107,12 +109,19 @@ public class AlgorithmStep implements WorkflowStep {
           }
           it.get().logStatistics();
         }
+        if(QueryStatistics.isEnabled()) {
+          LOG.statistics("Query statistics of algorithm " + algorithm.toString() + ":");
+          QueryStatistics.logAndReset(LOG);
+        }
       }
       if(res != null) {
         // Make sure the result is attached, but usually this is a noop:
         Metadata.hierarchyOf(database).addChild(res);
       }
     }
+    if(stepduration != null) {
+      LOG.statistics(stepduration.end());
+    }
     Thread.currentThread().setName("AlgorithmStep finished.");
     return stepresult;
   }
@@ -137,6 +146,11 @@ public class AlgorithmStep implements WorkflowStep {
      */
     protected boolean time = false;
 
+    /**
+     * Flag to enable query instrumentation.
+     */
+    protected boolean instrument = false;
+
     /**
      * Holds the algorithm to run.
      */
@@ -147,6 +161,11 @@ public class AlgorithmStep implements WorkflowStep {
      */
     public static final OptionID TIME_ID = new OptionID("time", "Enable logging of runtime data. Do not combine with more verbose logging, since verbose logging can significantly impact performance.");
 
+    /**
+     * Flag to enable the instrumentation of queries.
+     */
+    public static final OptionID INSTRUMENT_ID = new OptionID("instrument", "Count distance computations, and the number and latency of kNN and range queries, for each query type. Distances computed directly by index structures and page file accesses are not counted. Implies -time.");
+
     /**
      * Parameter to specify the algorithm to run.
      */
@@ -155,6 +174,7 @@ public class AlgorithmStep implements WorkflowStep {
     @Override
     public void configure(Parameterization config) {
       new Flag(TIME_ID).grab(config, x -> time = x);
+      new Flag(INSTRUMENT_ID).grab(config, x -> instrument = x);
       // parameter algorithm
       new ObjectListParameter<Algorithm>(ALGORITHM_ID, Algorithm.class) //
           .grab(config, x -> algorithms = x);
@@ -162,9 +182,10 @@ public class AlgorithmStep implements WorkflowStep {
 
     @Override
     public AlgorithmStep make() {
-      if(time) {
+      if(time || instrument) {
         LoggingConfiguration.setStatistics();
       }
+      QueryStatistics.setEnabled(instrument);
       return new AlgorithmStep(algorithms);
     }
   }
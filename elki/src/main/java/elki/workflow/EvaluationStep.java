@@ -26,6 +26,8 @@ import java.util.List;
 import elki.database.Database;
 import elki.evaluation.AutomaticEvaluation;
 import elki.evaluation.Evaluator;
+import elki.logging.Logging;
+import elki.logging.statistics.Duration;
 import elki.result.Metadata;
 import elki.result.ResultListener;
 import elki.utilities.optionhandling.Parameterizer;
@@ -43,6 +45,11 @@ import elki.utilities.optionhandling.parameters.ObjectListParameter;
  * @assoc - - - Result
  */
 public class EvaluationStep implements WorkflowStep {
+  /**
+   * Logger
+   */
+  private static final Logging LOG = Logging.getLogger(EvaluationStep.class);
+
   /**
    * Evaluators to run.
    */
@@ -67,10 +74,14 @@ public class EvaluationStep implements WorkflowStep {
     // Currently only serves indication purposes.
     stepresult = new Object();
     Metadata.of(stepresult).setLongName("Evaluation Step");
+    Duration duration = LOG.isStatistics() ? LOG.newPhase(EvaluationStep.class.getName() + ".runtime").begin() : null;
     // Run evaluation helpers
     if(evaluators != null) {
       new Evaluation(evaluators, db);
     }
+    if(duration != null) {
+      LOG.statistics(duration.end());
+    }
   }
 
   /**
@@ -23,6 +23,8 @@ package elki.workflow;
 import elki.application.AbstractApplication;
 import elki.database.Database;
 import elki.database.StaticArrayDatabase;
+import elki.logging.Logging;
+import elki.logging.statistics.Duration;
 import elki.utilities.optionhandling.Parameterizer;
 import elki.utilities.optionhandling.OptionID;
 import elki.utilities.optionhandling.parameterization.Parameterization;
@@ -37,6 +39,11 @@ import elki.utilities.optionhandling.parameters.ObjectParameter;
  * @has - - - Database
  */
 public class InputStep implements WorkflowStep {
+  /**
+   * Logger
+   */
+  private static final Logging LOG = Logging.getLogger(InputStep.class);
+
   /**
    * Holds the database to have the algorithms run with.
    */
@@ -58,7 +65,11 @@ public class InputStep implements WorkflowStep {
    * @return Database
    */
   public Database getDatabase() {
+    Duration duration = LOG.isStatistics() ? LOG.newPhase(InputStep.class.getName() + ".runtime").begin() : null;
     database.initialize();
+    if(duration != null) {
+      LOG.statistics(duration.end());
+    }
     return database;
   }
 
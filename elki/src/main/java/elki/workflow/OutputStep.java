@@ -24,6 +24,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import elki.database.Database;
+import elki.logging.Logging;
+import elki.logging.statistics.Duration;
 import elki.result.ResultHandler;
 import elki.result.ResultWriter;
 import elki.utilities.optionhandling.Parameterizer;
@@ -41,6 +43,11 @@ import elki.utilities.optionhandling.parameters.ObjectListParameter;
  * @has - - - ResultHandler
  */
 public class OutputStep implements WorkflowStep {
+  /**
+   * Logger
+   */
+  private static final Logging LOG = Logging.getLogger(OutputStep.class);
+
   /**
    * Output handler.
    */
@@ -62,11 +69,15 @@ public class OutputStep implements WorkflowStep {
    * @param db Database
    */
   public void runResultHandlers(Database db) {
+    Duration duration = LOG.isStatistics() ? LOG.newPhase(OutputStep.class.getName() + ".runtime").begin() : null;
     // Run result handlers
     for(ResultHandler resulthandler : resulthandlers) {
       Thread.currentThread().setName(resulthandler.toString());
       resulthandler.processNewResult(db);
     }
+    if(duration != null) {
+      LOG.statistics(duration.end());
+    }
     Thread.currentThread().setName("OutputStep finished.");
   }
 
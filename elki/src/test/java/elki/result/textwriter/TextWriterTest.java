@@ -0,0 +1,90 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package elki.result.textwriter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import elki.data.NumberVector;
+import elki.data.type.TypeUtil;
+import elki.database.Database;
+import elki.database.StaticArrayDatabase;
+import elki.database.relation.Relation;
+import elki.datasource.ArrayAdapterDatabaseConnection;
+import elki.distance.minkowski.EuclideanDistance;
+import elki.outlier.distance.KNNOutlier;
+import elki.result.outlier.OutlierResult;
+
+/**
+ * Test the text writer.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class TextWriterTest {
+  /**
+   * Test that formatting in parallel gives the same output as serial
+   * formatting.
+   */
+  @Test
+  public void testParallelOutput() throws IOException {
+    final int size = TextWriter.BLOCKSIZE * 5 + 17;
+    Random rnd = new Random(0L);
+    double[][] data = new double[size][3];
+    String[] labels = new String[size];
+    for(int i = 0; i < size; i++) {
+      for(int d = 0; d < 3; d++) {
+        data[i][d] = rnd.nextDouble();
+      }
+      labels[i] = "obj" + i;
+    }
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data, labels), null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    // Ordering result with annotations.
+    OutlierResult result = new KNNOutlier<NumberVector>(EuclideanDistance.STATIC, 5).run(rel);
+    byte[] serial = write(db, result, 1), parallel = write(db, result, 4);
+    assertTrue("Output too short", serial.length > size * 20);
+    assertArrayEquals("Parallel output differs", serial, parallel);
+  }
+
+  /**
+   * Write a result into a byte array.
+   *
+   * @param db Database
+   * @param result Result
+   * @param parallelism Number of threads
+   * @return Output
+   */
+  private static byte[] write(Database db, Object result, int parallelism) throws IOException {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    try (SingleStreamOutput out = new SingleStreamOutput(buf)) {
+      new TextWriter().setParallelism(parallelism).output(db, result, out, null);
+    }
+    return buf.toByteArray();
+  }
+}